@@ -17,18 +17,27 @@
  */
 package org.apache.hadoop.gateway.i18n.messages.loggers.log4j;
 
+import org.apache.hadoop.gateway.i18n.messages.CallerMessageLogger;
 import org.apache.hadoop.gateway.i18n.messages.MessageLevel;
-import org.apache.hadoop.gateway.i18n.messages.MessageLogger;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.apache.log4j.spi.LocationInfo;
 import org.apache.log4j.spi.LoggingEvent;
 import org.apache.log4j.spi.ThrowableInformation;
 
-public class Log4jMessageLogger implements MessageLogger {
+public class Log4jMessageLogger implements CallerMessageLogger {
 
   private static String CLASS_NAME = Log4jMessageLogger.class.getName();
 
+  /**
+   * System property that selects the levels at which the caller is captured for the location info of the layouts.
+   * "always", the default, captures it for every message. "debug" only captures it while debug is enabled which
+   * saves a stack trace per message but leaves the location of the other messages unknown.
+   */
+  public static final String CALLER_PROPERTY = "gateway.i18n.log4j.caller";
+
+  private static final boolean CALLER_ONLY_WHEN_DEBUG = "debug".equalsIgnoreCase( System.getProperty( CALLER_PROPERTY, "always" ) );
+
   private Logger logger;
 
   Log4jMessageLogger( Logger logger ) {
@@ -40,6 +49,12 @@ public class Log4jMessageLogger implements MessageLogger {
     return logger.isEnabledFor( toLevel( level ) );
   }
 
+  // Capturing the caller requires a stack trace per message so it can be limited to debugging via CALLER_PROPERTY.
+  @Override
+  public final boolean isCallerRequired( final MessageLevel level ) {
+    return !CALLER_ONLY_WHEN_DEBUG || logger.isDebugEnabled();
+  }
+
   @Override
   public final void log( final StackTraceElement caller, final MessageLevel messageLevel, final String messageId, final String messageText, final Throwable thrown ) {
     LoggingEvent event = new LoggingEvent(
@@ -64,8 +79,9 @@ public class Log4jMessageLogger implements MessageLogger {
     return info;
   }
 
+  // Without a caller log4j would otherwise walk the stack itself and report this class as the location.
   private static final LocationInfo toLocationInfo( final StackTraceElement caller ) {
-    LocationInfo info = null;
+    LocationInfo info = LocationInfo.NA_LOCATION_INFO;
     if( caller != null ) {
         info = new LocationInfo( caller.getFileName(), caller.getClassName(), caller.getMethodName(), Integer.toString(caller.getLineNumber()) );
     }
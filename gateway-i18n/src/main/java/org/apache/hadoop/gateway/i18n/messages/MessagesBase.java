@@ -0,0 +1,74 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.i18n.messages;
+
+import org.apache.hadoop.gateway.i18n.resources.ResourcesBase;
+
+import java.text.MessageFormat;
+
+/**
+ * The base class of the implementations generated for @Messages interfaces.
+ * The generated methods check the level before formatting any of their arguments.
+ * The caller is only captured for loggers that implement CallerMessageLogger and require it.
+ */
+public abstract class MessagesBase extends ResourcesBase {
+
+  private final MessageLogger logger;
+  private final CallerMessageLogger callerLogger;
+  private final String[] codes;
+
+  /**
+   * @param clazz The @Messages interface.
+   * @param loggers The factory used to create the logger for the interface.
+   * @param keys The bundle key for each method, which is the method name.
+   * @param patterns The annotation or default pattern for each method used when the bundle has no pattern.
+   * @param codes The message code for each method or Message.DEFAULT_CODE.
+   */
+  protected MessagesBase( Class<?> clazz, MessageLoggerFactory loggers, String[] keys, String[] patterns, int[] codes ) {
+    super( clazz, MessagesInvoker.calcBundleName( clazz, clazz.getAnnotation( Messages.class ) ), keys, patterns );
+    Messages anno = clazz.getAnnotation( Messages.class );
+    this.logger = loggers.getLogger( MessagesInvoker.calcLoggerName( clazz, anno ) );
+    this.callerLogger = logger instanceof CallerMessageLogger ? (CallerMessageLogger)logger : null;
+    String codePattern = MessagesInvoker.calcCodePattern( clazz, anno );
+    this.codes = new String[ codes.length ];
+    for( int i = 0; i < codes.length; i++ ) {
+      if( codes[ i ] != Message.DEFAULT_CODE ) {
+        this.codes[ i ] = MessageFormat.format( codePattern, codes[ i ] );
+      }
+    }
+  }
+
+  protected final boolean isLoggable( MessageLevel level ) {
+    return logger.isLoggable( level );
+  }
+
+  /**
+   * Must only be called directly from the generated message method so that the caller can be found.
+   */
+  protected final String log( int index, MessageLevel level, Throwable throwable, Object[] args ) {
+    String message = format( index, args );
+    StackTraceElement caller = null;
+    if( callerLogger != null && callerLogger.isCallerRequired( level ) ) {
+      // Skip this method and the generated message method.
+      caller = new Throwable().getStackTrace()[ 2 ];
+    }
+    logger.log( caller, level, codes[ index ], message, throwable );
+    return message;
+  }
+
+}
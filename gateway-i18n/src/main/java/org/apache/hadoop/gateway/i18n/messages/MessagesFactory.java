@@ -19,19 +19,23 @@ package org.apache.hadoop.gateway.i18n.messages;
 
 import org.apache.hadoop.gateway.i18n.messages.loggers.jdk.JdkMessageLoggerFactory;
 import org.apache.hadoop.gateway.i18n.messages.loggers.sout.SoutMessageLoggerFactory;
-import org.apache.hadoop.gateway.i18n.messages.loggers.sout.SoutMessageLoggerFactory;
+import org.apache.hadoop.gateway.i18n.resources.ResourcesBase;
 
 import java.lang.reflect.Proxy;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.ServiceLoader;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  *
  */
 public class MessagesFactory {
 
+  private static final Logger LOG = Logger.getLogger( MessagesFactory.class.getName() );
+
   private static MessageLoggerFactory loggers = getMessageLoggerFactory();
   private static Map<Class<?>, Object> proxies = new ConcurrentHashMap<Class<?>, Object>();
 
@@ -43,13 +47,41 @@ public class MessagesFactory {
       if( anno == null ) {
         throw new IllegalArgumentException( clazz.getName() + " missing @" + Messages.class.getCanonicalName() );
       }
-      MessagesInvoker invoker = new MessagesInvoker( clazz, loggers );
-      proxy = Proxy.newProxyInstance( clazz.getClassLoader(), new Class[]{ clazz }, invoker );
+      proxy = createGenerated( clazz );
+      if( proxy == null ) {
+        MessagesInvoker invoker = new MessagesInvoker( clazz, loggers );
+        proxy = Proxy.newProxyInstance( clazz.getClassLoader(), new Class[]{ clazz }, invoker );
+      }
       proxies.put( clazz, proxy );
     }
     return (T)proxy;
   }
 
+  // Uses the implementation generated at compile time if there is one and falls back to a proxy otherwise.
+  private static Object createGenerated( Class<?> clazz ) {
+    Object object = null;
+    try {
+      Class<?> impl = Class.forName( clazz.getName() + ResourcesBase.GENERATED_SUFFIX, true, clazz.getClassLoader() );
+      if( clazz.isAssignableFrom( impl ) ) {
+        object = impl.getConstructor( MessageLoggerFactory.class ).newInstance( loggers );
+      } else {
+        logUnusableGenerated( clazz, null );
+      }
+    } catch( ClassNotFoundException e ) {
+      // No generated implementation so use a proxy.
+    } catch( Exception e ) {
+      logUnusableGenerated( clazz, e );
+    } catch( LinkageError e ) {
+      logUnusableGenerated( clazz, e );
+    }
+    return object;
+  }
+
+  // Logged via the JDK as the messages of this framework may be what is broken.
+  private static void logUnusableGenerated( Class<?> clazz, Throwable thrown ) {
+    LOG.log( Level.WARNING, "Unusable generated implementation of " + clazz.getName() + ", using a proxy instead.", thrown );
+  }
+
   private static MessageLoggerFactory getMessageLoggerFactory() {
     MessageLoggerFactory factory;
     ServiceLoader<MessageLoggerFactory> loader = ServiceLoader.load( MessageLoggerFactory.class );
@@ -49,13 +49,15 @@ public class MessagesInvoker extends ResourcesInvoker implements InvocationHandl
       message = getText( method, args );
       String code = getCode( method );
       Throwable throwable = findLoggableThrowable( logger, method, args );
-      // Supposedly this Throwable way is faster than the Thread way.
-      // From looking at the JRE code it looks this is probably the case.
-      // The second version ends up calling the first version after getting the current thread
-      // and then checking that it is being called from the current thread.
-      //TODO: Should probably only do this if the logger is at debug or finer to make sure there isn't a performance impact during production usage.
-      StackTraceElement caller = new Throwable().getStackTrace()[2];
-      // StackTraceElement caller = Thread.currentThread().getStackTrace()[3];
+      StackTraceElement caller = null;
+      if( logger instanceof CallerMessageLogger && ((CallerMessageLogger)logger).isCallerRequired( level ) ) {
+        // Supposedly this Throwable way is faster than the Thread way.
+        // From looking at the JRE code it looks this is probably the case.
+        // The second version ends up calling the first version after getting the current thread
+        // and then checking that it is being called from the current thread.
+        caller = new Throwable().getStackTrace()[2];
+        // StackTraceElement caller = Thread.currentThread().getStackTrace()[3];
+      }
       logger.log( caller, level, code, message, throwable );
     }
     return message;
@@ -122,7 +124,7 @@ public class MessagesInvoker extends ResourcesInvoker implements InvocationHandl
     return level;
   }
 
-  private static String calcCodePattern( Class<?> clazz, Messages anno ) {
+  static String calcCodePattern( Class<?> clazz, Messages anno ) {
     String pattern = anno.codes();
     if( Messages.DEFAULT_CODES.equals( pattern ) ) {
       pattern = clazz.getCanonicalName().replace( '.', '/' );
@@ -130,7 +132,7 @@ public class MessagesInvoker extends ResourcesInvoker implements InvocationHandl
     return pattern;
   }
 
-  private static String calcBundleName( Class<?> clazz, Messages anno ) {
+  static String calcBundleName( Class<?> clazz, Messages anno ) {
     String bundle = null;
     if( anno != null ) {
       bundle = anno.bundle();
@@ -144,7 +146,7 @@ public class MessagesInvoker extends ResourcesInvoker implements InvocationHandl
     return bundle;
   }
 
-  private static String calcLoggerName( Class<?> clazz, Messages anno ) {
+  static String calcLoggerName( Class<?> clazz, Messages anno ) {
     String logger = null;
     if( anno != null ) {
       logger = anno.logger();
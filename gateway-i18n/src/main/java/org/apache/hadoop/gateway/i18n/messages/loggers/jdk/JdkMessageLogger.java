@@ -17,8 +17,8 @@
  */
 package org.apache.hadoop.gateway.i18n.messages.loggers.jdk;
 
+import org.apache.hadoop.gateway.i18n.messages.CallerMessageLogger;
 import org.apache.hadoop.gateway.i18n.messages.MessageLevel;
-import org.apache.hadoop.gateway.i18n.messages.MessageLogger;
 
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
@@ -27,7 +27,7 @@ import java.util.logging.Logger;
 /**
  *
  */
-final class JdkMessageLogger implements MessageLogger {
+final class JdkMessageLogger implements CallerMessageLogger {
 
   private final Logger logger;
 
@@ -40,12 +40,19 @@ final class JdkMessageLogger implements MessageLogger {
     return logger.isLoggable( toLevel( level ) );
   }
 
+  @Override
+  public final boolean isCallerRequired( final MessageLevel level ) {
+    return true;
+  }
+
   //TODO: Handle message ID.
   @Override
   public final void log( final StackTraceElement caller, final MessageLevel level, final String id, final String message, final Throwable thrown ) {
     LogRecord record = new LogRecord( toLevel( level ), message );
-    record.setSourceClassName( caller.getClassName() );
-    record.setSourceMethodName( caller.getMethodName() );
+    if( caller != null ) {
+      record.setSourceClassName( caller.getClassName() );
+      record.setSourceMethodName( caller.getMethodName() );
+    }
     if( thrown != null ) {
       record.setThrown( thrown );
     }
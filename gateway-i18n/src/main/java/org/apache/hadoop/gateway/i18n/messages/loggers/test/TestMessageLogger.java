@@ -17,8 +17,8 @@
  */
 package org.apache.hadoop.gateway.i18n.messages.loggers.test;
 
+import org.apache.hadoop.gateway.i18n.messages.CallerMessageLogger;
 import org.apache.hadoop.gateway.i18n.messages.MessageLevel;
-import org.apache.hadoop.gateway.i18n.messages.MessageLogger;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -27,7 +27,7 @@ import java.util.List;
 /**
  *
  */
-public class TestMessageLogger implements MessageLogger {
+public class TestMessageLogger implements CallerMessageLogger {
 
   public final List<TestMessageRecord> records = Collections.synchronizedList( new ArrayList<TestMessageRecord>() );
 
@@ -46,6 +46,11 @@ public class TestMessageLogger implements MessageLogger {
     return true;
   }
 
+  @Override
+  public boolean isCallerRequired( MessageLevel level ) {
+    return true;
+  }
+
   @Override
   public void log( final StackTraceElement caller, final MessageLevel level, final String id, final String text, final Throwable thrown ) {
     TestMessageRecord record = new TestMessageRecord( this, caller, level, id, text, thrown );
@@ -0,0 +1,330 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.i18n.processor;
+
+import org.apache.hadoop.gateway.i18n.messages.Message;
+import org.apache.hadoop.gateway.i18n.messages.MessageLevel;
+import org.apache.hadoop.gateway.i18n.messages.Messages;
+import org.apache.hadoop.gateway.i18n.messages.MessagesBase;
+import org.apache.hadoop.gateway.i18n.messages.MessageLoggerFactory;
+import org.apache.hadoop.gateway.i18n.messages.StackTrace;
+import org.apache.hadoop.gateway.i18n.resources.Resource;
+import org.apache.hadoop.gateway.i18n.resources.Resources;
+import org.apache.hadoop.gateway.i18n.resources.ResourcesBase;
+import org.apache.hadoop.gateway.i18n.resources.ResourcesInvoker;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates an implementation for each @Messages and @Resources interface so that MessagesFactory and
+ * ResourcesFactory don't need to use reflection based proxies.
+ * An interface that can't be implemented (e.g. because it is private or has generic methods) is skipped
+ * with a note and the factories fall back to a proxy for it.
+ * Registered via META-INF/services so it runs for every module that depends on gateway-i18n.
+ */
+@SupportedAnnotationTypes( {
+    "org.apache.hadoop.gateway.i18n.messages.Messages",
+    "org.apache.hadoop.gateway.i18n.resources.Resources" } )
+public class I18nProcessor extends AbstractProcessor {
+
+  private Set<String> generated = new HashSet<String>();
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process( Set<? extends TypeElement> annotations, RoundEnvironment round ) {
+    for( Element element : round.getElementsAnnotatedWith( Messages.class ) ) {
+      generate( element, true );
+    }
+    for( Element element : round.getElementsAnnotatedWith( Resources.class ) ) {
+      if( element.getAnnotation( Messages.class ) == null ) {
+        generate( element, false );
+      }
+    }
+    return false;
+  }
+
+  private void generate( Element element, boolean messages ) {
+    if( element.getKind() != ElementKind.INTERFACE ) {
+      return;
+    }
+    TypeElement type = (TypeElement)element;
+    String binaryName = processingEnv.getElementUtils().getBinaryName( type ).toString();
+    if( !generated.add( binaryName ) ) {
+      return;
+    }
+    List<ExecutableElement> methods = new ArrayList<ExecutableElement>();
+    String reason = findUnsupported( type, messages, methods );
+    if( reason != null ) {
+      note( type, "Not generating an implementation for " + type.getQualifiedName() + " because " + reason + "." );
+      return;
+    }
+    PackageElement pkg = processingEnv.getElementUtils().getPackageOf( type );
+    String packageName = pkg.isUnnamed() ? null : pkg.getQualifiedName().toString();
+    String className = binaryName.substring( packageName == null ? 0 : packageName.length() + 1 ) + ResourcesBase.GENERATED_SUFFIX;
+    try {
+      JavaFileObject file = processingEnv.getFiler().createSourceFile(
+          packageName == null ? className : packageName + "." + className, type );
+      Writer writer = file.openWriter();
+      try {
+        PrintWriter out = new PrintWriter( writer );
+        writeClass( out, packageName, className, type, methods, messages );
+        out.flush();
+      } finally {
+        writer.close();
+      }
+    } catch( IOException e ) {
+      processingEnv.getMessager().printMessage( Diagnostic.Kind.WARNING,
+          "Failed to generate an implementation for " + type.getQualifiedName() + ": " + e, type );
+    }
+  }
+
+  private String findUnsupported( TypeElement type, boolean messages, List<ExecutableElement> methods ) {
+    for( Element e = type; e != null && e.getKind() != ElementKind.PACKAGE; e = e.getEnclosingElement() ) {
+      if( e.getModifiers().contains( Modifier.PRIVATE ) ) {
+        return "it is private";
+      }
+      if( ( e.getKind().isClass() || e.getKind().isInterface() ) && !( (TypeElement)e ).getTypeParameters().isEmpty() ) {
+        return "it is generic";
+      }
+    }
+    TypeMirror string = processingEnv.getElementUtils().getTypeElement( String.class.getName() ).asType();
+    for( ExecutableElement method : ElementFilter.methodsIn( processingEnv.getElementUtils().getAllMembers( type ) ) ) {
+      if( !method.getModifiers().contains( Modifier.ABSTRACT ) ) {
+        continue;
+      }
+      if( !method.getTypeParameters().isEmpty() ) {
+        return method.getSimpleName() + " is generic";
+      }
+      for( VariableElement param : method.getParameters() ) {
+        if( isUnresolved( param.asType() ) ) {
+          return method.getSimpleName() + " has an unresolved parameter type";
+        }
+      }
+      TypeMirror returnType = method.getReturnType();
+      boolean returnsVoid = returnType.getKind() == TypeKind.VOID;
+      if( !( messages && returnsVoid ) && ( returnsVoid || !processingEnv.getTypeUtils().isAssignable( string, returnType ) ) ) {
+        return method.getSimpleName() + " can't return a String";
+      }
+      methods.add( method );
+    }
+    return null;
+  }
+
+  private static boolean isUnresolved( TypeMirror type ) {
+    while( type.getKind() == TypeKind.ARRAY ) {
+      type = ( (ArrayType)type ).getComponentType();
+    }
+    return type.getKind() == TypeKind.ERROR;
+  }
+
+  private void writeClass(
+      PrintWriter out, String packageName, String className, TypeElement type,
+      List<ExecutableElement> methods, boolean messages ) {
+    String interfaceName = type.getQualifiedName().toString();
+    if( packageName != null ) {
+      out.println( "package " + packageName + ";" );
+      out.println();
+    }
+    out.println( "// Generated by " + getClass().getName() + " from " + interfaceName + ".  Do not edit." );
+    out.println( "public final class " + className );
+    out.println( "    extends " + ( messages ? MessagesBase.class : ResourcesBase.class ).getName() );
+    out.println( "    implements " + interfaceName + " {" );
+    out.println();
+
+    out.println( "  private static final java.lang.String[] KEYS = {" );
+    for( int i = 0; i < methods.size(); i++ ) {
+      out.println( "      " + literal( methods.get( i ).getSimpleName().toString() ) + ( i + 1 < methods.size() ? "," : "" ) );
+    }
+    out.println( "  };" );
+    out.println();
+
+    out.println( "  private static final java.lang.String[] PATTERNS = {" );
+    for( int i = 0; i < methods.size(); i++ ) {
+      out.println( "      " + literal( getPattern( methods.get( i ), messages ) ) + ( i + 1 < methods.size() ? "," : "" ) );
+    }
+    out.println( "  };" );
+    out.println();
+
+    if( messages ) {
+      out.print( "  private static final int[] CODES = {" );
+      for( int i = 0; i < methods.size(); i++ ) {
+        Message anno = methods.get( i ).getAnnotation( Message.class );
+        out.print( ( i > 0 ? ", " : " " ) + ( anno == null ? Message.DEFAULT_CODE : anno.code() ) );
+      }
+      out.println( " };" );
+      out.println();
+      out.println( "  public " + className + "( " + MessageLoggerFactory.class.getName() + " loggers ) {" );
+      out.println( "    super( " + interfaceName + ".class, loggers, KEYS, PATTERNS, CODES );" );
+    } else {
+      out.println( "  public " + className + "() {" );
+      out.println( "    super( " + interfaceName + ".class, KEYS, PATTERNS );" );
+    }
+    out.println( "  }" );
+
+    for( int i = 0; i < methods.size(); i++ ) {
+      out.println();
+      if( messages ) {
+        writeMessageMethod( out, i, methods.get( i ) );
+      } else {
+        writeResourceMethod( out, i, methods.get( i ) );
+      }
+    }
+    out.println();
+    out.println( "}" );
+  }
+
+  private void writeMessageMethod( PrintWriter out, int index, ExecutableElement method ) {
+    Message anno = method.getAnnotation( Message.class );
+    String level = literal( anno == null ? MessageLevel.INFO : anno.level() );
+    boolean returnsVoid = method.getReturnType().getKind() == TypeKind.VOID;
+    writeSignature( out, method );
+    if( !returnsVoid ) {
+      out.println( "    java.lang.String message = null;" );
+    }
+    out.println( "    if( isLoggable( " + level + " ) ) {" );
+    out.println( "      java.lang.Throwable throwable = null;" );
+    List<? extends VariableElement> params = method.getParameters();
+    for( int i = 0; i < params.size(); i++ ) {
+      VariableElement param = params.get( i );
+      StackTrace trace = param.getAnnotation( StackTrace.class );
+      if( trace != null && !param.asType().getKind().isPrimitive() ) {
+        out.println( "      if( throwable == null && ((java.lang.Object)p" + i + ") instanceof java.lang.Throwable && isLoggable( " + literal( trace.level() ) + " ) ) {" );
+        out.println( "        throwable = (java.lang.Throwable)((java.lang.Object)p" + i + ");" );
+        out.println( "      }" );
+      }
+    }
+    out.println( "      " + ( returnsVoid ? "" : "message = " ) + "log( " + index + ", " + level + ", throwable, " + args( method ) + " );" );
+    out.println( "    }" );
+    if( !returnsVoid ) {
+      out.println( "    return message;" );
+    }
+    out.println( "  }" );
+  }
+
+  private void writeResourceMethod( PrintWriter out, int index, ExecutableElement method ) {
+    writeSignature( out, method );
+    out.println( "    return format( " + index + ", " + args( method ) + " );" );
+    out.println( "  }" );
+  }
+
+  private void writeSignature( PrintWriter out, ExecutableElement method ) {
+    StringBuilder s = new StringBuilder();
+    s.append( "  @Override\n" );
+    s.append( "  public " ).append( method.getReturnType() ).append( " " ).append( method.getSimpleName() ).append( "(" );
+    List<? extends VariableElement> params = method.getParameters();
+    for( int i = 0; i < params.size(); i++ ) {
+      s.append( i > 0 ? ", " : " " );
+      TypeMirror paramType = params.get( i ).asType();
+      if( method.isVarArgs() && i == params.size() - 1 && paramType.getKind() == TypeKind.ARRAY ) {
+        String array = paramType.toString();
+        s.append( array.substring( 0, array.length() - 2 ) ).append( "..." );
+      } else {
+        s.append( paramType );
+      }
+      s.append( " p" ).append( i );
+    }
+    s.append( params.isEmpty() ? ") {" : " ) {" );
+    out.println( s );
+  }
+
+  // The proxies are passed null rather than an empty array for methods without parameters.
+  private static String args( ExecutableElement method ) {
+    int count = method.getParameters().size();
+    if( count == 0 ) {
+      return "null";
+    }
+    StringBuilder s = new StringBuilder( "new java.lang.Object[]{" );
+    for( int i = 0; i < count; i++ ) {
+      s.append( i > 0 ? ", p" : " p" ).append( i );
+    }
+    return s.append( " }" ).toString();
+  }
+
+  private static String getPattern( ExecutableElement method, boolean messages ) {
+    String pattern;
+    if( messages ) {
+      Message anno = method.getAnnotation( Message.class );
+      pattern = anno == null ? null : anno.text();
+    } else {
+      Resource anno = method.getAnnotation( Resource.class );
+      pattern = anno == null ? null : anno.text();
+    }
+    if( pattern == null || Resource.DEFAULT_TEXT.equals( pattern ) ) {
+      pattern = ResourcesInvoker.getDefaultPattern( method.getSimpleName().toString(), method.getParameters().size() );
+    }
+    return pattern;
+  }
+
+  private static String literal( MessageLevel level ) {
+    return MessageLevel.class.getName() + "." + level.name();
+  }
+
+  private static String literal( String value ) {
+    StringBuilder s = new StringBuilder( value.length() + 2 );
+    s.append( '"' );
+    for( int i = 0; i < value.length(); i++ ) {
+      char c = value.charAt( i );
+      switch( c ) {
+        case '"': s.append( "\\\"" ); break;
+        case '\\': s.append( "\\\\" ); break;
+        case '\n': s.append( "\\n" ); break;
+        case '\r': s.append( "\\r" ); break;
+        case '\t': s.append( "\\t" ); break;
+        default:
+          if( c < 0x20 || c > 0x7E ) {
+            s.append( String.format( "\\u%04x", (int)c ) );
+          } else {
+            s.append( c );
+          }
+      }
+    }
+    return s.append( '"' ).toString();
+  }
+
+  private void note( Element element, String message ) {
+    processingEnv.getMessager().printMessage( Diagnostic.Kind.NOTE, message, element );
+  }
+
+}
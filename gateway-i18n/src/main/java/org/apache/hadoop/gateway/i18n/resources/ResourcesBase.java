@@ -0,0 +1,111 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.i18n.resources;
+
+import java.text.MessageFormat;
+import java.util.Locale;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The base class of the implementations generated for @Resources and @Messages interfaces.
+ * The pattern for each method is resolved and parsed once per default locale instead of on every call.
+ * Each method of the implementation is identified by its index into the keys and patterns.
+ */
+public abstract class ResourcesBase {
+
+  /**
+   * The suffix appended to the binary name of an interface to form the name of its generated implementation.
+   */
+  public static final String GENERATED_SUFFIX = "$$Impl";
+
+  private final ClassLoader loader;
+  private final String bundleName;
+  private final String[] keys;
+  private final String[] patterns;
+  private volatile Formats formats;
+
+  /**
+   * @param clazz The @Resources interface.
+   * @param keys The bundle key for each method, which is the method name.
+   * @param patterns The annotation or default pattern for each method used when the bundle has no pattern.
+   */
+  protected ResourcesBase( Class<?> clazz, String[] keys, String[] patterns ) {
+    this( clazz, ResourcesInvoker.calcBundleName( clazz ), keys, patterns );
+  }
+
+  protected ResourcesBase( Class<?> clazz, String bundleName, String[] keys, String[] patterns ) {
+    this.loader = clazz.getClassLoader();
+    this.bundleName = bundleName;
+    this.keys = keys;
+    this.patterns = patterns;
+  }
+
+  protected final String format( int index, Object[] args ) {
+    // MessageFormat isn't thread safe so each call formats with a copy of the parsed prototype.
+    MessageFormat format = (MessageFormat)getFormat( index ).clone();
+    return format.format( args );
+  }
+
+  private MessageFormat getFormat( int index ) {
+    Locale locale = Locale.getDefault();
+    Formats current = formats;
+    if( current == null || !current.locale.equals( locale ) ) {
+      current = new Formats( locale, findBundle( locale ), keys.length );
+      formats = current;
+    }
+    MessageFormat format = current.formats.get( index );
+    if( format == null ) {
+      String pattern = null;
+      String key = keys[ index ];
+      if( current.bundle != null && current.bundle.containsKey( key ) ) {
+        pattern = current.bundle.getString( key );
+      }
+      if( pattern == null ) {
+        pattern = patterns[ index ];
+      }
+      format = new MessageFormat( pattern, locale );
+      current.formats.set( index, format );
+    }
+    return format;
+  }
+
+  private ResourceBundle findBundle( Locale locale ) {
+    try {
+      return ResourceBundle.getBundle( bundleName, locale, loader );
+    } catch( MissingResourceException e ) {
+      return null;
+    }
+  }
+
+  private static class Formats {
+
+    private final Locale locale;
+    private final ResourceBundle bundle;
+    private final AtomicReferenceArray<MessageFormat> formats;
+
+    private Formats( Locale locale, ResourceBundle bundle, int size ) {
+      this.locale = locale;
+      this.bundle = bundle;
+      this.formats = new AtomicReferenceArray<MessageFormat>( size );
+    }
+
+  }
+
+}
@@ -20,12 +20,16 @@ package org.apache.hadoop.gateway.i18n.resources;
 import java.lang.reflect.Proxy;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  *
  */
 public class ResourcesFactory {
 
+  private static final Logger LOG = Logger.getLogger( ResourcesFactory.class.getName() );
+
   private static Map<Class<?>, Object> proxies = new ConcurrentHashMap<Class<?>, Object>();
 
   @SuppressWarnings( "unchecked" )
@@ -36,11 +40,38 @@ public class ResourcesFactory {
       if( anno == null ) {
         throw new IllegalArgumentException( clazz.getName() + " missing @" + Resources.class.getCanonicalName() );
       }
-      ResourcesInvoker invoker = new ResourcesInvoker( clazz );
-      proxy = Proxy.newProxyInstance( clazz.getClassLoader(), new Class[]{ clazz }, invoker );
+      proxy = createGenerated( clazz );
+      if( proxy == null ) {
+        ResourcesInvoker invoker = new ResourcesInvoker( clazz );
+        proxy = Proxy.newProxyInstance( clazz.getClassLoader(), new Class[]{ clazz }, invoker );
+      }
       proxies.put( clazz, proxy );
     }
     return (T)proxy;
   }
 
+  // Uses the implementation generated at compile time if there is one and falls back to a proxy otherwise.
+  private static Object createGenerated( Class<?> clazz ) {
+    Object object = null;
+    try {
+      Class<?> impl = Class.forName( clazz.getName() + ResourcesBase.GENERATED_SUFFIX, true, clazz.getClassLoader() );
+      if( clazz.isAssignableFrom( impl ) ) {
+        object = impl.getConstructor().newInstance();
+      } else {
+        logUnusableGenerated( clazz, null );
+      }
+    } catch( ClassNotFoundException e ) {
+      // No generated implementation so use a proxy.
+    } catch( Exception e ) {
+      logUnusableGenerated( clazz, e );
+    } catch( LinkageError e ) {
+      logUnusableGenerated( clazz, e );
+    }
+    return object;
+  }
+
+  private static void logUnusableGenerated( Class<?> clazz, Throwable thrown ) {
+    LOG.log( Level.WARNING, "Unusable generated implementation of " + clazz.getName() + ", using a proxy instead.", thrown );
+  }
+
 }
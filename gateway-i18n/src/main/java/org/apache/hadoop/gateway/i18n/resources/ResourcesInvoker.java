@@ -89,9 +89,17 @@ public class ResourcesInvoker implements InvocationHandler {
   }
 
   protected static String getDefaultPattern( Method method ) {
-    String prefix = method.getName();
+    return getDefaultPattern( method.getName(), method.getParameterTypes().length );
+  }
+
+  /**
+   * @param name The name of the resource or message method.
+   * @param params The number of parameters of the method.
+   * @return The pattern used for a method without a pattern in either its annotation or the bundle.
+   */
+  public static String getDefaultPattern( String name, int params ) {
+    String prefix = name;
     String suffix;
-    int params = method.getParameterTypes().length;
     switch( params ) {
       case( 0 )  : suffix = ""; break;
       case( 1 )  : suffix = "(\"{0}\")"; break;
@@ -123,7 +131,7 @@ public class ResourcesInvoker implements InvocationHandler {
 
   }
 
-  private static String calcBundleName( Class<?> clazz ) {
+  static String calcBundleName( Class<?> clazz ) {
     String bundle = null;
     Resources anno = clazz.getAnnotation( Resources.class );
     if( anno != null ) {
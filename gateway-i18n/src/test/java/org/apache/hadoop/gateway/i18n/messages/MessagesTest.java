@@ -20,12 +20,14 @@ package org.apache.hadoop.gateway.i18n.messages;
 import org.apache.hadoop.gateway.i18n.messages.loggers.test.TestMessageLogger;
 import org.apache.hadoop.gateway.i18n.messages.loggers.test.TestMessageLoggerFactory;
 import org.apache.hadoop.gateway.i18n.messages.loggers.test.TestMessageRecord;
+import org.apache.hadoop.gateway.i18n.resources.ResourcesBase;
 import org.apache.hadoop.test.category.FastTests;
 import org.apache.hadoop.test.category.UnitTests;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 
@@ -51,4 +53,26 @@ public class MessagesTest {
 
   }
 
+  @Test
+  public void testGeneratedImplementation() {
+    MessagesTestSubject log = MessagesFactory.get( MessagesTestSubject.class );
+    assertThat( log, instanceOf( MessagesBase.class ) );
+    assertThat( log.getClass().getName(), is( MessagesTestSubject.class.getName() + ResourcesBase.GENERATED_SUFFIX ) );
+
+    TestMessageLogger logger = (TestMessageLogger)TestMessageLoggerFactory.getFactory().getLogger( "some.logger.name" );
+    logger.records.clear();
+
+    Exception exception = new Exception( "test-exception" );
+    log.withEverything( "test-string", exception );
+    assertThat( logger.records.size(), equalTo( 1 ) );
+
+    TestMessageRecord record = logger.records.get( 0 );
+    assertThat( record.level, is( MessageLevel.INFO ) );
+    assertThat( record.id, is( "ID:42" ) );
+    assertThat( record.message, is( "str=test-string, t=" + exception ) );
+    assertThat( record.throwable, is( (Throwable)exception ) );
+    assertThat( record.caller.getMethodName(), is( "testGeneratedImplementation" ) );
+    logger.records.clear();
+  }
+
 }
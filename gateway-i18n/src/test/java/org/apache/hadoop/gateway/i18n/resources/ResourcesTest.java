@@ -27,6 +27,7 @@ import org.junit.experimental.categories.Category;
 import java.util.Locale;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.junit.Assert.assertThat;
 
 /**
@@ -118,4 +119,11 @@ public class ResourcesTest {
   }
 
 
+  @Test
+  public void testGeneratedImplementation() {
+    ResourcesTestFormattingSubject res = ResourcesFactory.get( ResourcesTestFormattingSubject.class );
+    assertThat( res, instanceOf( ResourcesBase.class ) );
+    assertThat( res.getClass().getName(), equalTo( ResourcesTestFormattingSubject.class.getName() + ResourcesBase.GENERATED_SUFFIX ) );
+  }
+
 }
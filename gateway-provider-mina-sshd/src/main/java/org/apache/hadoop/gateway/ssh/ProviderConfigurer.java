@@ -30,8 +30,22 @@ public class ProviderConfigurer {
   public static final String LOGIN_COMMAND ="login-command";
   public static final String STREAM_FLUSH_PERIOD ="stream-flush-period";
   public static final String SESSION_IDLE_TIMEOUT ="session-idle-timeout";
+  public static final String TUNNEL_SESSION_POOL_ENABLED = "tunnel-session-pool-enabled";
+  public static final String TUNNEL_SESSION_MAX_CHANNELS = "tunnel-session-max-channels";
+  public static final String TUNNEL_SESSION_IDLE_TIMEOUT = "tunnel-session-idle-timeout";
+  public static final String LDAP_CONNECTION_POOL_SIZE = "ldap-connection-pool-size";
+  public static final String LDAP_CONNECTION_POOL_TIMEOUT = "ldap-connection-pool-timeout";
+  public static final String LDAP_AUTHORIZATION_CACHE_TTL = "ldap-authorization-cache-ttl";
+  public static final String AUDIT_QUEUE_SIZE = "audit-queue-size";
+  public static final String AUDIT_THREADS = "audit-threads";
   public static final Integer DEFAULT_QUEUE_SIZE = 1024;
+  public static final Integer DEFAULT_AUDIT_THREADS = 2;
   public static final Integer DEFAULT_STREAM_FLUSH_PERIOD = 50;
+  public static final Integer DEFAULT_TUNNEL_SESSION_MAX_CHANNELS = 10; // sshd MaxSessions default
+  public static final Integer DEFAULT_TUNNEL_SESSION_IDLE_TIMEOUT = 60 * 1000; // 1 min
+  public static final Integer DEFAULT_LDAP_CONNECTION_POOL_SIZE = 8;
+  public static final Integer DEFAULT_LDAP_CONNECTION_POOL_TIMEOUT = 5 * 1000; // 5 sec
+  public static final Integer DEFAULT_LDAP_AUTHORIZATION_CACHE_TTL = 30 * 1000; // 30 sec
 
   public SSHConfiguration configure(Provider provider) {
     Map<String, String> providerParams = provider.getParams();
@@ -99,6 +113,16 @@ public class ProviderConfigurer {
             providerParams.get(LDAP_AUTHENTICATION_URL));
         configuration.setAuthenticationPattern(
             providerParams.get(LDAP_AUTHENTICATION_NAME_PATTERN));
+        // authorization connection pool and decision cache -> have defaults
+        if(providerParams.containsKey(LDAP_CONNECTION_POOL_SIZE)) {
+          configuration.setLdapConnectionPoolSize(Integer.parseInt(providerParams.get(LDAP_CONNECTION_POOL_SIZE)));
+        }
+        if(providerParams.containsKey(LDAP_CONNECTION_POOL_TIMEOUT)) {
+          configuration.setLdapConnectionPoolTimeout(Long.parseLong(providerParams.get(LDAP_CONNECTION_POOL_TIMEOUT)));
+        }
+        if(providerParams.containsKey(LDAP_AUTHORIZATION_CACHE_TTL)) {
+          configuration.setLdapAuthorizationCacheTtl(Long.parseLong(providerParams.get(LDAP_AUTHORIZATION_CACHE_TTL)));
+        }
       }
 
       String knoxKeyfile = providerParams.get(TUNNEL_KEYFILE);
@@ -138,6 +162,24 @@ public class ProviderConfigurer {
         configuration.setSessionIdleTimeout(Long.parseLong(providerParams.get(SESSION_IDLE_TIMEOUT)));
       }
 
+      // pooled sessions to the cluster hosts -> default is false
+      configuration.setTunnelSessionPoolEnabled(
+          TRUE.equalsIgnoreCase(providerParams.get(TUNNEL_SESSION_POOL_ENABLED)));
+      if(providerParams.containsKey(TUNNEL_SESSION_MAX_CHANNELS)) {
+        configuration.setTunnelSessionMaxChannels(Integer.parseInt(providerParams.get(TUNNEL_SESSION_MAX_CHANNELS)));
+      }
+      if(providerParams.containsKey(TUNNEL_SESSION_IDLE_TIMEOUT)) {
+        configuration.setTunnelSessionIdleTimeout(Long.parseLong(providerParams.get(TUNNEL_SESSION_IDLE_TIMEOUT)));
+      }
+
+      // terminal audit pipeline -> has defaults
+      if(providerParams.containsKey(AUDIT_QUEUE_SIZE)) {
+        configuration.setQueueSize(Integer.parseInt(providerParams.get(AUDIT_QUEUE_SIZE)));
+      }
+      if(providerParams.containsKey(AUDIT_THREADS)) {
+        configuration.setAuditThreads(Integer.parseInt(providerParams.get(AUDIT_THREADS)));
+      }
+
       return configuration;
     } else {
       throw new IllegalArgumentException("Configuration does not include any authentication mechanisms");
@@ -26,8 +26,15 @@ public class SSHConfiguration {
   private String loginCommand;
   private long tunnelConnectTimeout;
   private int queueSize = ProviderConfigurer.DEFAULT_QUEUE_SIZE;
+  private int auditThreads = ProviderConfigurer.DEFAULT_AUDIT_THREADS;
   private long streamFlusherPeriod = ProviderConfigurer.DEFAULT_STREAM_FLUSH_PERIOD;
   private long sessionIdleTimeout = 60 * 60 * 1000l; //default 1 hr;
+  private boolean tunnelSessionPoolEnabled = false;
+  private int tunnelSessionMaxChannels = ProviderConfigurer.DEFAULT_TUNNEL_SESSION_MAX_CHANNELS;
+  private long tunnelSessionIdleTimeout = ProviderConfigurer.DEFAULT_TUNNEL_SESSION_IDLE_TIMEOUT;
+  private int ldapConnectionPoolSize = ProviderConfigurer.DEFAULT_LDAP_CONNECTION_POOL_SIZE;
+  private long ldapConnectionPoolTimeout = ProviderConfigurer.DEFAULT_LDAP_CONNECTION_POOL_TIMEOUT;
+  private long ldapAuthorizationCacheTtl = ProviderConfigurer.DEFAULT_LDAP_AUTHORIZATION_CACHE_TTL;
 
   public SSHConfiguration() {
   }
@@ -201,6 +208,14 @@ public class SSHConfiguration {
     this.queueSize = queueSize;
   }
 
+  public int getAuditThreads() {
+    return auditThreads;
+  }
+
+  public void setAuditThreads(int auditThreads) {
+    this.auditThreads = auditThreads;
+  }
+
   public boolean isUseShiroAuth() {
     return useShiroAuth;
   }
@@ -225,6 +240,54 @@ public class SSHConfiguration {
     this.sessionIdleTimeout = sessionIdleTimeout;
   }
 
+  public boolean isTunnelSessionPoolEnabled() {
+    return tunnelSessionPoolEnabled;
+  }
+
+  public void setTunnelSessionPoolEnabled(boolean tunnelSessionPoolEnabled) {
+    this.tunnelSessionPoolEnabled = tunnelSessionPoolEnabled;
+  }
+
+  public int getTunnelSessionMaxChannels() {
+    return tunnelSessionMaxChannels;
+  }
+
+  public void setTunnelSessionMaxChannels(int tunnelSessionMaxChannels) {
+    this.tunnelSessionMaxChannels = tunnelSessionMaxChannels;
+  }
+
+  public long getTunnelSessionIdleTimeout() {
+    return tunnelSessionIdleTimeout;
+  }
+
+  public void setTunnelSessionIdleTimeout(long tunnelSessionIdleTimeout) {
+    this.tunnelSessionIdleTimeout = tunnelSessionIdleTimeout;
+  }
+
+  public int getLdapConnectionPoolSize() {
+    return ldapConnectionPoolSize;
+  }
+
+  public void setLdapConnectionPoolSize(int ldapConnectionPoolSize) {
+    this.ldapConnectionPoolSize = ldapConnectionPoolSize;
+  }
+
+  public long getLdapConnectionPoolTimeout() {
+    return ldapConnectionPoolTimeout;
+  }
+
+  public void setLdapConnectionPoolTimeout(long ldapConnectionPoolTimeout) {
+    this.ldapConnectionPoolTimeout = ldapConnectionPoolTimeout;
+  }
+
+  public long getLdapAuthorizationCacheTtl() {
+    return ldapAuthorizationCacheTtl;
+  }
+
+  public void setLdapAuthorizationCacheTtl(long ldapAuthorizationCacheTtl) {
+    this.ldapAuthorizationCacheTtl = ldapAuthorizationCacheTtl;
+  }
+
   @Override
   public String toString() {
     return "SSHConfiguration{" +
@@ -251,7 +314,14 @@ public class SSHConfiguration {
         ", loginCommand='" + loginCommand + '\'' +
         ", tunnelConnectTimeout=" + tunnelConnectTimeout +
         ", queueSize=" + queueSize +
+        ", auditThreads=" + auditThreads +
         ", streamFlusherPeriod=" + streamFlusherPeriod +
+        ", tunnelSessionPoolEnabled=" + tunnelSessionPoolEnabled +
+        ", tunnelSessionMaxChannels=" + tunnelSessionMaxChannels +
+        ", tunnelSessionIdleTimeout=" + tunnelSessionIdleTimeout +
+        ", ldapConnectionPoolSize=" + ldapConnectionPoolSize +
+        ", ldapConnectionPoolTimeout=" + ldapConnectionPoolTimeout +
+        ", ldapAuthorizationCacheTtl=" + ldapAuthorizationCacheTtl +
         '}';
   }
 }
@@ -41,11 +41,14 @@ public class SSHDeploymentContributor extends ProviderDeploymentContributorBase
           Thread.currentThread().interrupt();
         }
       }
+      closeAuthenticator();
     };
   };
 
   private SshServer sshd;
 
+  private KnoxLDAPPasswordAuthenticator ldapAuthenticator;
+
   private ProviderConfigurer configurer;
 
   @Override
@@ -56,6 +59,14 @@ public class SSHDeploymentContributor extends ProviderDeploymentContributorBase
   public void close(){
     sshd.close(true);
     sshd = null;
+    closeAuthenticator();
+  }
+
+  private synchronized void closeAuthenticator() {
+    if (ldapAuthenticator != null) {
+      ldapAuthenticator.close();
+      ldapAuthenticator = null;
+    }
   }
 
   @Override
@@ -107,8 +118,10 @@ public class SSHDeploymentContributor extends ProviderDeploymentContributorBase
 
     if (configuration.isUseLdapAuth()) {
       userAuthFactories.add(new KnoxUserAuthPassword.Factory());
-      sshd.setPasswordAuthenticator(
-          new KnoxLDAPPasswordAuthenticator(configuration));
+      // The authenticator of a previous deployment is being replaced.
+      closeAuthenticator();
+      ldapAuthenticator = new KnoxLDAPPasswordAuthenticator(configuration);
+      sshd.setPasswordAuthenticator(ldapAuthenticator);
     } else if (configuration.isUseShiroAuth()) {
       //set up shiro configuration
       ShiroConfig shiroConfig = new ShiroConfig(provider, clusterName);
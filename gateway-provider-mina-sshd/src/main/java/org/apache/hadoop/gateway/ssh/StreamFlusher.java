@@ -1,24 +1,93 @@
 package org.apache.hadoop.gateway.ssh;
 
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.TimerTask;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- *
+ * Makes sure data written to a stream is flushed within the flush period.
+ * A flush is only scheduled when data is written after the last flush so an
+ * idle stream costs nothing and a busy one is flushed at most once a period.
+ * The scheduler only times the flushes, they run on the flusher executor
+ * because a flush may block, and a stream never has more than one in flight.
  */
-public class StreamFlusher extends TimerTask {
-  private final OutputStream outputStream;
+public class StreamFlusher extends FilterOutputStream implements Runnable {
 
-  public StreamFlusher(OutputStream outputStream) {
-    this.outputStream = outputStream;
+  private final ScheduledExecutorService scheduler;
+  private final Executor flushers;
+  private final long period;
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+  private final AtomicBoolean flushing = new AtomicBoolean();
+  private final Runnable flushTask = new Runnable() {
+    @Override
+    public void run() {
+      try {
+        if (dirty && !cancelled) {
+          flush();
+        }
+      } catch (IOException e) {
+      } finally {
+        flushing.set(false);
+      }
+      // Whatever was written while the flush was blocked still needs one.
+      if (dirty) {
+        written();
+      }
+    }
+  };
+  private volatile boolean dirty;
+  private volatile boolean cancelled;
+
+  public StreamFlusher(OutputStream outputStream,
+      ScheduledExecutorService scheduler, Executor flushers, long period) {
+    super(outputStream);
+    this.scheduler = scheduler;
+    this.flushers = flushers;
+    this.period = period;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    out.write(b);
+    written();
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    out.write(b, off, len);
+    written();
+  }
+
+  @Override
+  public void flush() throws IOException {
+    dirty = false;
+    out.flush();
+  }
+
+  /**
+   * Stops scheduling flushes, e.g. because the stream is about to be closed.
+   */
+  public void cancel() {
+    cancelled = true;
   }
 
   @Override
   public void run() {
-    try {
-      outputStream.flush();
-    } catch (IOException e) {
+    scheduled.set(false);
+    // A flush that is still blocked reschedules itself when it is done.
+    if (dirty && !cancelled && flushing.compareAndSet(false, true)) {
+      flushers.execute(flushTask);
+    }
+  }
+
+  private void written() {
+    dirty = true;
+    if (!cancelled && scheduled.compareAndSet(false, true)) {
+      scheduler.schedule(this, period, TimeUnit.MILLISECONDS);
     }
   }
 }
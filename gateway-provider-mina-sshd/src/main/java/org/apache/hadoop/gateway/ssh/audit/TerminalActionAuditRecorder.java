@@ -1,61 +1,100 @@
 package org.apache.hadoop.gateway.ssh.audit;
 
-import java.io.IOException;
-
 import org.apache.hadoop.gateway.audit.api.Action;
 import org.apache.hadoop.gateway.audit.api.ActionOutcome;
 import org.apache.hadoop.gateway.audit.api.AuditServiceFactory;
 import org.apache.hadoop.gateway.audit.api.Auditor;
 import org.apache.hadoop.gateway.audit.api.ResourceType;
 import org.apache.hadoop.gateway.audit.log4j.audit.AuditConstants;
-import org.apache.hadoop.gateway.ssh.util.LineReaderInputStream;
-
-import com.google.common.io.NullOutputStream;
 
 public class TerminalActionAuditRecorder {
 
-  private final TerminalErrorHandler handler;
   private final Auditor auditor;
 
-  public TerminalActionAuditRecorder(TerminalErrorHandler handler) {
-    this(handler, AuditServiceFactory.getAuditService().getAuditor(
+  public TerminalActionAuditRecorder() {
+    this(AuditServiceFactory.getAuditService().getAuditor(
         AuditConstants.DEFAULT_AUDITOR_NAME, AuditConstants.KNOX_SERVICE_NAME,
         AuditConstants.KNOX_COMPONENT_NAME));
   }
 
-  TerminalActionAuditRecorder(TerminalErrorHandler handler, Auditor auditor) {
-    this.handler = handler;
+  TerminalActionAuditRecorder(Auditor auditor) {
     this.auditor = auditor;
   }
 
+  /**
+   * Audits each line of the batch as one record.  Lines end at \r, \n or
+   * \r\n and a trailing line without an end is audited too.  Each line is
+   * edited the way the terminal displayed it, see {@link #edit(String)}.
+   */
   public void auditWork(TerminalAuditWork work) {
-    // Buffered Reader does not work here, the stream buffers and does not
-    // output
-    LineReaderInputStream lineReaderInputStream = new LineReaderInputStream(
-        work.getStream(), new NullOutputStream(), work.getEncoding());
-    try {
-      String line;
-      do {
-        try {
-          line = lineReaderInputStream.readLine();
-        } catch (IOException e) {
-          handler.handleError(e, work.getOriginatingShell());
-          return;
+    byte[] data = work.getData();
+    String prefix = work.getUser() + "@" + work.getResource() + ":";
+    int start = 0;
+    for (int i = 0; i < data.length; i++) {
+      if (TerminalAuditStream.isLineEnd(data[i])) {
+        audit(prefix, work, start, i);
+        if (data[i] == '\r' && i + 1 < data.length && data[i + 1] == '\n') {
+          i++;
         }
-        String user = work.getUser();
-        String resource = work.getResource();
-        if (line != null) {
-          auditor.audit(Action.ACCESS, user + "@" + resource + ":" + line,
-              ResourceType.TOPOLOGY, ActionOutcome.UNAVAILABLE);
+        start = i + 1;
+      }
+    }
+    if (start < data.length) {
+      audit(prefix, work, start, data.length);
+    }
+  }
+
+  private void audit(String prefix, TerminalAuditWork work, int start,
+      int end) {
+    String line = edit(new String(work.getData(), start, end - start,
+        work.getCharset()));
+    auditor.audit(Action.ACCESS, prefix + line, ResourceType.TOPOLOGY,
+        ActionOutcome.UNAVAILABLE);
+  }
+
+  /**
+   * Applies backspace and delete to the raw keystrokes of a line, drops escape
+   * sequences such as the arrow keys and drops the other control characters.
+   */
+  static String edit(String raw) {
+    StringBuilder line = new StringBuilder(raw.length());
+    for (int i = 0; i < raw.length(); i++) {
+      char c = raw.charAt(i);
+      if (c == '\u0008' || c == '\u007f') {
+        if (line.length() > 0) {
+          line.setLength(line.length() - 1);
         }
-      } while (line != null);
-    } finally {
-      try {
-        lineReaderInputStream.close();
-      } catch (IOException e) {
-        handler.handleError(e, work.getOriginatingShell());
-        return;
+      } else if (c == '\u001b') {
+        i = endOfEscapeSequence(raw, i);
+      } else if (c > '\u001f' && (c < '\u0080' || c > '\u009f')) {
+        line.append(c);
       }
     }
+    return line.toString();
+  }
+
+  /**
+   * @return The index of the last character of the escape sequence that
+   *         starts at the ESC at start.
+   */
+  private static int endOfEscapeSequence(String raw, int start) {
+    int i = start + 1;
+    if (i >= raw.length()) {
+      return start;
+    }
+    if (raw.charAt(i) == '[') {
+      // CSI, parameter and intermediate characters up to the final character
+      i++;
+      while (i < raw.length()
+          && (raw.charAt(i) < '\u0040' || raw.charAt(i) > '\u007e')) {
+        i++;
+      }
+      return Math.min(i, raw.length() - 1);
+    }
+    if (raw.charAt(i) == 'O' && i + 1 < raw.length()) {
+      // SS3, e.g. the arrow keys in application cursor mode
+      return i + 1;
+    }
+    return i;
   }
-}
\ No newline at end of file
+}
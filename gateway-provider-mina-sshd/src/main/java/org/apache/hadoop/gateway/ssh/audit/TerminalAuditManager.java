@@ -1,18 +1,35 @@
 package org.apache.hadoop.gateway.ssh.audit;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.apache.hadoop.gateway.ssh.ProviderConfigurer;
 import org.apache.hadoop.gateway.ssh.SSHConfiguration;
 import org.apache.hadoop.gateway.ssh.repl.KnoxTunnelShell;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * Queues the terminal input of the tunnel sessions for auditing by a number of
+ * audit threads.  Each audit thread takes from its own queue and all the work
+ * of a session goes to the same queue, so a session is audited in the order
+ * its input was submitted.  Work is only ever offered to the bounded queues,
+ * when the audit threads fall behind and a queue is full the work is dropped
+ * and counted instead of holding up or failing the session that produced it.
+ */
 public class TerminalAuditManager {
 
+  private static final Logger LOG = LoggerFactory
+      .getLogger(TerminalAuditManager.class);
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private static final long CLOSE_TIMEOUT = 5000;
+
   private static TerminalAuditManager INSTANCE;
   private static final Object lock = new Object();
 
@@ -26,38 +43,143 @@ public class TerminalAuditManager {
   }
 
   private final TerminalActionAuditRecorder auditor;
-  private final ArrayBlockingQueue<TerminalAuditWork> terminalWorkQueue;
-  private final TerminalAuditThread auditThread;
+  private final List<BlockingQueue<TerminalAuditWork>> terminalWorkQueues;
+  private final List<TerminalAuditThread> auditThreads;
+  private final AtomicLong droppedCount = new AtomicLong();
 
   private TerminalAuditManager(SSHConfiguration sshConfiguration) {
-    this(new TerminalActionAuditRecorder(new TerminalErrorHandler()),
-        sshConfiguration.getQueueSize());
-  }
-
-  TerminalAuditManager(TerminalActionAuditRecorder terminalActionAuditRecorder, int queueSize) {
-    this.auditor = terminalActionAuditRecorder;
-    this.terminalWorkQueue = new ArrayBlockingQueue<TerminalAuditWork>(queueSize);
-    this.auditThread = new TerminalAuditThread(terminalWorkQueue, auditor);
-
-    auditThread.start();
+    this(new TerminalActionAuditRecorder(), sshConfiguration.getQueueSize(),
+        Math.max(1, sshConfiguration.getAuditThreads()));
     Runtime.getRuntime().addShutdownHook(new Thread() {
       @Override
       public void run() {
-        auditThread.close();
+        close();
       }
     });
   }
 
-  public void auditStream(InputStream in, String resource, String user,
+  TerminalAuditManager(TerminalActionAuditRecorder terminalActionAuditRecorder,
+      int queueSize, int threads) {
+    this.auditor = terminalActionAuditRecorder;
+    // the queue size is shared between the queues of the audit threads
+    int queues = Math.max(1, threads);
+    this.terminalWorkQueues =
+        new ArrayList<BlockingQueue<TerminalAuditWork>>(queues);
+    for (int i = 0; i < queues; i++) {
+      terminalWorkQueues.add(new ArrayBlockingQueue<TerminalAuditWork>(
+          Math.max(1, queueSize / queues)));
+    }
+    this.auditThreads = new ArrayList<TerminalAuditThread>(threads);
+    for (int i = 0; i < threads; i++) {
+      TerminalAuditThread auditThread =
+          new TerminalAuditThread(terminalWorkQueues.get(i), auditor);
+      auditThread.setName("terminal-audit-" + i);
+      auditThread.start();
+      auditThreads.add(auditThread);
+    }
+  }
+
+  /**
+   * Returns a stream that audits what is written to it line by line.  It is
+   * closed once the session ends to audit a trailing line without an end.
+   */
+  public OutputStream openStream(String resource, String user,
       KnoxTunnelShell originatingShell, String encoding) {
-    terminalWorkQueue.add(new TerminalAuditWork(resource, user, in,
-        originatingShell, encoding));
+    return new TerminalAuditStream(this, resource, user, originatingShell,
+        encoding == null ? UTF8 : Charset.forName(encoding));
   }
 
   public void auditMessage(String message, String resource, String user,
                            KnoxTunnelShell originatingShell) {
-    terminalWorkQueue.add(new TerminalAuditWork(resource, user,
-        new ByteArrayInputStream(message.getBytes(Charset.forName("UTF-8"))), originatingShell, "UTF-8"));
+    submit(new TerminalAuditWork(resource, user, message.getBytes(UTF8),
+        originatingShell, UTF8));
+  }
+
+  void submit(TerminalAuditWork work) {
+    if (!getQueue(work).offer(work)) {
+      long dropped = droppedCount.incrementAndGet();
+      if (dropped == 1 || dropped % 1000 == 0) {
+        LOG.warn("Terminal audit queue is full, " + dropped
+            + " batches of terminal input have not been audited. "
+            + "Current audit lag is " + getLag() + "ms.");
+      }
+    }
+  }
+
+  /**
+   * Returns the queue of the session that produced the work.
+   */
+  private BlockingQueue<TerminalAuditWork> getQueue(TerminalAuditWork work) {
+    int hash = work.getOriginatingShell() != null
+        ? System.identityHashCode(work.getOriginatingShell())
+        : (work.getUser() + "@" + work.getResource()).hashCode();
+    // spread the hash as identity hashes are not uniformly distributed
+    hash ^= (hash >>> 16);
+    return terminalWorkQueues.get(
+        (hash & Integer.MAX_VALUE) % terminalWorkQueues.size());
+  }
+
+  /**
+   * The number of batches of terminal input dropped because the queue was full.
+   */
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  /**
+   * The number of batches of terminal input waiting to be audited.
+   */
+  public int getQueuedCount() {
+    int queued = 0;
+    for (BlockingQueue<TerminalAuditWork> queue : terminalWorkQueues) {
+      queued += queue.size();
+    }
+    return queued;
+  }
+
+  /**
+   * How long in milliseconds the oldest batch waiting to be audited has been
+   * queued, 0 when the audit threads are keeping up.
+   */
+  public long getLag() {
+    long lag = 0;
+    for (BlockingQueue<TerminalAuditWork> queue : terminalWorkQueues) {
+      TerminalAuditWork oldest = queue.peek();
+      if (oldest != null) {
+        lag = Math.max(lag,
+            System.currentTimeMillis() - oldest.getCreated());
+      }
+    }
+    return lag;
+  }
+
+  /**
+   * Stops the audit threads and audits the work that is still queued.
+   */
+  public void close() {
+    for (TerminalAuditThread auditThread : auditThreads) {
+      auditThread.close();
+    }
+    // let the threads finish the work they took so the rest follows in order
+    for (TerminalAuditThread auditThread : auditThreads) {
+      try {
+        auditThread.join(CLOSE_TIMEOUT);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    for (BlockingQueue<TerminalAuditWork> queue : terminalWorkQueues) {
+      TerminalAuditWork work;
+      while ((work = queue.poll()) != null) {
+        try {
+          auditor.auditWork(work);
+        } catch (RuntimeException e) {
+          LOG.error("Unable to audit terminal input of " + work.getUser()
+              + "@" + work.getResource() + ". Audits have been lost.", e);
+        }
+      }
+    }
   }
 
 }
@@ -0,0 +1,114 @@
+package org.apache.hadoop.gateway.ssh.audit;
+
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.apache.hadoop.gateway.ssh.repl.KnoxTunnelShell;
+
+/**
+ * Receives a copy of the terminal input of one session and hands the complete
+ * lines in each write to the audit queue as one batch.  Lines end at \r, which
+ * is what a terminal sends for Enter, or at \n.  The write only looks for the
+ * last line end and copies, it never blocks and never fails, so the session is
+ * not held up by the audit threads.  Input without a line end is kept until one
+ * is written, the stream is closed or it grows longer than MAX_LINE_LENGTH.
+ */
+public class TerminalAuditStream extends OutputStream {
+
+  static final int MAX_LINE_LENGTH = 8192;
+
+  private final TerminalAuditManager manager;
+  private final String resource;
+  private final String user;
+  private final KnoxTunnelShell originatingShell;
+  private final Charset charset;
+  private byte[] pending = new byte[256];
+  private int pendingLength;
+  private boolean afterCarriageReturn;
+  private boolean closed;
+
+  TerminalAuditStream(TerminalAuditManager manager, String resource,
+      String user, KnoxTunnelShell originatingShell, Charset charset) {
+    this.manager = manager;
+    this.resource = resource;
+    this.user = user;
+    this.originatingShell = originatingShell;
+    this.charset = charset;
+  }
+
+  @Override
+  public void write(int b) {
+    write(new byte[] { (byte) b }, 0, 1);
+  }
+
+  @Override
+  public synchronized void write(byte[] b, int off, int len) {
+    if (closed || len <= 0) {
+      return;
+    }
+    if (afterCarriageReturn && b[off] == '\n') {
+      // the rest of a \r\n line ending, the line was already submitted
+      off++;
+      len--;
+    }
+    afterCarriageReturn = len > 0 && b[off + len - 1] == '\r';
+    int end = off + len;
+    int last = end - 1;
+    while (last >= off && !isLineEnd(b[last])) {
+      last--;
+    }
+    if (last < off) {
+      append(b, off, len);
+      if (pendingLength >= MAX_LINE_LENGTH) {
+        submitPending();
+      }
+      return;
+    }
+    byte[] batch = new byte[pendingLength + last + 1 - off];
+    System.arraycopy(pending, 0, batch, 0, pendingLength);
+    System.arraycopy(b, off, batch, pendingLength, last + 1 - off);
+    pendingLength = 0;
+    submit(batch);
+    if (last + 1 < end) {
+      append(b, last + 1, end - last - 1);
+      if (pendingLength >= MAX_LINE_LENGTH) {
+        submitPending();
+      }
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    if (!closed) {
+      closed = true;
+      if (pendingLength > 0) {
+        submitPending();
+      }
+      pending = null;
+    }
+  }
+
+  static boolean isLineEnd(byte b) {
+    return b == '\r' || b == '\n';
+  }
+
+  private void append(byte[] b, int off, int len) {
+    if (pendingLength + len > pending.length) {
+      pending = Arrays.copyOf(pending,
+          Math.max(pending.length * 2, pendingLength + len));
+    }
+    System.arraycopy(b, off, pending, pendingLength, len);
+    pendingLength += len;
+  }
+
+  private void submitPending() {
+    submit(Arrays.copyOf(pending, pendingLength));
+    pendingLength = 0;
+  }
+
+  private void submit(byte[] batch) {
+    manager.submit(new TerminalAuditWork(resource, user, batch,
+        originatingShell, charset));
+  }
+}
@@ -1,16 +1,22 @@
 package org.apache.hadoop.gateway.ssh.audit;
 
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 public class TerminalAuditThread extends Thread {
 
-  private final ArrayBlockingQueue<TerminalAuditWork> workQueue;
+  private static final Logger LOG = LoggerFactory
+      .getLogger(TerminalAuditThread.class);
+
+  private final BlockingQueue<TerminalAuditWork> workQueue;
   private boolean stop;
   private final ReentrantLock stopLock = new ReentrantLock();
   private final TerminalActionAuditRecorder auditor;
 
-  public TerminalAuditThread(ArrayBlockingQueue<TerminalAuditWork> workQueue,
+  public TerminalAuditThread(BlockingQueue<TerminalAuditWork> workQueue,
       TerminalActionAuditRecorder auditor) {
     this.workQueue = workQueue;
     this.auditor = auditor;
@@ -19,29 +25,39 @@ public class TerminalAuditThread extends Thread {
 
   @Override
   public void run() {
-    boolean run = true;
-    while (run) {
+    while (!isStopped()) {
       TerminalAuditWork work;
       try {
         work = workQueue.take();
       } catch (InterruptedException e) {
-        Thread.currentThread().interrupt();
+        // close() interrupts the take, the loop checks whether to stop
         continue;
       }
-      auditor.auditWork(work);
-
-      stopLock.lock();
       try {
-        run = !stop;
-      } finally {
-        stopLock.unlock();
+        auditor.auditWork(work);
+      } catch (RuntimeException e) {
+        LOG.error("Unable to audit terminal input of " + work.getUser() + "@"
+            + work.getResource() + ". Audits have been lost.", e);
       }
     }
   }
 
   public void close() {
     stopLock.lock();
-    stop = true;
-    stopLock.unlock();
+    try {
+      stop = true;
+    } finally {
+      stopLock.unlock();
+    }
+    interrupt();
+  }
+
+  private boolean isStopped() {
+    stopLock.lock();
+    try {
+      return stop;
+    } finally {
+      stopLock.unlock();
+    }
   }
-}
\ No newline at end of file
+}
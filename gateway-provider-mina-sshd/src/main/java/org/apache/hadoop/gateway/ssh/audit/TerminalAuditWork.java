@@ -1,40 +1,39 @@
 package org.apache.hadoop.gateway.ssh.audit;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.util.concurrent.BlockingQueue;
+import java.nio.charset.Charset;
 
 import org.apache.hadoop.gateway.ssh.repl.KnoxTunnelShell;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
+/**
+ * A batch of terminal input from one session, as the raw bytes of one or more
+ * lines.  The bytes are only split into lines and decoded by the audit threads
+ * so that the user's session does no more than copy them.
+ */
 public class TerminalAuditWork {
 
-  private static final Logger LOG = LoggerFactory
-      .getLogger(TerminalAuditWork.class);
-
-  private final InputStream inputStream;
+  private final byte[] data;
   private final String user;
   private final KnoxTunnelShell originatingShell;
   private final String resource;
-  private final String encoding;
+  private final Charset charset;
+  private final long created;
 
-  public TerminalAuditWork(String resource, String user, InputStream inputStream,
-      KnoxTunnelShell originatingShell, String encoding) {
-    this.inputStream = inputStream;
+  public TerminalAuditWork(String resource, String user, byte[] data,
+      KnoxTunnelShell originatingShell, Charset charset) {
+    this.data = data;
     this.user = user;
     this.resource = resource;
     this.originatingShell = originatingShell;
-    this.encoding = encoding;
+    this.charset = charset;
+    this.created = System.currentTimeMillis();
   }
 
   public KnoxTunnelShell getOriginatingShell() {
     return originatingShell;
   }
 
-  public InputStream getStream() {
-    return inputStream;
+  public byte[] getData() {
+    return data;
   }
 
   public String getResource() {
@@ -45,8 +44,15 @@ public class TerminalAuditWork {
     return user;
   }
 
-  public String getEncoding() {
-    return encoding;
+  public Charset getCharset() {
+    return charset;
+  }
+
+  /**
+   * The time in milliseconds at which the batch was handed to the audit queue.
+   */
+  public long getCreated() {
+    return created;
   }
 
-}
\ No newline at end of file
+}
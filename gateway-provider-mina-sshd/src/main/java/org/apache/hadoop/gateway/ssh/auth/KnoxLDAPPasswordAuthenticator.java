@@ -63,4 +63,11 @@ public class KnoxLDAPPasswordAuthenticator implements PasswordAuthenticator {
     }
   }
 
+  /**
+   * Releases the authorizer's LDAP connections.
+   */
+  public void close() {
+    authorizer.close();
+  }
+
 }
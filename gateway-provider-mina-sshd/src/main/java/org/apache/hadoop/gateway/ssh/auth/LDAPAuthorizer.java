@@ -1,6 +1,8 @@
 package org.apache.hadoop.gateway.ssh.auth;
 
-import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.directory.api.ldap.model.cursor.CursorException;
 import org.apache.directory.api.ldap.model.cursor.EntryCursor;
@@ -12,14 +14,38 @@ import org.apache.hadoop.gateway.ssh.SSHConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Checks that a user is in one of the authorized groups.
+ * The searches use a pool of connections bound as the authorization user and
+ * each decision is cached for the configured TTL so that a burst of logins by
+ * the same user results in a single search.  A search that fails on a pooled
+ * connection is retried once on a fresh connection before the user is denied.
+ */
 public class LDAPAuthorizer {
 
+  // Expired decisions are purged once the cache grows past this size.
+  static final int MAX_CACHED_DECISIONS = 4096;
+
   private final LDAPEscaper escaper;
   private final SSHConfiguration configuration;
   private final LDAPConnectionFactory connectionFactory;
+  private final Map<String, Decision> decisions =
+      new ConcurrentHashMap<String, Decision>();
+  private LDAPConnectionPool connectionPool;
   private static final Logger LOG = LoggerFactory
       .getLogger(LDAPAuthorizer.class);
 
+  private static class Decision {
+
+    private final boolean authorized;
+    private final long expires;
+
+    private Decision(boolean authorized, long expires) {
+      this.authorized = authorized;
+      this.expires = expires;
+    }
+  }
+
   public LDAPAuthorizer(SSHConfiguration configuration, LDAPEscaper escaper,
       LDAPConnectionFactory ldapConnectionFactory) {
     this.configuration = configuration;
@@ -32,78 +58,150 @@ public class LDAPAuthorizer {
   }
 
   public boolean authorize(String username) {
-    LdapConnection connection = null;
-    EntryCursor cursor = null;
-    try {
-      connection = connectionFactory.createConnection(configuration
-          .getAuthorizationURL());
-      if(configuration.getAuthorizationUser() == null) {
-        connection.anonymousBind();
-      } else {
-        connection.bind(configuration.getAuthorizationUser(), configuration.getAuthorizationPass());
+    long ttl = configuration.getLdapAuthorizationCacheTtl();
+    long now = System.currentTimeMillis();
+    if (ttl > 0) {
+      Decision decision = decisions.get(username);
+      if (decision != null && decision.expires > now) {
+        return decision.authorized;
       }
-      StringBuilder queryString = new StringBuilder();
-      // open and
-      // open name attr == name
-      queryString.append("(&(");
-      queryString.append(escaper.escape(configuration
-          .getAuthorizationNameAttribute()));
-      queryString.append("=");
-      queryString.append(escaper.escape(username));
-      // close name attr ==
-      queryString.append(")");
-      String[] groupIds = configuration.getAuthorizationGroupIds();
-      if (groupIds != null && groupIds.length > 0) {
-        // open or
-        queryString.append("(|");
-        for (String groupValue : groupIds) {
-          // open group ==
-          queryString.append("(");
-          queryString.append(escaper.escape(configuration
-              .getAuthorizationGroupAttribute()));
-          queryString.append("=");
-          queryString.append(escaper.escape(groupValue));
-          // close group ==
-          queryString.append(")");
-        }
-        // close or
-        queryString.append(")");
+    }
+    Boolean authorized = search(username);
+    if (authorized == null) {
+      // Errors are not cached so the next login tries again.
+      return false;
+    }
+    if (ttl > 0) {
+      if (decisions.size() >= MAX_CACHED_DECISIONS) {
+        purgeExpired(now);
       }
-      // close and
-      queryString.append(")");
-      cursor = connection.search(configuration.getAuthorizationBase(),
-          queryString.toString(), SearchScope.SUBTREE,
-          escaper.escape(configuration.getAuthorizationNameAttribute()));
-      if (!cursor.next()) {
-        return false;
+      decisions.put(username, new Decision(authorized, now + ttl));
+    }
+    return authorized;
+  }
+
+  /**
+   * @return Whether the user is authorized or null if LDAP couldn't be searched.
+   */
+  private Boolean search(String username) {
+    String query = buildQuery(username);
+    LDAPConnectionPool pool = getConnectionPool();
+    try {
+      try {
+        return search(pool, query, false);
+      } catch (LdapException e) {
+        // The pooled connection may have gone stale, e.g. the server restarted.
+        LOG.debug("LDAP search failed, retrying on a new connection", e);
+        return search(pool, query, true);
       }
     } catch (LdapException e) {
       LOG.error("Unable to connect to or contact LDAP", e);
-      return false;
+      return null;
     } catch (CursorException e) {
       LOG.error("Unable to read from LDAP", e);
-      return false;
+      return null;
     } catch (InvalidURLException e) {
       LOG.error("Invalid LDAP URI in configuration: "
           + configuration.getAuthorizationURL()
           + ". Nobody will be authorized to connect, even if authenticated.");
-      return false;
+      return null;
+    } catch (InterruptedException e) {
+      LOG.error("Interrupted waiting for an LDAP connection", e);
+      Thread.currentThread().interrupt();
+      return null;
+    }
+  }
+
+  private boolean search(LDAPConnectionPool pool, String query, boolean fresh)
+      throws LdapException, CursorException, InvalidURLException,
+      InterruptedException {
+    LdapConnection connection = pool.borrow(fresh);
+    boolean reusable = false;
+    EntryCursor cursor = null;
+    try {
+      cursor = connection.search(configuration.getAuthorizationBase(),
+          query, SearchScope.SUBTREE,
+          escaper.escape(configuration.getAuthorizationNameAttribute()));
+      boolean found = cursor.next();
+      reusable = true;
+      return found;
     } finally {
       try {
         if (cursor != null) {
           cursor.close();
         }
       } finally {
-        try {
-          if (connection != null) {
-            connection.close();
-          }
-        } catch (IOException e) {
-          LOG.error("IO exception disconnecting from LDAP", e);
-        }
+        pool.release(connection, reusable);
+      }
+    }
+  }
+
+  private String buildQuery(String username) {
+    StringBuilder queryString = new StringBuilder();
+    // open and
+    // open name attr == name
+    queryString.append("(&(");
+    queryString.append(escaper.escape(configuration
+        .getAuthorizationNameAttribute()));
+    queryString.append("=");
+    queryString.append(escaper.escape(username));
+    // close name attr ==
+    queryString.append(")");
+    String[] groupIds = configuration.getAuthorizationGroupIds();
+    if (groupIds != null && groupIds.length > 0) {
+      // open or
+      queryString.append("(|");
+      for (String groupValue : groupIds) {
+        // open group ==
+        queryString.append("(");
+        queryString.append(escaper.escape(configuration
+            .getAuthorizationGroupAttribute()));
+        queryString.append("=");
+        queryString.append(escaper.escape(groupValue));
+        // close group ==
+        queryString.append(")");
       }
+      // close or
+      queryString.append(")");
+    }
+    // close and
+    queryString.append(")");
+    return queryString.toString();
+  }
+
+  /**
+   * Closes the pooled connections.  The authorizer reconnects if it is used
+   * again afterwards.
+   */
+  public synchronized void close() {
+    if (connectionPool != null) {
+      connectionPool.close();
+      connectionPool = null;
+    }
+  }
+
+  private synchronized LDAPConnectionPool getConnectionPool() {
+    if (connectionPool == null) {
+      connectionPool = new LDAPConnectionPool(connectionFactory,
+          configuration.getAuthorizationURL(),
+          configuration.getAuthorizationUser(),
+          configuration.getAuthorizationPass(),
+          configuration.getLdapConnectionPoolSize(),
+          configuration.getLdapConnectionPoolTimeout());
+    }
+    return connectionPool;
+  }
+
+  private void purgeExpired(long now) {
+    Iterator<Decision> iterator = decisions.values().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().expires <= now) {
+        iterator.remove();
+      }
+    }
+    if (decisions.size() >= MAX_CACHED_DECISIONS) {
+      decisions.clear();
     }
-    return true;
   }
 
 }
@@ -0,0 +1,133 @@
+package org.apache.hadoop.gateway.ssh.auth;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.ldap.client.api.LdapConnection;
+import org.apache.hadoop.gateway.ssh.auth.LDAPConnectionFactory.InvalidURLException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded pool of connections to one LDAP server that are all bound as the
+ * same user, or anonymously when the user is null.
+ * A connection is bound once when it is created and is checked to still be
+ * connected whenever it is borrowed.  At most size connections exist at once
+ * and borrowers wait up to the timeout for one to be released.
+ */
+public class LDAPConnectionPool {
+
+  private static final Logger LOG = LoggerFactory
+      .getLogger(LDAPConnectionPool.class);
+
+  private final LDAPConnectionFactory connectionFactory;
+  private final String url;
+  private final String user;
+  private final String password;
+  private final long timeout;
+  private final Semaphore permits;
+  private final ConcurrentLinkedQueue<LdapConnection> idle =
+      new ConcurrentLinkedQueue<LdapConnection>();
+
+  public LDAPConnectionPool(LDAPConnectionFactory connectionFactory,
+      String url, String user, String password, int size, long timeout) {
+    this.connectionFactory = connectionFactory;
+    this.url = url;
+    this.user = user;
+    this.password = password;
+    this.timeout = timeout;
+    this.permits = new Semaphore(Math.max(1, size), true);
+  }
+
+  /**
+   * Every borrow must be followed by a release of the connection.
+   */
+  public LdapConnection borrow() throws LdapException, InvalidURLException,
+      InterruptedException {
+    return borrow(false);
+  }
+
+  /**
+   * Borrows a connection, newly created and bound when fresh is true, e.g.
+   * to retry an operation that failed on a pooled connection.
+   */
+  public LdapConnection borrow(boolean fresh) throws LdapException,
+      InvalidURLException, InterruptedException {
+    if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+      throw new LdapException("Timed out waiting " + timeout
+          + "ms for a connection to " + url);
+    }
+    try {
+      LdapConnection connection;
+      while (!fresh && (connection = idle.poll()) != null) {
+        if (connection.isConnected()) {
+          return connection;
+        }
+        close(connection);
+      }
+      connection = connectionFactory.createConnection(url);
+      try {
+        if (user == null) {
+          connection.anonymousBind();
+        } else {
+          connection.bind(user, password);
+        }
+      } catch (LdapException e) {
+        close(connection);
+        throw e;
+      }
+      return connection;
+    } catch (LdapException e) {
+      permits.release();
+      throw e;
+    } catch (InvalidURLException e) {
+      permits.release();
+      throw e;
+    } catch (RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns a borrowed connection to the pool.  A connection that is no longer
+   * usable, e.g. because an operation on it failed, is closed instead.
+   */
+  public void release(LdapConnection connection, boolean reusable) {
+    try {
+      if (reusable && connection.isConnected()) {
+        idle.offer(connection);
+      } else {
+        close(connection);
+      }
+    } finally {
+      permits.release();
+    }
+  }
+
+  /**
+   * Closes the idle connections.
+   */
+  public void close() {
+    LdapConnection connection;
+    while ((connection = idle.poll()) != null) {
+      close(connection);
+    }
+  }
+
+  int getIdleCount() {
+    return idle.size();
+  }
+
+  private static void close(LdapConnection connection) {
+    try {
+      connection.close();
+    } catch (IOException e) {
+      LOG.error("IO exception disconnecting from LDAP", e);
+    }
+  }
+
+}
@@ -34,6 +34,8 @@ public class SSHClientConnector {
     ConnectFuture connectFuture = sshClient.connect(
         sshConfiguration.getKnoxLoginUser(), host, port);
     if (!connectFuture.await(sshConfiguration.getTunnelConnectTimeout())) {
+      // Don't leave a late connection behind on the shared client.
+      connectFuture.cancel();
       throw new SshClientConnectTimeoutException(connectFuture.getException());
     }
     if (!connectFuture.isConnected()) {
@@ -41,14 +43,23 @@ public class SSHClientConnector {
           connectFuture.getException());
     }
     ClientSession session = connectFuture.getSession();
-    AuthFuture auth = session.auth();
-    if (!auth.await(sshConfiguration.getTunnelConnectTimeout())) {
-      throw new SshClientConnectTimeoutException(auth.getException());
-    }
+    boolean authenticated = false;
     try {
-      auth.verify();
-    } catch (SshException e) {
-      throw new SshClientConnectionUnauthorizedException(e.getMessage(), e);
+      AuthFuture auth = session.auth();
+      if (!auth.await(sshConfiguration.getTunnelConnectTimeout())) {
+        throw new SshClientConnectTimeoutException(auth.getException());
+      }
+      try {
+        auth.verify();
+      } catch (SshException e) {
+        throw new SshClientConnectionUnauthorizedException(e.getMessage(), e);
+      }
+      authenticated = true;
+    } finally {
+      // The caller only ever sees authenticated sessions so close any other.
+      if (!authenticated) {
+        session.close(true);
+      }
     }
     return session;
   }
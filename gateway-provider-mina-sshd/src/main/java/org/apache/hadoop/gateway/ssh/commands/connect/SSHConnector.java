@@ -5,13 +5,11 @@ import static org.apache.hadoop.gateway.ssh.commands.SSHReturnCodes.SSH_ERROR_CO
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.PipedInputStream;
 
 import org.apache.hadoop.gateway.ssh.SSHConfiguration;
 import org.apache.hadoop.gateway.ssh.audit.TerminalAuditManager;
 import org.apache.hadoop.gateway.ssh.repl.KnoxTunnelShell;
-import org.apache.sshd.ClientSession;
-import org.apache.sshd.SshClient;
+import org.apache.hadoop.gateway.ssh.commands.connect.SSHSessionPool.PooledSession;
 import org.apache.sshd.common.SshException;
 import org.apache.sshd.server.Environment;
 import org.slf4j.Logger;
@@ -55,8 +53,7 @@ public class SSHConnector {
 
   private final TerminalAuditManager auditManager;
   private final KnoxTunnelShell originatingShell;
-  private final SSHClientBuilder sshClientBuilder;
-  private final SSHClientConnector sshClientConnector;
+  private final SSHSessionPool sessionPool;
   private final SudoCommandStreamBuilder sudoCommandStreamBuilder;
   private final SSHCommandSender sshCommandSender;
   private final ErrorMessagePrinter errorPrinter;
@@ -71,24 +68,22 @@ public class SSHConnector {
       InputStream commandStream, OutputStream outputStream, OutputStream error,
       String sudoToUser, String encoding) {
     this(TerminalAuditManager.get(sshConfiguration), originatingShell,
-        new SSHClientBuilder(sshConfiguration), new SSHClientConnector(
-            sshConfiguration), new SudoCommandStreamBuilder(sshConfiguration),
+        SSHSessionPool.get(sshConfiguration),
+        new SudoCommandStreamBuilder(sshConfiguration),
         new SSHCommandSender(sshConfiguration, environment),
         new ErrorMessagePrinter(error), commandStream, outputStream, error,
         sudoToUser, encoding);
   }
 
   SSHConnector(TerminalAuditManager auditManager,
-      KnoxTunnelShell originatingShell, SSHClientBuilder sshClientBuilder,
-      SSHClientConnector sshClientConnector,
+      KnoxTunnelShell originatingShell, SSHSessionPool sessionPool,
       SudoCommandStreamBuilder sudoCommandStreamBuilder,
       SSHCommandSender sshCommandSender,
       ErrorMessagePrinter errorPrinter, InputStream commandStream,
       OutputStream outputStream, OutputStream error, String sudoToUser, String encoding) {
     this.auditManager = auditManager;
     this.originatingShell = originatingShell;
-    this.sshClientBuilder = sshClientBuilder;
-    this.sshClientConnector = sshClientConnector;
+    this.sessionPool = sessionPool;
     this.sudoCommandStreamBuilder = sudoCommandStreamBuilder;
     this.sshCommandSender = sshCommandSender;
     this.errorPrinter = errorPrinter;
@@ -101,21 +96,20 @@ public class SSHConnector {
 
   public int connectSSH(String host, int port) {
     Integer exit = 0;
-    SshClient sshClient = null;
-    ClientSession session = null;
+    PooledSession session = null;
+    boolean reusable = false;
     InputStream sudoingInputStream = null;
     try {
-      sshClient = sshClientBuilder.buildAndStartClient();
-      session = sshClientConnector.connect(sshClient, host, port);
-      PipedInputStream loggingInputStream = new PipedInputStream();
-      sudoingInputStream = sudoCommandStreamBuilder.buildSudoCommand(
-          sudoToUser, commandStream, loggingInputStream);
+      session = sessionPool.acquire(host, port, sudoToUser);
       auditManager.auditMessage("Logged in", host + ":" + port, sudoToUser,
           originatingShell);
-      auditManager.auditStream(loggingInputStream, host + ":" + port,
-          sudoToUser, originatingShell, encoding);
-      exit = sshCommandSender.sendCommands(session, sudoingInputStream,
-          outputStream, error);
+      OutputStream loggingOutputStream = auditManager.openStream(
+          host + ":" + port, sudoToUser, originatingShell, encoding);
+      sudoingInputStream = sudoCommandStreamBuilder.buildSudoCommand(
+          sudoToUser, commandStream, loggingOutputStream);
+      exit = sshCommandSender.sendCommands(session.getSession(),
+          sudoingInputStream, outputStream, error);
+      reusable = true;
       auditManager.auditMessage("Logged out", host + ":" + port, sudoToUser,
           originatingShell);
     } catch (SshClientConnectTimeoutException e) {
@@ -159,10 +153,7 @@ public class SSHConnector {
         }
       }
       if (session != null) {
-        session.close(true);
-      }
-      if (sshClient != null) {
-        sshClient.stop();
+        sessionPool.release(session, reusable);
       }
     }
     // exit is an Integer that can be null, the auto-boxing could cause an NPE
@@ -0,0 +1,267 @@
+package org.apache.hadoop.gateway.ssh.commands.connect;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.gateway.ssh.SSHConfiguration;
+import org.apache.hadoop.gateway.ssh.commands.connect.SSHConnector.SshClientConnectTimeoutException;
+import org.apache.hadoop.gateway.ssh.commands.connect.SSHConnector.SshClientConnectionFailedException;
+import org.apache.hadoop.gateway.ssh.commands.connect.SSHConnector.SshClientConnectionUnauthorizedException;
+import org.apache.sshd.ClientSession;
+import org.apache.sshd.SshClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Owns the gateway wide SshClient used to connect to the cluster hosts and,
+ * when enabled, keeps the authenticated sessions to them open so that later
+ * connects for the same host and sudo user open a new shell channel on an
+ * existing session instead of connecting and authenticating again.
+ * A session carries at most maxChannelsPerSession shells at once and is closed
+ * once it has been idle for longer than the idle timeout.
+ */
+public class SSHSessionPool {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SSHSessionPool.class);
+
+  private static final Object lock = new Object();
+  private static final Map<String, SSHSessionPool> INSTANCES =
+      new HashMap<String, SSHSessionPool>();
+
+  /**
+   * Returns the pool for the tunnel keyfile and user of the configuration.
+   * The pool settings are taken from the first configuration seen for them.
+   */
+  public static SSHSessionPool get(SSHConfiguration sshConfiguration) {
+    String key = sshConfiguration.getKnoxKeyfile() + ":"
+        + sshConfiguration.getKnoxLoginUser();
+    synchronized (lock) {
+      SSHSessionPool pool = INSTANCES.get(key);
+      if (pool == null) {
+        pool = new SSHSessionPool(sshConfiguration);
+        INSTANCES.put(key, pool);
+      }
+      return pool;
+    }
+  }
+
+  public static class PooledSession {
+
+    private final String key;
+    private final ClientSession session;
+    private int channels;
+    private long idleSince;
+    private boolean retired;
+
+    private PooledSession(String key, ClientSession session) {
+      this.key = key;
+      this.session = session;
+    }
+
+    public ClientSession getSession() {
+      return session;
+    }
+  }
+
+  private final SSHClientBuilder sshClientBuilder;
+  private final SSHClientConnector sshClientConnector;
+  private final boolean enabled;
+  private final int maxChannelsPerSession;
+  private final long idleTimeout;
+  private final Map<String, List<PooledSession>> sessions =
+      new HashMap<String, List<PooledSession>>();
+  private SshClient sshClient;
+
+  private SSHSessionPool(SSHConfiguration sshConfiguration) {
+    this(new SSHClientBuilder(sshConfiguration),
+        new SSHClientConnector(sshConfiguration),
+        sshConfiguration.isTunnelSessionPoolEnabled(),
+        sshConfiguration.getTunnelSessionMaxChannels(),
+        sshConfiguration.getTunnelSessionIdleTimeout());
+    Runtime.getRuntime().addShutdownHook(new Thread() {
+      @Override
+      public void run() {
+        close();
+      }
+    });
+  }
+
+  SSHSessionPool(SSHClientBuilder sshClientBuilder,
+      SSHClientConnector sshClientConnector, boolean enabled,
+      int maxChannelsPerSession, long idleTimeout) {
+    this.sshClientBuilder = sshClientBuilder;
+    this.sshClientConnector = sshClientConnector;
+    this.enabled = enabled;
+    this.maxChannelsPerSession = Math.max(1, maxChannelsPerSession);
+    this.idleTimeout = idleTimeout;
+  }
+
+  /**
+   * The client is created and started on first use and then shared by all
+   * of the sessions, so there is only one set of NIO threads and the key pair
+   * is only loaded once.
+   */
+  public synchronized SshClient getClient() {
+    if (sshClient == null) {
+      sshClient = sshClientBuilder.buildAndStartClient();
+    }
+    return sshClient;
+  }
+
+  /**
+   * Returns a session to host:port with room for one more channel, connecting
+   * a new one if there is none.  Every acquire must be followed by a release.
+   */
+  public PooledSession acquire(String host, int port, String sudoToUser)
+      throws IOException, InterruptedException,
+      SshClientConnectTimeoutException, SshClientConnectionFailedException,
+      SshClientConnectionUnauthorizedException {
+    String key = host + ":" + port + ":" + sudoToUser;
+    if (enabled) {
+      List<PooledSession> closing = new ArrayList<PooledSession>();
+      PooledSession found = null;
+      synchronized (this) {
+        evictIdle(System.currentTimeMillis(), closing);
+        List<PooledSession> pooled = sessions.get(key);
+        if (pooled != null) {
+          for (PooledSession candidate : pooled) {
+            if (candidate.channels < maxChannelsPerSession
+                && isOpen(candidate.session)) {
+              candidate.channels++;
+              found = candidate;
+              break;
+            }
+          }
+        }
+      }
+      closeAll(closing);
+      if (found != null) {
+        return found;
+      }
+    }
+    PooledSession created = new PooledSession(key,
+        sshClientConnector.connect(getClient(), host, port));
+    created.channels = 1;
+    if (enabled) {
+      synchronized (this) {
+        List<PooledSession> pooled = sessions.get(key);
+        if (pooled == null) {
+          pooled = new ArrayList<PooledSession>();
+          sessions.put(key, pooled);
+        }
+        pooled.add(created);
+      }
+    }
+    return created;
+  }
+
+  /**
+   * Gives back a session acquired from the pool.  A session that is not
+   * reusable, e.g. because opening a channel on it failed, is not handed out
+   * again and is closed once its last channel is released.
+   */
+  public void release(PooledSession pooled, boolean reusable) {
+    boolean close;
+    synchronized (this) {
+      pooled.channels--;
+      if (!enabled || !reusable || !isOpen(pooled.session)) {
+        retire(pooled);
+      }
+      close = pooled.retired && pooled.channels == 0;
+      if (pooled.channels == 0) {
+        pooled.idleSince = System.currentTimeMillis();
+      }
+    }
+    if (close) {
+      close(pooled.session);
+    }
+  }
+
+  /**
+   * Closes all of the pooled sessions and stops the shared client.
+   */
+  public void close() {
+    List<PooledSession> closing = new ArrayList<PooledSession>();
+    SshClient client;
+    synchronized (this) {
+      for (List<PooledSession> pooled : sessions.values()) {
+        closing.addAll(pooled);
+      }
+      sessions.clear();
+      client = sshClient;
+      sshClient = null;
+    }
+    closeAll(closing);
+    if (client != null) {
+      client.stop();
+    }
+  }
+
+  synchronized int size() {
+    int size = 0;
+    for (List<PooledSession> pooled : sessions.values()) {
+      size += pooled.size();
+    }
+    return size;
+  }
+
+  private void evictIdle(long now, List<PooledSession> closing) {
+    Iterator<List<PooledSession>> lists = sessions.values().iterator();
+    while (lists.hasNext()) {
+      List<PooledSession> pooled = lists.next();
+      Iterator<PooledSession> iterator = pooled.iterator();
+      while (iterator.hasNext()) {
+        PooledSession candidate = iterator.next();
+        if (candidate.channels == 0
+            && (now - candidate.idleSince > idleTimeout
+                || !isOpen(candidate.session))) {
+          candidate.retired = true;
+          iterator.remove();
+          closing.add(candidate);
+        }
+      }
+      if (pooled.isEmpty()) {
+        lists.remove();
+      }
+    }
+  }
+
+  private void retire(PooledSession pooled) {
+    if (!pooled.retired) {
+      pooled.retired = true;
+      List<PooledSession> list = sessions.get(pooled.key);
+      if (list != null) {
+        list.remove(pooled);
+        if (list.isEmpty()) {
+          sessions.remove(pooled.key);
+        }
+      }
+    }
+  }
+
+  private static boolean isOpen(ClientSession session) {
+    // An authenticated session returns straight away with AUTHED set so this
+    // never blocks for the sessions handed out by the pool.
+    int state = session.waitFor(ClientSession.CLOSED | ClientSession.AUTHED, 0);
+    return (state & ClientSession.CLOSED) == 0;
+  }
+
+  private static void closeAll(List<PooledSession> closing) {
+    for (PooledSession pooled : closing) {
+      close(pooled.session);
+    }
+  }
+
+  private static void close(ClientSession session) {
+    try {
+      session.close(false);
+    } catch (RuntimeException e) {
+      LOG.debug("Failed to close pooled ssh session.", e);
+    }
+  }
+
+}
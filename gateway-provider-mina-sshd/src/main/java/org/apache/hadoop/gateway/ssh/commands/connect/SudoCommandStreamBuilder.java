@@ -5,8 +5,7 @@ import static java.nio.charset.Charset.forName;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
+import java.io.OutputStream;
 import java.io.SequenceInputStream;
 
 import org.apache.commons.io.input.TeeInputStream;
@@ -20,10 +19,12 @@ public class SudoCommandStreamBuilder {
     this.sshConfiguration = sshConfiguration;
   }
 
+  /**
+   * The returned stream copies the command to the logging stream as it is
+   * read and closes the logging stream when it is closed.
+   */
   public InputStream buildSudoCommand(String sudoToUser, InputStream command,
-      PipedInputStream loggingInputStream) throws IOException {
-    PipedOutputStream loggingOutputStream = new PipedOutputStream(
-        loggingInputStream);
+      OutputStream loggingOutputStream) throws IOException {
     InputStream tee = new TeeInputStream(command, loggingOutputStream, true);
 
     String sudoCommand = sshConfiguration.getLoginCommand();
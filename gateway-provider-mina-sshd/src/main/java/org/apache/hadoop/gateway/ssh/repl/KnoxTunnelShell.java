@@ -7,7 +7,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
 
 import org.apache.hadoop.gateway.ssh.SSHConfiguration;
 import org.apache.hadoop.gateway.ssh.StreamFlusher;
@@ -39,20 +38,27 @@ public class KnoxTunnelShell implements Command {
   private ShellInterpreterThread interpreterThread = null;
   private final String topologyName;
   private String username;
-  private final Timer timer;
+  private StreamFlusher outputFlusher;
+  private StreamFlusher errorFlusher;
   private final SSHConfiguration sshConfiguration;
 
   public KnoxTunnelShell(String topologyName, SSHConfiguration configuration) {
     this.topologyName = topologyName;
     this.sshConfiguration = configuration;
-    this.timer = new Timer("Stream Flusher");
   }
 
   @Override
   public void destroy() {
+    if (outputFlusher != null) {
+      outputFlusher.cancel();
+    }
+    if (errorFlusher != null) {
+      errorFlusher.cancel();
+    }
     try {
-      timer.cancel();
-      interpreterThread.close();
+      if (interpreterThread != null) {
+        interpreterThread.close();
+      }
     } catch (IOException e) {
       LOG.error("Error while closing interpreter thread.", e);
     }
@@ -60,7 +66,9 @@ public class KnoxTunnelShell implements Command {
 
   @Override
   public void setErrorStream(OutputStream arg0) {
-    this.errorStream = arg0;
+    this.errorFlusher = new StreamFlusher(arg0, ShellExecutors.getScheduler(),
+        ShellExecutors.getFlushers(), sshConfiguration.getStreamFlusherPeriod());
+    this.errorStream = errorFlusher;
   }
 
   @Override
@@ -75,7 +83,9 @@ public class KnoxTunnelShell implements Command {
 
   @Override
   public void setOutputStream(OutputStream arg0) {
-    this.outputStream = arg0;
+    this.outputFlusher = new StreamFlusher(arg0, ShellExecutors.getScheduler(),
+        ShellExecutors.getFlushers(), sshConfiguration.getStreamFlusherPeriod());
+    this.outputStream = outputFlusher;
   }
 
   @Override
@@ -96,14 +106,7 @@ public class KnoxTunnelShell implements Command {
         inputStream, outputStream, errorStream, actionMap,
         new UnsupportedCommandAction(inputStream, outputStream, errorStream),
         encoding);
-    interpreterThread.start();
-
-    timer.schedule(new StreamFlusher(outputStream),
-        sshConfiguration.getStreamFlusherPeriod(),
-        sshConfiguration.getStreamFlusherPeriod());
-    timer.schedule(new StreamFlusher(errorStream),
-        sshConfiguration.getStreamFlusherPeriod(),
-        sshConfiguration.getStreamFlusherPeriod());
+    ShellExecutors.getInterpreters().execute(interpreterThread);
   }
 
   public String getTopologyName() {
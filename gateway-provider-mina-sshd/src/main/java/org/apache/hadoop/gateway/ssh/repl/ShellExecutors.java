@@ -0,0 +1,62 @@
+package org.apache.hadoop.gateway.ssh.repl;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The threads shared by all of the tunnel shells.
+ * The interpreters run on a cached pool so that shells reuse the threads of
+ * shells that have already exited.  The stream flushes for every shell are
+ * timed by a single scheduler thread but run on their own cached pool, since
+ * a flush blocks while the client's channel window is full.  A stream has at
+ * most one flush in flight so a stalled client holds at most one flusher
+ * thread and never delays the output of the other shells.
+ */
+public class ShellExecutors {
+
+  private static final ExecutorService INTERPRETERS = Executors
+      .newCachedThreadPool(new DaemonThreadFactory("Knox Shell Interpreter"));
+
+  private static final ScheduledExecutorService SCHEDULER = Executors
+      .newSingleThreadScheduledExecutor(new DaemonThreadFactory(
+          "Knox Shell Flush Scheduler"));
+
+  private static final ExecutorService FLUSHERS = Executors
+      .newCachedThreadPool(new DaemonThreadFactory("Knox Shell Stream Flusher"));
+
+  private ShellExecutors() {
+  }
+
+  public static ExecutorService getInterpreters() {
+    return INTERPRETERS;
+  }
+
+  public static ScheduledExecutorService getScheduler() {
+    return SCHEDULER;
+  }
+
+  public static ExecutorService getFlushers() {
+    return FLUSHERS;
+  }
+
+  private static class DaemonThreadFactory implements ThreadFactory {
+
+    private final String name;
+    private final AtomicInteger count = new AtomicInteger();
+
+    private DaemonThreadFactory(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
+}
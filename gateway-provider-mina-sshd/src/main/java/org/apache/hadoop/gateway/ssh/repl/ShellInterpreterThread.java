@@ -13,7 +13,12 @@ import org.apache.hadoop.gateway.ssh.commands.UnsupportedCommandAction;
 import org.apache.hadoop.gateway.ssh.util.LineReaderInputStream;
 import org.apache.sshd.common.util.NoCloseOutputStream;
 
-public class ShellInterpreterThread extends Thread implements Closeable {
+/**
+ * Runs the shell's read-eval-print loop.
+ * It is run by one of the shared ShellExecutors interpreter threads rather
+ * than a thread of its own.
+ */
+public class ShellInterpreterThread implements Runnable, Closeable {
 
   public static class ShellInterpreterErrorExitException extends Exception {
     public ShellInterpreterErrorExitException() {
@@ -40,7 +45,6 @@ public class ShellInterpreterThread extends Thread implements Closeable {
                                 InputStream inputStream, OutputStream output,
                                 OutputStream error,
                                 Map<String, AbstractAction> actionMap, UnsupportedCommandAction unsupportedAction, String textEncoding) {
-    super("ShellInterpretedThread");
     this.username = knoxShell.getUsername();
     this.topology = knoxShell.getTopologyName();
     this.exitHandler = exitHandler;
@@ -52,6 +56,7 @@ public class ShellInterpreterThread extends Thread implements Closeable {
     this.textEncoding = textEncoding;
   }
 
+  @Override
   public void run() {
     boolean run = true;
     int result = 0;
@@ -7,30 +7,33 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.io.PushbackReader;
 import java.io.Reader;
-import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 import java.nio.charset.Charset;
 
 import org.apache.sshd.common.util.NoCloseOutputStream;
 
 /**
- * InputStream line reader that handles character conversions correctly
+ * InputStream line reader that handles character conversions correctly.
+ * The echo of the characters read is only flushed once there is no more input
+ * immediately available, so a burst of input is echoed in one write.
  */
 public class LineReaderInputStream extends FilterInputStream {
 
   private final Reader inputStreamReader;
-  private final OutputStream echo;
+  private final Writer echo;
   private final Charset charset;
   private final StringBuilder stringBuilder = new StringBuilder();
+  private boolean afterCarriageReturn = false;
 
   public LineReaderInputStream(InputStream in, OutputStream echo,
       String charsetName) {
     super(in);
-    this.charset = Charset.forName(charsetName);
+    this.charset = charsetName == null ? Charset.forName("UTF-8") : Charset
+        .forName(charsetName);
     inputStreamReader = new InputStreamReader(in, charset);
-    this.echo = echo;
+    this.echo = echo == null ? null : new OutputStreamWriter(
+        new NoCloseOutputStream(echo), charset);
   }
 
   public String readLine() throws IOException {
@@ -41,43 +44,44 @@ public class LineReaderInputStream extends FilterInputStream {
     boolean continueReading = true;
     boolean closeStream = false;
     int readCharacter;
-    Writer outputWriter = null;
-    try {
-      outputWriter = new OutputStreamWriter(new NoCloseOutputStream(echo));
-      while (continueReading) {
-        switch (readCharacter = inputStreamReader.read()) {
-        case '\u0004': // end of stream or ctrl-d
-        case -1:
-          continueReading = false;
-          closeStream = true;
-          break;
-        case '\u0008': // backspace
-        case '\u007f':
-          if (stringBuilder.length() > 0) {
-            stringBuilder.setLength(stringBuilder.length() - 1);
-            outputWriter.write("\u0008 \u0008");
-          }
-          break;
-        case '\n':
-        case '\r':
-          continueReading = false;
-          outputWriter.write(readCharacter);
+    boolean echoed = false;
+    while (continueReading) {
+      switch (readCharacter = inputStreamReader.read()) {
+      case '\u0004': // end of stream or ctrl-d
+      case -1:
+        continueReading = false;
+        closeStream = true;
+        break;
+      case '\u0008': // backspace
+      case '\u007f':
+        if (stringBuilder.length() > 0) {
+          stringBuilder.setLength(stringBuilder.length() - 1);
+          echoed |= echo("\u0008 \u0008");
+        }
+        break;
+      case '\n':
+        if (afterCarriageReturn) {
+          // the rest of a \r\n line ending
           break;
-        default:
-          // don't track control characters other than the ones mentioned above
-          if((readCharacter >=0 && readCharacter <='\u001f')||(readCharacter>='\u0080'&&readCharacter<='\u009f')){
-            break;
-          }
-          stringBuilder.append((char)readCharacter);
-          outputWriter.write(readCharacter);
+        }
+      case '\r':
+        continueReading = false;
+        echoed |= echo(readCharacter);
+        break;
+      default:
+        // don't track control characters other than the ones mentioned above
+        if((readCharacter >=0 && readCharacter <='\u001f')||(readCharacter>='\u0080'&&readCharacter<='\u009f')){
           break;
         }
-        outputWriter.flush();
+        stringBuilder.append((char)readCharacter);
+        echoed |= echo(readCharacter);
+        break;
       }
-    } finally {
-      if (outputWriter != null) {
-        outputWriter.close();
+      if (echoed && (!continueReading || !inputStreamReader.ready())) {
+        echo.flush();
+        echoed = false;
       }
+      afterCarriageReturn = readCharacter == '\r';
     }
     if (closeStream) {
       return null;
@@ -87,6 +91,20 @@ public class LineReaderInputStream extends FilterInputStream {
     return finalString;
   }
 
+  private boolean echo(int c) throws IOException {
+    if (echo != null) {
+      echo.write(c);
+    }
+    return echo != null;
+  }
+
+  private boolean echo(String s) throws IOException {
+    if (echo != null) {
+      echo.write(s);
+    }
+    return echo != null;
+  }
+
   @Override
   public void close() throws IOException {
     inputStreamReader.close();
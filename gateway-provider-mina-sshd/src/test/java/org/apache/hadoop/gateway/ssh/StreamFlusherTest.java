@@ -0,0 +1,125 @@
+package org.apache.hadoop.gateway.ssh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StreamFlusherTest {
+
+  private ScheduledExecutorService scheduler;
+  private ExecutorService flushers;
+
+  @Before
+  public void setUp() {
+    scheduler = Executors.newSingleThreadScheduledExecutor();
+    flushers = Executors.newCachedThreadPool();
+  }
+
+  @After
+  public void tearDown() {
+    scheduler.shutdownNow();
+    flushers.shutdownNow();
+  }
+
+  @Test
+  public void testWrittenDataIsFlushedWithinPeriod() throws Exception {
+    CountingStream stream = new CountingStream(null);
+    StreamFlusher flusher = new StreamFlusher(stream, scheduler, flushers, 10);
+
+    flusher.write("hello".getBytes("UTF-8"), 0, 5);
+
+    assertTrue(stream.flushed.await(5, TimeUnit.SECONDS));
+    assertEquals("hello", stream.toString("UTF-8"));
+  }
+
+  @Test
+  public void testStalledStreamDoesNotDelayOtherStreams() throws Exception {
+    CountDownLatch unblock = new CountDownLatch(1);
+    CountingStream stalled = new CountingStream(unblock);
+    CountingStream other = new CountingStream(null);
+    StreamFlusher stalledFlusher =
+        new StreamFlusher(stalled, scheduler, flushers, 10);
+    StreamFlusher otherFlusher =
+        new StreamFlusher(other, scheduler, flushers, 10);
+
+    stalledFlusher.write('a');
+    assertTrue(stalled.flushed.await(5, TimeUnit.SECONDS));
+    // More output for the stalled stream while its flush is still blocked.
+    stalledFlusher.write('b');
+    otherFlusher.write('c');
+
+    assertTrue(other.flushed.await(5, TimeUnit.SECONDS));
+    Thread.sleep(100);
+    assertEquals(1, stalled.flushes.get());
+
+    // Once the blocked flush returns the pending output is flushed too.
+    unblock.countDown();
+    long deadline = System.currentTimeMillis() + 5000;
+    while (stalled.flushes.get() < 2 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(2, stalled.flushes.get());
+    assertEquals(1, stalled.maxConcurrentFlushes.get());
+  }
+
+  @Test
+  public void testCancelledStreamIsNotFlushed() throws Exception {
+    CountingStream stream = new CountingStream(null);
+    StreamFlusher flusher = new StreamFlusher(stream, scheduler, flushers, 10);
+
+    flusher.cancel();
+    flusher.write('a');
+
+    Thread.sleep(100);
+    assertEquals(0, stream.flushes.get());
+  }
+
+  /**
+   * Counts flushes and, like a channel stream with a full window, can block
+   * in flush until it is released.
+   */
+  private static class CountingStream extends ByteArrayOutputStream {
+
+    private final CountDownLatch unblock;
+    private final CountDownLatch flushed = new CountDownLatch(1);
+    private final AtomicInteger flushes = new AtomicInteger();
+    private final AtomicInteger concurrentFlushes = new AtomicInteger();
+    private final AtomicInteger maxConcurrentFlushes = new AtomicInteger();
+
+    private CountingStream(CountDownLatch unblock) {
+      this.unblock = unblock;
+    }
+
+    @Override
+    public void flush() throws IOException {
+      int concurrent = concurrentFlushes.incrementAndGet();
+      if (concurrent > maxConcurrentFlushes.get()) {
+        maxConcurrentFlushes.set(concurrent);
+      }
+      flushes.incrementAndGet();
+      flushed.countDown();
+      try {
+        if (unblock != null) {
+          unblock.await();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        concurrentFlushes.decrementAndGet();
+      }
+    }
+  }
+
+}
@@ -1,10 +1,8 @@
 package org.apache.hadoop.gateway.ssh.audit;
 
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.Charset;
 
 import org.apache.hadoop.gateway.audit.api.Action;
 import org.apache.hadoop.gateway.audit.api.ActionOutcome;
@@ -16,14 +14,14 @@ import org.junit.Test;
 
 public class TerminalActionAuditRecorderTest {
 
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
   @Test
   public void testAuditWork() throws Exception {
     String performedWork = "input data\n";
     String resource = "resource";
     String user = "user";
 
-    TerminalErrorHandler terminalErrorHandlerMock =
-        EasyMock.createMock(TerminalErrorHandler.class);
     Auditor auditorMock = EasyMock.createMock(Auditor.class);
     auditorMock.audit(Action.ACCESS, user + "@" + resource + ":" + "input data",
         ResourceType.TOPOLOGY, ActionOutcome.UNAVAILABLE);
@@ -32,132 +30,120 @@ public class TerminalActionAuditRecorderTest {
     KnoxTunnelShell knoxTunnelShellMock =
         EasyMock.createMock(KnoxTunnelShell.class);
 
-    EasyMock.replay(terminalErrorHandlerMock, auditorMock, knoxTunnelShellMock, "UTF-8");
+    EasyMock.replay(auditorMock, knoxTunnelShellMock);
 
     TerminalActionAuditRecorder terminalActionAuditRecorder =
-        new TerminalActionAuditRecorder(terminalErrorHandlerMock, auditorMock);
+        new TerminalActionAuditRecorder(auditorMock);
 
-    ByteArrayInputStream performedWorkStream =
-        new ByteArrayInputStream(performedWork.getBytes("UTF-8"));
     TerminalAuditWork terminalAuditWork =
-        new TerminalAuditWork(resource, user, performedWorkStream,
-            knoxTunnelShellMock, "UTF-8");
+        new TerminalAuditWork(resource, user, performedWork.getBytes(UTF8),
+            knoxTunnelShellMock, UTF8);
 
     terminalActionAuditRecorder.auditWork(terminalAuditWork);
-    EasyMock.verify(terminalErrorHandlerMock, auditorMock, knoxTunnelShellMock, "UTF-8");
+    EasyMock.verify(auditorMock, knoxTunnelShellMock);
   }
 
   @Test
-  public void testAuditWorkIOException() throws Exception {
-    String resource = "resource";
-    String user = "user";
-
-    TerminalErrorHandler terminalErrorHandlerMock =
-        EasyMock.createMock(TerminalErrorHandler.class);
+  public void testAuditWorkEmpty() throws Exception {
     Auditor auditorMock = EasyMock.createMock(Auditor.class);
     KnoxTunnelShell knoxTunnelShellMock =
         EasyMock.createMock(KnoxTunnelShell.class);
-    InputStream inMock =
-        EasyMock.createMock(InputStream.class);
-
-    IOException ioException = new IOException();
-    EasyMock.expect(inMock
-        .read((byte[]) EasyMock.anyObject(), EasyMock.anyInt(),
-            EasyMock.anyInt())).andThrow(ioException);
-    terminalErrorHandlerMock.handleError(ioException, knoxTunnelShellMock);
-    EasyMock.expectLastCall();
-    inMock.close();
-    EasyMock.expectLastCall();
 
-    EasyMock.replay(terminalErrorHandlerMock, auditorMock, knoxTunnelShellMock,
-        inMock);
+    EasyMock.replay(auditorMock, knoxTunnelShellMock);
 
     TerminalActionAuditRecorder terminalActionAuditRecorder =
-        new TerminalActionAuditRecorder(terminalErrorHandlerMock, auditorMock);
+        new TerminalActionAuditRecorder(auditorMock);
 
     TerminalAuditWork terminalAuditWork =
-        new TerminalAuditWork(resource, user, inMock,
-            knoxTunnelShellMock, "UTF-8");
+        new TerminalAuditWork("resource", "user", new byte[0],
+            knoxTunnelShellMock, UTF8);
 
     terminalActionAuditRecorder.auditWork(terminalAuditWork);
-    EasyMock.verify(terminalErrorHandlerMock, auditorMock, knoxTunnelShellMock,
-        inMock);
+    EasyMock.verify(auditorMock, knoxTunnelShellMock);
   }
 
   @Test
-  public void testAuditWorkNullLine() throws Exception {
+  public void testAuditWorkMultiLine() throws Exception {
+    String performedWork = "input data\r\n";
+    String performedWork2 = "input data2\r\n";
+    String performedWork3 = "\u00e9t\u00e9";
     String resource = "resource";
     String user = "user";
 
-    TerminalErrorHandler terminalErrorHandlerMock =
-        EasyMock.createMock(TerminalErrorHandler.class);
-    Auditor auditorMock = EasyMock.createMock(Auditor.class);
+    Auditor auditorMock = EasyMock.createStrictMock(Auditor.class);
+    auditorMock.audit(Action.ACCESS, user + "@" + resource + ":" + "input data",
+        ResourceType.TOPOLOGY, ActionOutcome.UNAVAILABLE);
+    EasyMock.expectLastCall();
+    auditorMock.audit(Action.ACCESS, user + "@" + resource + ":" + "input data2",
+        ResourceType.TOPOLOGY, ActionOutcome.UNAVAILABLE);
+    EasyMock.expectLastCall();
+    auditorMock.audit(Action.ACCESS, user + "@" + resource + ":" + performedWork3,
+        ResourceType.TOPOLOGY, ActionOutcome.UNAVAILABLE);
+    EasyMock.expectLastCall();
+
     KnoxTunnelShell knoxTunnelShellMock =
         EasyMock.createMock(KnoxTunnelShell.class);
-    InputStream inMock =
-        EasyMock.createMock(InputStream.class);
-
-    EasyMock.expect(inMock
-        .read((byte[]) EasyMock.anyObject(), EasyMock.anyInt(),
-            EasyMock.anyInt())).andReturn(-1);
-    inMock.close();
-    EasyMock.expectLastCall();
 
-    EasyMock.replay(terminalErrorHandlerMock, auditorMock, knoxTunnelShellMock,
-        inMock);
+    EasyMock.replay(auditorMock, knoxTunnelShellMock);
 
     TerminalActionAuditRecorder terminalActionAuditRecorder =
-        new TerminalActionAuditRecorder(terminalErrorHandlerMock, auditorMock);
+        new TerminalActionAuditRecorder(auditorMock);
 
     TerminalAuditWork terminalAuditWork =
-        new TerminalAuditWork(resource, user, inMock,
-            knoxTunnelShellMock, "UTF-8");
+        new TerminalAuditWork(resource, user,
+            (performedWork + performedWork2 + performedWork3).getBytes(UTF8),
+            knoxTunnelShellMock, UTF8);
 
     terminalActionAuditRecorder.auditWork(terminalAuditWork);
-    EasyMock.verify(terminalErrorHandlerMock, auditorMock, knoxTunnelShellMock,
-        inMock);
+    EasyMock.verify(auditorMock, knoxTunnelShellMock);
   }
 
-
   @Test
-  public void testAuditWorkMultiLine() throws Exception {
-    String performedWork = "input data\r\n";
-    String performedWork2 = "input data2\r\n";
-    String resource = "resource";
-    String user = "user";
-
-    TerminalErrorHandler terminalErrorHandlerMock =
-        EasyMock.createMock(TerminalErrorHandler.class);
-    Auditor auditorMock = EasyMock.createMock(Auditor.class);
-    auditorMock.audit(Action.ACCESS, user + "@" + resource + ":" + "input data",
+  public void testAuditWorkCarriageReturnLineEnds() throws Exception {
+    Auditor auditorMock = EasyMock.createStrictMock(Auditor.class);
+    auditorMock.audit(Action.ACCESS, "user@resource:ls",
         ResourceType.TOPOLOGY, ActionOutcome.UNAVAILABLE);
     EasyMock.expectLastCall();
-    auditorMock.audit(Action.ACCESS, user + "@" + resource + ":" + "input data2",
+    auditorMock.audit(Action.ACCESS, "user@resource:pwd",
         ResourceType.TOPOLOGY, ActionOutcome.UNAVAILABLE);
     EasyMock.expectLastCall();
+    auditorMock.audit(Action.ACCESS, "user@resource:exit",
+        ResourceType.TOPOLOGY, ActionOutcome.UNAVAILABLE);
+    EasyMock.expectLastCall();
+    EasyMock.replay(auditorMock);
 
-    KnoxTunnelShell knoxTunnelShellMock =
-        EasyMock.createMock(KnoxTunnelShell.class);
-
-    EasyMock.replay(terminalErrorHandlerMock, auditorMock, knoxTunnelShellMock, "UTF-8");
-
-    TerminalActionAuditRecorder terminalActionAuditRecorder =
-        new TerminalActionAuditRecorder(terminalErrorHandlerMock, auditorMock);
+    new TerminalActionAuditRecorder(auditorMock).auditWork(
+        new TerminalAuditWork("resource", "user",
+            "ls\rpwd\r\nexit\r".getBytes(UTF8), null, UTF8));
+    EasyMock.verify(auditorMock);
+  }
 
-    PipedInputStream pipedInputStream = new PipedInputStream();
-    PipedOutputStream pipedOutputStream =
-        new PipedOutputStream(pipedInputStream);
-    TerminalAuditWork terminalAuditWork =
-        new TerminalAuditWork(resource, user, pipedInputStream,
-            knoxTunnelShellMock, "UTF-8");
+  @Test
+  public void testEditBackspace() {
+    assertEquals("rm -rf /tmp",
+        TerminalActionAuditRecorder.edit("rm -rf /tmpx\u0008"));
+    assertEquals("rm -rf /tmp",
+        TerminalActionAuditRecorder.edit("rm -rf /tmpxy\u007f\u007f"));
+    assertEquals("ls", TerminalActionAuditRecorder.edit("\u0008\u0008ls"));
+  }
 
-    pipedOutputStream.write(performedWork.getBytes("UTF-8"));
-    Thread.sleep(100);
-    pipedOutputStream.write(performedWork2.getBytes("UTF-8"));
-    pipedOutputStream.close();
+  @Test
+  public void testEditEscapeSequences() {
+    // cursor keys, as sent in normal and in application cursor mode
+    assertEquals("ls -l", TerminalActionAuditRecorder.edit(
+        "ls\u001b[A\u001b[D -l\u001bOB"));
+    // a sequence with parameters, e.g. ctrl-right
+    assertEquals("cd /tmp", TerminalActionAuditRecorder.edit(
+        "cd\u001b[1;5C /tmp"));
+    // a lone escape at the end of the line
+    assertEquals("pwd", TerminalActionAuditRecorder.edit("pwd\u001b"));
+  }
 
-    terminalActionAuditRecorder.auditWork(terminalAuditWork);
-    EasyMock.verify(terminalErrorHandlerMock, auditorMock, knoxTunnelShellMock, "UTF-8");
+  @Test
+  public void testEditControlCharacters() {
+    assertEquals("ls /tmp", TerminalActionAuditRecorder.edit(
+        "ls\t /tmp\u0003\u0085"));
+    assertEquals("\u00e9t\u00e9", TerminalActionAuditRecorder.edit("\u00e9t\u00e9"));
   }
 
 }
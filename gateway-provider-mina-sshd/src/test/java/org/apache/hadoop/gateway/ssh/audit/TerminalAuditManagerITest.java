@@ -2,19 +2,18 @@ package org.apache.hadoop.gateway.ssh.audit;
 
 import static org.junit.Assert.*;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
-import java.io.StringReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.hadoop.gateway.ssh.repl.KnoxTunnelShell;
-import org.apache.hadoop.test.category.IntegrationTests;
 import org.easymock.Capture;
+import org.easymock.CaptureType;
 import org.easymock.EasyMock;
 import org.junit.Test;
-import org.junit.experimental.categories.Category;
-
-import com.google.common.io.ByteStreams;
-import com.google.common.io.CharStreams;
 
 public class TerminalAuditManagerITest {
 
@@ -24,8 +23,8 @@ public class TerminalAuditManagerITest {
     TerminalActionAuditRecorder terminalActionAuditRecorderMock =
         EasyMock.createMock(TerminalActionAuditRecorder.class);
 
-
-    Capture<TerminalAuditWork> terminalAuditWorkCapture = new Capture<TerminalAuditWork>();
+    Capture<TerminalAuditWork> terminalAuditWorkCapture =
+        new Capture<TerminalAuditWork>(CaptureType.ALL);
     terminalActionAuditRecorderMock.auditWork(
         EasyMock.capture(terminalAuditWorkCapture));
     EasyMock.expectLastCall().times(2);
@@ -33,29 +32,105 @@ public class TerminalAuditManagerITest {
 
     int queueSize = 2;
     TerminalAuditManager manager =
-        new TerminalAuditManager(terminalActionAuditRecorderMock, queueSize);
+        new TerminalAuditManager(terminalActionAuditRecorderMock, queueSize, 1);
 
     String resource = "resource";
     String user = "user";
     String data = "input data";
-    TerminalAuditWork terminalAuditWork =
-        new TerminalAuditWork(resource, user,
-            new ByteArrayInputStream(data.getBytes("UTF-8")),
-            knoxTunnelShell, "UTF-8");
-    manager
-        .auditStream(new ByteArrayInputStream(data.getBytes()), resource, user,
-            knoxTunnelShell, "UTF-8");
-    manager
-        .auditStream(new ByteArrayInputStream(data.getBytes()), resource, user,
-            knoxTunnelShell, "UTF-8");
+    manager.auditMessage(data, resource, user, knoxTunnelShell);
+    OutputStream stream =
+        manager.openStream(resource, user, knoxTunnelShell, "UTF-8");
+    stream.write((data + "\n").getBytes("UTF-8"));
     Thread.sleep(100); //wait for audits to be picked up
 
     EasyMock.verify(terminalActionAuditRecorderMock);
-    assertTrue(terminalAuditWorkCapture.hasCaptured());
-    TerminalAuditWork value = terminalAuditWorkCapture.getValue();
+    assertEquals(0, manager.getDroppedCount());
+    assertEquals(2, terminalAuditWorkCapture.getValues().size());
+    TerminalAuditWork value = terminalAuditWorkCapture.getValues().get(1);
     assertEquals(resource, value.getResource());
     assertEquals(user, value.getUser());
     assertEquals(knoxTunnelShell, value.getOriginatingShell());
-    assertEquals(data, new String(ByteStreams.toByteArray(value.getStream())));
+    assertEquals(data + "\n",
+        new String(value.getData(), value.getCharset()));
+    manager.close();
+  }
+
+  @Test
+  public void testFullQueueDropsWork() throws Exception {
+    KnoxTunnelShell knoxTunnelShell = EasyMock.createMock(KnoxTunnelShell.class);
+    TerminalActionAuditRecorder terminalActionAuditRecorderMock =
+        EasyMock.createMock(TerminalActionAuditRecorder.class);
+    terminalActionAuditRecorderMock.auditWork(
+        EasyMock.anyObject(TerminalAuditWork.class));
+    EasyMock.expectLastCall().once();
+    EasyMock.replay(terminalActionAuditRecorderMock);
+
+    // no audit threads so the queue is never taken from until it is closed
+    TerminalAuditManager manager =
+        new TerminalAuditManager(terminalActionAuditRecorderMock, 1, 0);
+    manager.auditMessage("first", "resource", "user", knoxTunnelShell);
+    Thread.sleep(10);
+    manager.auditMessage("second", "resource", "user", knoxTunnelShell);
+    manager.openStream("resource", "user", knoxTunnelShell, null)
+        .write("third\n".getBytes(Charset.forName("UTF-8")));
+
+    assertEquals(2, manager.getDroppedCount());
+    assertEquals(1, manager.getQueuedCount());
+    assertTrue(manager.getLag() >= 10);
+
+    manager.close();
+    assertEquals(0, manager.getQueuedCount());
+    assertEquals(0, manager.getLag());
+    EasyMock.verify(terminalActionAuditRecorderMock);
+  }
+
+  @Test
+  public void testSessionIsAuditedInOrder() throws Exception {
+    final Map<KnoxTunnelShell, List<String>> audited =
+        new HashMap<KnoxTunnelShell, List<String>>();
+    TerminalActionAuditRecorder recorder =
+        new TerminalActionAuditRecorder(null) {
+          @Override
+          public void auditWork(TerminalAuditWork work) {
+            String line = new String(work.getData(), work.getCharset());
+            if (line.endsWith("0")) {
+              // hold up a thread so the others could overtake it
+              try {
+                Thread.sleep(1);
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            }
+            synchronized (audited) {
+              audited.get(work.getOriginatingShell()).add(line);
+            }
+          }
+        };
+
+    int sessions = 8;
+    int lines = 100;
+    TerminalAuditManager manager =
+        new TerminalAuditManager(recorder, sessions * lines * 2, 4);
+    List<KnoxTunnelShell> shells = new ArrayList<KnoxTunnelShell>();
+    for (int i = 0; i < sessions; i++) {
+      KnoxTunnelShell shell = EasyMock.createMock(KnoxTunnelShell.class);
+      shells.add(shell);
+      audited.put(shell, new ArrayList<String>());
+    }
+    for (int line = 0; line < lines; line++) {
+      for (KnoxTunnelShell shell : shells) {
+        manager.auditMessage(String.valueOf(line), "resource", "user", shell);
+      }
+    }
+    manager.close();
+
+    assertEquals(0, manager.getDroppedCount());
+    for (KnoxTunnelShell shell : shells) {
+      List<String> sessionLines = audited.get(shell);
+      assertEquals(lines, sessionLines.size());
+      for (int line = 0; line < lines; line++) {
+        assertEquals(String.valueOf(line), sessionLines.get(line));
+      }
+    }
   }
 }
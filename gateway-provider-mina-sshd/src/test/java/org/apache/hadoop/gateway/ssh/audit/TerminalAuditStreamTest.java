@@ -0,0 +1,104 @@
+package org.apache.hadoop.gateway.ssh.audit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.apache.hadoop.gateway.audit.api.Action;
+import org.apache.hadoop.gateway.audit.api.ActionOutcome;
+import org.apache.hadoop.gateway.audit.api.Auditor;
+import org.apache.hadoop.gateway.audit.api.ResourceType;
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+public class TerminalAuditStreamTest {
+
+  private static void expectAudit(Auditor auditorMock, String line) {
+    auditorMock.audit(Action.ACCESS, "user@resource:" + line,
+        ResourceType.TOPOLOGY, ActionOutcome.UNAVAILABLE);
+    EasyMock.expectLastCall();
+  }
+
+  @Test
+  public void testLinesAreBatchedPerWrite() throws Exception {
+    Auditor auditorMock = EasyMock.createStrictMock(Auditor.class);
+    expectAudit(auditorMock, "ls");
+    expectAudit(auditorMock, "cd /tmp");
+    expectAudit(auditorMock, "pwd");
+    expectAudit(auditorMock, "exit");
+    EasyMock.replay(auditorMock);
+
+    // no audit threads, the queued work is audited when the manager is closed
+    TerminalAuditManager manager = new TerminalAuditManager(
+        new TerminalActionAuditRecorder(auditorMock), 16, 0);
+    OutputStream stream = manager.openStream("resource", "user", null, "UTF-8");
+    stream.write('l');
+    stream.write('s');
+    assertEquals(0, manager.getQueuedCount());
+    stream.write("\r\ncd /tmp\npw".getBytes("UTF-8"));
+    assertEquals(1, manager.getQueuedCount());
+    stream.write("d\nexit".getBytes("UTF-8"));
+    assertEquals(2, manager.getQueuedCount());
+    stream.close();
+    assertEquals(3, manager.getQueuedCount());
+    stream.write("ignored\n".getBytes("UTF-8"));
+    assertEquals(3, manager.getQueuedCount());
+
+    manager.close();
+    EasyMock.verify(auditorMock);
+  }
+
+  @Test
+  public void testLineEndingInCarriageReturnIsSubmitted() throws Exception {
+    Auditor auditorMock = EasyMock.createStrictMock(Auditor.class);
+    expectAudit(auditorMock, "ls");
+    expectAudit(auditorMock, "");
+    expectAudit(auditorMock, "rm -rf /tmp");
+    EasyMock.replay(auditorMock);
+
+    TerminalAuditManager manager = new TerminalAuditManager(
+        new TerminalActionAuditRecorder(auditorMock), 16, 0);
+    OutputStream stream = manager.openStream("resource", "user", null, "UTF-8");
+    // keystrokes as a terminal sends them, Enter is a \r
+    stream.write("ls\r".getBytes("UTF-8"));
+    assertEquals(1, manager.getQueuedCount());
+    // the \n of a \r\n split over two writes doesn't end another line
+    stream.write("\n".getBytes("UTF-8"));
+    assertEquals(1, manager.getQueuedCount());
+    stream.write('\r');
+    assertEquals(2, manager.getQueuedCount());
+    stream.write("rm -rf /tmpx\u007f\r".getBytes("UTF-8"));
+    assertEquals(3, manager.getQueuedCount());
+
+    manager.close();
+    EasyMock.verify(auditorMock);
+  }
+
+  @Test
+  public void testLongLineIsSplit() throws Exception {
+    char[] line = new char[TerminalAuditStream.MAX_LINE_LENGTH];
+    Arrays.fill(line, 'a');
+    Auditor auditorMock = EasyMock.createStrictMock(Auditor.class);
+    expectAudit(auditorMock, new String(line));
+    expectAudit(auditorMock, "b");
+    EasyMock.replay(auditorMock);
+
+    TerminalAuditManager manager = new TerminalAuditManager(
+        new TerminalActionAuditRecorder(auditorMock), 16, 0);
+    OutputStream stream = manager.openStream("resource", "user", null, "UTF-8");
+    byte[] chunk = new byte[1000];
+    Arrays.fill(chunk, (byte) 'a');
+    for (int i = 0; i < line.length / chunk.length; i++) {
+      stream.write(chunk);
+    }
+    stream.write(chunk, 0, line.length % chunk.length);
+    assertEquals(1, manager.getQueuedCount());
+    stream.write("b\n".getBytes("UTF-8"));
+    assertEquals(2, manager.getQueuedCount());
+
+    manager.close();
+    EasyMock.verify(auditorMock);
+  }
+
+}
@@ -1,8 +1,6 @@
 package org.apache.hadoop.gateway.ssh.audit;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
-import java.io.StringReader;
+import java.nio.charset.Charset;
 import java.util.concurrent.ArrayBlockingQueue;
 
 import org.apache.hadoop.gateway.ssh.repl.KnoxTunnelShell;
@@ -23,8 +21,8 @@ public class TerminalAuditThreadTest {
         EasyMock.createMock(KnoxTunnelShell.class);
 
     TerminalAuditWork terminalAuditWork =
-        new TerminalAuditWork("resource", "user",
-            new ByteArrayInputStream("".getBytes("UTF-8")), knoxTunnelShellMock, "UTF-8");
+        new TerminalAuditWork("resource", "user", new byte[0],
+            knoxTunnelShellMock, Charset.forName("UTF-8"));
     EasyMock.expect(workQueueMock.take())
         .andReturn(terminalAuditWork);
     EasyMock.expect(workQueueMock.take())
@@ -37,7 +35,9 @@ public class TerminalAuditThreadTest {
       }
     });
     auditorMock.auditWork(terminalAuditWork);
-    EasyMock.expectLastCall().times(2);
+    EasyMock.expectLastCall().andThrow(new RuntimeException("test"));
+    auditorMock.auditWork(terminalAuditWork);
+    EasyMock.expectLastCall();
 
     EasyMock.replay(workQueueMock, auditorMock);
 
@@ -46,6 +46,7 @@ public class TerminalAuditThreadTest {
     terminalAuditThread.start();
     Thread.sleep(100);
     terminalAuditThread.close();
+    terminalAuditThread.join(1000);
 
     EasyMock.verify(workQueueMock, auditorMock);
   }
@@ -0,0 +1,195 @@
+package org.apache.hadoop.gateway.ssh.auth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.apache.directory.api.ldap.model.cursor.EntryCursor;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.ldap.client.api.LdapConnection;
+import org.apache.hadoop.gateway.ssh.SSHConfiguration;
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+public class LDAPAuthorizerTest {
+
+  private static SSHConfiguration createConfiguration(long cacheTtl) {
+    SSHConfiguration configuration = new SSHConfiguration();
+    configuration.setAuthorizationBase("dc=example,dc=com");
+    configuration.setAuthorizationUser("uid=client,dc=example,dc=com");
+    configuration.setAuthorizationPass("secret");
+    configuration.setAuthorizationURL("ldap://localhost:60389");
+    configuration.setAuthorizationNameAttribute("cn");
+    configuration.setLdapAuthorizationCacheTtl(cacheTtl);
+    return configuration;
+  }
+
+  private static EntryCursor createCursor(boolean found) throws Exception {
+    EntryCursor cursor = EasyMock.createNiceMock(EntryCursor.class);
+    EasyMock.expect(cursor.next()).andReturn(found);
+    EasyMock.replay(cursor);
+    return cursor;
+  }
+
+  @Test
+  public void testDecisionsAreCached() throws Exception {
+    SSHConfiguration configuration = createConfiguration(60000);
+    LDAPConnectionFactory connectionFactoryMock =
+        EasyMock.createMock(LDAPConnectionFactory.class);
+    LdapConnection connectionMock = EasyMock.createMock(LdapConnection.class);
+    EasyMock.expect(connectionFactoryMock.createConnection("ldap://localhost:60389"))
+        .andReturn(connectionMock).once();
+    connectionMock.bind("uid=client,dc=example,dc=com", "secret");
+    EasyMock.expectLastCall().once();
+    EasyMock.expect(connectionMock.isConnected()).andReturn(true).anyTimes();
+    EasyMock.expect(connectionMock.search("dc=example,dc=com", "(&(cn=client))",
+        SearchScope.SUBTREE, "cn")).andReturn(createCursor(true)).once();
+    EasyMock.expect(connectionMock.search("dc=example,dc=com", "(&(cn=other))",
+        SearchScope.SUBTREE, "cn")).andReturn(createCursor(false)).once();
+    EasyMock.replay(connectionFactoryMock, connectionMock);
+
+    LDAPAuthorizer authorizer = new LDAPAuthorizer(configuration,
+        new LDAPEscaper(), connectionFactoryMock);
+    assertTrue(authorizer.authorize("client"));
+    assertTrue(authorizer.authorize("client"));
+    assertFalse(authorizer.authorize("other"));
+    assertFalse(authorizer.authorize("other"));
+
+    EasyMock.verify(connectionFactoryMock, connectionMock);
+  }
+
+  @Test
+  public void testConnectionIsReusedWithoutCache() throws Exception {
+    SSHConfiguration configuration = createConfiguration(0);
+    LDAPConnectionFactory connectionFactoryMock =
+        EasyMock.createMock(LDAPConnectionFactory.class);
+    LdapConnection connectionMock = EasyMock.createMock(LdapConnection.class);
+    EasyMock.expect(connectionFactoryMock.createConnection("ldap://localhost:60389"))
+        .andReturn(connectionMock).once();
+    connectionMock.bind("uid=client,dc=example,dc=com", "secret");
+    EasyMock.expectLastCall().once();
+    EasyMock.expect(connectionMock.isConnected()).andReturn(true).anyTimes();
+    EasyMock.expect(connectionMock.search("dc=example,dc=com", "(&(cn=client))",
+        SearchScope.SUBTREE, "cn")).andReturn(createCursor(true))
+        .andReturn(createCursor(true));
+    EasyMock.replay(connectionFactoryMock, connectionMock);
+
+    LDAPAuthorizer authorizer = new LDAPAuthorizer(configuration,
+        new LDAPEscaper(), connectionFactoryMock);
+    assertTrue(authorizer.authorize("client"));
+    assertTrue(authorizer.authorize("client"));
+
+    EasyMock.verify(connectionFactoryMock, connectionMock);
+  }
+
+  @Test
+  public void testFailedConnectionIsDiscardedAndRetried() throws Exception {
+    SSHConfiguration configuration = createConfiguration(60000);
+    LDAPConnectionFactory connectionFactoryMock =
+        EasyMock.createMock(LDAPConnectionFactory.class);
+    LdapConnection brokenMock = EasyMock.createNiceMock(LdapConnection.class);
+    LdapConnection connectionMock = EasyMock.createNiceMock(LdapConnection.class);
+    EasyMock.expect(connectionFactoryMock.createConnection("ldap://localhost:60389"))
+        .andReturn(brokenMock).andReturn(connectionMock);
+    EasyMock.expect(brokenMock.search("dc=example,dc=com", "(&(cn=client))",
+        SearchScope.SUBTREE, "cn")).andThrow(new LdapException("test"));
+    brokenMock.close();
+    EasyMock.expectLastCall().once();
+    EasyMock.expect(connectionMock.isConnected()).andReturn(true).anyTimes();
+    EasyMock.expect(connectionMock.search("dc=example,dc=com", "(&(cn=client))",
+        SearchScope.SUBTREE, "cn")).andReturn(createCursor(true)).once();
+    EasyMock.replay(connectionFactoryMock, brokenMock, connectionMock);
+
+    LDAPAuthorizer authorizer = new LDAPAuthorizer(configuration,
+        new LDAPEscaper(), connectionFactoryMock);
+    assertTrue(authorizer.authorize("client"));
+    assertTrue(authorizer.authorize("client"));
+
+    EasyMock.verify(connectionFactoryMock, brokenMock, connectionMock);
+  }
+
+  @Test
+  public void testRepeatedFailureIsDeniedAndNotCached() throws Exception {
+    SSHConfiguration configuration = createConfiguration(60000);
+    LDAPConnectionFactory connectionFactoryMock =
+        EasyMock.createMock(LDAPConnectionFactory.class);
+    LdapConnection brokenMock = EasyMock.createNiceMock(LdapConnection.class);
+    LdapConnection retryMock = EasyMock.createNiceMock(LdapConnection.class);
+    LdapConnection connectionMock = EasyMock.createNiceMock(LdapConnection.class);
+    EasyMock.expect(connectionFactoryMock.createConnection("ldap://localhost:60389"))
+        .andReturn(brokenMock).andReturn(retryMock).andReturn(connectionMock);
+    EasyMock.expect(brokenMock.search("dc=example,dc=com", "(&(cn=client))",
+        SearchScope.SUBTREE, "cn")).andThrow(new LdapException("test"));
+    brokenMock.close();
+    EasyMock.expectLastCall().once();
+    EasyMock.expect(retryMock.search("dc=example,dc=com", "(&(cn=client))",
+        SearchScope.SUBTREE, "cn")).andThrow(new LdapException("test"));
+    retryMock.close();
+    EasyMock.expectLastCall().once();
+    EasyMock.expect(connectionMock.isConnected()).andReturn(true).anyTimes();
+    EasyMock.expect(connectionMock.search("dc=example,dc=com", "(&(cn=client))",
+        SearchScope.SUBTREE, "cn")).andReturn(createCursor(true)).once();
+    EasyMock.replay(connectionFactoryMock, brokenMock, retryMock,
+        connectionMock);
+
+    LDAPAuthorizer authorizer = new LDAPAuthorizer(configuration,
+        new LDAPEscaper(), connectionFactoryMock);
+    assertFalse(authorizer.authorize("client"));
+    assertTrue(authorizer.authorize("client"));
+
+    EasyMock.verify(connectionFactoryMock, brokenMock, retryMock,
+        connectionMock);
+  }
+
+  @Test
+  public void testCloseClosesIdleConnections() throws Exception {
+    SSHConfiguration configuration = createConfiguration(0);
+    LDAPConnectionFactory connectionFactoryMock =
+        EasyMock.createMock(LDAPConnectionFactory.class);
+    LdapConnection connectionMock = EasyMock.createNiceMock(LdapConnection.class);
+    EasyMock.expect(connectionFactoryMock.createConnection("ldap://localhost:60389"))
+        .andReturn(connectionMock).once();
+    EasyMock.expect(connectionMock.isConnected()).andReturn(true).anyTimes();
+    EasyMock.expect(connectionMock.search("dc=example,dc=com", "(&(cn=client))",
+        SearchScope.SUBTREE, "cn")).andReturn(createCursor(true)).once();
+    connectionMock.close();
+    EasyMock.expectLastCall().once();
+    EasyMock.replay(connectionFactoryMock, connectionMock);
+
+    LDAPAuthorizer authorizer = new LDAPAuthorizer(configuration,
+        new LDAPEscaper(), connectionFactoryMock);
+    assertTrue(authorizer.authorize("client"));
+    authorizer.close();
+
+    EasyMock.verify(connectionFactoryMock, connectionMock);
+  }
+
+  @Test
+  public void testPoolIsBounded() throws Exception {
+    LDAPConnectionFactory connectionFactoryMock =
+        EasyMock.createMock(LDAPConnectionFactory.class);
+    LdapConnection connectionMock = EasyMock.createNiceMock(LdapConnection.class);
+    EasyMock.expect(connectionFactoryMock.createConnection("ldap://localhost:60389"))
+        .andReturn(connectionMock).once();
+    EasyMock.expect(connectionMock.isConnected()).andReturn(true).anyTimes();
+    EasyMock.replay(connectionFactoryMock, connectionMock);
+
+    LDAPConnectionPool pool = new LDAPConnectionPool(connectionFactoryMock,
+        "ldap://localhost:60389", null, null, 1, 10);
+    LdapConnection connection = pool.borrow();
+    try {
+      pool.borrow();
+      fail("Borrowed more connections than the pool size.");
+    } catch (LdapException e) {
+      // Expected.
+    }
+    pool.release(connection, true);
+    assertEquals(1, pool.getIdleCount());
+    pool.release(pool.borrow(), true);
+
+    EasyMock.verify(connectionFactoryMock);
+  }
+
+}
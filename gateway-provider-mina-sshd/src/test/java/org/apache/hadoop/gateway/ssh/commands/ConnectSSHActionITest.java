@@ -3,6 +3,7 @@ package org.apache.hadoop.gateway.ssh.commands;
 import static org.easymock.EasyMock.anyObject;
 import static org.easymock.EasyMock.capture;
 import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.or;
 import static org.easymock.EasyMock.replay;
@@ -13,7 +14,6 @@ import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileWriter;
-import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PipedInputStream;
 import java.io.StringReader;
@@ -53,8 +53,6 @@ import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
-import com.google.common.io.ByteStreams;
-
 @RunWith(JUnit4.class)
 public class ConnectSSHActionITest {
   
@@ -175,15 +173,15 @@ public class ConnectSSHActionITest {
           .createMock(TerminalAuditManager.class);
       KnoxTunnelShell originatingShell = EasyMock
           .createMock(KnoxTunnelShell.class);
-      Capture<InputStream> commandCapture = new Capture<InputStream>();
+      ByteArrayOutputStream commandAudit = new ByteArrayOutputStream();
       Capture<String> resourceCapture = new Capture<String>();
       fakeTerminalAuditer.auditMessage(anyObject(String.class),
           anyObject(String.class), anyObject(String.class),
           eq(originatingShell));
       expectLastCall();
-      fakeTerminalAuditer.auditStream(capture(commandCapture),
-          capture(resourceCapture), eq(sudoToUser), eq(originatingShell), eq("UTF-8"));
-      expectLastCall();
+      expect(fakeTerminalAuditer.openStream(capture(resourceCapture),
+          eq(sudoToUser), eq(originatingShell), eq("UTF-8")))
+          .andReturn(commandAudit);
       fakeTerminalAuditer.auditMessage(anyObject(String.class),
           anyObject(String.class), anyObject(String.class),
           eq(originatingShell));
@@ -202,7 +200,7 @@ public class ConnectSSHActionITest {
       assertEquals("connected error\n", new String(err.toByteArray(), "UTF-8"));
       assertEquals("connected out\n", new String(out.toByteArray(), "UTF-8"));
       assertEquals(simulatedTerminalInput,
-          new String(ByteStreams.toByteArray(commandCapture.getValue())));
+          new String(commandAudit.toByteArray(), "UTF-8"));
       assertEquals("localhost:" + SSHD_SERVER_PORT, resourceCapture.getValue());
 
       byte[] simulatedInputSink = new byte[simulatedTerminalInput.length()];
@@ -7,7 +7,6 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.PipedInputStream;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -203,16 +202,17 @@ public class SSHConnectorTest {
     String loginCommand = "exec sudo -iu {0} ; logout ; ";
     sshConfiguration.setLoginCommand(loginCommand);
 
-    PipedInputStream pipedInputStream = new PipedInputStream();
+    ByteArrayOutputStream loggingOutputStream = new ByteArrayOutputStream();
 
     SudoCommandStreamBuilder sudoCommandStreamBuilder =
         new SudoCommandStreamBuilder(sshConfiguration);
     InputStream sudoCommandInputStream = sudoCommandStreamBuilder
         .buildSudoCommand(user, new ByteArrayInputStream(command.getBytes()),
-            pipedInputStream);
+            loggingOutputStream);
 
     assertEquals("exec sudo -iu " + user + " ; logout ; " + command,
         new String(ByteStreams.toByteArray(sudoCommandInputStream)));
+    assertEquals(command, new String(loggingOutputStream.toByteArray()));
   }
 
   @Test
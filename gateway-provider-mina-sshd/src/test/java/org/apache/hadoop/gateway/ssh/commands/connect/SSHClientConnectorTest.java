@@ -0,0 +1,83 @@
+package org.apache.hadoop.gateway.ssh.commands.connect;
+
+import static org.junit.Assert.fail;
+
+import org.apache.hadoop.gateway.ssh.SSHConfiguration;
+import org.apache.hadoop.gateway.ssh.commands.connect.SSHConnector.SshClientConnectTimeoutException;
+import org.apache.hadoop.gateway.ssh.commands.connect.SSHConnector.SshClientConnectionUnauthorizedException;
+import org.apache.sshd.ClientSession;
+import org.apache.sshd.SshClient;
+import org.apache.sshd.client.future.AuthFuture;
+import org.apache.sshd.client.future.ConnectFuture;
+import org.apache.sshd.common.SshException;
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+public class SSHClientConnectorTest {
+
+  private static SSHConfiguration configuration() {
+    SSHConfiguration sshConfiguration =
+        EasyMock.createNiceMock(SSHConfiguration.class);
+    EasyMock.expect(sshConfiguration.getKnoxLoginUser()).andReturn("knox")
+        .anyTimes();
+    EasyMock.expect(sshConfiguration.getTunnelConnectTimeout())
+        .andReturn(1000L).anyTimes();
+    EasyMock.replay(sshConfiguration);
+    return sshConfiguration;
+  }
+
+  private static SshClient connectingTo(ClientSession session) {
+    ConnectFuture connectFuture = EasyMock.createNiceMock(ConnectFuture.class);
+    EasyMock.expect(connectFuture.await(EasyMock.anyLong())).andReturn(true)
+        .anyTimes();
+    EasyMock.expect(connectFuture.isConnected()).andReturn(true).anyTimes();
+    EasyMock.expect(connectFuture.getSession()).andReturn(session).anyTimes();
+    SshClient sshClient = EasyMock.createMock(SshClient.class);
+    EasyMock.expect(sshClient.connect("knox", "localhost", 22))
+        .andReturn(connectFuture);
+    EasyMock.replay(connectFuture, sshClient);
+    return sshClient;
+  }
+
+  @Test
+  public void testSessionIsClosedWhenAuthenticationFails() throws Exception {
+    AuthFuture auth = EasyMock.createNiceMock(AuthFuture.class);
+    EasyMock.expect(auth.await(EasyMock.anyLong())).andReturn(true);
+    auth.verify();
+    EasyMock.expectLastCall().andThrow(new SshException("denied"));
+    ClientSession session = EasyMock.createMock(ClientSession.class);
+    EasyMock.expect(session.auth()).andReturn(auth);
+    EasyMock.expect(session.close(true)).andReturn(null).once();
+    EasyMock.replay(auth, session);
+
+    SSHClientConnector connector = new SSHClientConnector(configuration());
+    try {
+      connector.connect(connectingTo(session), "localhost", 22);
+      fail("Expected SshClientConnectionUnauthorizedException");
+    } catch (SshClientConnectionUnauthorizedException e) {
+      // Expected.
+    }
+    EasyMock.verify(session);
+  }
+
+  @Test
+  public void testSessionIsClosedWhenAuthenticationTimesOut()
+      throws Exception {
+    AuthFuture auth = EasyMock.createNiceMock(AuthFuture.class);
+    EasyMock.expect(auth.await(EasyMock.anyLong())).andReturn(false);
+    ClientSession session = EasyMock.createMock(ClientSession.class);
+    EasyMock.expect(session.auth()).andReturn(auth);
+    EasyMock.expect(session.close(true)).andReturn(null).once();
+    EasyMock.replay(auth, session);
+
+    SSHClientConnector connector = new SSHClientConnector(configuration());
+    try {
+      connector.connect(connectingTo(session), "localhost", 22);
+      fail("Expected SshClientConnectTimeoutException");
+    } catch (SshClientConnectTimeoutException e) {
+      // Expected.
+    }
+    EasyMock.verify(session);
+  }
+
+}
@@ -0,0 +1,110 @@
+package org.apache.hadoop.gateway.ssh.commands.connect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.apache.hadoop.gateway.ssh.commands.connect.SSHSessionPool.PooledSession;
+import org.apache.sshd.ClientSession;
+import org.apache.sshd.SshClient;
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+public class SSHSessionPoolTest {
+
+  private static ClientSession openSession() {
+    ClientSession session = EasyMock.createNiceMock(ClientSession.class);
+    EasyMock.expect(session.waitFor(EasyMock.anyInt(), EasyMock.anyLong()))
+        .andReturn(ClientSession.AUTHED).anyTimes();
+    return session;
+  }
+
+  @Test
+  public void testSessionsAreSharedPerHostAndUser() throws Exception {
+    SshClient sshClientMock = EasyMock.createMock(SshClient.class);
+    SSHClientBuilder sshClientBuilderMock =
+        EasyMock.createMock(SSHClientBuilder.class);
+    SSHClientConnector sshClientConnectorMock =
+        EasyMock.createMock(SSHClientConnector.class);
+    ClientSession bobSession = openSession();
+    ClientSession bobSession2 = openSession();
+    ClientSession aliceSession = openSession();
+    EasyMock.expect(sshClientBuilderMock.buildAndStartClient())
+        .andReturn(sshClientMock).once();
+    EasyMock.expect(sshClientConnectorMock.connect(sshClientMock, "host", 22))
+        .andReturn(bobSession).andReturn(bobSession2).andReturn(aliceSession);
+    EasyMock.replay(sshClientMock, sshClientBuilderMock,
+        sshClientConnectorMock, bobSession, bobSession2, aliceSession);
+
+    SSHSessionPool pool = new SSHSessionPool(sshClientBuilderMock,
+        sshClientConnectorMock, true, 2, 60000);
+    PooledSession first = pool.acquire("host", 22, "bob");
+    PooledSession second = pool.acquire("host", 22, "bob");
+    PooledSession third = pool.acquire("host", 22, "bob");
+    PooledSession alice = pool.acquire("host", 22, "alice");
+
+    assertSame(bobSession, first.getSession());
+    assertSame(first, second);
+    assertSame(bobSession2, third.getSession());
+    assertSame(aliceSession, alice.getSession());
+    assertEquals(3, pool.size());
+
+    pool.release(second, true);
+    assertSame(first, pool.acquire("host", 22, "bob"));
+
+    EasyMock.verify(sshClientBuilderMock, sshClientConnectorMock);
+  }
+
+  @Test
+  public void testUnusableSessionIsClosedWhenReleased() throws Exception {
+    SshClient sshClientMock = EasyMock.createMock(SshClient.class);
+    SSHClientBuilder sshClientBuilderMock =
+        EasyMock.createMock(SSHClientBuilder.class);
+    SSHClientConnector sshClientConnectorMock =
+        EasyMock.createMock(SSHClientConnector.class);
+    ClientSession session = openSession();
+    EasyMock.expect(sshClientBuilderMock.buildAndStartClient())
+        .andReturn(sshClientMock);
+    EasyMock.expect(sshClientConnectorMock.connect(sshClientMock, "host", 22))
+        .andReturn(session);
+    EasyMock.expect(session.close(false)).andReturn(null).once();
+    EasyMock.replay(sshClientMock, sshClientBuilderMock,
+        sshClientConnectorMock, session);
+
+    SSHSessionPool pool = new SSHSessionPool(sshClientBuilderMock,
+        sshClientConnectorMock, true, 2, 60000);
+    pool.release(pool.acquire("host", 22, "bob"), false);
+
+    assertEquals(0, pool.size());
+    EasyMock.verify(session);
+  }
+
+  @Test
+  public void testSessionsAreClosedWhenPoolDisabled() throws Exception {
+    SshClient sshClientMock = EasyMock.createMock(SshClient.class);
+    SSHClientBuilder sshClientBuilderMock =
+        EasyMock.createMock(SSHClientBuilder.class);
+    SSHClientConnector sshClientConnectorMock =
+        EasyMock.createMock(SSHClientConnector.class);
+    ClientSession session = openSession();
+    ClientSession session2 = openSession();
+    EasyMock.expect(sshClientBuilderMock.buildAndStartClient())
+        .andReturn(sshClientMock).once();
+    EasyMock.expect(sshClientConnectorMock.connect(sshClientMock, "host", 22))
+        .andReturn(session).andReturn(session2);
+    EasyMock.expect(session.close(false)).andReturn(null).once();
+    EasyMock.replay(sshClientMock, sshClientBuilderMock,
+        sshClientConnectorMock, session, session2);
+
+    SSHSessionPool pool = new SSHSessionPool(sshClientBuilderMock,
+        sshClientConnectorMock, false, 2, 60000);
+    PooledSession first = pool.acquire("host", 22, "bob");
+    PooledSession second = pool.acquire("host", 22, "bob");
+    assertNotSame(first, second);
+
+    pool.release(first, true);
+    assertEquals(0, pool.size());
+    EasyMock.verify(sshClientBuilderMock, sshClientConnectorMock, session);
+  }
+
+}
@@ -77,7 +77,7 @@ public class ShellInterpreterThreadTest {
     try {
       shellInterpreterThread = new ShellInterpreterThread(knoxTunnelShell,
           shellExitHandler, cmdStream, out, err, actionMap, null, null);
-      shellInterpreterThread.start();
+      new Thread(shellInterpreterThread).start();
 
       // write action1
       writeCmdStream.write("action1\n".getBytes("UTF-8"));
@@ -119,7 +119,7 @@ public class ShellInterpreterThreadTest {
     try {
       shellInterpreterThread = new ShellInterpreterThread(knoxTunnelShell,
           shellExitHandler, cmdStream, out, err, actionMap, null, null);
-      shellInterpreterThread.start();
+      new Thread(shellInterpreterThread).start();
 
       // write action1
       writeCmdStream.write("action1\u0004\n".getBytes("UTF-8"));
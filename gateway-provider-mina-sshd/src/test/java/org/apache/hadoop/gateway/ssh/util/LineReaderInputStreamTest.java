@@ -6,6 +6,7 @@ import static org.junit.Assert.assertNull;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.output.NullOutputStream;
 import org.easymock.EasyMock;
@@ -76,6 +77,25 @@ public class LineReaderInputStreamTest {
     assertNull(lineReader.readLine());
   }
 
+  @Test
+  public void testEchoIsFlushedOncePerBurst() throws Exception {
+    String data = "dat\u007fta\n";
+
+    final AtomicInteger flushes = new AtomicInteger();
+    ByteArrayOutputStream echo = new ByteArrayOutputStream() {
+      @Override
+      public void flush() {
+        flushes.incrementAndGet();
+      }
+    };
+    LineReaderInputStream lineReader =
+        new LineReaderInputStream(new ByteArrayInputStream(data.getBytes()), echo, "UTF-8");
+
+    assertEquals("data", lineReader.readLine());
+    assertEquals("dat\u0008 \u0008ta\n", new String(echo.toByteArray()));
+    assertEquals(1, flushes.get());
+  }
+
   @Test
   public void testEncoding() throws Exception {
     String data = "data\ndata2\n";
@@ -18,8 +18,11 @@
 package org.apache.hadoop.gateway.hostmap.impl;
 
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteEnvironment;
+import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriter;
 import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteContext;
 import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteFunctionProcessor;
+import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteFunctionResultCache;
+import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewritePureFunction;
 import org.apache.hadoop.gateway.hostmap.api.HostmapFunctionDescriptor;
 import org.apache.hadoop.gateway.services.GatewayServices;
 import org.apache.hadoop.gateway.services.hostmap.FileBasedHostMapper;
@@ -30,8 +33,10 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 
+// The results are cached because the host map is loaded from the deployment and only changes when the topology is
+// redeployed and that creates a new function processor.
 public class HostmapFunctionProcessor
-    implements UrlRewriteFunctionProcessor<HostmapFunctionDescriptor> {
+    implements UrlRewriteFunctionProcessor<HostmapFunctionDescriptor>, UrlRewritePureFunction {
 
   public static final String DESCRIPTOR_DEFAULT_FILE_NAME = "hostmap.txt";
   public static final String DESCRIPTOR_DEFAULT_LOCATION = "/WEB-INF/" + DESCRIPTOR_DEFAULT_FILE_NAME;
@@ -39,6 +44,7 @@ public class HostmapFunctionProcessor
   private HostMapperService hostMapperService;
   private HostMapper hostMapper = null;
   private String clusterName;
+  private UrlRewriteFunctionResultCache cache = new UrlRewriteFunctionResultCache();
 
   @Override
   public String name() {
@@ -47,6 +53,7 @@ public class HostmapFunctionProcessor
 
   @Override
   public void initialize( UrlRewriteEnvironment environment, HostmapFunctionDescriptor descriptor ) throws Exception {
+    cache.clear();
     URL url = environment.getResource( DESCRIPTOR_DEFAULT_LOCATION );
     hostMapper = new FileBasedHostMapper( url );
     clusterName = environment.getAttribute(  GatewayServices.GATEWAY_CLUSTER_ATTRIBUTE );
@@ -64,28 +71,39 @@ public class HostmapFunctionProcessor
     if( hostMapperService != null && clusterName != null ) {
       hostMapperService.removeHostMapperForCluster( clusterName );
     }
+    cache.clear();
   }
 
   @Override
   public List<String> resolve( UrlRewriteContext context, List<String> parameters ) throws Exception {
     List<String> result = null;
     if( parameters != null ) {
+      UrlRewriter.Direction direction = context.getDirection();
       result = new ArrayList<String>( parameters.size() );
       for( String parameter : parameters ) {
-        switch( context.getDirection() ) {
-          case IN:
-            parameter = hostMapper.resolveInboundHostName( parameter );
-            break;
-          case OUT:
-            parameter = hostMapper.resolveOutboundHostName( parameter );
-            break;
+        String value = cache.lookup( direction, parameter );
+        if( value == null ) {
+          value = parameter;
+          switch( direction ) {
+            case IN:
+              value = hostMapper.resolveInboundHostName( parameter );
+              break;
+            case OUT:
+              value = hostMapper.resolveOutboundHostName( parameter );
+              break;
+          }
+          cache.store( direction, parameter, value );
         }
-        result.add( parameter );
+        result.add( value );
       }
 //    System.out.println( "HOSTMAP: " + parameter + "->" + value );
     }
     return result;
   }
 
+  public UrlRewriteFunctionResultCache getResultCache() {
+    return cache;
+  }
+
 }
 
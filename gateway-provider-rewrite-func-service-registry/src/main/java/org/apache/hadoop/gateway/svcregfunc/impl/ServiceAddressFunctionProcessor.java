@@ -18,7 +18,6 @@
 package org.apache.hadoop.gateway.svcregfunc.impl;
 
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriter;
-import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteContext;
 import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteFunctionProcessor;
 import org.apache.hadoop.gateway.svcregfunc.api.ServiceAddressFunctionDescriptor;
 import org.apache.hadoop.gateway.util.urltemplate.Host;
@@ -26,9 +25,6 @@ import org.apache.hadoop.gateway.util.urltemplate.Parser;
 import org.apache.hadoop.gateway.util.urltemplate.Port;
 import org.apache.hadoop.gateway.util.urltemplate.Template;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class ServiceAddressFunctionProcessor
     extends ServiceRegistryFunctionProcessorBase<ServiceAddressFunctionDescriptor>
     implements UrlRewriteFunctionProcessor<ServiceAddressFunctionDescriptor> {
@@ -39,17 +35,8 @@ public class ServiceAddressFunctionProcessor
   }
 
   @Override
-  public List<String> resolve( UrlRewriteContext context, List<String> parameters ) throws Exception {
-    List<String> results = null;
-    if( parameters != null ) {
-      UrlRewriter.Direction direction = context.getDirection();
-      results = new ArrayList<String>( parameters.size() );
-      for( String parameter : parameters ) {
-        parameter = resolve( parameter );
-        results.add( parameter );
-      }
-    }
-    return results;
+  public String resolve( UrlRewriter.Direction direction, String parameter ) throws Exception {
+    return resolve( parameter );
   }
 
   public String resolve( String parameter ) throws Exception {
@@ -18,7 +18,6 @@
 package org.apache.hadoop.gateway.svcregfunc.impl;
 
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteEnvironment;
-import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteContext;
 import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteFunctionProcessor;
 import org.apache.hadoop.gateway.services.GatewayServices;
 import org.apache.hadoop.gateway.services.hostmap.HostMapper;
@@ -29,9 +28,6 @@ import org.apache.hadoop.gateway.util.urltemplate.Parser;
 import org.apache.hadoop.gateway.util.urltemplate.Port;
 import org.apache.hadoop.gateway.util.urltemplate.Template;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import static org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriter.Direction;
 
 public class ServiceMappedAddressFunctionProcessor
@@ -55,19 +51,6 @@ public class ServiceMappedAddressFunctionProcessor
   }
 
   @Override
-  public List<String> resolve( UrlRewriteContext context, List<String> parameters ) throws Exception {
-    List<String> results = null;
-    if( parameters != null ) {
-      Direction direction = context.getDirection();
-      results = new ArrayList<String>( parameters.size() );
-      for( String parameter : parameters ) {
-        parameter = resolve( direction, parameter );
-        results.add( parameter );
-      }
-    }
-    return results;
-  }
-
   public String resolve( Direction direction, String parameter ) throws Exception {
     String addr = parameter;
     String url = lookupServiceUrl( parameter );
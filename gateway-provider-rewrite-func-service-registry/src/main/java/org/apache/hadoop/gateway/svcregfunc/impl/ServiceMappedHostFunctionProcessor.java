@@ -18,7 +18,7 @@
 package org.apache.hadoop.gateway.svcregfunc.impl;
 
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteEnvironment;
-import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteContext;
+import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriter;
 import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteFunctionProcessor;
 import org.apache.hadoop.gateway.services.GatewayServices;
 import org.apache.hadoop.gateway.services.hostmap.HostMapper;
@@ -28,9 +28,6 @@ import org.apache.hadoop.gateway.util.urltemplate.Host;
 import org.apache.hadoop.gateway.util.urltemplate.Parser;
 import org.apache.hadoop.gateway.util.urltemplate.Template;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class ServiceMappedHostFunctionProcessor
     extends ServiceRegistryFunctionProcessorBase<ServiceMappedHostFunctionDescriptor>
     implements UrlRewriteFunctionProcessor<ServiceMappedHostFunctionDescriptor> {
@@ -52,35 +49,28 @@ public class ServiceMappedHostFunctionProcessor
   }
 
   @Override
-  public List<String> resolve( UrlRewriteContext context, List<String> parameters ) throws Exception {
-    List<String> results = null;
-    if( parameters != null ) {
-      results = new ArrayList<String>( parameters.size() );
-      for( String parameter : parameters ) {
-        String url = lookupServiceUrl( parameter );
-        if( url != null ) {
-          Template template = Parser.parse( url );
-          Host host = template.getHost();
-          if( host != null ) {
-            String hostStr = host.getFirstValue().getPattern();
-            if( hostmap != null ) {
-              switch( context.getDirection() ) {
-                case IN:
-                  parameter = hostmap.resolveInboundHostName( hostStr );
-                  break;
-                case OUT:
-                  parameter = hostmap.resolveOutboundHostName( hostStr );
-                  break;
-              }
-            } else {
-              parameter = hostStr;
-            }
+  public String resolve( UrlRewriter.Direction direction, String parameter ) throws Exception {
+    String url = lookupServiceUrl( parameter );
+    if( url != null ) {
+      Template template = Parser.parse( url );
+      Host host = template.getHost();
+      if( host != null ) {
+        String hostStr = host.getFirstValue().getPattern();
+        if( hostmap != null ) {
+          switch( direction ) {
+            case IN:
+              parameter = hostmap.resolveInboundHostName( hostStr );
+              break;
+            case OUT:
+              parameter = hostmap.resolveOutboundHostName( hostStr );
+              break;
           }
+        } else {
+          parameter = hostStr;
         }
-        results.add( parameter );
       }
     }
-    return results;
+    return parameter;
   }
 
 }
@@ -19,7 +19,6 @@ package org.apache.hadoop.gateway.svcregfunc.impl;
 
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteEnvironment;
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriter;
-import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteContext;
 import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteFunctionProcessor;
 import org.apache.hadoop.gateway.services.GatewayServices;
 import org.apache.hadoop.gateway.services.hostmap.HostMapper;
@@ -27,8 +26,6 @@ import org.apache.hadoop.gateway.services.hostmap.HostMapperService;
 import org.apache.hadoop.gateway.svcregfunc.api.ServiceMappedUrlFunctionDescriptor;
 
 import java.net.URI;
-import java.util.ArrayList;
-import java.util.List;
 
 public class ServiceMappedUrlFunctionProcessor
     extends ServiceRegistryFunctionProcessorBase<ServiceMappedUrlFunctionDescriptor>
@@ -51,19 +48,6 @@ public class ServiceMappedUrlFunctionProcessor
   }
 
   @Override
-  public List<String> resolve( UrlRewriteContext context, List<String> parameters ) throws Exception {
-    List<String> results = null;
-    if( parameters != null ) {
-      UrlRewriter.Direction direction = context.getDirection();
-      results = new ArrayList<String>( parameters.size() );
-      for( String parameter : parameters ) {
-        parameter = resolve( direction, parameter );
-        results.add( parameter );
-      }
-    }
-    return results;
-  }
-
   public String resolve( UrlRewriter.Direction direction, String parameter ) throws Exception {
     String url = lookupServiceUrl( parameter );
     if( url != null ) {
@@ -17,14 +17,13 @@
  */
 package org.apache.hadoop.gateway.svcregfunc.impl;
 
-import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteContext;
+import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriter;
 import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteFunctionProcessor;
 import org.apache.hadoop.gateway.svcregfunc.api.ServicePathFunctionDescriptor;
 import org.apache.hadoop.gateway.util.urltemplate.Parser;
 import org.apache.hadoop.gateway.util.urltemplate.Path;
 import org.apache.hadoop.gateway.util.urltemplate.Template;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class ServicePathFunctionProcessor
@@ -37,23 +36,16 @@ public class ServicePathFunctionProcessor
   }
 
   @Override
-  public List<String> resolve( UrlRewriteContext context, List<String> parameters ) throws Exception {
-    List<String> results = null;
-    if( parameters != null ) {
-      results = new ArrayList<String>( parameters.size() );
-      for( String parameter : parameters ) {
-        String url = lookupServiceUrl( parameter );
-        if( url != null ) {
-          Template template = Parser.parse( url );
-          List<Path> path = template.getPath();
-          if( path != null ) {
-            parameter = toString( path );
-          }
-        }
-        results.add( parameter );
+  public String resolve( UrlRewriter.Direction direction, String parameter ) throws Exception {
+    String url = lookupServiceUrl( parameter );
+    if( url != null ) {
+      Template template = Parser.parse( url );
+      List<Path> path = template.getPath();
+      if( path != null ) {
+        parameter = toString( path );
       }
     }
-    return results;
+    return parameter;
   }
 
   private String toString( List<Path> paths ) {
@@ -19,18 +19,30 @@ package org.apache.hadoop.gateway.svcregfunc.impl;
 
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteEnvironment;
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteFunctionDescriptor;
+import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriter;
+import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteContext;
 import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteFunctionProcessor;
+import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteFunctionResultCache;
+import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewritePureFunction;
 import org.apache.hadoop.gateway.services.GatewayServices;
 import org.apache.hadoop.gateway.services.registry.ServiceRegistry;
 
-abstract class ServiceRegistryFunctionProcessorBase<T extends UrlRewriteFunctionDescriptor> implements UrlRewriteFunctionProcessor<T> {
+import java.util.ArrayList;
+import java.util.List;
+
+// The results are cached because the service registry for a cluster only changes when its topology is
+// (re)deployed and that creates new function processors.
+abstract class ServiceRegistryFunctionProcessorBase<T extends UrlRewriteFunctionDescriptor>
+    implements UrlRewriteFunctionProcessor<T>, UrlRewritePureFunction {
 
   private String cluster;
   private GatewayServices services;
   private ServiceRegistry registry;
+  private UrlRewriteFunctionResultCache cache = new UrlRewriteFunctionResultCache();
 
   @Override
   public void initialize( UrlRewriteEnvironment environment, T descriptor ) throws Exception {
+    cache.clear();
     if( environment == null ) {
       throw new IllegalArgumentException( "environment==null" );
     }
@@ -52,6 +64,31 @@ abstract class ServiceRegistryFunctionProcessorBase<T extends UrlRewriteFunction
   public void destroy() throws Exception {
     registry = null;
     cluster = null;
+    cache.clear();
+  }
+
+  @Override
+  public List<String> resolve( UrlRewriteContext context, List<String> parameters ) throws Exception {
+    List<String> results = null;
+    if( parameters != null ) {
+      UrlRewriter.Direction direction = context.getDirection();
+      results = new ArrayList<String>( parameters.size() );
+      for( String parameter : parameters ) {
+        String result = cache.lookup( direction, parameter );
+        if( result == null ) {
+          result = resolve( direction, parameter );
+          cache.store( direction, parameter, result );
+        }
+        results.add( result );
+      }
+    }
+    return results;
+  }
+
+  protected abstract String resolve( UrlRewriter.Direction direction, String parameter ) throws Exception;
+
+  public UrlRewriteFunctionResultCache getResultCache() {
+    return cache;
   }
 
   public String lookupServiceUrl( String role ) throws Exception {
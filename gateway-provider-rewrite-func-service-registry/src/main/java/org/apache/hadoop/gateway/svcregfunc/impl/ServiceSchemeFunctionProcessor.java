@@ -17,16 +17,13 @@
  */
 package org.apache.hadoop.gateway.svcregfunc.impl;
 
-import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteContext;
+import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriter;
 import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteFunctionProcessor;
 import org.apache.hadoop.gateway.svcregfunc.api.ServiceSchemeFunctionDescriptor;
 import org.apache.hadoop.gateway.util.urltemplate.Parser;
 import org.apache.hadoop.gateway.util.urltemplate.Scheme;
 import org.apache.hadoop.gateway.util.urltemplate.Template;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class ServiceSchemeFunctionProcessor
     extends ServiceRegistryFunctionProcessorBase<ServiceSchemeFunctionDescriptor>
     implements UrlRewriteFunctionProcessor<ServiceSchemeFunctionDescriptor> {
@@ -37,23 +34,16 @@ public class ServiceSchemeFunctionProcessor
   }
 
   @Override
-  public List<String> resolve( UrlRewriteContext context, List<String> parameters ) throws Exception {
-    List<String> results = null;
-    if( parameters != null ) {
-      results = new ArrayList<String>( parameters.size() );
-      for( String parameter : parameters ) {
-        String url = lookupServiceUrl( parameter );
-        if( url != null && !url.equals( parameter ) ) {
-          Template template = Parser.parse( url );
-          Scheme scheme = template.getScheme();
-          if( scheme != null ) {
-            parameter = scheme.getFirstValue().getPattern();
-          }
-        }
-        results.add( parameter );
+  public String resolve( UrlRewriter.Direction direction, String parameter ) throws Exception {
+    String url = lookupServiceUrl( parameter );
+    if( url != null && !url.equals( parameter ) ) {
+      Template template = Parser.parse( url );
+      Scheme scheme = template.getScheme();
+      if( scheme != null ) {
+        parameter = scheme.getFirstValue().getPattern();
       }
     }
-    return results;
+    return parameter;
   }
 
 }
@@ -18,13 +18,10 @@
 package org.apache.hadoop.gateway.svcregfunc.impl;
 
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriter;
-import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteContext;
 import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteFunctionProcessor;
 import org.apache.hadoop.gateway.svcregfunc.api.ServiceUrlFunctionDescriptor;
 
 import java.net.URI;
-import java.util.ArrayList;
-import java.util.List;
 
 public class ServiceUrlFunctionProcessor
     extends ServiceRegistryFunctionProcessorBase<ServiceUrlFunctionDescriptor>
@@ -36,17 +33,8 @@ public class ServiceUrlFunctionProcessor
   }
 
   @Override
-  public List<String> resolve( UrlRewriteContext context, List<String> parameters ) throws Exception {
-    List<String> results = null;
-    if( parameters != null ) {
-      UrlRewriter.Direction direction = context.getDirection();
-      results = new ArrayList<String>( parameters.size() );
-      for( String parameter : parameters ) {
-        parameter = resolve( parameter );
-        results.add( parameter );
-      }
-    }
-    return results;
+  public String resolve( UrlRewriter.Direction direction, String parameter ) throws Exception {
+    return resolve( parameter );
   }
 
   public String resolve( String parameter ) throws Exception {
@@ -145,4 +145,22 @@ public class ServiceUrlFunctionProcessorTest {
     func.destroy();
   }
 
+  @Test
+  public void testResolveIsCached() throws Exception {
+    ServiceUrlFunctionProcessor func = new ServiceUrlFunctionProcessor();
+    func.initialize( env, desc );
+
+    assertThat( func.resolve( ctx, Arrays.asList( "test-service" ) ), contains( "test-scheme://test-host:777/test-path" ) );
+    assertThat( func.getResultCache().getMisses(), is( 1L ) );
+    assertThat( func.getResultCache().getHits(), is( 0L ) );
+
+    assertThat( func.resolve( ctx, Arrays.asList( "test-service" ) ), contains( "test-scheme://test-host:777/test-path" ) );
+    assertThat( func.getResultCache().getMisses(), is( 1L ) );
+    assertThat( func.getResultCache().getHits(), is( 1L ) );
+    assertThat( func.getResultCache().size(), is( 1 ) );
+
+    func.destroy();
+    assertThat( func.getResultCache().size(), is( 0 ) );
+  }
+
 }
@@ -18,6 +18,10 @@
 package org.apache.hadoop.gateway.securequery;
 
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteEnvironment;
+import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteProcessor;
+import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteRulesDescriptor;
+import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteRulesDescriptorFactory;
+import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriter;
 import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteContext;
 import org.apache.hadoop.gateway.services.GatewayServices;
 import org.apache.hadoop.gateway.services.security.AliasService;
@@ -26,14 +30,17 @@ import org.apache.hadoop.gateway.services.security.impl.DefaultCryptoService;
 import org.apache.hadoop.gateway.util.urltemplate.Params;
 import org.apache.hadoop.gateway.util.urltemplate.Parser;
 import org.apache.hadoop.gateway.util.urltemplate.Query;
+import org.apache.hadoop.gateway.util.urltemplate.Resolver;
 import org.apache.hadoop.gateway.util.urltemplate.Template;
 import org.easymock.Capture;
 import org.easymock.EasyMock;
 import org.junit.Test;
 
+import java.io.StringReader;
 import java.util.Arrays;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.greaterThan;
@@ -108,4 +115,55 @@ public class SecureQueryEncryptDecryptProcessorTest {
     assertThat( query, nullValue() );
   }
 
+  @Test
+  public void testEncryptedRewritesAreNotCached() throws Exception {
+    AliasService as = EasyMock.createNiceMock( AliasService.class );
+    String secret = "sdkjfhsdkjfhsdfs";
+    EasyMock.expect( as.getPasswordFromAliasForCluster("test-cluster-name", "encryptQueryString")).andReturn( secret.toCharArray() ).anyTimes();
+    CryptoService cryptoService = new DefaultCryptoService();
+    ((DefaultCryptoService)cryptoService).setAliasService(as);
+    GatewayServices gatewayServices = EasyMock.createNiceMock( GatewayServices.class );
+    EasyMock.expect( gatewayServices.getService( GatewayServices.CRYPTO_SERVICE ) ).andReturn( cryptoService ).anyTimes();
+
+    UrlRewriteEnvironment environment = EasyMock.createNiceMock( UrlRewriteEnvironment.class );
+    EasyMock.expect( environment.getAttribute( GatewayServices.GATEWAY_SERVICES_ATTRIBUTE ) ).andReturn( gatewayServices ).anyTimes();
+    EasyMock.expect( environment.getAttribute( GatewayServices.GATEWAY_CLUSTER_ATTRIBUTE ) ).andReturn( "test-cluster-name" ).anyTimes();
+    EasyMock.expect( environment.resolve( UrlRewriteProcessor.RESULT_CACHE_SIZE_PARAM ) ).andReturn( Arrays.asList( "10" ) ).anyTimes();
+    Resolver resolver = EasyMock.createNiceMock( Resolver.class );
+    EasyMock.replay( gatewayServices, as, environment, resolver );
+
+    String rules =
+        "<rules>\n" +
+        "  <rule dir=\"OUT\" name=\"test-rule-encrypt\">\n" +
+        "    <match pattern=\"*://*:*/{path=**}?{**}\"/>\n" +
+        "    <rewrite template=\"http://test-host:777/{path}?{**}\"/>\n" +
+        "    <encrypt-query/>\n" +
+        "  </rule>\n" +
+        "  <rule dir=\"OUT\" name=\"test-rule-encode\">\n" +
+        "    <match pattern=\"*://*:*/{path=**}?{**}\"/>\n" +
+        "    <rewrite template=\"http://test-host:777/{path}?{**}\"/>\n" +
+        "    <encode-query/>\n" +
+        "  </rule>\n" +
+        "</rules>";
+    UrlRewriteRulesDescriptor config = UrlRewriteRulesDescriptorFactory.load( "xml", new StringReader( rules ) );
+    UrlRewriteProcessor processor = new UrlRewriteProcessor();
+    processor.initialize( environment, config );
+
+    Template input = Parser.parse( "http://host:0/path/file?query-param-name=query-param-value" );
+    Template first = processor.rewrite( resolver, input, UrlRewriter.Direction.OUT, "test-rule-encrypt" );
+    Template second = processor.rewrite( resolver, input, UrlRewriter.Direction.OUT, "test-rule-encrypt" );
+    // Every encryption uses a new random IV so the result of a rule with an encrypt-query step must not be reused.
+    assertThat( second.toString(), not( first.toString() ) );
+    assertThat( processor.getCacheHits(), is( 0L ) );
+    assertThat( processor.getCacheMisses(), is( 2L ) );
+
+    // The encode-query step is pure so the same rule with it is cached.
+    first = processor.rewrite( resolver, input, UrlRewriter.Direction.OUT, "test-rule-encode" );
+    second = processor.rewrite( resolver, input, UrlRewriter.Direction.OUT, "test-rule-encode" );
+    assertThat( second.toString(), is( first.toString() ) );
+    assertThat( processor.getCacheHits(), is( 1L ) );
+
+    processor.destroy();
+  }
+
 }
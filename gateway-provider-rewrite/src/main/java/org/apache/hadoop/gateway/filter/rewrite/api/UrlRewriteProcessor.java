@@ -22,7 +22,6 @@ import org.apache.hadoop.gateway.filter.rewrite.impl.UrlRewriteContextImpl;
 import org.apache.hadoop.gateway.filter.rewrite.impl.UrlRewriteFunctionProcessorFactory;
 import org.apache.hadoop.gateway.filter.rewrite.impl.UrlRewriteRuleProcessorHolder;
 import org.apache.hadoop.gateway.filter.rewrite.impl.UrlRewriteStepProcessorHolder;
-import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteContext;
 import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteFunctionProcessor;
 import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteStepStatus;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
@@ -32,7 +31,16 @@ import org.apache.hadoop.gateway.util.urltemplate.Template;
 
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriter.Direction.IN;
 import static org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriter.Direction.OUT;
@@ -41,12 +49,31 @@ public class UrlRewriteProcessor implements UrlRewriter {
 
   private static final UrlRewriteMessages LOG = MessagesFactory.get( UrlRewriteMessages.class );
 
+  /**
+   * The maximum number of rewrite results to reuse.  Resolved from the environment.
+   * Only rewrites by rules with pure steps that invoke pure functions are cached.  Caching is disabled by default.
+   */
+  public static final String RESULT_CACHE_SIZE_PARAM = "rewriteResultCacheSize";
+
+  /**
+   * The maximum number of threads rewriting response bodies as they are written.  Resolved from the environment.
+   * When all are busy a body is buffered and rewritten on the request thread instead.
+   */
+  public static final String RESPONSE_STREAM_THREADS_PARAM = "rewriteResponseStreamThreads";
+
+  static final int DEFAULT_RESPONSE_STREAM_THREADS = 32;
+  private static final long RESPONSE_STREAM_THREAD_IDLE_TIMEOUT = 60 * 1000L; // One minute.
+
   UrlRewriteEnvironment environment;
   UrlRewriteRulesDescriptor descriptor;
   Map<String,UrlRewriteRuleProcessorHolder> rules = new HashMap<String,UrlRewriteRuleProcessorHolder>();
   Matcher<UrlRewriteRuleProcessorHolder> inbound = new Matcher<UrlRewriteRuleProcessorHolder>();
   Matcher<UrlRewriteRuleProcessorHolder> outbound = new Matcher<UrlRewriteRuleProcessorHolder>();
   Map<String,UrlRewriteFunctionProcessor> functions = new HashMap<String,UrlRewriteFunctionProcessor>();
+  ResultCache results; // Null if result caching is disabled.
+  ExecutorService responseStreamExecutor;
+  private AtomicLong cacheHits = new AtomicLong();
+  private AtomicLong cacheMisses = new AtomicLong();
 
   public UrlRewriteProcessor() {
   }
@@ -57,6 +84,8 @@ public class UrlRewriteProcessor implements UrlRewriter {
     this.descriptor = descriptor;
     initializeFunctions( descriptor );
     initializeRules( descriptor );
+    initializeResultCache( environment );
+    initializeResponseStreamExecutor( environment );
   }
 
   public UrlRewriteRulesDescriptor getConfig() {
@@ -104,7 +133,68 @@ public class UrlRewriteProcessor implements UrlRewriter {
     }
   }
 
+  private void initializeResultCache( UrlRewriteEnvironment environment ) {
+    List<String> values = environment == null ? null : environment.resolve( RESULT_CACHE_SIZE_PARAM );
+    if( values != null && !values.isEmpty() ) {
+      String value = values.get( 0 );
+      try {
+        int maxSize = Integer.parseInt( value.trim() );
+        if( maxSize > 0 ) {
+          results = new ResultCache( maxSize );
+          LOG.enabledRewriteResultCache( maxSize );
+        }
+      } catch( NumberFormatException e ) {
+        LOG.invalidRewriteResultCacheSize( value );
+      }
+    }
+  }
+
+  private void initializeResponseStreamExecutor( UrlRewriteEnvironment environment ) {
+    int maxThreads = DEFAULT_RESPONSE_STREAM_THREADS;
+    List<String> values = environment == null ? null : environment.resolve( RESPONSE_STREAM_THREADS_PARAM );
+    if( values != null && !values.isEmpty() ) {
+      String value = values.get( 0 );
+      try {
+        maxThreads = Integer.parseInt( value.trim() );
+      } catch( NumberFormatException e ) {
+        maxThreads = 0;
+      }
+      if( maxThreads <= 0 ) {
+        LOG.invalidRewriteResponseStreamThreads( value, DEFAULT_RESPONSE_STREAM_THREADS );
+        maxThreads = DEFAULT_RESPONSE_STREAM_THREADS;
+      }
+    }
+    // No queue so a saturated executor rejects immediately and the caller rewrites inline.
+    responseStreamExecutor = new ThreadPoolExecutor( 0, maxThreads,
+        RESPONSE_STREAM_THREAD_IDLE_TIMEOUT, TimeUnit.MILLISECONDS,
+        new SynchronousQueue<Runnable>(), new ResponseStreamThreadFactory() );
+  }
+
+  /**
+   * @return The bounded executor that rewrites response bodies as they are written.
+   */
+  public ExecutorService getResponseStreamExecutor() {
+    return responseStreamExecutor;
+  }
+
+  /**
+   * @return The number of rewrites answered from the result cache.
+   */
+  public long getCacheHits() {
+    return cacheHits.get();
+  }
+
+  /**
+   * @return The number of rewrites that had to be processed while the result cache was enabled.
+   */
+  public long getCacheMisses() {
+    return cacheMisses.get();
+  }
+
   public void destroy() {
+    if( responseStreamExecutor != null ) {
+      responseStreamExecutor.shutdown();
+    }
     for( UrlRewriteStepProcessorHolder rule : rules.values() ) {
       try {
         rule.destroy();
@@ -123,11 +213,28 @@ public class UrlRewriteProcessor implements UrlRewriter {
 
   @Override
   public Template rewrite( Resolver resolver, Template inputUri, Direction direction, String ruleName ) {
+    if( "*".equals( ruleName ) ) {
+      ruleName = null; // Both select the rule implicitly, also used for the cache key and logging.
+    }
+    ResultKey key = null;
+    if( results != null ) {
+      key = new ResultKey( direction, ruleName, inputUri.toString() );
+      Result result = results.lookup( key );
+      if( result != null && result.isValidFor( resolver ) ) {
+        cacheHits.incrementAndGet();
+        if( ruleName == null ) {
+          LOG.rewroteUrlViaImplicitRule( inputUri, direction, result.ruleName, result.outputUri );
+        } else {
+          LOG.rewroteUrlViaExplicitRule( inputUri, direction, result.ruleName, result.outputUri );
+        }
+        return result.outputUri;
+      }
+      cacheMisses.incrementAndGet();
+    }
     Template outputUri = inputUri;
     UrlRewriteStepProcessorHolder stepHolder = null;
     String effectiveRuleName = null;
-    if( ruleName == null || "*".equals( ruleName ) ) {
-      ruleName = null; // Used for logging later.
+    if( ruleName == null ) {
       Matcher<UrlRewriteRuleProcessorHolder>.Match match = null;
       switch( direction ) {
         case IN:
@@ -146,11 +253,17 @@ public class UrlRewriteProcessor implements UrlRewriter {
       effectiveRuleName = ruleName;
     }
     if( stepHolder != null ) {
-      UrlRewriteContext context = new UrlRewriteContextImpl( environment, resolver, functions, direction, inputUri );
+      UrlRewriteContextImpl context = new UrlRewriteContextImpl( environment, resolver, functions, direction, inputUri );
+      if( key != null && stepHolder.isPure() ) {
+        context.trackDependencies();
+      }
       try {
         UrlRewriteStepStatus stepStatus = stepHolder.process( context );
         if( UrlRewriteStepStatus.SUCCESS == stepStatus ) {
           outputUri = context.getCurrentUrl();
+          if( key != null && context.isCacheable() ) {
+            results.store( key, new Result( outputUri, effectiveRuleName, context.getDependencies() ) );
+          }
           if( ruleName == null ) {
             LOG.rewroteUrlViaImplicitRule( inputUri, direction, effectiveRuleName, outputUri );
           } else {
@@ -170,4 +283,107 @@ public class UrlRewriteProcessor implements UrlRewriter {
     return outputUri;
   }
 
+  private static class ResultKey {
+
+    private Direction direction;
+    private String ruleName;
+    private String inputUri;
+    private int hash;
+
+    private ResultKey( Direction direction, String ruleName, String inputUri ) {
+      this.direction = direction;
+      this.ruleName = ruleName;
+      this.inputUri = inputUri;
+      this.hash = ( 31 * direction.hashCode() + ( ruleName == null ? 0 : ruleName.hashCode() ) ) * 31 + inputUri.hashCode();
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals( Object object ) {
+      if( object instanceof ResultKey ) {
+        ResultKey that = (ResultKey)object;
+        return direction == that.direction &&
+            inputUri.equals( that.inputUri ) &&
+            ( ruleName == null ? that.ruleName == null : ruleName.equals( that.ruleName ) );
+      }
+      return false;
+    }
+
+  }
+
+  // A rewrite result along with the values it resolved from the request that produced it.
+  private static class Result {
+
+    private Template outputUri;
+    private String ruleName;
+    private Map<String,List<String>> dependencies;
+
+    private Result( Template outputUri, String ruleName, Map<String,List<String>> dependencies ) {
+      this.outputUri = outputUri;
+      this.ruleName = ruleName;
+      this.dependencies = dependencies;
+    }
+
+    // The result can only be reused if the request resolves the same values.
+    private boolean isValidFor( Resolver resolver ) {
+      try {
+        for( Map.Entry<String,List<String>> dependency : dependencies.entrySet() ) {
+          List<String> expected = dependency.getValue();
+          List<String> actual = resolver.resolve( dependency.getKey() );
+          if( expected == null ? actual != null : !expected.equals( actual ) ) {
+            return false;
+          }
+        }
+      } catch( Exception e ) {
+        return false;
+      }
+      return true;
+    }
+
+  }
+
+  static class ResultCache {
+
+    private Map<ResultKey,Result> map;
+
+    private ResultCache( final int maxSize ) {
+      map = new LinkedHashMap<ResultKey,Result>( 16, 0.75f, true ) {
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<ResultKey,Result> eldest ) {
+          return size() > maxSize;
+        }
+      };
+    }
+
+    private synchronized Result lookup( ResultKey key ) {
+      return map.get( key );
+    }
+
+    private synchronized void store( ResultKey key, Result result ) {
+      map.put( key, result );
+    }
+
+    synchronized int size() {
+      return map.size();
+    }
+
+  }
+
+  private static class ResponseStreamThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread( Runnable runnable ) {
+      Thread thread = new Thread( runnable, "gateway-response-rewrite-" + count.incrementAndGet() );
+      thread.setDaemon( true );
+      return thread;
+    }
+
+  }
+
 }
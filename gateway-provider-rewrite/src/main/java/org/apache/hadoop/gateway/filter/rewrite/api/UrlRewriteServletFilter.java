@@ -57,7 +57,16 @@ public class UrlRewriteServletFilter extends AbstractGatewayFilter {
     FilterConfig config = getConfig();
     UrlRewriteRequest rewriteRequest = new UrlRewriteRequest( config, request );
     UrlRewriteResponse rewriteResponse = new UrlRewriteResponse( config, rewriteRequest, response );
-    chain.doFilter( rewriteRequest, rewriteResponse );
+    boolean success = false;
+    try {
+      chain.doFilter( rewriteRequest, rewriteResponse );
+      success = true;
+    } finally {
+      // A suspended request is still writing its response and will close the stream itself.
+      if( !request.isAsyncStarted() ) {
+        rewriteResponse.finishOutputStream( success );
+      }
+    }
   }
 
 }
@@ -58,6 +58,23 @@ public abstract class UrlRewriteStreamFilterFactory {
     return filteredStream;
   }
 
+  /**
+   * Determines if content of the given type would pass through unchanged.
+   * This is the case when no filter is registered for the type or only the
+   * catch all filter applies.  Allows callers to skip filtering entirely.
+   */
+  public static boolean isPassThrough( MimeType type, String name ) {
+    if( type != null ) {
+      try {
+        type = new MimeType( type.toString() );
+      } catch( MimeTypeParseException e ) {
+        throw new IllegalArgumentException( type.toString(), e );
+      }
+    }
+    Map<String,UrlRewriteStreamFilter> nameMap = getNameMap( type );
+    return nameMap == null || nameMap == MAP.get( null ) || getFilter( nameMap, name ) == null;
+  }
+
   private static Map<String,Map<String,UrlRewriteStreamFilter>> loadFactories() {
     Map<String,Map<String,UrlRewriteStreamFilter>> typeMap = new HashMap<String,Map<String,UrlRewriteStreamFilter>>();
     ServiceLoader<UrlRewriteStreamFilter> filters = ServiceLoader.load( UrlRewriteStreamFilter.class );
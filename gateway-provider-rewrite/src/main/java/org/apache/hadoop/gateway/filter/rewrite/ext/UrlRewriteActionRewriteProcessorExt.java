@@ -19,6 +19,7 @@ package org.apache.hadoop.gateway.filter.rewrite.ext;
 
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteEnvironment;
 import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteContext;
+import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewritePureStep;
 import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteStepProcessor;
 import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteStepStatus;
 import org.apache.hadoop.gateway.util.urltemplate.Expander;
@@ -26,7 +27,7 @@ import org.apache.hadoop.gateway.util.urltemplate.Parser;
 import org.apache.hadoop.gateway.util.urltemplate.Template;
 
 public class UrlRewriteActionRewriteProcessorExt
-    implements UrlRewriteStepProcessor<UrlRewriteActionRewriteDescriptorExt> {
+    implements UrlRewriteStepProcessor<UrlRewriteActionRewriteDescriptorExt>, UrlRewritePureStep {
 
   private Template template;
   private Expander expander;
@@ -82,4 +82,16 @@ public interface UrlRewriteMessages {
   @Message( level = MessageLevel.TRACE, text = "No rule matching URL: {0}, direction: {1}" )
   void noRuleMatchingUrl( Template inputUri, UrlRewriter.Direction direction );
 
+  @Message( level = MessageLevel.INFO, text = "Caching up to {0} URL rewrite results." )
+  void enabledRewriteResultCache( int maxSize );
+
+  @Message( level = MessageLevel.WARN, text = "Invalid URL rewrite result cache size {0}, caching disabled." )
+  void invalidRewriteResultCacheSize( String value );
+
+  @Message( level = MessageLevel.WARN, text = "Invalid URL rewrite response stream thread count {0}, using default {1}." )
+  void invalidRewriteResponseStreamThreads( String value, int defaultValue );
+
+  @Message( level = MessageLevel.DEBUG, text = "All URL rewrite response stream threads are busy, rewriting the response body on the request thread." )
+  void rewriteResponseStreamThreadsSaturated();
+
 }
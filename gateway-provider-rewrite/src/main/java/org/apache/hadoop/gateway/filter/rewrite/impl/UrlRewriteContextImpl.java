@@ -22,12 +22,14 @@ import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriter;
 import org.apache.hadoop.gateway.filter.rewrite.i18n.UrlRewriteMessages;
 import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteContext;
 import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteFunctionProcessor;
+import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewritePureFunction;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.hadoop.gateway.util.urltemplate.Evaluator;
 import org.apache.hadoop.gateway.util.urltemplate.Params;
 import org.apache.hadoop.gateway.util.urltemplate.Resolver;
 import org.apache.hadoop.gateway.util.urltemplate.Template;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -45,6 +47,9 @@ public class UrlRewriteContextImpl implements UrlRewriteContext {
   private UrlRewriter.Direction direction;
   private Template originalUrl;
   private Template currentUrl;
+  // When tracking, the values the rewrite resolved from the request and whether it used only pure functions.
+  private Map<String,List<String>> dependencies;
+  private boolean cacheable;
 
   public UrlRewriteContextImpl(
       UrlRewriteEnvironment environment,
@@ -56,7 +61,7 @@ public class UrlRewriteContextImpl implements UrlRewriteContext {
     this.resolver = resolver;
     this.functions = functions;
     this.params = new ContextParameters();
-    this.evaluator = new ContextEvaluator();
+    this.evaluator = null;
     this.direction = direction;
     this.originalUrl = url;
     this.currentUrl = url;
@@ -94,28 +99,58 @@ public class UrlRewriteContextImpl implements UrlRewriteContext {
 
   @Override
   public Evaluator getEvaluator() {
+    if( evaluator == null ) {
+      evaluator = new ContextEvaluator();
+    }
     return evaluator;
   }
 
+  /**
+   * Starts recording what the rewrite depends on beyond its input URL.
+   * Used to decide if the result of the rewrite may be reused for the same input.
+   */
+  public void trackDependencies() {
+    dependencies = new HashMap<String,List<String>>();
+    cacheable = true;
+  }
+
+  /**
+   * @return True if dependencies were tracked and only pure functions were invoked.
+   */
+  public boolean isCacheable() {
+    return dependencies != null && cacheable;
+  }
+
+  /**
+   * @return The values resolved from the request's resolver by name, including null values.
+   */
+  public Map<String,List<String>> getDependencies() {
+    return dependencies;
+  }
+
   private class ContextParameters implements Params {
 
-    Map<String,List<String>> map = new HashMap<String,List<String>>();
+    Map<String,List<String>> map = null; // Created when the first parameters are added.
 
     @Override
     public Set<String> getNames() {
-      return map.keySet();
+      return map == null ? Collections.<String>emptySet() : map.keySet();
     }
 
     @Override
     public List<String> resolve( String name ) {
-      List<String> values = map.get( name ); // Try to find the name in the context map.
+      List<String> values = ( map == null ) ? null : map.get( name ); // Try to find the name in the context map.
       if( values == null ) {
         try {
           values = resolver.resolve( name );
+          if( dependencies != null ) {
+            dependencies.put( name, values );
+          }
           if( values == null ) {
             values = environment.resolve( name ); // Try to find the name in the environment.
           }
         } catch( Exception e ) {
+          cacheable = false;
           LOG.failedToFindValuesByParameter( name, e );
           // Ignore it and return null.
         }
@@ -124,6 +159,9 @@ public class UrlRewriteContextImpl implements UrlRewriteContext {
     }
 
     public void add( Params params ) {
+      if( map == null ) {
+        map = new HashMap<String,List<String>>();
+      }
       for( String name : params.getNames() ) {
         map.put( name, params.resolve( name ) );
       }
@@ -137,6 +175,9 @@ public class UrlRewriteContextImpl implements UrlRewriteContext {
     public List<String> evaluate( String function, List<String> parameters ) {
       List<String> results = null;
       UrlRewriteFunctionProcessor processor = functions.get( function );
+      if( !( processor instanceof UrlRewritePureFunction ) ) {
+        cacheable = false;
+      }
       if( processor != null ) {
         try {
           results = processor.resolve( UrlRewriteContextImpl.this, parameters );
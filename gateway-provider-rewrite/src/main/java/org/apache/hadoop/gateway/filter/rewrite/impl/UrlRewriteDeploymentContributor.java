@@ -21,6 +21,7 @@ import org.apache.hadoop.gateway.deploy.DeploymentContext;
 import org.apache.hadoop.gateway.deploy.ProviderDeploymentContributorBase;
 import org.apache.hadoop.gateway.descriptor.FilterParamDescriptor;
 import org.apache.hadoop.gateway.descriptor.ResourceDescriptor;
+import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteProcessor;
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteRulesDescriptor;
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteRulesDescriptorFactory;
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteServletContextListener;
@@ -56,6 +57,18 @@ public class UrlRewriteDeploymentContributor extends ProviderDeploymentContribut
   }
 
   public void contributeProvider( DeploymentContext context, Provider provider ) {
+    String cacheSize = provider.getParams().get( UrlRewriteProcessor.RESULT_CACHE_SIZE_PARAM );
+    if( cacheSize != null ) {
+      context.getWebAppDescriptor().createContextParam()
+          .paramName( UrlRewriteProcessor.RESULT_CACHE_SIZE_PARAM )
+          .paramValue( cacheSize );
+    }
+    String streamThreads = provider.getParams().get( UrlRewriteProcessor.RESPONSE_STREAM_THREADS_PARAM );
+    if( streamThreads != null ) {
+      context.getWebAppDescriptor().createContextParam()
+          .paramName( UrlRewriteProcessor.RESPONSE_STREAM_THREADS_PARAM )
+          .paramValue( streamThreads );
+    }
   }
 
   public void finalizeContribution( DeploymentContext context ) {
@@ -0,0 +1,101 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.filter.rewrite.impl;
+
+import java.io.Writer;
+
+/**
+ * An unsynchronized replacement for StringWriter used by the filter readers.
+ * Filtered content is written into the buffer and then drained by the reader.
+ */
+public class UrlRewriteFilterReaderBuffer extends Writer {
+
+  private char[] chars;
+  private int start;
+  private int end;
+
+  public UrlRewriteFilterReaderBuffer() {
+    chars = new char[ 4096 ];
+    start = 0;
+    end = 0;
+  }
+
+  public int available() {
+    return end - start;
+  }
+
+  public int read( char[] dest, int offset, int count ) {
+    count = Math.min( count, end - start );
+    System.arraycopy( chars, start, dest, offset, count );
+    start += count;
+    if( start == end ) {
+      start = 0;
+      end = 0;
+    }
+    return count;
+  }
+
+  private void reserve( int count ) {
+    if( end + count > chars.length ) {
+      int size = end - start;
+      if( size + count > chars.length ) {
+        char[] grown = new char[ Math.max( chars.length * 2, size + count ) ];
+        System.arraycopy( chars, start, grown, 0, size );
+        chars = grown;
+      } else {
+        System.arraycopy( chars, start, chars, 0, size );
+      }
+      start = 0;
+      end = size;
+    }
+  }
+
+  @Override
+  public void write( int c ) {
+    reserve( 1 );
+    chars[ end++ ] = (char)c;
+  }
+
+  @Override
+  public void write( char[] source, int offset, int count ) {
+    reserve( count );
+    System.arraycopy( source, offset, chars, end, count );
+    end += count;
+  }
+
+  @Override
+  public void write( String source ) {
+    write( source, 0, source.length() );
+  }
+
+  @Override
+  public void write( String source, int offset, int count ) {
+    reserve( count );
+    source.getChars( offset, offset + count, chars, end );
+    end += count;
+  }
+
+  @Override
+  public void flush() {
+  }
+
+  @Override
+  public void close() {
+  }
+
+}
@@ -58,6 +58,10 @@ public class UrlRewriteRequest extends GatewayRequestWrapper implements Resolver
   private UrlRewriteFilterContentDescriptor headersFilterConfig;
   private String cookiesFilterName;
   private UrlRewriteFilterContentDescriptor cookiesFilterConfig;
+  // The string forms of the target URL.  Computed once since they are requested repeatedly.
+  private Template splitUrl;
+  private String targetRequestUri;
+  private String targetQueryString;
 
   /**
    * Constructs a request object wrapping the given request.
@@ -110,9 +114,20 @@ public class UrlRewriteRequest extends GatewayRequestWrapper implements Resolver
     return targetUrl;
   }
 
-  private String[] splitTargetUrl( Template url ) {
-    String s = url.toString();
-    return s.split( "\\?" );
+  private void splitTargetUrl() {
+    Template url = getTargetUrl();
+    if( url != splitUrl ) {
+      String s = url.toString();
+      int i = s.indexOf( '?' );
+      if( i < 0 ) {
+        targetRequestUri = s;
+        targetQueryString = null;
+      } else {
+        targetRequestUri = s.substring( 0, i );
+        targetQueryString = ( i + 1 < s.length() ) ? s.substring( i + 1 ) : null;
+      }
+      splitUrl = url;
+    }
   }
 
   @Override
@@ -124,22 +139,14 @@ public class UrlRewriteRequest extends GatewayRequestWrapper implements Resolver
   // It should not include the scheme or authority parts.
   @Override
   public String getRequestURI() {
-    String[] split = splitTargetUrl( getTargetUrl() );
-    if( split.length > 0 ) {
-      return split[0];
-    } else {
-      return "";
-    }
+    splitTargetUrl();
+    return targetRequestUri;
   }
 
   @Override
   public String getQueryString() {
-    String[] split = splitTargetUrl( getTargetUrl() );
-    if( split.length > 1 ) {
-      return split[1];
-    } else {
-      return null;
-    }
+    splitTargetUrl();
+    return targetQueryString;
   }
 
   private String rewriteValue( UrlRewriter rewriter, String value, String rule ) {
@@ -20,6 +20,7 @@ package org.apache.hadoop.gateway.filter.rewrite.impl;
 import org.apache.hadoop.gateway.filter.GatewayResponseWrapper;
 import org.apache.hadoop.gateway.filter.ResponseStreamer;
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteFilterContentDescriptor;
+import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteProcessor;
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteServletContextListener;
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteServletFilter;
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteStreamFilterFactory;
@@ -46,6 +47,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import static org.apache.hadoop.gateway.filter.rewrite.impl.UrlRewriteUtil.getRewriteFilterConfig;
 import static org.apache.hadoop.gateway.filter.rewrite.impl.UrlRewriteUtil.pickFirstRuleWithEqualsIgnoreCasePathMatch;
@@ -72,7 +74,7 @@ public class UrlRewriteResponse extends GatewayResponseWrapper implements Params
   private FilterConfig config;
   private HttpServletRequest request;
   private HttpServletResponse response;
-  private ServletOutputStream output;
+  private DeferredOutputStream output;
   private String bodyFilterName;
   private String headersFilterName;
   private UrlRewriteFilterContentDescriptor headersFilterConfig;
@@ -142,20 +144,88 @@ public class UrlRewriteResponse extends GatewayResponseWrapper implements Params
         getRewriteFilterConfig( rewriter.getConfig(), bodyFilterName, mimeType );
     InputStream filteredInput = UrlRewriteStreamFilterFactory.create(
         mimeType, null, input, rewriter, this, UrlRewriter.Direction.OUT, filterContentConfig );
-    IOUtils.copyBytes( filteredInput, output, STREAM_BUFFER_SIZE );
+    if( filteredInput == null || filteredInput == input ) {
+      // Nothing to rewrite so copy the body in chunks as large as the container's response buffer.
+      IOUtils.copyBytes( input, output, Math.max( getBufferSize(), STREAM_BUFFER_SIZE ) );
+    } else {
+      IOUtils.copyBytes( filteredInput, output, STREAM_BUFFER_SIZE );
+    }
     output.close();
   }
 
-  //TODO: Need to buffer the output here and when it is closed, rewrite it and then write the result to the stream.
-  // This should only happen if the caller isn't using the streaming model.
+  // The body is rewritten as it is written.  This should only happen if the caller isn't using the streaming model.
+  // Bodies that would pass through the filters unchanged are written directly to the container instead.
   @Override
   public ServletOutputStream getOutputStream() throws IOException {
     if( output == null ) {
-      output = new UrlRewriteResponseStream( this );
+      output = new DeferredOutputStream();
     }
     return output;
   }
 
+  // For unit testing.
+  ServletOutputStream getOutputStreamTarget() throws IOException {
+    return output == null ? null : output.getTarget();
+  }
+
+  /**
+   * Completes a body written via getOutputStream that the caller didn't close.
+   * If the request failed the rewriting is abandoned instead.
+   */
+  public void finishOutputStream( boolean success ) throws IOException {
+    if( output != null ) {
+      ServletOutputStream target = output.getTarget();
+      if( target instanceof UrlRewriteResponseStream ) {
+        if( success ) {
+          target.close();
+        } else {
+          ((UrlRewriteResponseStream)target).abort();
+        }
+      }
+    }
+  }
+
+  // Picks the stream the body is written to when it is first used instead of in getOutputStream.
+  // Callers commonly set the Content-Type after getting the stream but before writing the body.
+  private class DeferredOutputStream extends ServletOutputStream {
+
+    private ServletOutputStream target;
+
+    private ServletOutputStream getTarget() throws IOException {
+      if( target == null ) {
+        if( UrlRewriteStreamFilterFactory.isPassThrough( getMimeType(), null ) ) {
+          target = response.getOutputStream();
+        } else {
+          ExecutorService executor = rewriter instanceof UrlRewriteProcessor
+              ? ((UrlRewriteProcessor)rewriter).getResponseStreamExecutor() : null;
+          target = new UrlRewriteResponseStream( UrlRewriteResponse.this, executor );
+        }
+      }
+      return target;
+    }
+
+    @Override
+    public void write( int b ) throws IOException {
+      getTarget().write( b );
+    }
+
+    @Override
+    public void write( byte[] b, int off, int len ) throws IOException {
+      getTarget().write( b, off, len );
+    }
+
+    @Override
+    public void flush() throws IOException {
+      getTarget().flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      getTarget().close();
+    }
+
+  }
+
   @Override
   public Set<String> getNames() {
     return Collections.emptySet();
@@ -17,37 +17,357 @@
  */
 package org.apache.hadoop.gateway.filter.rewrite.impl;
 
+import org.apache.hadoop.gateway.audit.api.AuditContext;
+import org.apache.hadoop.gateway.audit.api.AuditService;
+import org.apache.hadoop.gateway.audit.api.AuditServiceFactory;
+import org.apache.hadoop.gateway.audit.api.CorrelationContext;
+import org.apache.hadoop.gateway.audit.api.CorrelationService;
+import org.apache.hadoop.gateway.audit.api.CorrelationServiceFactory;
 import org.apache.hadoop.gateway.filter.GatewayResponse;
+import org.apache.hadoop.gateway.filter.rewrite.i18n.UrlRewriteMessages;
+import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 
+import javax.security.auth.Subject;
 import javax.servlet.ServletOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.security.AccessController;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
-//TODO: This needs to be coded much more efficiently!
+/**
+ * Rewrites a response body as it is written instead of buffering the whole body until close.
+ * The stream filters pull their input so the bytes written are passed through a bounded pipe
+ * to a thread that runs the filter and writes the result to the raw response.  Writers block
+ * while the pipe is full so memory use is constant regardless of the size of the body.
+ * When the executor has no free thread, or there is none, the body is buffered and rewritten
+ * on the writer's thread when the stream is closed.
+ */
 public class UrlRewriteResponseStream extends ServletOutputStream {
 
-  private static int DEFAULT_BUFFER_SIZE = 1024;
+  private static final UrlRewriteMessages LOG = MessagesFactory.get( UrlRewriteMessages.class );
+  private static final AuditService auditService = AuditServiceFactory.getAuditService();
+  private static final CorrelationService correlationService = CorrelationServiceFactory.getCorrelationService();
+
+  private static final int PIPE_BUFFER_SIZE = 64 * 1024;
 
   private GatewayResponse response;
-  private ByteArrayOutputStream buffer;
+  private ExecutorService executor;
+  private Pipe pipe;
+  private Future<Void> pump;
+  private ByteArrayOutputStream buffer; // Only used when the body is rewritten inline.
+  private boolean closed;
 
-  public UrlRewriteResponseStream( GatewayResponse response ) {
+  public UrlRewriteResponseStream( GatewayResponse response, ExecutorService executor ) {
     this.response = response;
-    this.buffer = new ByteArrayOutputStream( DEFAULT_BUFFER_SIZE );
+    this.executor = executor;
   }
 
   @Override
   public void write( int b ) throws IOException {
-    buffer.write( b );
+    checkOpen();
+    start();
+    if( buffer != null ) {
+      buffer.write( b );
+    } else {
+      pipe.write( b );
+    }
+  }
+
+  @Override
+  public void write( byte[] b, int off, int len ) throws IOException {
+    checkOpen();
+    start();
+    if( buffer != null ) {
+      buffer.write( b, off, len );
+    } else {
+      pipe.write( b, off, len );
+    }
   }
 
   @Override
   public void close() throws IOException {
-    InputStream stream = new ByteArrayInputStream( buffer.toByteArray() );
-    response.streamResponse( stream ) ;
-    stream.close();
+    if( closed ) {
+      return;
+    }
+    closed = true;
+    // Even an empty body is streamed so that the response is completed the same way.
+    start();
+    if( buffer != null ) {
+      byte[] body = buffer.toByteArray();
+      buffer = null;
+      response.streamResponse( new ByteArrayInputStream( body ) );
+      return;
+    }
+    pipe.closeWrite();
+    try {
+      pump.get();
+    } catch( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } catch( ExecutionException e ) {
+      throw toIOException( e.getCause() );
+    }
+  }
+
+  /**
+   * Stops rewriting without completing the response body, e.g. because the request failed.
+   */
+  void abort() {
+    if( !closed ) {
+      closed = true;
+      buffer = null;
+      if( pipe != null ) {
+        pipe.abort();
+      }
+    }
+  }
+
+  private void checkOpen() throws IOException {
+    if( closed ) {
+      throw new IOException( "Stream closed" );
+    }
+  }
+
+  private void start() {
+    if( pipe == null && buffer == null ) {
+      Pipe created = new Pipe( PIPE_BUFFER_SIZE );
+      try {
+        if( executor == null ) {
+          throw new RejectedExecutionException();
+        }
+        pump = executor.submit( new Pump( created ) );
+        pipe = created;
+      } catch( RejectedExecutionException e ) {
+        LOG.rewriteResponseStreamThreadsSaturated();
+        buffer = new ByteArrayOutputStream();
+      }
+    }
+  }
+
+  /**
+   * Runs the response's filter on a pooled thread.  The rewrite functions and logging may depend on the
+   * caller's subject, audit and correlation contexts and context class loader so all are carried over.
+   */
+  private class Pump implements Callable<Void> {
+
+    private final Pipe pipe;
+    private final Subject subject;
+    private final AuditContext auditContext;
+    private final CorrelationContext correlationContext;
+    private final ClassLoader classLoader;
+
+    private Pump( Pipe pipe ) {
+      this.pipe = pipe;
+      this.subject = Subject.getSubject( AccessController.getContext() );
+      this.auditContext = auditService.getContext();
+      this.correlationContext = correlationService.getContext();
+      this.classLoader = Thread.currentThread().getContextClassLoader();
+    }
+
+    @Override
+    public Void call() throws Exception {
+      Thread thread = Thread.currentThread();
+      ClassLoader previousClassLoader = thread.getContextClassLoader();
+      thread.setContextClassLoader( classLoader );
+      auditService.attachContext( auditContext );
+      correlationService.attachContext( correlationContext );
+      try {
+        stream();
+        pipe.closeRead( null );
+      } catch( PrivilegedActionException e ) {
+        pipe.closeRead( e.getException() );
+        throw e.getException();
+      } catch( Exception e ) {
+        pipe.closeRead( e );
+        throw e;
+      } catch( Error e ) {
+        pipe.closeRead( e );
+        throw e;
+      } finally {
+        auditService.detachContext();
+        correlationService.detachContext();
+        thread.setContextClassLoader( previousClassLoader );
+      }
+      return null;
+    }
+
+    private void stream() throws Exception {
+      final InputStream input = pipe.getInputStream();
+      if( subject == null ) {
+        response.streamResponse( input );
+      } else {
+        Subject.doAs( subject, new PrivilegedExceptionAction<Void>() {
+          @Override
+          public Void run() throws Exception {
+            response.streamResponse( input );
+            return null;
+          }
+        } );
+      }
+    }
+
+  }
+
+  private static IOException toIOException( Throwable t ) {
+    if( t instanceof IOException ) {
+      return (IOException)t;
+    }
+    return new IOException( t );
+  }
+
+  /**
+   * A bounded single producer, single consumer byte pipe.
+   * Unlike java.io.PipedInputStream it doesn't depend on the identity or liveness of the
+   * threads involved, which matters since the reader is a pooled thread.
+   */
+  static class Pipe {
+
+    private final byte[] buffer;
+    private int head; // Next position to read.
+    private int count; // Number of bytes available to read.
+    private boolean writeClosed;
+    private boolean aborted;
+    private boolean readClosed;
+    private Throwable readFailure;
+
+    Pipe( int size ) {
+      buffer = new byte[ size ];
+    }
+
+    synchronized void write( int b ) throws IOException {
+      awaitSpace();
+      if( readClosed ) {
+        return;
+      }
+      buffer[ ( head + count ) % buffer.length ] = (byte)b;
+      count++;
+      notifyAll();
+    }
+
+    synchronized void write( byte[] b, int off, int len ) throws IOException {
+      while( len > 0 ) {
+        awaitSpace();
+        if( readClosed ) {
+          return;
+        }
+        int tail = ( head + count ) % buffer.length;
+        int chunk = Math.min( len, Math.min( buffer.length - count, buffer.length - tail ) );
+        System.arraycopy( b, off, buffer, tail, chunk );
+        count += chunk;
+        off += chunk;
+        len -= chunk;
+        notifyAll();
+      }
+    }
+
+    private void awaitSpace() throws IOException {
+      if( writeClosed ) {
+        throw new IOException( "Stream closed" );
+      }
+      try {
+        while( count == buffer.length && !readClosed ) {
+          wait();
+        }
+      } catch( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      }
+      if( readFailure != null ) {
+        throw toIOException( readFailure );
+      }
+      // If the reader stopped without a failure the rest of the body isn't wanted so it's discarded.
+    }
+
+    synchronized void closeWrite() {
+      writeClosed = true;
+      notifyAll();
+    }
+
+    synchronized void abort() {
+      writeClosed = true;
+      aborted = true;
+      notifyAll();
+    }
+
+    synchronized void closeRead( Throwable failure ) {
+      readClosed = true;
+      readFailure = failure;
+      notifyAll();
+    }
+
+    synchronized int read() throws IOException {
+      if( !awaitData() ) {
+        return -1;
+      }
+      int b = buffer[ head ] & 0xFF;
+      head = ( head + 1 ) % buffer.length;
+      count--;
+      notifyAll();
+      return b;
+    }
+
+    synchronized int read( byte[] b, int off, int len ) throws IOException {
+      if( len == 0 ) {
+        return 0;
+      }
+      if( !awaitData() ) {
+        return -1;
+      }
+      int chunk = Math.min( len, Math.min( count, buffer.length - head ) );
+      System.arraycopy( buffer, head, b, off, chunk );
+      head = ( head + chunk ) % buffer.length;
+      count -= chunk;
+      notifyAll();
+      return chunk;
+    }
+
+    private boolean awaitData() throws IOException {
+      try {
+        while( count == 0 && !writeClosed ) {
+          wait();
+        }
+      } catch( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      }
+      if( aborted ) {
+        throw new IOException( "Stream aborted" );
+      }
+      return count > 0;
+    }
+
+    synchronized int available() {
+      return count;
+    }
+
+    InputStream getInputStream() {
+      return new InputStream() {
+        @Override
+        public int read() throws IOException {
+          return Pipe.this.read();
+        }
+
+        @Override
+        public int read( byte[] b, int off, int len ) throws IOException {
+          return Pipe.this.read( b, off, len );
+        }
+
+        @Override
+        public int available() {
+          return Pipe.this.available();
+        }
+      };
+    }
+
   }
 
 }
@@ -23,6 +23,7 @@ import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteStepDescriptor;
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteStepFlow;
 import org.apache.hadoop.gateway.filter.rewrite.i18n.UrlRewriteMessages;
 import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteContext;
+import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewritePureStep;
 import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteStepProcessor;
 import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteStepStatus;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
@@ -39,6 +40,11 @@ public class UrlRewriteStepProcessorHolder implements UrlRewriteStepProcessor {
   private UrlRewriteStepDescriptor descriptor;
   private UrlRewriteStepProcessor processor;
   private List<UrlRewriteStepProcessorHolder> childProcessors;
+  // The child steps compiled into blocks of conditions followed by actions and the flow used to process them.
+  private Block[] blocks;
+  private UrlRewriteStepFlow flow;
+  // True if this step and all of its child steps are pure.
+  private boolean pure;
 
   @Override
   public String getType() {
@@ -53,6 +59,13 @@ public class UrlRewriteStepProcessorHolder implements UrlRewriteStepProcessor {
     return !isCondition;
   }
 
+  /**
+   * @return True if the processor of this step and of every nested step implements UrlRewritePureStep.
+   */
+  public boolean isPure() {
+    return pure;
+  }
+
   @Override
   @SuppressWarnings( "unchecked" )
   public void initialize( UrlRewriteEnvironment environment, UrlRewriteStepDescriptor descriptor ) throws Exception {
@@ -68,6 +81,7 @@ public class UrlRewriteStepProcessorHolder implements UrlRewriteStepProcessor {
     this.processor = processor;
     this.isCondition = descriptor instanceof UrlRewriteFlowDescriptor;
     this.childProcessors = new ArrayList<UrlRewriteStepProcessorHolder>();
+    this.pure = processor instanceof UrlRewritePureStep;
     if( isCondition ) {
       UrlRewriteFlowDescriptor flowDescriptor = (UrlRewriteFlowDescriptor)descriptor;
       List<UrlRewriteStepDescriptor> stepList = flowDescriptor.steps();
@@ -78,9 +92,34 @@ public class UrlRewriteStepProcessorHolder implements UrlRewriteStepProcessor {
           UrlRewriteStepProcessorHolder stepProcessor = new UrlRewriteStepProcessorHolder();
           stepProcessor.initialize( environment, stepDescriptor );
           childProcessors.add( stepProcessor );
+          pure = pure && stepProcessor.isPure();
         }
       }
+      flow = flowDescriptor.flow();
+      if( flow == null ) {
+        flow = UrlRewriteStepFlow.AND;
+      }
     }
+    blocks = compileBlocks( childProcessors );
+  }
+
+  // Groups the steps into runs of conditions followed by the run of actions they guard.
+  private static Block[] compileBlocks( List<UrlRewriteStepProcessorHolder> steps ) {
+    List<Block> blocks = new ArrayList<Block>();
+    int i = 0;
+    int n = steps.size();
+    while( i < n ) {
+      List<UrlRewriteStepProcessorHolder> conditions = new ArrayList<UrlRewriteStepProcessorHolder>();
+      while( i < n && steps.get( i ).isCondition() ) {
+        conditions.add( steps.get( i++ ) );
+      }
+      List<UrlRewriteStepProcessorHolder> actions = new ArrayList<UrlRewriteStepProcessorHolder>();
+      while( i < n && steps.get( i ).isAction() ) {
+        actions.add( steps.get( i++ ) );
+      }
+      blocks.add( new Block( conditions, actions ) );
+    }
+    return blocks.toArray( new Block[ blocks.size() ] );
   }
 
   // For unit testing.
@@ -99,14 +138,7 @@ public class UrlRewriteStepProcessorHolder implements UrlRewriteStepProcessor {
     // If initialization failed then fail processing
     if( processor != null ) {
       status = processor.process( context );
-      if( UrlRewriteStepStatus.SUCCESS == status &&
-          descriptor instanceof UrlRewriteFlowDescriptor &&
-          !childProcessors.isEmpty() ) {
-        UrlRewriteFlowDescriptor flowDescriptor = (UrlRewriteFlowDescriptor)descriptor;
-        UrlRewriteStepFlow flow = flowDescriptor.flow();
-        if( flow == null ) {
-          flow = UrlRewriteStepFlow.AND;
-        }
+      if( UrlRewriteStepStatus.SUCCESS == status && isCondition && blocks.length > 0 ) {
         switch( flow ) {
           case ALL:
             return processAllFlow( context );
@@ -121,18 +153,15 @@ public class UrlRewriteStepProcessorHolder implements UrlRewriteStepProcessor {
   }
 
   private UrlRewriteStepStatus processAllFlow( UrlRewriteContext context ) throws Exception {
-    UrlRewriteStepProcessorState state = new UrlRewriteStepProcessorState( childProcessors.iterator() );
-    UrlRewriteStepStatus stepStatus = UrlRewriteStepStatus.SUCCESS;
-    UrlRewriteStepProcessorHolder step;
-    while( state.hasNext() ) {
-      while( state.hasNextCondition() ) {
-        step = state.nextCondition( stepStatus );
+    UrlRewriteStepStatus stepStatus;
+    for( Block block : blocks ) {
+      for( UrlRewriteStepProcessorHolder step : block.conditions ) {
         stepStatus = step.process( context );
         if( stepStatus == UrlRewriteStepStatus.FINISHED ) {
           return stepStatus;
         }
       }
-      stepStatus = processActions( context, state );
+      stepStatus = processActions( context, block );
       if( stepStatus == UrlRewriteStepStatus.FINISHED ) {
         return stepStatus;
       }
@@ -142,18 +171,15 @@ public class UrlRewriteStepProcessorHolder implements UrlRewriteStepProcessor {
 
   // All conditions proceeding a set of one or more actions must succeed for the actions to be executed.
   private UrlRewriteStepStatus processAndFlow( UrlRewriteContext context ) throws Exception {
-    UrlRewriteStepProcessorState state = new UrlRewriteStepProcessorState( childProcessors.iterator() );
-    UrlRewriteStepStatus stepStatus = UrlRewriteStepStatus.SUCCESS;
-    UrlRewriteStepProcessorHolder step;
-    while( state.hasNext() ) {
-      while( state.hasNextCondition() ) {
-        step = state.nextCondition( stepStatus );
+    UrlRewriteStepStatus stepStatus;
+    for( Block block : blocks ) {
+      for( UrlRewriteStepProcessorHolder step : block.conditions ) {
         stepStatus = step.process( context );
         if( !( stepStatus == UrlRewriteStepStatus.SUCCESS ) ) {
           return stepStatus;
         }
       }
-      stepStatus = processActions( context, state );
+      stepStatus = processActions( context, block );
       if( !( stepStatus == UrlRewriteStepStatus.SUCCESS ) ) {
         return stepStatus;
       }
@@ -163,13 +189,10 @@ public class UrlRewriteStepProcessorHolder implements UrlRewriteStepProcessor {
 
   // At least one condition proceeding a set of one or more actions must succedd for the actions to be executed.
   private UrlRewriteStepStatus processOrFlow( UrlRewriteContext context ) throws Exception {
-    UrlRewriteStepProcessorState state = new UrlRewriteStepProcessorState( childProcessors.iterator() );
-    UrlRewriteStepStatus status = UrlRewriteStepStatus.SUCCESS;
-    UrlRewriteStepProcessorHolder step;
-    while( state.hasNext() ) {
+    UrlRewriteStepStatus status;
+    for( Block block : blocks ) {
       UrlRewriteStepStatus flowStatus = UrlRewriteStepStatus.FAILURE;
-      while( state.hasNextCondition() ) {
-        step = state.nextCondition( status );
+      for( UrlRewriteStepProcessorHolder step : block.conditions ) {
         if( flowStatus == UrlRewriteStepStatus.FAILURE ) {
           status = step.process( context );
           switch( status ) {
@@ -181,7 +204,7 @@ public class UrlRewriteStepProcessorHolder implements UrlRewriteStepProcessor {
           }
         }
       }
-      status = processActions( context, state );
+      status = processActions( context, block );
       if( status != UrlRewriteStepStatus.SUCCESS ) {
         return status;
       }
@@ -189,14 +212,12 @@ public class UrlRewriteStepProcessorHolder implements UrlRewriteStepProcessor {
     return UrlRewriteStepStatus.SUCCESS;
   }
 
-  private UrlRewriteStepStatus processActions( UrlRewriteContext context, UrlRewriteStepProcessorState state )
+  private UrlRewriteStepStatus processActions( UrlRewriteContext context, Block block )
       throws Exception {
     UrlRewriteStepStatus flowStatus = UrlRewriteStepStatus.SUCCESS;
-    while( state.hasNextAction() ) {
+    for( UrlRewriteStepProcessorHolder step : block.actions ) {
       if( flowStatus == UrlRewriteStepStatus.SUCCESS ) {
-        UrlRewriteStepStatus stepStatus = UrlRewriteStepStatus.SUCCESS;
-        UrlRewriteStepProcessorHolder step = state.nextAction( stepStatus );
-        stepStatus = step.process( context );
+        UrlRewriteStepStatus stepStatus = step.process( context );
         switch( stepStatus ) {
           case FAILURE:
             flowStatus = UrlRewriteStepStatus.FAILURE;
@@ -230,4 +251,16 @@ public class UrlRewriteStepProcessorHolder implements UrlRewriteStepProcessor {
     }
   }
 
+  private static class Block {
+
+    private UrlRewriteStepProcessorHolder[] conditions;
+    private UrlRewriteStepProcessorHolder[] actions;
+
+    private Block( List<UrlRewriteStepProcessorHolder> conditions, List<UrlRewriteStepProcessorHolder> actions ) {
+      this.conditions = conditions.toArray( new UrlRewriteStepProcessorHolder[ conditions.size() ] );
+      this.actions = actions.toArray( new UrlRewriteStepProcessorHolder[ actions.size() ] );
+    }
+
+  }
+
 }
@@ -17,6 +17,8 @@
  */
 package org.apache.hadoop.gateway.filter.rewrite.impl.html;
 
+import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteFilterContentDescriptor;
+
 import javax.xml.namespace.QName;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
@@ -37,6 +39,10 @@ public abstract class HtmlFilterReader extends HtmlFilterReaderBase {
     super( reader );
   }
 
+  public HtmlFilterReader( Reader reader, UrlRewriteFilterContentDescriptor config ) throws IOException, ParserConfigurationException {
+    super( reader, config );
+  }
+
   protected abstract String filterAttribute( String tagName, String attributeName, String attributeValue, String ruleName );
 
   protected abstract String filterText( String tagName, String text, String ruleName );
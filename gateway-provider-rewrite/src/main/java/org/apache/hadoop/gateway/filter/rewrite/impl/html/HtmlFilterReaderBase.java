@@ -24,45 +24,59 @@ import net.htmlparser.jericho.Segment;
 import net.htmlparser.jericho.StartTag;
 import net.htmlparser.jericho.StreamedSource;
 import net.htmlparser.jericho.Tag;
+import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteFilterApplyDescriptor;
+import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteFilterContentDescriptor;
+import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteFilterPathDescriptor;
 import org.apache.hadoop.gateway.filter.rewrite.i18n.UrlRewriteMessages;
+import org.apache.hadoop.gateway.filter.rewrite.impl.UrlRewriteFilterReaderBuffer;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 
 import javax.xml.namespace.QName;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
 import java.io.Reader;
-import java.io.StringWriter;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Stack;
 
+/**
+ * Filters HTML content as it streams through the gateway.
+ * <p/>
+ * Segments that are not changed by the filter are copied through as character ranges of the parser's buffer.
+ * Without apply selectors in the content config every attribute value and text segment is filtered.
+ * With apply selectors only the selected values are filtered, using the selector's rule.
+ * The HTML selector paths are of the form @attribute, element/@attribute or element where either name may be
+ * the * wildcard.  Any leading steps of a path (e.g. html/body in html/body/a/@href) are ignored.
+ */
 public abstract class HtmlFilterReaderBase extends Reader {
 
   private static final UrlRewriteMessages LOG = MessagesFactory.get( UrlRewriteMessages.class );
 
-  private Document document;
   private Stack<Level> stack;
   private Reader reader;
   private StreamedSource parser;
   private Iterator<Segment> iterator;
   private int lastSegEnd;
-  private int offset;
-  private StringWriter writer;
-  private StringBuffer buffer;
+  private UrlRewriteFilterReaderBuffer writer;
+  private Selector[] selectors;
 
   protected HtmlFilterReaderBase( Reader reader ) throws IOException, ParserConfigurationException {
+    this( reader, null );
+  }
+
+  protected HtmlFilterReaderBase( Reader reader, UrlRewriteFilterContentDescriptor config ) throws IOException, ParserConfigurationException {
     this.reader = reader;
-    document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
     stack = new Stack<Level>();
     parser = new StreamedSource( reader );
+    // Coalescing prevents a text segment, and therefore a URL within it, from being split at a buffer boundary.
+    parser.setCoalescing( true );
     iterator = parser.iterator();
-    writer = new StringWriter();
-    buffer = writer.getBuffer();
-    offset = 0;
+    writer = new UrlRewriteFilterReaderBuffer();
+    selectors = Selector.compile( config );
   }
 
   protected abstract String filterAttribute( QName elementName, QName attributeName, String attributeValue, String ruleName );
@@ -72,26 +86,21 @@ public abstract class HtmlFilterReaderBase extends Reader {
   @Override
   public int read( char[] destBuffer, int destOffset, int destCount ) throws IOException {
     int count = 0;
-    int available = buffer.length() - offset;
+    int available = writer.available();
 
-    if( available == 0 ) {
-      if( iterator.hasNext() ) {
+    if( available < destCount ) {
+      while( available < destCount && iterator.hasNext() ) {
         iterator.next();
         processCurrentSegment();
-        available = buffer.length() - offset;
-      } else {
+        available = writer.available();
+      }
+      if( available == 0 ) {
         count = -1;
       }
     }
 
     if( available > 0 ) {
-      count = Math.min( destCount, available );
-      buffer.getChars( offset, offset + count, destBuffer, destOffset );
-      offset += count;
-      if( offset == buffer.length() ) {
-        offset = 0;
-        buffer.setLength( 0 );
-      }
+      count = writer.read( destBuffer, destOffset, destCount );
     }
 
     return count;
@@ -111,7 +120,7 @@ public abstract class HtmlFilterReaderBase extends Reader {
       } else if ( segment instanceof EndTag ) {
         processEndTag( (EndTag)segment );
       } else {
-        writer.write( segment.toString() );
+        writeSegment( segment, segment.getBegin(), segment.getEnd() );
       }
     } else {
       processText( segment );
@@ -125,69 +134,93 @@ public abstract class HtmlFilterReaderBase extends Reader {
         break;
       }
     }
-    writer.write( tag.toString() );
+    writeSegment( tag, tag.getBegin(), tag.getEnd() );
   }
 
   private void processStartTag( StartTag tag ) {
     if( "<".equals( tag.getTagType().getStartDelimiter() ) ) {
-      Element e = document.createElement( tag.getNameSegment().toString() );
       stack.push( new Level( tag ) );
-      writer.write( "<" );
-      writer.write( tag.getNameSegment().toString() );
+      // Copy the tag through replacing only the values of filtered attributes.
+      int begin = tag.getBegin();
       Attributes attributes = tag.getAttributes();
-      if( !attributes.isEmpty() ) {
+      if( attributes != null && !attributes.isEmpty() ) {
         for( Attribute attribute : attributes ) {
-          processAttribute( attribute );
+          Segment value = attribute.getValueSegment();
+          if( value != null ) {
+            String outputValue = processAttribute( attribute );
+            if( outputValue != null ) {
+              writeSegment( tag, begin, value.getBegin() );
+              writer.write( outputValue );
+              begin = value.getEnd();
+            }
+          }
         }
       }
-      if( tag.toString().trim().endsWith( "/>" ) || tag.isEmptyElementTag() ) {
+      writeSegment( tag, begin, tag.getEnd() );
+      if( tag.isSyntacticalEmptyElementTag() || tag.isEmptyElementTag() ) {
         stack.pop();
-        writer.write( "/>" );
-      } else {
-        writer.write( ">" );
       }
     } else {
-      writer.write( tag.toString() );
+      writeSegment( tag, tag.getBegin(), tag.getEnd() );
     }
   }
 
-  private void processAttribute( Attribute attribute ) {
+  // Returns the filtered value or null if the attribute value is unchanged.
+  private String processAttribute( Attribute attribute ) {
+    Level tag = stack.peek();
+    Selector selector = null;
+    if( selectors != null ) {
+      selector = Selector.select( selectors, tag.getTag().getName(), attribute.getKey() );
+      if( selector == null ) {
+        return null;
+      }
+    }
     String inputValue = attribute.getValue();
-    String outputValue = inputValue;
+    String outputValue = null;
     try {
-      Level tag = stack.peek();
-      outputValue = filterAttribute( tag.getQName(), tag.getQName( attribute.getName() ), inputValue, null );
-      if( outputValue == null ) {
-        outputValue = inputValue;
+      outputValue = filterAttribute( tag.getQName(), tag.getQName( attribute.getName() ), inputValue, selector == null ? null : selector.rule );
+      if( inputValue.equals( outputValue ) ) {
+        outputValue = null;
       }
     } catch ( Exception e ) {
       LOG.failedToFilterAttribute( attribute.getName(), e );
     }
-    writer.write( " " );
-    writer.write( attribute.getName() );
-    writer.write( "=" );
-    writer.write( attribute.getQuoteChar() );
-    writer.write( outputValue );
-    writer.write( attribute.getQuoteChar() );
+    return outputValue;
   }
 
   private void processText( Segment segment ) {
-    String inputValue = segment.toString();
-    String outputValue = inputValue;
-    try {
-      if( stack.isEmpty() ) {
-        // This can happen for whitespace outside of the root element.
-        //outputValue = filterText( null, inputValue );
-      } else {
-        outputValue = filterText( stack.peek().getQName(), inputValue, null );
-      }
-      if( outputValue == null ) {
-        outputValue = inputValue;
+    String outputValue = null;
+    if( stack.isEmpty() ) {
+      // This can happen for whitespace outside of the root element.
+      //outputValue = filterText( null, inputValue );
+    } else {
+      Level tag = stack.peek();
+      Selector selector = null;
+      if( selectors == null || ( selector = Selector.select( selectors, tag.getTag().getName(), null ) ) != null ) {
+        String inputValue = segment.toString();
+        try {
+          outputValue = filterText( tag.getQName(), inputValue, selector == null ? null : selector.rule );
+        } catch ( Exception e ) {
+          LOG.failedToFilterValue( inputValue, null, e );
+        }
       }
-    } catch ( Exception e ) {
-      LOG.failedToFilterValue( inputValue, null, e );
     }
-    writer.write( outputValue );
+    if( outputValue == null ) {
+      writeSegment( segment, segment.getBegin(), segment.getEnd() );
+    } else {
+      writer.write( outputValue );
+    }
+  }
+
+  // Writes a range of the current segment's source text without creating a String.
+  private void writeSegment( Segment segment, int begin, int end ) {
+    CharBuffer chars = parser.getCurrentSegmentCharBuffer();
+    int offset = begin - segment.getBegin();
+    if( chars.hasArray() ) {
+      writer.write( chars.array(), chars.arrayOffset() + chars.position() + offset, end - begin );
+    } else {
+      writer.write( chars.subSequence( offset, offset + end - begin ).toString() );
+    }
   }
 
   @Override
@@ -209,6 +242,50 @@ public abstract class HtmlFilterReaderBase extends Reader {
     return namespace;
   }
 
+  // An apply selector compiled to the lower case element and attribute names it matches.
+  // A null element name matches any element and a null attribute name selects the element's text.
+  private static class Selector {
+    private String element;
+    private String attribute;
+    private String rule;
+
+    // Returns null if there are no apply selectors in which case everything is filtered.
+    private static Selector[] compile( UrlRewriteFilterContentDescriptor config ) {
+      if( config == null ) {
+        return null;
+      }
+      List<Selector> list = new ArrayList<Selector>();
+      for( UrlRewriteFilterPathDescriptor path : config.getSelectors() ) {
+        if( path instanceof UrlRewriteFilterApplyDescriptor ) {
+          list.add( new Selector( path.path(), ((UrlRewriteFilterApplyDescriptor)path).rule() ) );
+        }
+      }
+      return list.isEmpty() ? null : list.toArray( new Selector[ list.size() ] );
+    }
+
+    private static Selector select( Selector[] selectors, String element, String attribute ) {
+      for( Selector selector : selectors ) {
+        if( ( selector.element == null || selector.element.equalsIgnoreCase( element ) ) &&
+            ( selector.attribute == null ? attribute == null : attribute != null && ( selector.attribute.equals( "*" ) || selector.attribute.equalsIgnoreCase( attribute ) ) ) ) {
+          return selector;
+        }
+      }
+      return null;
+    }
+
+    private Selector( String path, String rule ) {
+      this.rule = rule;
+      String[] steps = path.split( "/" );
+      String last = steps[ steps.length - 1 ];
+      String element = last;
+      if( last.startsWith( "@" ) ) {
+        attribute = last.substring( 1 );
+        element = steps.length > 1 ? steps[ steps.length - 2 ] : "*";
+      }
+      this.element = ( element.isEmpty() || element.equals( "*" ) ) ? null : element;
+    }
+  }
+
   private static class Level {
     private StartTag tag;
     private QName name;
@@ -40,13 +40,12 @@ public class HtmlUrlRewriteFilterReader extends HtmlFilterReader {
 
   public HtmlUrlRewriteFilterReader( Reader reader, UrlRewriter rewriter, Resolver resolver, UrlRewriter.Direction direction, UrlRewriteFilterContentDescriptor config )
       throws IOException, ParserConfigurationException {
-    super( reader );
+    super( reader, config );
     this.resolver = resolver;
     this.rewriter = rewriter;
     this.direction = direction;
   }
 
-  //TODO: Need to limit which values are attempted to be filtered by the name.
   protected String filterValueString( String name, String value, String rule ) {
     try {
       Template input = Parser.parse( value );
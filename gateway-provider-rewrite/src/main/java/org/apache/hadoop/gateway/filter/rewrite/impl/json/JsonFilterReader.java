@@ -24,25 +24,29 @@ import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.fasterxml.jackson.databind.node.TextNode;
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteFilterApplyDescriptor;
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteFilterBufferDescriptor;
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteFilterContentDescriptor;
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteFilterDetectDescriptor;
-import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteFilterGroupDescriptor;
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteFilterPathDescriptor;
 import org.apache.hadoop.gateway.filter.rewrite.i18n.UrlRewriteMessages;
+import org.apache.hadoop.gateway.filter.rewrite.impl.UrlRewriteFilterReaderBuffer;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.hadoop.gateway.util.JsonPath;
 
 import java.io.IOException;
 import java.io.Reader;
-import java.io.StringWriter;
 import java.util.List;
-import java.util.Stack;
 import java.util.regex.Pattern;
 
+/**
+ * Filters JSON by passing tokens from the parser straight to the generator.
+ * Only the current path is tracked while streaming.  The filter's selectors are
+ * compiled into state machines that are advanced as the path changes.
+ * A tree is only built for content selected by a buffer descriptor.
+ */
 class JsonFilterReader extends Reader {
 
   private static final UrlRewriteMessages LOG = MessagesFactory.get( UrlRewriteMessages.class );
@@ -50,441 +54,245 @@ class JsonFilterReader extends Reader {
   private static final UrlRewriteFilterPathDescriptor.Compiler<JsonPath.Expression> JPATH_COMPILER = new JsonPathCompiler();
   private static final UrlRewriteFilterPathDescriptor.Compiler<Pattern> REGEX_COMPILER = new RegexCompiler();
 
-  private JsonFactory factory;
-  private JsonParser parser;
-  private JsonGenerator generator;
-  private ObjectMapper mapper;
+  // Both are thread safe and caching them allows Jackson to recycle its buffers.
+  private static final JsonFactory FACTORY = new JsonFactory();
+  private static final ObjectMapper MAPPER = new ObjectMapper( FACTORY );
 
-  private Reader reader;
-  private int offset;
-  private StringWriter writer;
-  private StringBuffer buffer;
-  private Stack<Level> stack;
-  private Level bufferingLevel;
-  private UrlRewriteFilterBufferDescriptor bufferingConfig;
-  private UrlRewriteFilterGroupDescriptor config;
+  // The maximum number of tokens processed between flushes of the generator.
+  private static final int TOKEN_BATCH_SIZE = 256;
 
+  private Reader reader;
+  private JsonParser parser;
+  private JsonGenerator generator;
+  private UrlRewriteFilterReaderBuffer buffer;
+  private boolean finished;
+  private Selector[] selectors;
+  private Level[] levels;
+  private int depth;
 
   public JsonFilterReader( Reader reader, UrlRewriteFilterContentDescriptor config ) throws IOException {
     this.reader = reader;
-    factory = new JsonFactory();
-    mapper = new ObjectMapper();
-    parser = factory.createParser( reader );
-    writer = new StringWriter();
-    buffer = writer.getBuffer();
-    offset = 0;
-    generator = factory.createGenerator( writer );
-    stack = new Stack<Level>();
-    bufferingLevel = null;
-    bufferingConfig = null;
-    this.config = config;
+    parser = FACTORY.createParser( reader );
+    buffer = new UrlRewriteFilterReaderBuffer();
+    generator = FACTORY.createGenerator( buffer );
+    finished = false;
+    selectors = compileSelectors( config );
+    levels = new Level[ 8 ];
+    depth = 0;
   }
 
   @Override
   public int read( char[] destBuffer, int destOffset, int destCount ) throws IOException {
-    int count = 0;
-    int available = buffer.length() - offset;
-
-    if( available == 0 ) {
-      JsonToken token = parser.nextToken();
-      if( token == null ) {
-        count = -1;
-      } else {
-        processCurrentToken();
-        available = buffer.length() - offset;
-      }
+    if( destCount == 0 ) {
+      return 0;
+    }
+    while( buffer.available() == 0 && !finished ) {
+      fillBuffer( destCount );
     }
+    return buffer.available() == 0 ? -1 : buffer.read( destBuffer, destOffset, destCount );
+  }
 
-    if( available > 0 ) {
-      count = Math.min( destCount, available );
-      buffer.getChars( offset, offset+count, destBuffer, destOffset );
-      offset += count;
-      if( offset == buffer.length() ) {
-        offset = 0;
-        buffer.setLength( 0 );
+  // Flushing the generator copies its output into the buffer so it is only done once per batch of tokens.
+  private void fillBuffer( int wanted ) throws IOException {
+    for( int i = 0; i < TOKEN_BATCH_SIZE && buffer.available() < wanted; i++ ) {
+      if( parser.nextToken() == null ) {
+        finished = true;
+        break;
       }
+      processCurrentToken();
     }
-
-    return count;
+    generator.flush();
   }
 
   private void processCurrentToken() throws IOException {
     switch( parser.getCurrentToken() ) {
       case START_OBJECT:
-        processStartObject();
+      case START_ARRAY:
+        processStartContainer();
         break;
       case END_OBJECT:
-        processEndObject();
-        break;
-      case START_ARRAY:
-        processStartArray();
+        generator.writeEndObject();
+        depth--;
         break;
       case END_ARRAY:
-        processEndArray();
+        generator.writeEndArray();
+        depth--;
         break;
       case FIELD_NAME:
-        processFieldName(); // Could be the name of an object, array or value.
+        processFieldName();
         break;
       case VALUE_STRING:
         processValueString();
         break;
       case VALUE_NUMBER_INT:
       case VALUE_NUMBER_FLOAT:
-        processValueNumber();
-        break;
       case VALUE_TRUE:
       case VALUE_FALSE:
-        processValueBoolean();
-        break;
       case VALUE_NULL:
-        processValueNull();
+        nextElement();
+        generator.copyCurrentEvent( parser );
         break;
       case NOT_AVAILABLE:
         // Ignore it.
         break;
     }
-    generator.flush();
   }
 
-  private Level pushLevel( String field, JsonNode node, JsonNode scopeNode, UrlRewriteFilterGroupDescriptor scopeConfig ) {
-    if( !stack.isEmpty() ) {
-      Level top = stack.peek();
-      if( scopeNode == null ) {
-        scopeNode = top.scopeNode;
-        scopeConfig = top.scopeConfig;
+  private void processStartContainer() throws IOException {
+    boolean array = parser.getCurrentToken() == JsonToken.START_ARRAY;
+    Level parent = nextElement();
+    Level child = pushLevel( array );
+    if( parent == null ) {
+      child.name = null;
+      for( int i = 0; i < selectors.length; i++ ) {
+        Selector selector = selectors[ i ];
+        child.states[ i ] = selector.initial;
+        child.matched[ i ] = selector.accepts( selector.initial );
       }
-    }
-    Level level = new Level( field, node, scopeNode, scopeConfig );
-    stack.push( level );
-    return level;
-  }
-
-  private void processStartObject() throws IOException {
-    JsonNode node;
-    Level child;
-    Level parent;
-    if( stack.isEmpty() ) {
-      node = mapper.createObjectNode();
-      child = pushLevel( null, node, node, config );
     } else {
-      child = stack.peek();
-      if( child.node == null ) {
-        child.node = mapper.createObjectNode();
-        parent = stack.get( stack.size()-2 );
-        switch( parent.node.asToken() ) {
-          case START_ARRAY:
-            ((ArrayNode)parent.node ).add( child.node );
-            break;
-          case START_OBJECT:
-            ((ObjectNode)parent.node ).put( child.field, child.node );
-            break;
-          default:
-            throw new IllegalStateException();
-        }
-      } else if( child.isArray() ) {
-        parent = child;
-        node = mapper.createObjectNode();
-        child = pushLevel( null, node, null, null );
-        ((ArrayNode)parent.node ).add( child.node );
-      } else {
-        throw new IllegalStateException();
+      child.name = parent.array ? null : parent.field;
+      for( int i = 0; i < selectors.length; i++ ) {
+        Selector selector = selectors[ i ];
+        long states = parent.advance( selector, parent.states[ i ] );
+        child.states[ i ] = states;
+        child.matched[ i ] = parent.matched[ i ] || selector.accepts( states );
       }
     }
-    if( bufferingLevel == null ) {
-      if( !startBuffering( child ) ) {
-        generator.writeStartObject();
-      }
-    }
-  }
-
-  private void processEndObject() throws IOException {
-    Level child;
-    Level parent;
-    child = stack.pop();
-    if( bufferingLevel == child ) {
-      filterBufferedNode( child );
-      mapper.writeTree( generator, child.node );
-      bufferingLevel = null;
-      bufferingConfig = null;
-    } else if( bufferingLevel == null ) {
-      generator.writeEndObject();
-      if( !stack.isEmpty() ) {
-        parent = stack.peek();
-        switch( parent.node.asToken() ) {
-          case START_ARRAY:
-            ((ArrayNode)parent.node ).removeAll();
-            break;
-          case START_OBJECT:
-            ((ObjectNode)parent.node ).removeAll();
-            break;
-          default:
-            throw new IllegalStateException();
-        }
-      }
-    }
-  }
-
-  private void processStartArray() throws IOException {
-    JsonNode node;
-    Level child;
-    Level parent;
-    if( stack.isEmpty() ) {
-      node = mapper.createArrayNode();
-      child = pushLevel( null, node, node, config );
+    UrlRewriteFilterBufferDescriptor bufferConfig = findBufferConfig( child );
+    if( bufferConfig != null ) {
+      JsonNode node = readBufferedNode();
+      filterBufferedNode( node, bufferConfig );
+      MAPPER.writeTree( generator, node );
+      depth--;
+    } else if( array ) {
+      generator.writeStartArray();
     } else {
-      child = stack.peek();
-      if( child.node == null ) {
-        child.node = mapper.createArrayNode();
-        parent = stack.get( stack.size() - 2 );
-        switch( parent.node.asToken() ) {
-          case START_ARRAY:
-            ((ArrayNode)parent.node ).add( child.node );
-            break;
-          case START_OBJECT:
-            ((ObjectNode)parent.node ).put( child.field, child.node );
-            break;
-          default:
-            throw new IllegalStateException();
-        }
-      } else if( child.isArray() ) {
-        parent = child;
-        child = pushLevel( null, mapper.createArrayNode(), null, null );
-        ((ArrayNode)parent.node ).add( child.node );
-      } else {
-        throw new IllegalStateException();
-      }
-    }
-    if( bufferingLevel == null ) {
-      if( !startBuffering( child ) ) {
-        generator.writeStartArray();
-      }
-    }
-  }
-
-  private void processEndArray() throws IOException {
-    Level child;
-    Level parent;
-    child = stack.pop();
-    if( bufferingLevel == child ) {
-      filterBufferedNode( child );
-      mapper.writeTree( generator, child.node );
-      bufferingLevel = null;
-      bufferingConfig = null;
-    } else if( bufferingLevel == null ) {
-      generator.writeEndArray();
-      if( !stack.isEmpty() ) {
-        parent = stack.peek();
-        switch( parent.node.asToken() ) {
-          case START_ARRAY:
-            ((ArrayNode)parent.node ).removeAll();
-            break;
-          case START_OBJECT:
-            ((ObjectNode)parent.node ).removeAll();
-            break;
-          default:
-            throw new IllegalStateException();
-        }
-      }
+      generator.writeStartObject();
     }
   }
 
   private void processFieldName() throws IOException {
-    Level child = pushLevel( parser.getCurrentName(), null, null, null );
-    try {
-      child.field = filterFieldName( child.field );
-    } catch( Exception e ) {
-      LOG.failedToFilterFieldName( child.field, e );
-      // Write original name.
-    }
-    if( bufferingLevel == null ) {
-      generator.writeFieldName( child.field );
-    }
+    Level level = levels[ depth - 1 ];
+    level.field = filterFieldNameSafely( parser.getCurrentName() );
+    generator.writeFieldName( level.field );
   }
 
   private void processValueString() throws IOException {
-    Level child;
-    Level parent;
-    String value = null;
-    parent = stack.peek();
-    if( parent.isArray() ) {
-      ArrayNode array = (ArrayNode)parent.node;
-      array.add( parser.getText() );
-      if( bufferingLevel == null ) {
-        value = filterStreamValue( parent );
-        array.set( array.size()-1, new TextNode( value ) );
-      } else {
-        array.removeAll();
-      }
-    } else {
-      child = stack.pop();
-      parent = stack.peek();
-      ((ObjectNode)parent.node ).put( child.field, parser.getText() );
-      if( bufferingLevel == null ) {
-        child.node = parent.node; // Populate the JsonNode of the child for filtering.
-        value = filterStreamValue( child );
-      }
-    }
-    if( bufferingLevel == null ) {
-      if( parent.node.isArray() ) {
-        ((ArrayNode)parent.node).removeAll();
-      } else {
-        ((ObjectNode)parent.node).removeAll();
-      }
-      generator.writeString( value );
-    }
-  }
-
-  private void processValueNumber() throws IOException {
-    Level child;
-    Level parent;
-    parent = stack.peek();
-    if( parent.isArray() ) {
-      if( bufferingLevel != null ) {
-        ArrayNode array = (ArrayNode)parent.node;
-        array.add( parser.getDecimalValue() );
-      }
-    } else {
-      child = stack.pop();
-      if( bufferingLevel != null ) {
-        parent = stack.peek();
-        ObjectNode object = (ObjectNode)parent.node;
-        object.put( child.field, parser.getDecimalValue() );
-      }
-    }
-    if( bufferingLevel == null ) {
-      switch( parser.getNumberType() ) {
-        case INT:
-          generator.writeNumber( parser.getIntValue() );
-          break;
-        case LONG:
-          generator.writeNumber( parser.getLongValue() );
-          break;
-        case BIG_INTEGER:
-          generator.writeNumber( parser.getBigIntegerValue() );
-          break;
-        case FLOAT:
-          generator.writeNumber( parser.getFloatValue() );
-          break;
-        case DOUBLE:
-          generator.writeNumber( parser.getDoubleValue() );
-          break;
-        case BIG_DECIMAL:
-          generator.writeNumber( parser.getDecimalValue() );
+    Level level = nextElement();
+    String value = parser.getText();
+    String name = null;
+    String rule = null;
+    if( level != null ) {
+      name = level.array ? level.name : level.field;
+      for( int i = 0; i < selectors.length; i++ ) {
+        Selector selector = selectors[ i ];
+        if( selector.accepts( level.advance( selector, level.states[ i ] ) ) &&
+            selector.descriptor instanceof UrlRewriteFilterApplyDescriptor ) {
+          rule = ((UrlRewriteFilterApplyDescriptor)selector.descriptor).rule();
           break;
+        }
       }
     }
+    try {
+      value = filterValueString( name, value, rule );
+    } catch( Exception e ) {
+      LOG.failedToFilterValue( value, rule, e );
+    }
+    generator.writeString( value );
   }
 
-  private void processValueBoolean() throws IOException {
-    Level child;
-    Level parent;
-    parent = stack.peek();
-    if( parent.isArray() ) {
-      ((ArrayNode)parent.node ).add( parser.getBooleanValue() );
-      //dump();
-      if( bufferingLevel == null ) {
-        ((ArrayNode)parent.node ).removeAll();
-      }
-    } else {
-      child = stack.pop();
-      parent = stack.peek();
-      ((ObjectNode)parent.node ).put( child.field, parser.getBooleanValue() );
-      //dump();
-      if( bufferingLevel == null ) {
-        ((ObjectNode)parent.node ).remove( child.field );
+  // Moves to the next element if the current container is an array and returns the current container.
+  private Level nextElement() {
+    Level level = null;
+    if( depth > 0 ) {
+      level = levels[ depth - 1 ];
+      if( level.array ) {
+        level.index++;
       }
     }
-    if( bufferingLevel == null ) {
-      generator.writeBoolean( parser.getBooleanValue() );
-    }
+    return level;
   }
 
-  private void processValueNull() throws IOException {
-    Level child;
-    Level parent = stack.peek();
-    if( parent.isArray() ) {
-      ((ArrayNode)parent.node ).addNull();
-      //dump();
-      if( bufferingLevel == null ) {
-        ((ArrayNode)parent.node ).removeAll();
-      }
-    } else {
-      child = stack.pop();
-      parent = stack.peek();
-      ((ObjectNode)parent.node ).putNull( child.field );
-      //dump();
-      if( bufferingLevel == null ) {
-        ((ObjectNode)parent.node ).remove( child.field );
-      }
+  private Level pushLevel( boolean array ) {
+    if( depth == levels.length ) {
+      Level[] grown = new Level[ depth * 2 ];
+      System.arraycopy( levels, 0, grown, 0, depth );
+      levels = grown;
     }
-    if( bufferingLevel == null ) {
-      generator.writeNull();
+    Level level = levels[ depth ];
+    if( level == null ) {
+      level = new Level( selectors.length );
+      levels[ depth ] = level;
     }
+    depth++;
+    level.array = array;
+    level.field = null;
+    level.index = -1;
+    return level;
   }
 
-  protected boolean startBuffering( Level node ) {
-    boolean buffered = false;
-    UrlRewriteFilterGroupDescriptor scope = node.scopeConfig;
-    if( scope != null ) {
-      for( UrlRewriteFilterPathDescriptor selector : scope.getSelectors() ) {
-        JsonPath.Expression path = (JsonPath.Expression)selector.compiledPath( JPATH_COMPILER );
-        List<JsonPath.Match> matches = path.evaluate( node.scopeNode );
-        if( matches != null && matches.size() > 0 ) {
-          if( selector instanceof UrlRewriteFilterBufferDescriptor ) {
-            bufferingLevel = node;
-            bufferingConfig = (UrlRewriteFilterBufferDescriptor)selector;
-            buffered = true;
-          }
-          break;
+  // The first selector that matches the container or one of its ancestors decides if it is buffered.
+  private UrlRewriteFilterBufferDescriptor findBufferConfig( Level level ) {
+    for( int i = 0; i < selectors.length; i++ ) {
+      if( level.matched[ i ] ) {
+        UrlRewriteFilterPathDescriptor descriptor = selectors[ i ].descriptor;
+        if( descriptor instanceof UrlRewriteFilterBufferDescriptor ) {
+          return (UrlRewriteFilterBufferDescriptor)descriptor;
         }
+        break;
       }
     }
-    return buffered;
+    return null;
   }
 
-  protected String filterStreamValue( Level node ) {
-    String value;
-    if( node.isArray() ) {
-      value = node.node.get( 0 ).asText();
-    } else {
-      value = node.node.get( node.field ).asText();
-    }
-    String rule = null;
-    UrlRewriteFilterGroupDescriptor scope = node.scopeConfig;
-    //TODO: Scan the top level apply rules for the first match.
-    if( scope != null ) {
-      for( UrlRewriteFilterPathDescriptor selector : scope.getSelectors() ) {
-        JsonPath.Expression path = (JsonPath.Expression)selector.compiledPath( JPATH_COMPILER );
-        List<JsonPath.Match> matches = path.evaluate( node.scopeNode );
-        if( matches != null && matches.size() > 0 ) {
-          JsonPath.Match match = matches.get( 0 );
-          if( match.getNode().isTextual() ) {
-            if( selector instanceof UrlRewriteFilterApplyDescriptor ) {
-              UrlRewriteFilterApplyDescriptor apply = (UrlRewriteFilterApplyDescriptor)selector;
-              rule = apply.rule();
-              break;
-            }
-          }
+  // Reads the container at the current token into a tree with filtered field names.
+  private JsonNode readBufferedNode() throws IOException {
+    JsonNodeFactory nodes = JsonNodeFactory.instance;
+    switch( parser.getCurrentToken() ) {
+      case START_OBJECT:
+        ObjectNode object = nodes.objectNode();
+        while( parser.nextToken() == JsonToken.FIELD_NAME ) {
+          String field = filterFieldNameSafely( parser.getCurrentName() );
+          parser.nextToken();
+          object.put( field, readBufferedNode() );
         }
-      }
-    }
-    try {
-      value = filterValueString( node.field, value, rule );
-      if( node.isArray() ) {
-        ((ArrayNode)node.node).set( 0, new TextNode( value ) );
-      } else {
-        ((ObjectNode)node.node).put( node.field, value );
-      }
-    } catch( Exception e ) {
-      LOG.failedToFilterValue( value, rule, e );
+        return object;
+      case START_ARRAY:
+        ArrayNode array = nodes.arrayNode();
+        while( parser.nextToken() != JsonToken.END_ARRAY ) {
+          array.add( readBufferedNode() );
+        }
+        return array;
+      case VALUE_STRING:
+        return nodes.textNode( parser.getText() );
+      case VALUE_NUMBER_INT:
+      case VALUE_NUMBER_FLOAT:
+        switch( parser.getNumberType() ) {
+          case INT:
+            return nodes.numberNode( parser.getIntValue() );
+          case LONG:
+            return nodes.numberNode( parser.getLongValue() );
+          case BIG_INTEGER:
+            return nodes.numberNode( parser.getBigIntegerValue() );
+          case BIG_DECIMAL:
+            return nodes.numberNode( parser.getDecimalValue() );
+          default:
+            return nodes.numberNode( parser.getDoubleValue() );
+        }
+      case VALUE_TRUE:
+      case VALUE_FALSE:
+        return nodes.booleanNode( parser.getBooleanValue() );
+      case VALUE_NULL:
+        return nodes.nullNode();
+      default:
+        throw new IllegalStateException( String.valueOf( parser.getCurrentToken() ) );
     }
-    return value;
   }
 
-  private void filterBufferedNode( Level node ) {
-    for( UrlRewriteFilterPathDescriptor selector : bufferingConfig.getSelectors() ) {
+  private void filterBufferedNode( JsonNode node, UrlRewriteFilterBufferDescriptor bufferConfig ) {
+    for( UrlRewriteFilterPathDescriptor selector : bufferConfig.getSelectors() ) {
       JsonPath.Expression path = (JsonPath.Expression)selector.compiledPath( JPATH_COMPILER );
-      List<JsonPath.Match> matches = path.evaluate( node.node );
+      List<JsonPath.Match> matches = path.evaluate( node );
       for( JsonPath.Match match : matches ) {
         if( selector instanceof UrlRewriteFilterApplyDescriptor ) {
           if( match.getNode().isTextual() ) {
@@ -493,7 +301,7 @@ class JsonFilterReader extends Reader {
         } else if( selector instanceof UrlRewriteFilterDetectDescriptor ) {
           UrlRewriteFilterDetectDescriptor detectConfig = (UrlRewriteFilterDetectDescriptor)selector;
           JsonPath.Expression detectPath = (JsonPath.Expression)detectConfig.compiledPath( JPATH_COMPILER );
-          List<JsonPath.Match> detectMatches = detectPath.evaluate( node.node );
+          List<JsonPath.Match> detectMatches = detectPath.evaluate( node );
           for( JsonPath.Match detectMatch : detectMatches ) {
             if( detectMatch.getNode().isTextual() ) {
               String detectValue = detectMatch.getNode().asText();
@@ -508,10 +316,10 @@ class JsonFilterReader extends Reader {
     }
   }
 
-  private void filterBufferedValues( Level node, List<UrlRewriteFilterPathDescriptor> selectors ) {
+  private void filterBufferedValues( JsonNode node, List<UrlRewriteFilterPathDescriptor> selectors ) {
     for( UrlRewriteFilterPathDescriptor selector : selectors ) {
       JsonPath.Expression path = (JsonPath.Expression)selector.compiledPath( JPATH_COMPILER );
-      List<JsonPath.Match> matches = path.evaluate( node.node );
+      List<JsonPath.Match> matches = path.evaluate( node );
       for( JsonPath.Match match : matches ) {
         if( match.getNode().isTextual() ) {
           if( selector instanceof UrlRewriteFilterApplyDescriptor ) {
@@ -533,6 +341,16 @@ class JsonFilterReader extends Reader {
     }
   }
 
+  private String filterFieldNameSafely( String field ) {
+    try {
+      field = filterFieldName( field );
+    } catch( Exception e ) {
+      LOG.failedToFilterFieldName( field, e );
+      // Write original name.
+    }
+    return field;
+  }
+
   protected String filterFieldName( String field ) {
     return field;
   }
@@ -544,31 +362,108 @@ class JsonFilterReader extends Reader {
   @Override
   public void close() throws IOException {
     generator.close();
-    writer.close();
     parser.close();
     reader.close();
   }
 
+  private static Selector[] compileSelectors( UrlRewriteFilterContentDescriptor config ) {
+    Selector[] selectors;
+    if( config == null ) {
+      selectors = new Selector[ 0 ];
+    } else {
+      List<UrlRewriteFilterPathDescriptor> descriptors = config.getSelectors();
+      selectors = new Selector[ descriptors.size() ];
+      for( int i = 0; i < selectors.length; i++ ) {
+        UrlRewriteFilterPathDescriptor descriptor = descriptors.get( i );
+        selectors[ i ] = new Selector( descriptor, (JsonPath.Expression)descriptor.compiledPath( JPATH_COMPILER ) );
+      }
+    }
+    return selectors;
+  }
+
+  // A container on the current path.
   private static class Level {
-    String field;
-    JsonNode node;
-    JsonNode scopeNode;
-    UrlRewriteFilterGroupDescriptor scopeConfig;
-    private Level( String field, JsonNode node, JsonNode scopeNode, UrlRewriteFilterGroupDescriptor scopeConfig ) {
-      this.field = field;
-      this.node = node;
-      this.scopeNode = scopeNode;
-      this.scopeConfig = scopeConfig;
+    boolean array;
+    String name; // The field name of the container within its parent object.
+    String field; // The current field if an object.
+    int index; // The current element if an array.
+    long[] states; // The state of each selector at this container.
+    boolean[] matched; // If each selector matched this container or one of its ancestors.
+    private Level( int selectors ) {
+      states = new long[ selectors ];
+      matched = new boolean[ selectors ];
+    }
+    private long advance( Selector selector, long states ) {
+      return array ? selector.advance( states, null, index ) : selector.advance( states, field, -1 );
+    }
+  }
+
+  // A JsonPath expression compiled into a non-deterministic state machine held in a bit set.
+  // State n means the first n segments after the root have been matched.
+  private static class Selector {
+    UrlRewriteFilterPathDescriptor descriptor;
+    JsonPath.Segment[] segments;
+    long initial;
+    long accept;
+    private Selector( UrlRewriteFilterPathDescriptor descriptor, JsonPath.Expression expression ) {
+      this.descriptor = descriptor;
+      this.segments = expression.getSegments();
+      if( segments.length > Long.SIZE - 1 ) {
+        throw new IllegalArgumentException( descriptor.path() );
+      }
+      initial = closure( 1L );
+      accept = 1L << ( segments.length - 1 );
     }
-    public boolean isArray() {
-      return node != null && node.isArray();
+    private boolean accepts( long states ) {
+      return ( states & accept ) != 0;
+    }
+    // Follows the glob segments that may match nothing.
+    private long closure( long states ) {
+      for( int n = 0; n < segments.length - 1; n++ ) {
+        if( ( states & ( 1L << n ) ) != 0 && segments[ n + 1 ].getType() == JsonPath.Segment.Type.GLOB ) {
+          states |= 1L << ( n + 1 );
+        }
+      }
+      return states;
+    }
+    // Moves into a field of an object if the field is not null and otherwise into an element of an array.
+    private long advance( long states, String field, int index ) {
+      long next = 0;
+      for( int n = 0; n < segments.length - 1; n++ ) {
+        if( ( states & ( 1L << n ) ) != 0 ) {
+          JsonPath.Segment segment = segments[ n + 1 ];
+          switch( segment.getType() ) {
+            case FIELD:
+              if( field != null && field.equals( segment.getField() ) ) {
+                next |= 1L << ( n + 1 );
+              }
+              break;
+            case INDEX:
+              if( field == null && index == segment.getIndex() ) {
+                next |= 1L << ( n + 1 );
+              }
+              break;
+            case WILD:
+              next |= 1L << ( n + 1 );
+              break;
+            case GLOB:
+              next |= 1L << n;
+              break;
+          }
+        }
+      }
+      return closure( next );
     }
   }
 
   private static class JsonPathCompiler implements UrlRewriteFilterPathDescriptor.Compiler<JsonPath.Expression> {
     @Override
     public JsonPath.Expression compile( String expression, JsonPath.Expression compiled ) {
-      return JsonPath.compile( expression );
+      if( compiled != null ) {
+        return compiled;
+      } else {
+        return JsonPath.compile( expression );
+      }
     }
   }
 
@@ -583,10 +478,4 @@ class JsonFilterReader extends Reader {
     }
   }
 
-//  private void dump() throws IOException {
-//    mapper.writeTree( factory.createGenerator( System.out ), stack.get( 0 ).node );
-//    System.out.println();
-//  }
-
 }
-
@@ -26,6 +26,7 @@ import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteFilterPathDescript
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteFilterScopeDescriptor;
 import org.apache.hadoop.gateway.filter.rewrite.i18n.UrlRewriteMessages;
 import org.apache.hadoop.gateway.filter.rewrite.i18n.UrlRewriteResources;
+import org.apache.hadoop.gateway.filter.rewrite.impl.UrlRewriteFilterReaderBuffer;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.hadoop.gateway.i18n.resources.ResourcesFactory;
 import org.w3c.dom.Attr;
@@ -63,12 +64,20 @@ import javax.xml.xpath.XPathFactory;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Reader;
-import java.io.StringWriter;
 import java.io.Writer;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Stack;
 import java.util.regex.Pattern;
 
+/**
+ * Filters XML content as it streams through the gateway.
+ * <p/>
+ * When every selector of the content config is a simple absolute path (e.g. /a/b, /a/&#42;/@c or /a/b/text())
+ * the selectors are compiled into matchers over the stack of open elements and no DOM is kept for the streamed
+ * content.  A DOM is only built for the element subtrees selected by buffer descriptors.  Any other XPath
+ * selector, or a scope descriptor, falls back to evaluating XPath against a DOM of the open elements.
+ */
 public abstract class XmlFilterReader extends Reader {
 
   private static UrlRewriteResources RES = ResourcesFactory.get( UrlRewriteResources.class );
@@ -78,27 +87,26 @@ public abstract class XmlFilterReader extends Reader {
   private static final UrlRewriteMessages LOG = MessagesFactory.get( UrlRewriteMessages.class );
   private static final UrlRewriteFilterPathDescriptor.Compiler<XPathExpression> XPATH_COMPILER = new XmlPathCompiler();
   private static final UrlRewriteFilterPathDescriptor.Compiler<Pattern> REGEX_COMPILER = new RegexCompiler();
+  private static final XMLInputFactory FACTORY = createFactory();
 
   private Reader reader;
   private UrlRewriteFilterContentDescriptor config;
-  private int offset;
-  private StringWriter writer;
-  private StringBuffer buffer;
-  private XMLInputFactory factory;
+  private UrlRewriteFilterReaderBuffer writer;
   private XMLEventReader parser;
   private Document document;
+  private Transformer transformer;
   private Stack<Level> stack;
+  private StreamingPath[] paths;
 
   protected XmlFilterReader( Reader reader, UrlRewriteFilterContentDescriptor config ) throws IOException, XMLStreamException {
     this.reader = reader;
     this.config = config;
-    writer = new StringWriter();
-    buffer = writer.getBuffer();
-    offset = 0;
+    writer = new UrlRewriteFilterReaderBuffer();
     document = null;
+    transformer = null;
     stack = new Stack<Level>();
-    factory = XMLInputFactory.newFactory();
-    parser = factory.createXMLEventReader( reader );
+    paths = StreamingPath.compile( config );
+    parser = FACTORY.createXMLEventReader( reader );
   }
 
   protected abstract String filterAttribute( QName elementName, QName attributeName, String attributeValue, String ruleName );
@@ -108,32 +116,26 @@ public abstract class XmlFilterReader extends Reader {
   @Override
   public int read( char[] destBuffer, int destOffset, int destCount ) throws IOException {
     int count = 0;
-    int available = buffer.length() - offset;
+    int available = writer.available();
 
-    if( available == 0 ) {
-      if( parser.hasNext() ) {
-        try {
-          XMLEvent event = parser.nextEvent();
-          processEvent( event );
-        } catch( RuntimeException e ) {
-          throw e;
-        } catch( Exception e ) {
-          throw e instanceof IOException ? (IOException)e : new IOException( e );
+    if( available < destCount ) {
+      try {
+        while( available < destCount && parser.hasNext() ) {
+          processEvent( parser.nextEvent() );
+          available = writer.available();
         }
-        available = buffer.length() - offset;
-      } else {
+      } catch( RuntimeException e ) {
+        throw e;
+      } catch( Exception e ) {
+        throw e instanceof IOException ? (IOException)e : new IOException( e );
+      }
+      if( available == 0 ) {
         count = -1;
       }
     }
 
     if( available > 0 ) {
-      count = Math.min( destCount, available );
-      buffer.getChars( offset, offset + count, destBuffer, destOffset );
-      offset += count;
-      if( offset == buffer.length() ) {
-        offset = 0;
-        buffer.setLength( 0 );
-      }
+      count = writer.read( destBuffer, destOffset, destCount );
     }
     return count;
   }
@@ -178,7 +180,10 @@ public abstract class XmlFilterReader extends Reader {
     //System.out.println( "SD=" + event );
     String s;
 
-    document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+    // The streaming paths only need a document once something is buffered.
+    if( paths == null ) {
+      document = createDocument();
+    }
     pushLevel( null, event, document, document, config );
 
     writer.write( "<?xml" );
@@ -210,8 +215,12 @@ public abstract class XmlFilterReader extends Reader {
     document = null;
   }
 
-  private void processStartElement( StartElement event ) throws XPathExpressionException {
+  private void processStartElement( StartElement event ) throws XPathExpressionException, ParserConfigurationException {
     //System.out.println( "SE=" + event );
+    if( paths != null ) {
+      processStreamingStartElement( event );
+      return;
+    }
 
     // Create a new "empty" element and add it to the document.
     Element element = bufferElement( event );
@@ -251,6 +260,34 @@ public abstract class XmlFilterReader extends Reader {
     }
   }
 
+  private void processStreamingStartElement( StartElement event ) throws XPathExpressionException, ParserConfigurationException {
+    Level parent = stack.peek();
+
+    // If already buffering just continue to do so.
+    if( parent.buffered ) {
+      Element element = bufferElement( event );
+      parent.node.appendChild( element );
+      pushLevel( parent, event, element, parent.scopeNode, parent.scopeConfig );
+      bufferAttributes( event, element );
+    } else {
+      Level level = pushLevel( parent, event, null, null, parent.scopeConfig );
+      matchStreamingPaths( parent, level );
+      UrlRewriteFilterPathDescriptor descriptor = pickFirstMatchingStreamingPath( level, null );
+      // Only the element subtree selected by a buffer descriptor is built as DOM.  The open ancestors are added
+      // too so that absolute paths within the buffer descriptor still select the same nodes.
+      if( descriptor instanceof UrlRewriteFilterBufferDescriptor ) {
+        Element element = bufferAncestors();
+        level.node = element;
+        level.scopeNode = element;
+        level.scopeConfig = (UrlRewriteFilterBufferDescriptor)descriptor;
+        level.buffered = true;
+        bufferAttributes( event, element );
+      } else {
+        streamElement( event, null );
+      }
+    }
+  }
+
   private void processEndElement( EndElement event ) throws XPathExpressionException, IOException {
     //System.out.println( "EE=" + event );
     boolean buffering = currentlyBuffering();
@@ -258,6 +295,9 @@ public abstract class XmlFilterReader extends Reader {
     if( buffering ) {
       if( child.node == child.scopeNode ) {
         processBufferedElement( child );
+        if( paths != null ) {
+          document.removeChild( document.getDocumentElement() );
+        }
       }
     } else {
       QName n = event.getName();
@@ -269,8 +309,25 @@ public abstract class XmlFilterReader extends Reader {
       }
       writer.write( n.getLocalPart() );
       writer.write( ">" );
-      child.node.getParentNode().removeChild( child.node );
+      if( child.node != null ) {
+        child.node.getParentNode().removeChild( child.node );
+      }
+    }
+  }
+
+  private Element bufferAncestors() throws ParserConfigurationException {
+    if( document == null ) {
+      document = createDocument();
+    }
+    Node parent = document;
+    Element element = null;
+    for( int i = 1, n = stack.size(); i < n; i++ ) {
+      StartElement event = stack.get( i ).event;
+      element = bufferElement( event );
+      parent.appendChild( element );
+      parent = element;
     }
+    return element;
   }
 
   private Element bufferElement( StartElement event ) {
@@ -374,7 +431,7 @@ public abstract class XmlFilterReader extends Reader {
 
   private void processBufferedElement( Level level ) throws XPathExpressionException, IOException {
     processBufferedElement( level, level.scopeConfig );
-    writeBufferedElement( level.node, writer );
+    writeBufferedElement( level.node );
   }
 
   private QName extractQName( Node node ) {
@@ -430,7 +487,7 @@ public abstract class XmlFilterReader extends Reader {
         writer.write( ns.getPrefix() );
       }
       writer.write( "=\"" );
-      writer.write( ns.getNamespaceURI() );
+      writeEscaped( ns.getNamespaceURI(), true );
       writer.write( "\"" );
     }
   }
@@ -444,6 +501,10 @@ public abstract class XmlFilterReader extends Reader {
   }
 
   private void streamAttribute( Element element, Attribute attribute ) throws XPathExpressionException {
+    if( element == null ) {
+      streamAttribute( attribute );
+      return;
+    }
     Attr node;
     QName name = attribute.getName();
     String prefix = name.getPrefix();
@@ -475,47 +536,109 @@ public abstract class XmlFilterReader extends Reader {
 
     //dump( document );
 
-    if( prefix == null || prefix.isEmpty() ) {
-      writer.write( " " );
-      writer.write( name.getLocalPart() );
+    writeAttribute( name, value );
+    element.removeAttributeNode( node );
+  }
+
+  private void streamAttribute( Attribute attribute ) {
+    QName name = attribute.getName();
+    String value = attribute.getValue();
+    Level level = stack.peek();
+    if( ( level.scopeConfig ) == null || ( level.scopeConfig.getSelectors().isEmpty() ) ) {
+      value = filterAttribute( null, name, value, null );
     } else {
-      writer.write( " " );
+      UrlRewriteFilterPathDescriptor path = pickFirstMatchingStreamingPath( level, name );
+      if( path instanceof UrlRewriteFilterApplyDescriptor ) {
+        String rule = ((UrlRewriteFilterApplyDescriptor)path).rule();
+        value = filterAttribute( null, name, value, rule );
+      }
+    }
+    writeAttribute( name, value );
+  }
+
+  private void writeAttribute( QName name, String value ) {
+    String prefix = name.getPrefix();
+    writer.write( " " );
+    if( prefix != null && !prefix.isEmpty() ) {
       writer.write( prefix );
       writer.write( ":" );
-      writer.write( name.getLocalPart() );
     }
+    writer.write( name.getLocalPart() );
     writer.write( "=\"" );
-    writer.write( value );
+    writeEscaped( value, true );
     writer.write( "\"" );
-    element.removeAttributeNode( node );
+  }
+
+  private void writeEscaped( String value, boolean attribute ) {
+    int start = 0;
+    for( int i = 0, n = value.length(); i < n; i++ ) {
+      String entity;
+      switch( value.charAt( i ) ) {
+        case '&':
+          entity = "&amp;";
+          break;
+        case '<':
+          entity = "&lt;";
+          break;
+        case '>':
+          entity = attribute ? null : "&gt;";
+          break;
+        case '"':
+          entity = attribute ? "&quot;" : null;
+          break;
+        default:
+          entity = null;
+      }
+      if( entity != null ) {
+        writer.write( value, start, i - start );
+        writer.write( entity );
+        start = i + 1;
+      }
+    }
+    writer.write( value, start, value.length() - start );
   }
 
   private void processCharacters( Characters event ) throws XPathExpressionException {
     //System.out.println( "T[" + event.isCData() + "," + event.isWhiteSpace() + "," + event.isIgnorableWhiteSpace() + "]=" + event );
     Level level = stack.peek();
-    Node node = stack.peek().node;
-    if( event.isCData() ) {
-      node.appendChild( document.createCDATASection( event.getData() ) );
-    } else {
-      node.appendChild( document.createTextNode( event.getData() ) );
+    Node node = level.node;
+    level.text = true;
+    if( node != null ) {
+      if( event.isCData() ) {
+        node.appendChild( document.createCDATASection( event.getData() ) );
+      } else {
+        node.appendChild( document.createTextNode( event.getData() ) );
+      }
     }
     if( !currentlyBuffering() ) {
       String value = event.getData();
       if( !event.isWhiteSpace() ) {
         if( level.scopeConfig == null || level.scopeConfig.getSelectors().isEmpty() ) {
-          value = filterText( extractQName( node ), value, null );
+          value = filterText( extractQName( level ), value, null );
         } else {
-          UrlRewriteFilterPathDescriptor path = pickFirstMatchingPath( level );
+          UrlRewriteFilterPathDescriptor path = paths != null
+              ? pickFirstMatchingStreamingPath( level, null )
+              : pickFirstMatchingPath( level );
           if( path instanceof UrlRewriteFilterApplyDescriptor ) {
             String rule = ((UrlRewriteFilterApplyDescriptor)path).rule();
-            value = filterText( extractQName( node ), value, rule );
+            value = filterText( extractQName( level ), value, rule );
           }
         }
       }
-      writer.write( value );
+      if( event.isCData() ) {
+        writer.write( "<![CDATA[" );
+        writer.write( value );
+        writer.write( "]]>" );
+      } else {
+        writeEscaped( value, false );
+      }
     }
   }
 
+  private QName extractQName( Level level ) {
+    return level.node != null ? extractQName( level.node ) : level.event.getName();
+  }
+
   private void processComment( Comment event ) {
     //System.out.println( "C=" + event );
     if( currentlyBuffering() ) {
@@ -539,6 +662,53 @@ public abstract class XmlFilterReader extends Reader {
     stack.clear();
   }
 
+  // Computes which of the streaming paths have all of their element steps matched so far by this level's
+  // ancestors and itself.
+  private void matchStreamingPaths( Level parent, Level level ) {
+    int depth = stack.size() - 1;
+    QName name = level.event.getName();
+    boolean unqualified = name.getNamespaceURI() == null || name.getNamespaceURI().isEmpty();
+    level.matched = new boolean[ paths.length ];
+    for( int i = 0; i < paths.length; i++ ) {
+      String[] elements = paths[ i ].elements;
+      if( ( parent.matched == null || parent.matched[ i ] ) && depth <= elements.length ) {
+        String element = elements[ depth - 1 ];
+        level.matched[ i ] = ( element == null ) || ( unqualified && element.equals( name.getLocalPart() ) );
+      }
+    }
+  }
+
+  // The equivalent of pickFirstMatchingPath for the streaming paths.  The attribute is only provided while the
+  // attributes of the element at the top of the stack are being processed.
+  private UrlRewriteFilterPathDescriptor pickFirstMatchingStreamingPath( Level level, QName attribute ) {
+    if( level.scopeConfig == null ) {
+      return null;
+    }
+    List<UrlRewriteFilterPathDescriptor> selectors = level.scopeConfig.getSelectors();
+    int depth = stack.size() - 1;
+    for( int i = 0; i < paths.length; i++ ) {
+      StreamingPath path = paths[ i ];
+      int length = path.elements.length;
+      if( length <= depth ) {
+        Level target = stack.get( length );
+        if( target.matched[ i ] ) {
+          boolean match;
+          if( path.text ) {
+            match = target.text;
+          } else if( path.attribute ) {
+            match = ( attribute != null ) && ( length == depth ) && path.matchesAttribute( attribute );
+          } else {
+            match = true;
+          }
+          if( match ) {
+            return selectors.get( i );
+          }
+        }
+      }
+    }
+    return null;
+  }
+
   protected UrlRewriteFilterPathDescriptor pickFirstMatchingPath( Level level ) {
     UrlRewriteFilterPathDescriptor match = null;
     if( level.scopeConfig != null ) {
@@ -562,6 +732,17 @@ public abstract class XmlFilterReader extends Reader {
     return stack.peek().buffered;
   }
 
+  // Coalescing ensures text containing entity references (e.g. &amp; in a URL query) is filtered as a whole.
+  private static XMLInputFactory createFactory() {
+    XMLInputFactory factory = XMLInputFactory.newFactory();
+    factory.setProperty( XMLInputFactory.IS_COALESCING, Boolean.TRUE );
+    return factory;
+  }
+
+  private Document createDocument() throws ParserConfigurationException {
+    return DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+  }
+
   private Level pushLevel( Level parent, XMLEvent event, Node node, Node scopeNode, UrlRewriteFilterGroupDescriptor scopeConfig ) {
     Level level = new Level( parent, event, node, scopeNode, scopeConfig );
     stack.push( level );
@@ -570,15 +751,17 @@ public abstract class XmlFilterReader extends Reader {
 
   private static class Level {
 //    private Level parent;
-//    private XMLEvent event;
+    private StartElement event;
     private Node node;
     private UrlRewriteFilterGroupDescriptor scopeConfig;
     private Node scopeNode;
     private boolean buffered;
+    private boolean text;
+    private boolean[] matched;
 
     private Level( Level parent, XMLEvent event, Node node, Node scopeNode, UrlRewriteFilterGroupDescriptor scopeConfig ) {
 //      this.parent = parent;
-//      this.event = event;
+      this.event = event.isStartElement() ? event.asStartElement() : null;
       this.node = node;
       this.scopeConfig = scopeConfig;
       this.scopeNode = scopeNode;
@@ -587,12 +770,76 @@ public abstract class XmlFilterReader extends Reader {
     }
   }
 
+  // A selector compiled for matching against the stack of open elements.
+  // Null element and attribute names represent the * wildcard.
+  private static class StreamingPath {
+
+    private static final String NAME = "(?:\\*|[A-Za-z_][\\w.-]*)";
+    private static final Pattern SIMPLE_PATH = Pattern.compile( "(?:/" + NAME + ")+(?:/@" + NAME + "|/text\\(\\))?" );
+
+    private String[] elements;
+    private boolean attribute;
+    private boolean text;
+    private String attributeName;
+
+    // Returns null if any of the config's selectors requires XPath evaluation against a DOM.
+    private static StreamingPath[] compile( UrlRewriteFilterContentDescriptor config ) {
+      if( config == null ) {
+        return new StreamingPath[ 0 ];
+      }
+      List<UrlRewriteFilterPathDescriptor> selectors = config.getSelectors();
+      StreamingPath[] paths = new StreamingPath[ selectors.size() ];
+      for( int i = 0; i < paths.length; i++ ) {
+        UrlRewriteFilterPathDescriptor selector = selectors.get( i );
+        String path = selector.path();
+        if( selector instanceof UrlRewriteFilterScopeDescriptor || path == null || !SIMPLE_PATH.matcher( path ).matches() ) {
+          return null;
+        }
+        paths[ i ] = new StreamingPath( path );
+      }
+      return paths;
+    }
+
+    private StreamingPath( String path ) {
+      String[] steps = path.substring( 1 ).split( "/" );
+      String last = steps[ steps.length - 1 ];
+      int length = steps.length;
+      if( last.startsWith( "@" ) ) {
+        attribute = true;
+        attributeName = wildcard( last.substring( 1 ) );
+        length--;
+      } else if( last.equals( "text()" ) ) {
+        text = true;
+        length--;
+      }
+      elements = new String[ length ];
+      for( int i = 0; i < length; i++ ) {
+        elements[ i ] = wildcard( steps[ i ] );
+      }
+    }
+
+    private boolean matchesAttribute( QName name ) {
+      String uri = name.getNamespaceURI();
+      return ( uri == null || uri.isEmpty() ) && ( attributeName == null || attributeName.equals( name.getLocalPart() ) );
+    }
+
+    private static String wildcard( String name ) {
+      return "*".equals( name ) ? null : name;
+    }
+
+  }
+
   private static class XmlPathCompiler implements UrlRewriteFilterPathDescriptor.Compiler<XPathExpression> {
     private static XPath XPATH = XPathFactory.newInstance().newXPath();
     @Override
     public XPathExpression compile( String expression, XPathExpression compiled ) {
+      if( compiled != null ) {
+        return compiled;
+      }
       try {
-        return XPATH.compile( expression );
+        synchronized( XPATH ) {
+          return XPATH.compile( expression );
+        }
       } catch( XPathExpressionException e ) {
         throw new IllegalArgumentException( e );
       }
@@ -610,15 +857,18 @@ public abstract class XmlFilterReader extends Reader {
     }
   }
 
-  private static final void writeBufferedElement( Node node, Writer writer ) throws IOException {
+  private void writeBufferedElement( Node node ) throws IOException {
     try {
-      getTransformer().transform( new DOMSource( node ), new StreamResult( writer ) );
+      if( transformer == null ) {
+        transformer = createTransformer();
+      }
+      transformer.transform( new DOMSource( node ), new StreamResult( (Writer)writer ) );
     } catch( TransformerException e ) {
       throw new IOException( e );
     }
   }
 
-  private static final Transformer getTransformer() throws TransformerConfigurationException {
+  private static final Transformer createTransformer() throws TransformerConfigurationException {
     TransformerFactory tf = TransformerFactory.newInstance();
     Transformer t = tf.newTransformer();
     t.setOutputProperty( OutputKeys.OMIT_XML_DECLARATION, "yes" );
@@ -0,0 +1,124 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.filter.rewrite.spi;
+
+import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of the values a function processor produced for each direction and input value.
+ * This is intended for function processors whose results only change when the topology is redeployed.
+ * The cache is owned by the function processor so it is discarded along with the processor on redeploy.
+ */
+public class UrlRewriteFunctionResultCache {
+
+  public static final int DEFAULT_MAX_SIZE = 1024;
+
+  private Map<String,String> inbound;
+  private Map<String,String> outbound;
+  private AtomicLong hits = new AtomicLong();
+  private AtomicLong misses = new AtomicLong();
+
+  public UrlRewriteFunctionResultCache() {
+    this( DEFAULT_MAX_SIZE );
+  }
+
+  public UrlRewriteFunctionResultCache( int maxSize ) {
+    inbound = createMap( maxSize );
+    outbound = createMap( maxSize );
+  }
+
+  /**
+   * @param direction The direction of the rewrite.
+   * @param input The input value of the function.
+   * @return The cached output value or null if there is none.
+   */
+  public String lookup( UrlRewriter.Direction direction, String input ) {
+    Map<String,String> map = getMap( direction );
+    String output;
+    synchronized( map ) {
+      output = map.get( input );
+    }
+    if( output == null ) {
+      misses.incrementAndGet();
+    } else {
+      hits.incrementAndGet();
+    }
+    return output;
+  }
+
+  public void store( UrlRewriter.Direction direction, String input, String output ) {
+    if( output != null ) {
+      Map<String,String> map = getMap( direction );
+      synchronized( map ) {
+        map.put( input, output );
+      }
+    }
+  }
+
+  public void clear() {
+    synchronized( inbound ) {
+      inbound.clear();
+    }
+    synchronized( outbound ) {
+      outbound.clear();
+    }
+  }
+
+  public int size() {
+    int size;
+    synchronized( inbound ) {
+      size = inbound.size();
+    }
+    synchronized( outbound ) {
+      size += outbound.size();
+    }
+    return size;
+  }
+
+  /**
+   * @return The number of lookups answered from the cache.
+   */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * @return The number of lookups that were not answered from the cache.
+   */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  private Map<String,String> getMap( UrlRewriter.Direction direction ) {
+    return direction == UrlRewriter.Direction.OUT ? outbound : inbound;
+  }
+
+  private static Map<String,String> createMap( final int maxSize ) {
+    return new LinkedHashMap<String,String>( 16, 0.75f, true ) {
+      @Override
+      protected boolean removeEldestEntry( Map.Entry<String,String> eldest ) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+}
@@ -18,6 +18,7 @@
 package org.apache.hadoop.gateway.filter.rewrite.api;
 
 import org.apache.hadoop.gateway.util.urltemplate.Parser;
+import org.apache.hadoop.gateway.util.urltemplate.Resolver;
 import org.apache.hadoop.gateway.util.urltemplate.Template;
 import org.easymock.EasyMock;
 import org.junit.Test;
@@ -31,6 +32,10 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
@@ -212,4 +217,45 @@ public class UrlRewriteProcessorTest {
     processor.destroy();
   }
 
+  @Test
+  public void testRewriteResultCacheRevalidatesResolvedValues() throws Exception {
+    UrlRewriteEnvironment environment = EasyMock.createNiceMock( UrlRewriteEnvironment.class );
+    EasyMock.expect( environment.resolve( UrlRewriteProcessor.RESULT_CACHE_SIZE_PARAM ) ).andReturn( Arrays.asList( "10" ) ).anyTimes();
+    EasyMock.replay( environment );
+
+    UrlRewriteProcessor processor = new UrlRewriteProcessor();
+    UrlRewriteRulesDescriptor config = UrlRewriteRulesDescriptorFactory.load(
+        "xml", getTestResourceReader( "rewrite.xml", "UTF-8" ) );
+    processor.initialize( environment, config );
+
+    final Map<String,List<String>> values = new HashMap<String,List<String>>();
+    Resolver resolver = new Resolver() {
+      @Override
+      public List<String> resolve( String name ) {
+        return values.get( name );
+      }
+    };
+    values.put( "resolved.host", Arrays.asList( "test-host-one" ) );
+
+    Template inputUrl = Parser.parse( "test-scheme-input://test-host-input:42/test-path-input" );
+    Template outputUrl = processor.rewrite( resolver, inputUrl, UrlRewriter.Direction.OUT, "test-rule-with-resolved-host" );
+    assertThat( outputUrl.toString(), is( "test-scheme-output://test-host-one:777/test-path-input" ) );
+    assertThat( processor.getCacheHits(), is( 0L ) );
+    assertThat( processor.getCacheMisses(), is( 1L ) );
+
+    inputUrl = Parser.parse( "test-scheme-input://test-host-input:42/test-path-input" );
+    outputUrl = processor.rewrite( resolver, inputUrl, UrlRewriter.Direction.OUT, "test-rule-with-resolved-host" );
+    assertThat( outputUrl.toString(), is( "test-scheme-output://test-host-one:777/test-path-input" ) );
+    assertThat( processor.getCacheHits(), is( 1L ) );
+
+    // A different resolved value must not reuse the cached result.
+    values.put( "resolved.host", Arrays.asList( "test-host-two" ) );
+    outputUrl = processor.rewrite( resolver, inputUrl, UrlRewriter.Direction.OUT, "test-rule-with-resolved-host" );
+    assertThat( outputUrl.toString(), is( "test-scheme-output://test-host-two:777/test-path-input" ) );
+    assertThat( processor.getCacheHits(), is( 1L ) );
+    assertThat( processor.getCacheMisses(), is( 2L ) );
+
+    processor.destroy();
+  }
+
 }
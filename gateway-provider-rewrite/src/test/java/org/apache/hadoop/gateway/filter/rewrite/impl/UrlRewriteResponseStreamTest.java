@@ -0,0 +1,221 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.filter.rewrite.impl;
+
+import org.apache.hadoop.gateway.audit.api.AuditContext;
+import org.apache.hadoop.gateway.audit.api.AuditService;
+import org.apache.hadoop.gateway.audit.api.AuditServiceFactory;
+import org.apache.hadoop.gateway.audit.api.CorrelationContext;
+import org.apache.hadoop.gateway.audit.api.CorrelationService;
+import org.apache.hadoop.gateway.audit.api.CorrelationServiceFactory;
+import org.apache.hadoop.gateway.filter.GatewayResponse;
+import org.apache.hadoop.io.IOUtils;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class UrlRewriteResponseStreamTest {
+
+  private ExecutorService executor;
+
+  @Before
+  public void setupTest() {
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @After
+  public void cleanupTest() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testLargeBodyIsStreamedThroughBoundedPipe() throws Exception {
+    final ByteArrayOutputStream result = new ByteArrayOutputStream();
+    GatewayResponse response = EasyMock.createMock( GatewayResponse.class );
+    response.streamResponse( EasyMock.<InputStream>anyObject() );
+    EasyMock.expectLastCall().andAnswer( new IAnswer<Object>() {
+      @Override
+      public Object answer() throws Throwable {
+        InputStream input = (InputStream)EasyMock.getCurrentArguments()[0];
+        IOUtils.copyBytes( input, result, 4096 );
+        return null;
+      }
+    } ).once();
+    EasyMock.replay( response );
+
+    // Several times the size of the pipe so the writer has to wait for the reader.
+    byte[] body = new byte[ 1024 * 1024 ];
+    for( int i = 0; i < body.length; i++ ) {
+      body[ i ] = (byte)i;
+    }
+    UrlRewriteResponseStream stream = new UrlRewriteResponseStream( response, executor );
+    stream.write( body[ 0 ] );
+    stream.write( body, 1, 1000 );
+    stream.write( body, 1001, body.length - 1001 );
+    stream.close();
+
+    assertThat( Arrays.equals( body, result.toByteArray() ), is( true ) );
+    EasyMock.verify( response );
+  }
+
+  @Test
+  public void testEmptyBodyIsStreamedOnClose() throws Exception {
+    final ByteArrayOutputStream result = new ByteArrayOutputStream();
+    GatewayResponse response = EasyMock.createMock( GatewayResponse.class );
+    response.streamResponse( EasyMock.<InputStream>anyObject() );
+    EasyMock.expectLastCall().andAnswer( new IAnswer<Object>() {
+      @Override
+      public Object answer() throws Throwable {
+        IOUtils.copyBytes( (InputStream)EasyMock.getCurrentArguments()[0], result, 4096 );
+        return null;
+      }
+    } ).once();
+    EasyMock.replay( response );
+
+    new UrlRewriteResponseStream( response, executor ).close();
+
+    assertThat( result.size(), is( 0 ) );
+    EasyMock.verify( response );
+  }
+
+  @Test
+  public void testRewriteFailureIsReportedToWriter() throws Exception {
+    GatewayResponse response = EasyMock.createMock( GatewayResponse.class );
+    response.streamResponse( EasyMock.<InputStream>anyObject() );
+    EasyMock.expectLastCall().andThrow( new IOException( "test-failure" ) ).once();
+    EasyMock.replay( response );
+
+    UrlRewriteResponseStream stream = new UrlRewriteResponseStream( response, executor );
+    try {
+      byte[] body = new byte[ 1024 * 1024 ];
+      stream.write( body, 0, body.length );
+      stream.close();
+      fail( "Expected IOException" );
+    } catch( IOException e ) {
+      assertThat( e.getMessage(), is( "test-failure" ) );
+    }
+  }
+
+  @Test
+  public void testSaturatedExecutorRewritesInline() throws Exception {
+    final ByteArrayOutputStream result = new ByteArrayOutputStream();
+    final Thread[] rewriteThread = new Thread[ 1 ];
+    GatewayResponse response = EasyMock.createMock( GatewayResponse.class );
+    response.streamResponse( EasyMock.<InputStream>anyObject() );
+    EasyMock.expectLastCall().andAnswer( new IAnswer<Object>() {
+      @Override
+      public Object answer() throws Throwable {
+        rewriteThread[ 0 ] = Thread.currentThread();
+        IOUtils.copyBytes( (InputStream)EasyMock.getCurrentArguments()[0], result, 4096 );
+        return null;
+      }
+    } ).once();
+    EasyMock.replay( response );
+
+    // Occupy the only thread so the stream's pump is rejected.
+    ThreadPoolExecutor saturated = new ThreadPoolExecutor( 0, 1, 1, TimeUnit.MINUTES, new SynchronousQueue<Runnable>() );
+    final CountDownLatch release = new CountDownLatch( 1 );
+    saturated.execute( new Runnable() {
+      @Override
+      public void run() {
+        try {
+          release.await();
+        } catch( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    } );
+    try {
+      byte[] body = new byte[ 256 * 1024 ];
+      for( int i = 0; i < body.length; i++ ) {
+        body[ i ] = (byte)i;
+      }
+      UrlRewriteResponseStream stream = new UrlRewriteResponseStream( response, saturated );
+      stream.write( body, 0, body.length );
+      stream.close();
+
+      assertThat( Arrays.equals( body, result.toByteArray() ), is( true ) );
+      assertThat( rewriteThread[ 0 ], sameInstance( Thread.currentThread() ) );
+      EasyMock.verify( response );
+    } finally {
+      release.countDown();
+      saturated.shutdown();
+    }
+  }
+
+  @Test
+  public void testRequestContextIsPropagatedToRewriteThread() throws Exception {
+    final AuditService auditService = AuditServiceFactory.getAuditService();
+    final CorrelationService correlationService = CorrelationServiceFactory.getCorrelationService();
+    // Start the pooled thread first so it can't simply inherit the contexts created below.
+    executor.submit( new Runnable() {
+      @Override
+      public void run() {
+      }
+    } ).get();
+    AuditContext auditContext = auditService.createContext();
+    CorrelationContext correlationContext = correlationService.createContext();
+    final Object[] seen = new Object[ 3 ];
+    GatewayResponse response = EasyMock.createMock( GatewayResponse.class );
+    response.streamResponse( EasyMock.<InputStream>anyObject() );
+    EasyMock.expectLastCall().andAnswer( new IAnswer<Object>() {
+      @Override
+      public Object answer() throws Throwable {
+        seen[ 0 ] = auditService.getContext();
+        seen[ 1 ] = correlationService.getContext();
+        seen[ 2 ] = Thread.currentThread();
+        IOUtils.copyBytes( (InputStream)EasyMock.getCurrentArguments()[0], new ByteArrayOutputStream(), 4096 );
+        return null;
+      }
+    } ).once();
+    EasyMock.replay( response );
+
+    try {
+      UrlRewriteResponseStream stream = new UrlRewriteResponseStream( response, executor );
+      stream.write( new byte[ 100 ], 0, 100 );
+      stream.close();
+
+      assertThat( seen[ 2 ], not( sameInstance( (Object)Thread.currentThread() ) ) );
+      assertThat( seen[ 0 ], sameInstance( (Object)auditContext ) );
+      assertThat( seen[ 1 ], sameInstance( (Object)correlationContext ) );
+    } finally {
+      auditService.detachContext();
+      correlationService.detachContext();
+    }
+  }
+
+}
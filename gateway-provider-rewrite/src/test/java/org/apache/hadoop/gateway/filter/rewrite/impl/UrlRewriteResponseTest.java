@@ -22,16 +22,22 @@ import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteServletContextList
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriter;
 import org.apache.hadoop.gateway.util.urltemplate.Rewriter;
 import org.easymock.EasyMock;
+import org.easymock.IAnswer;
 import org.junit.Test;
 
 import javax.servlet.FilterConfig;
 import javax.servlet.ServletContext;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.List;
 
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 public class UrlRewriteResponseTest {
@@ -61,4 +67,97 @@ public class UrlRewriteResponseTest {
     assertThat( names.get( 0 ), is( "test-cluster-name" ) );
   }
 
+  @Test
+  public void testOutputStreamBypassesRewriteForPassThroughContent() throws Exception {
+    UrlRewriteProcessor rewriter = EasyMock.createNiceMock( UrlRewriteProcessor.class );
+
+    ServletContext context = EasyMock.createNiceMock( ServletContext.class );
+    EasyMock.expect( context.getAttribute( UrlRewriteServletContextListener.PROCESSOR_ATTRIBUTE_NAME ) ).andReturn( rewriter ).anyTimes();
+
+    FilterConfig config = EasyMock.createNiceMock( FilterConfig.class );
+    EasyMock.expect( config.getServletContext() ).andReturn( context ).anyTimes();
+
+    HttpServletRequest request = EasyMock.createNiceMock( HttpServletRequest.class );
+    ServletOutputStream raw = EasyMock.createNiceMock( ServletOutputStream.class );
+
+    HttpServletResponse binaryResponse = EasyMock.createNiceMock( HttpServletResponse.class );
+    EasyMock.expect( binaryResponse.getContentType() ).andReturn( "application/octet-stream" ).anyTimes();
+    EasyMock.expect( binaryResponse.getOutputStream() ).andReturn( raw ).anyTimes();
+
+    HttpServletResponse jsonResponse = EasyMock.createNiceMock( HttpServletResponse.class );
+    EasyMock.expect( jsonResponse.getContentType() ).andReturn( "application/json" ).anyTimes();
+    EasyMock.expect( jsonResponse.getOutputStream() ).andReturn( raw ).anyTimes();
+
+    EasyMock.replay( rewriter, context, config, request, raw, binaryResponse, jsonResponse );
+
+    UrlRewriteResponse binary = new UrlRewriteResponse( config, request, binaryResponse );
+    binary.getOutputStream();
+    assertThat( binary.getOutputStreamTarget(), sameInstance( raw ) );
+
+    UrlRewriteResponse json = new UrlRewriteResponse( config, request, jsonResponse );
+    json.getOutputStream();
+    assertThat( json.getOutputStreamTarget(), instanceOf( UrlRewriteResponseStream.class ) );
+    json.finishOutputStream( false );
+  }
+
+  @Test
+  public void testOutputStreamHonorsContentTypeSetBeforeFirstWrite() throws Exception {
+    UrlRewriteProcessor rewriter = EasyMock.createNiceMock( UrlRewriteProcessor.class );
+
+    ServletContext context = EasyMock.createNiceMock( ServletContext.class );
+    EasyMock.expect( context.getAttribute( UrlRewriteServletContextListener.PROCESSOR_ATTRIBUTE_NAME ) ).andReturn( rewriter ).anyTimes();
+
+    FilterConfig config = EasyMock.createNiceMock( FilterConfig.class );
+    EasyMock.expect( config.getServletContext() ).andReturn( context ).anyTimes();
+
+    HttpServletRequest request = EasyMock.createNiceMock( HttpServletRequest.class );
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    ServletOutputStream raw = new ServletOutputStream() {
+      @Override
+      public void write( int b ) throws IOException {
+        body.write( b );
+      }
+    };
+
+    // The response reports whatever Content-Type was last set on it.
+    final String[] contentType = new String[]{ "application/json" };
+    HttpServletResponse response = EasyMock.createNiceMock( HttpServletResponse.class );
+    EasyMock.expect( response.getContentType() ).andAnswer( new IAnswer<String>() {
+      @Override
+      public String answer() throws Throwable {
+        return contentType[ 0 ];
+      }
+    } ).anyTimes();
+    response.setContentType( EasyMock.<String>anyObject() );
+    EasyMock.expectLastCall().andAnswer( new IAnswer<Object>() {
+      @Override
+      public Object answer() throws Throwable {
+        contentType[ 0 ] = (String)EasyMock.getCurrentArguments()[ 0 ];
+        return null;
+      }
+    } ).anyTimes();
+    EasyMock.expect( response.getOutputStream() ).andReturn( raw ).anyTimes();
+
+    EasyMock.replay( rewriter, context, config, request, response );
+
+    // A JSON response switched to binary content before writing must not be rewritten.
+    UrlRewriteResponse binary = new UrlRewriteResponse( config, request, response );
+    ServletOutputStream output = binary.getOutputStream();
+    binary.setContentType( "application/octet-stream" );
+    output.write( "test-body".getBytes( "UTF-8" ) );
+    assertThat( binary.getOutputStreamTarget(), sameInstance( raw ) );
+    assertThat( body.toString( "UTF-8" ), is( "test-body" ) );
+    binary.finishOutputStream( true );
+
+    // A binary response switched to JSON content before writing must be rewritten.
+    body.reset();
+    UrlRewriteResponse json = new UrlRewriteResponse( config, request, response );
+    output = json.getOutputStream();
+    json.setContentType( "application/json" );
+    output.write( "{}".getBytes( "UTF-8" ) );
+    assertThat( json.getOutputStreamTarget(), instanceOf( UrlRewriteResponseStream.class ) );
+    assertThat( body.size(), is( 0 ) );
+    json.finishOutputStream( false );
+  }
+
 }
@@ -22,8 +22,10 @@ import org.apache.commons.digester3.ExtendedBaseRules;
 import org.apache.commons.digester3.binder.DigesterLoader;
 import org.apache.commons.io.IOUtils;
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteFilterContentDescriptor;
+import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteFilterDescriptor;
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteRuleDescriptor;
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteRulesDescriptor;
+import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteRulesDescriptorFactory;
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteStepDescriptor;
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteStepFlow;
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriter;
@@ -35,6 +37,7 @@ import org.apache.hadoop.gateway.filter.rewrite.impl.xml.XmlRewriteRulesDigester
 import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteActionDescriptorBase;
 import org.hamcrest.Matchers;
 import org.junit.Before;
+import org.junit.Ignore;
 import org.junit.Test;
 import org.w3c.dom.Node;
 import org.xml.sax.SAXException;
@@ -63,6 +66,7 @@ import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.xmlmatchers.XmlMatchers.hasXPath;
 import static org.xmlmatchers.transform.XmlConverters.the;
@@ -613,10 +617,80 @@ public class HtmlFilterReaderBaseTest {
     assertThat( the( outputXml ), hasXPath( "/root/br/table[2]/@name", equalTo( "table2" ) ) );
   }
 
+  @Test
+  public void testUnchangedSegmentsAreCopiedVerbatim() throws Exception {
+    String inputHtml =
+        "<!DOCTYPE html>\n" +
+        "<html><body class=main   id=\"x&amp;y\" disabled>" +
+        "<p>a &lt; b</p><!-- comment --><br>" +
+        "<img src='img.png' alt=\"\"/></body></html>";
+    StringReader inputReader = new StringReader( inputHtml );
+    HtmlFilterReaderBase filterReader = new NoopXmlFilterReader( inputReader );
+    String outputHtml = new String( IOUtils.toCharArray( filterReader ) );
+    assertThat( outputHtml, is( inputHtml ) );
+  }
+
+  @Test
+  public void testConfiguredSelectorsOnly() throws Exception {
+    UrlRewriteRulesDescriptor rulesConfig = UrlRewriteRulesDescriptorFactory.create();
+    UrlRewriteFilterDescriptor filterConfig = rulesConfig.addFilter( "filter-1" );
+    UrlRewriteFilterContentDescriptor contentConfig = filterConfig.addContent( "text/html" );
+    contentConfig.addApply( "a/@href", "test-rule-1" );
+    contentConfig.addApply( "@src", "test-rule-2" );
+    contentConfig.addApply( "script", "test-rule-3" );
+
+    String inputHtml =
+        "<html><body>" +
+        "<a href='link' title='title'>text</a>" +
+        "<link href=\"style.css\"/><IMG SRC=\"img.png\">" +
+        "<script>script</script>" +
+        "</body></html>";
+    StringReader inputReader = new StringReader( inputHtml );
+    HtmlFilterReaderBase filterReader = new TestXmlFilterReader( inputReader, contentConfig );
+    String outputHtml = new String( IOUtils.toCharArray( filterReader ) );
+    assertThat( outputHtml, is(
+        "<html><body>" +
+        "<a href='attr:test-rule-1{link}' title='title'>text</a>" +
+        "<link href=\"style.css\"/><IMG SRC=\"attr:test-rule-2{img.png}\">" +
+        "<script>text:test-rule-3{script}</script>" +
+        "</body></html>" ) );
+  }
+
+  @Ignore
+  @Test
+  public void testPerformance() throws Exception {
+    System.out.println( "Running " + Thread.currentThread().getStackTrace()[1].getClassName() + "#" + Thread.currentThread().getStackTrace()[1].getMethodName() );
+    // Roughly the shape of a large Hadoop web UI page (e.g. a datanode or job list).
+    StringBuilder input = new StringBuilder( "<html><head><link rel=\"stylesheet\" type=\"text/css\" href=\"/static/hadoop.css\"></head><body><table class=\"datatable\">" );
+    int count = 20000;
+    for( int i = 0; i < count; i++ ) {
+      input.append( "<tr class=\"row\"><td class=\"name\"><a href=\"browseDirectory.jsp?namenodeInfoPort=50070&amp;dir=/user/test/" ).append( i );
+      input.append( "\" title=\"Browse\">test-" ).append( i ).append( "</a></td><td align=\"right\">24930</td>" );
+      input.append( "<td>2013-11-01 18:22</td><td>rw-r--r--</td></tr>\n" );
+    }
+    input.append( "</table></body></html>" );
+
+    UrlRewriteRulesDescriptor rulesConfig = UrlRewriteRulesDescriptorFactory.create();
+    UrlRewriteFilterDescriptor filterConfig = rulesConfig.addFilter( "filter-1" );
+    UrlRewriteFilterContentDescriptor contentConfig = filterConfig.addContent( "text/html" );
+    contentConfig.addApply( "@href", "test-rule" );
+
+    // Compare filtering every value, which is what happens without selectors, to filtering only the selected ones.
+    UrlRewriteFilterContentDescriptor[] configs = new UrlRewriteFilterContentDescriptor[]{ null, contentConfig };
+    for( UrlRewriteFilterContentDescriptor config : configs ) {
+      long before = System.nanoTime();
+      HtmlFilterReaderBase filter = new TestXmlFilterReader( new StringReader( input.toString() ), config );
+      String output = IOUtils.toString( filter );
+      long time = System.nanoTime() - before;
+      assertThat( output, containsString( "dir=/user/test/" + ( count - 1 ) + "}" ) );
+      System.out.println( String.format( "Perf: avg=%.2fus, tot=%.2fs, cnt=%d", (double)time / (double)count / 1000.0, (double)time / 1000000000.0, count ) );
+    }
+  }
+
   private class TestXmlFilterReader extends HtmlFilterReaderBase {
 
     protected TestXmlFilterReader( Reader reader, UrlRewriteFilterContentDescriptor contentConfig ) throws IOException, ParserConfigurationException {
-      super( reader );
+      super( reader, contentConfig );
     }
 
     @Override
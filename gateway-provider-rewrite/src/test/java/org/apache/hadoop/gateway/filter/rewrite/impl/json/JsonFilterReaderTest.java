@@ -27,6 +27,7 @@ import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteFilterDetectDescri
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteRulesDescriptor;
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteRulesDescriptorFactory;
 import org.apache.hadoop.test.TestUtils;
+import org.junit.Ignore;
 import org.junit.Test;
 
 import java.io.IOException;
@@ -298,6 +299,74 @@ public class JsonFilterReaderTest {
     JsonAssert.with( output ).assertThat( "name<properties>[2].name<property>.name<property-value>", is( "value:test-rule<test-value-3>" ) );
   }
 
+  @Test
+  public void testStreamingSelectorsTrackArrayElements() throws IOException {
+    String input = "{ \"list\" : [ \"test-value-0\", \"test-value-1\", { \"url\" : \"test-value-2\" } ], \"url\" : \"test-value-3\" }";
+
+    UrlRewriteRulesDescriptor rulesConfig = UrlRewriteRulesDescriptorFactory.create();
+    UrlRewriteFilterDescriptor filterConfig = rulesConfig.addFilter( "filter-1" );
+    UrlRewriteFilterContentDescriptor contentConfig = filterConfig.addContent( "text/json" );
+    contentConfig.addApply( "$.name<list>[1]", "test-rule-1" );
+    contentConfig.addApply( "$..name<url>", "test-rule-2" );
+
+    JsonFilterReader filter = new TestJsonFilterReader( new StringReader( input ), contentConfig );
+    String output = IOUtils.toString( filter );
+
+    //System.out.println( "OUTPUT=" + output );
+
+    JsonAssert.with( output ).assertThat( "name<list>[0]", is( "value:null<test-value-0>" ) );
+    JsonAssert.with( output ).assertThat( "name<list>[1]", is( "value:test-rule-1<test-value-1>" ) );
+    JsonAssert.with( output ).assertThat( "name<list>[2].name<url>", is( "value:test-rule-2<test-value-2>" ) );
+    JsonAssert.with( output ).assertThat( "name<url>", is( "value:test-rule-2<test-value-3>" ) );
+  }
+
+  @Test
+  public void testBufferedArraysKeepAllValues() throws IOException {
+    String input = "{ \"properties\" : { \"list\" : [ \"test-value-1\", 1.5, true, null, [ \"test-value-2\" ] ] } }";
+
+    UrlRewriteRulesDescriptor rulesConfig = UrlRewriteRulesDescriptorFactory.create();
+    UrlRewriteFilterDescriptor filterConfig = rulesConfig.addFilter( "filter-1" );
+    UrlRewriteFilterContentDescriptor contentConfig = filterConfig.addContent( "text/json" );
+    contentConfig.addBuffer( "$.name<properties>" );
+
+    JsonFilterReader filter = new TestJsonFilterReader( new StringReader( input ), contentConfig );
+    String output = IOUtils.toString( filter );
+
+    //System.out.println( "OUTPUT=" + output );
+
+    assertThat( output, is( "{\"name<properties>\":{\"name<list>\":[\"test-value-1\",1.5,true,null,[\"test-value-2\"]]}}" ) );
+  }
+
+  @Ignore
+  @Test
+  public void testPerformance() throws IOException {
+    System.out.println( "Running " + Thread.currentThread().getStackTrace()[1].getClassName() + "#" + Thread.currentThread().getStackTrace()[1].getMethodName() );
+    // Roughly the shape of a WebHDFS LISTSTATUS response for a large directory.
+    StringBuilder input = new StringBuilder( "{\"FileStatuses\":{\"FileStatus\":[" );
+    int count = 100000;
+    for( int i = 0; i < count; i++ ) {
+      if( i > 0 ) {
+        input.append( "," );
+      }
+      input.append( "{\"accessTime\":1320171722771,\"blockSize\":33554432,\"group\":\"supergroup\",\"length\":24930," );
+      input.append( "\"modificationTime\":1320171722771,\"owner\":\"webuser\",\"pathSuffix\":\"file" ).append( i );
+      input.append( "\",\"permission\":\"644\",\"replication\":1,\"type\":\"FILE\"}" );
+    }
+    input.append( "]}}" );
+
+    UrlRewriteRulesDescriptor rulesConfig = UrlRewriteRulesDescriptorFactory.create();
+    UrlRewriteFilterDescriptor filterConfig = rulesConfig.addFilter( "filter-1" );
+    UrlRewriteFilterContentDescriptor contentConfig = filterConfig.addContent( "text/json" );
+    contentConfig.addApply( "$.name<FileStatuses>.name<FileStatus>[*].name<pathSuffix>", "test-rule" );
+
+    long before = System.nanoTime();
+    JsonFilterReader filter = new TestJsonFilterReader( new StringReader( input.toString() ), contentConfig );
+    String output = IOUtils.toString( filter );
+    long time = System.nanoTime() - before;
+    assertThat( output, containsString( "value:test-rule<file" + ( count - 1 ) + ">" ) );
+    System.out.println( String.format( "Perf: avg=%.2fus, tot=%.2fs, cnt=%d", (double)time / (double)count / 1000.0, (double)time / 1000000000.0, count ) );
+  }
+
   @Test
   public void testInvalidConfigShouldThrowException() throws Exception {
     String input = "{ \"test-name\" : \"test-value\" }";
@@ -34,6 +34,7 @@ import org.apache.hadoop.gateway.filter.rewrite.spi.UrlRewriteActionDescriptorBa
 import org.apache.hadoop.test.TestUtils;
 import org.hamcrest.Matchers;
 import org.junit.Before;
+import org.junit.Ignore;
 import org.junit.Test;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -902,6 +903,85 @@ public class XmlFilterReaderTest {
     assertThat( the( output ), hasXPath( "/*[namespace-uri()='ns' and name()='root']/*[namespace-uri()='ns' and name()='node']/@attribute", equalTo( "attr" ) ) );
   }
 
+  @Test
+  public void testStreamedApplyWithWildcards() throws Exception {
+    String input = "<root><a x='1' y='2'><b>text-1</b></a><c x='3'><b>text-2</b></c><b>text-3</b></root>";
+
+    UrlRewriteRulesDescriptor rulesConfig = UrlRewriteRulesDescriptorFactory.create();
+    UrlRewriteFilterDescriptor filterConfig = rulesConfig.addFilter( "filter-1" );
+    UrlRewriteFilterContentDescriptor contentConfig = filterConfig.addContent( "text/xml" );
+    contentConfig.addApply( "/root/*/@x", "test-rule-1" );
+    contentConfig.addApply( "/root/*/b/text()", "test-rule-2" );
+
+    XmlFilterReader filter = new TestXmlFilterReader( new StringReader( input ), contentConfig );
+    String output = IOUtils.toString( filter );
+
+    assertThat( the( output ), hasXPath( "/root/a/@x", equalTo( "attr:test-rule-1{1}" ) ) );
+    assertThat( the( output ), hasXPath( "/root/a/@y", equalTo( "2" ) ) );
+    assertThat( the( output ), hasXPath( "/root/c/@x", equalTo( "attr:test-rule-1{3}" ) ) );
+    assertThat( the( output ), hasXPath( "/root/a/b/text()", equalTo( "text:test-rule-2{text-1}" ) ) );
+    assertThat( the( output ), hasXPath( "/root/c/b/text()", equalTo( "text:test-rule-2{text-2}" ) ) );
+    assertThat( the( output ), hasXPath( "/root/b/text()", equalTo( "text-3" ) ) );
+  }
+
+  @Test
+  public void testFilteredValuesAreEscaped() throws Exception {
+    String input = "<root url='http://host/path?a=1&amp;b=&quot;2&quot;'>http://host/path?a=1&amp;b=&lt;2&gt;</root>";
+    Map<String,String> map = new HashMap<String,String>();
+    map.put( "http://host/path?a=1&b=\"2\"", "http://gateway/path?a=1&b=\"2\"" );
+    map.put( "http://host/path?a=1&b=<2>", "http://gateway/path?a=1&b=<2>" );
+
+    XmlFilterReader filter = new MapXmlFilterReader( new StringReader( input ), map );
+    String output = IOUtils.toString( filter );
+
+    assertThat( the( output ), hasXPath( "/root/@url", equalTo( "http://gateway/path?a=1&b=\"2\"" ) ) );
+    assertThat( the( output ), hasXPath( "/root/text()", equalTo( "http://gateway/path?a=1&b=<2>" ) ) );
+  }
+
+  @Test
+  public void testBufferedAbsolutePathSelectsCurrentElement() throws Exception {
+    String input = "<properties><property><name>test-name-1</name></property><property><name>test-name-2</name></property></properties>";
+
+    UrlRewriteRulesDescriptor rulesConfig = UrlRewriteRulesDescriptorFactory.create();
+    UrlRewriteFilterDescriptor filterConfig = rulesConfig.addFilter( "filter-1" );
+    UrlRewriteFilterContentDescriptor contentConfig = filterConfig.addContent( "text/xml" );
+    UrlRewriteFilterBufferDescriptor bufferConfig = contentConfig.addBuffer( "/properties/property" );
+    bufferConfig.addApply( "/properties/property/name", "test-rule" );
+
+    XmlFilterReader filter = new TestXmlFilterReader( new StringReader( input ), contentConfig );
+    String output = IOUtils.toString( filter );
+
+    assertThat( the( output ), hasXPath( "/properties/property[1]/name/text()", equalTo( "text:test-rule{test-name-1}" ) ) );
+    assertThat( the( output ), hasXPath( "/properties/property[2]/name/text()", equalTo( "text:test-rule{test-name-2}" ) ) );
+  }
+
+  @Ignore
+  @Test
+  public void testPerformance() throws Exception {
+    System.out.println( "Running " + Thread.currentThread().getStackTrace()[1].getClassName() + "#" + Thread.currentThread().getStackTrace()[1].getMethodName() );
+    // Roughly the shape of a large Oozie or Hadoop configuration response.
+    StringBuilder input = new StringBuilder( "<configuration>" );
+    int count = 100000;
+    for( int i = 0; i < count; i++ ) {
+      input.append( "<property><name>test-name-" ).append( i ).append( "</name>" );
+      input.append( "<value>hdfs://namenode:8020/user/test/" ).append( i ).append( "</value>" );
+      input.append( "<source>programatically</source></property>" );
+    }
+    input.append( "</configuration>" );
+
+    UrlRewriteRulesDescriptor rulesConfig = UrlRewriteRulesDescriptorFactory.create();
+    UrlRewriteFilterDescriptor filterConfig = rulesConfig.addFilter( "filter-1" );
+    UrlRewriteFilterContentDescriptor contentConfig = filterConfig.addContent( "text/xml" );
+    contentConfig.addApply( "/configuration/property/value/text()", "test-rule" );
+
+    long before = System.nanoTime();
+    XmlFilterReader filter = new TestXmlFilterReader( new StringReader( input.toString() ), contentConfig );
+    String output = IOUtils.toString( filter );
+    long time = System.nanoTime() - before;
+    assertThat( output, containsString( "text:test-rule{hdfs://namenode:8020/user/test/" + ( count - 1 ) + "}" ) );
+    System.out.println( String.format( "Perf: avg=%.2fus, tot=%.2fs, cnt=%d", (double)time / (double)count / 1000.0, (double)time / 1000000000.0, count ) );
+  }
+
   private class TestXmlFilterReader extends XmlFilterReader {
 
     protected TestXmlFilterReader( Reader reader, UrlRewriteFilterContentDescriptor contentConfig ) throws IOException, ParserConfigurationException, XMLStreamException {
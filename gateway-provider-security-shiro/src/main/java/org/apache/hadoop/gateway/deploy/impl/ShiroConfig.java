@@ -24,6 +24,10 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 public class ShiroConfig {
+
+  private static final String MAIN_SECTION = "main";
+  private static final String CACHE_MANAGER = "cacheManager";
+  private static final String SECURITY_MANAGER_CACHE_MANAGER = "securityManager.cacheManager";
   
   private Map<String, Map<String, String>> sections = new LinkedHashMap<String, Map<String, String>>();
  
@@ -47,6 +51,11 @@ public class ShiroConfig {
         }
       }
     }
+    // A cache manager only takes effect once the security manager hands it to the realms.
+    Map<String, String> main = sections.get(MAIN_SECTION);
+    if (main != null && main.containsKey(CACHE_MANAGER) && !main.containsKey(SECURITY_MANAGER_CACHE_MANAGER)) {
+      addNameValueToSection(SECURITY_MANAGER_CACHE_MANAGER, "$" + CACHE_MANAGER, MAIN_SECTION);
+    }
   }
 
   private void addNameValueToSection(String name, String value, String sectionName) {
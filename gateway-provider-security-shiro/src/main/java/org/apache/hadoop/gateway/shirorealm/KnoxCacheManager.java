@@ -0,0 +1,193 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.hadoop.gateway.shirorealm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.shiro.cache.Cache;
+import org.apache.shiro.cache.CacheException;
+import org.apache.shiro.cache.CacheManager;
+
+/**
+ * A Shiro {@link CacheManager} whose caches are bounded in size and expire entries after
+ * a fixed time to live.  Used to cache authentication results so that clients sending the
+ * same credentials on every request don't cause an LDAP bind each time.  KnoxLdapRealm never
+ * caches authorization results, its groups are cached via groupCacheTimeToLive.
+ * 
+ * <p>
+ * Sample config for <tt>shiro.ini</tt>:
+ * 
+ * [main]
+ * cacheManager=org.apache.hadoop.gateway.shirorealm.KnoxCacheManager
+ * cacheManager.timeToLive=300000
+ * cacheManager.maxSize=10000
+ * securityManager.cacheManager=$cacheManager
+ * ldapRealm.authenticationCachingEnabled=true
+ */
+public class KnoxCacheManager implements CacheManager {
+
+    private static final long DEFAULT_TIME_TO_LIVE = 5 * 60 * 1000L; // Five minutes.
+    private static final int DEFAULT_MAX_SIZE = 10000;
+
+    private final ConcurrentMap<String,Cache> caches = new ConcurrentHashMap<String,Cache>();
+    private long timeToLive = DEFAULT_TIME_TO_LIVE;
+    private int maxSize = DEFAULT_MAX_SIZE;
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <K, V> Cache<K, V> getCache(String name) throws CacheException {
+        Cache cache = caches.get(name);
+        if (cache == null) {
+            Cache created = new ExpiringCache<K,V>(timeToLive, maxSize);
+            cache = caches.putIfAbsent(name, created);
+            if (cache == null) {
+                cache = created;
+            }
+        }
+        return cache;
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * The number of milliseconds an entry is kept.  Only applies to caches created afterwards.
+     */
+    public void setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * The maximum number of entries kept in each cache.  Only applies to caches created afterwards.
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    static class ExpiringCache<K,V> implements Cache<K,V> {
+
+        private final long timeToLive;
+        private final Map<K,Entry<V>> entries;
+
+        ExpiringCache(long timeToLive, final int maxSize) {
+            this.timeToLive = timeToLive;
+            this.entries = new LinkedHashMap<K,Entry<V>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K,Entry<V>> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        @Override
+        public synchronized V get(K key) throws CacheException {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.isExpired(System.currentTimeMillis())) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.value;
+        }
+
+        @Override
+        public synchronized V put(K key, V value) throws CacheException {
+            Entry<V> previous = entries.put(key, new Entry<V>(value, System.currentTimeMillis() + timeToLive));
+            return previous == null ? null : previous.value;
+        }
+
+        @Override
+        public synchronized V remove(K key) throws CacheException {
+            Entry<V> previous = entries.remove(key);
+            return previous == null ? null : previous.value;
+        }
+
+        @Override
+        public synchronized void clear() throws CacheException {
+            entries.clear();
+        }
+
+        @Override
+        public synchronized int size() {
+            purge();
+            return entries.size();
+        }
+
+        @Override
+        public synchronized Set<K> keys() {
+            purge();
+            return Collections.unmodifiableSet(new HashSet<K>(entries.keySet()));
+        }
+
+        @Override
+        public synchronized Collection<V> values() {
+            purge();
+            List<V> values = new ArrayList<V>(entries.size());
+            for (Entry<V> entry : entries.values()) {
+                values.add(entry.value);
+            }
+            return Collections.unmodifiableList(values);
+        }
+
+        private void purge() {
+            long now = System.currentTimeMillis();
+            Iterator<Entry<V>> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().isExpired(now)) {
+                    iterator.remove();
+                }
+            }
+        }
+
+    }
+
+    private static class Entry<V> {
+
+        private final V value;
+        private final long expires;
+
+        private Entry(V value, long expires) {
+            this.value = value;
+            this.expires = expires;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expires;
+        }
+
+    }
+
+}
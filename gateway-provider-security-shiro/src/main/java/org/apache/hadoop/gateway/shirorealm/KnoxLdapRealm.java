@@ -29,6 +29,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.naming.AuthenticationException;
 import javax.naming.InvalidNameException;
@@ -43,12 +44,21 @@ import javax.naming.ldap.LdapName;
 import org.apache.hadoop.gateway.GatewayMessages;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.shiro.SecurityUtils;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authc.SimpleAuthenticationInfo;
+import org.apache.shiro.authc.UsernamePasswordToken;
 import org.apache.shiro.authz.AuthorizationInfo;
 import org.apache.shiro.authz.SimpleAuthorizationInfo;
+import org.apache.shiro.cache.Cache;
+import org.apache.shiro.crypto.SecureRandomNumberGenerator;
+import org.apache.shiro.crypto.hash.Sha256Hash;
+import org.apache.shiro.realm.ldap.JndiLdapContextFactory;
 import org.apache.shiro.realm.ldap.JndiLdapRealm;
 import org.apache.shiro.realm.ldap.LdapContextFactory;
 import org.apache.shiro.realm.ldap.LdapUtils;
 import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.util.ByteSource;
 import org.apache.shiro.util.StringUtils;
 
 /**
@@ -78,6 +88,14 @@ import org.apache.shiro.util.StringUtils;
  * ldapRealm.contextFactory.systemUsername=uid=guest,ou=people,dc=hadoop,dc=apache,dc=org
  * ldapRealm.contextFactory.clusterName=sandbox
  * ldapRealm.contextFactory.systemPassword=S{ALIAS=ldcSystemPassword}
+ * # optional: only fetch the groups that list the user as a member
+ * ldapRealm.groupSearchByMember=true
+ * # optional: remember each user's groups for five minutes
+ * ldapRealm.groupCacheTimeToLive=300000
+ * # optional: remember successful logins, see KnoxCacheManager
+ * cacheManager=org.apache.hadoop.gateway.shirorealm.KnoxCacheManager
+ * securityManager.cacheManager=$cacheManager
+ * ldapRealm.authenticationCachingEnabled=true
  * [urls]
  * **=authcBasic
  *
@@ -111,6 +129,16 @@ public class KnoxLdapRealm extends JndiLdapRealm {
     private final static String  SUBJECT_USER_GROUPS = "subject.userGroups";
 
     private final static String  MEMBER_URL = "memberUrl";
+
+    // Shared by the realms of all topologies, entries are keyed by directory and search settings.
+    private final static GroupCache GROUP_CACHE = new GroupCache(10000);
+    private final static AtomicLong GROUP_SEARCH_COUNT = new AtomicLong();
+    private final static AtomicLong GROUP_SEARCH_TIME = new AtomicLong();
+
+    // Authentication cache keys include a hash of the password so that a different password
+    // never matches a cached login.  The salt only lives in memory so the keys can't be precomputed.
+    private final static String AUTHENTICATION_CACHE_KEY_SEPARATOR = ":";
+    private final static ByteSource AUTHENTICATION_CACHE_SALT = new SecureRandomNumberGenerator().nextBytes();
    
     static {
         SUBTREE_SCOPE.setSearchScope(SearchControls.SUBTREE_SCOPE);
@@ -134,9 +162,84 @@ public class KnoxLdapRealm extends JndiLdapRealm {
     
     private boolean authorizationEnabled;
 
+    private boolean groupSearchByMember = false;
+    private long groupCacheTimeToLive = 0;
+
     public KnoxLdapRealm() {
     }
     
+    /**
+     * Keys cached logins by user name and a salted hash of user name and password.
+     * The user name prefix allows all of a user's cached logins to be cleared.
+     */
+    /**
+     * The authorization info is never cached since looking it up is what stores the user's groups in
+     * the session for {@link org.apache.hadoop.gateway.filter.ShiroSubjectIdentityAdapter}.  A cache hit
+     * would leave every session after the first without groups.  Use groupCacheTimeToLive instead.
+     */
+    @Override
+    public boolean isAuthorizationCachingEnabled() {
+        return false;
+    }
+
+    @Override
+    protected Object getAuthenticationCacheKey(AuthenticationToken token) {
+        if (token instanceof UsernamePasswordToken) {
+            UsernamePasswordToken upToken = (UsernamePasswordToken) token;
+            char[] password = upToken.getPassword();
+            String hash = new Sha256Hash(upToken.getUsername() + AUTHENTICATION_CACHE_KEY_SEPARATOR
+                + (password == null ? "" : new String(password)), AUTHENTICATION_CACHE_SALT).toHex();
+            return upToken.getUsername() + AUTHENTICATION_CACHE_KEY_SEPARATOR + hash;
+        }
+        return super.getAuthenticationCacheKey(token);
+    }
+
+    @Override
+    protected boolean isAuthenticationCachingEnabled(AuthenticationToken token, AuthenticationInfo info) {
+        // Never remember an empty password since many directories treat that as an anonymous bind.
+        if (token instanceof UsernamePasswordToken) {
+            char[] password = ((UsernamePasswordToken) token).getPassword();
+            if (password == null || password.length == 0) {
+                return false;
+            }
+        }
+        return super.isAuthenticationCachingEnabled(token, info);
+    }
+
+    @Override
+    protected AuthenticationInfo createAuthenticationInfo(AuthenticationToken token, Object ldapPrincipal,
+        Object ldapCredentials, LdapContext ldapContext) throws NamingException {
+        if (isAuthenticationCachingEnabled()) {
+            // The LDAP bind has already checked the password so don't keep it in the cache.
+            return new SimpleAuthenticationInfo(token.getPrincipal(), null, getName());
+        }
+        return super.createAuthenticationInfo(token, ldapPrincipal, ldapCredentials, ldapContext);
+    }
+
+    @Override
+    protected void clearCachedAuthenticationInfo(PrincipalCollection principals) {
+        if (principals != null && !principals.isEmpty()) {
+            clearCachedAuthenticationInfo(String.valueOf(getAvailablePrincipal(principals)));
+        }
+    }
+
+    /**
+     * Forgets every cached login of a user, e.g. after their password has been changed.
+     */
+    public void clearCachedAuthenticationInfo(String userName) {
+        Cache<Object, AuthenticationInfo> cache = getAuthenticationCache();
+        if (cache != null && userName != null) {
+            String prefix = userName + AUTHENTICATION_CACHE_KEY_SEPARATOR;
+            for (Object key : cache.keys()) {
+                // The rest of the key is the hash so it can't be another user whose name starts with this one.
+                if (key instanceof String && ((String) key).startsWith(prefix)
+                    && ((String) key).indexOf(AUTHENTICATION_CACHE_KEY_SEPARATOR, prefix.length()) < 0) {
+                    cache.remove(key);
+                }
+            }
+        }
+    }
+
     /**
      * Get groups from LDAP.
      * 
@@ -166,11 +269,28 @@ public class KnoxLdapRealm extends JndiLdapRealm {
     private Set<String> getRoles(final PrincipalCollection principals, 
         final LdapContextFactory ldapContextFactory) throws NamingException {
         final String username = (String) getAvailablePrincipal(principals);
+        final String userDn = memberAttributeValuePrefix + username + memberAttributeValueSuffix;
+
+        // Only open a system connection when the user's groups aren't already cached.
+        String cacheKey = null;
+        if (groupCacheTimeToLive > 0) {
+            cacheKey = groupCacheKey(userDn, ldapContextFactory);
+            Set<String> groupNames = GROUP_CACHE.get(cacheKey);
+            if (groupNames != null) {
+                LOG.usingCachedLdapGroupsForUser(userDn, groupNames.size(),
+                    GROUP_CACHE.hits.get(), GROUP_CACHE.misses.get());
+                return rolesFor(groupNames);
+            }
+        }
 
         LdapContext systemLdapCtx = null;
         try {
             systemLdapCtx = ldapContextFactory.getSystemLdapContext();
-            return rolesFor(username, systemLdapCtx, ldapContextFactory);
+            Set<String> groupNames = groupsFor(userDn, systemLdapCtx, ldapContextFactory);
+            if (cacheKey != null) {
+                GROUP_CACHE.put(cacheKey, groupNames, groupCacheTimeToLive);
+            }
+            return rolesFor(groupNames);
         } catch (AuthenticationException e) {
           LOG.failedToGetSystemLdapConnection(e);
           return Collections.emptySet();
@@ -179,20 +299,18 @@ public class KnoxLdapRealm extends JndiLdapRealm {
         }
     }
 
-    private Set<String> rolesFor(final String userName, final LdapContext ldapCtx, 
-        final LdapContextFactory ldapContextFactory) throws NamingException {
-        final Set<String> roleNames = new HashSet();
-        final Set<String> groupNames = new HashSet();
-        
-        // ldapsearch -h localhost -p 33389 -D uid=guest,ou=people,dc=hadoop,dc=apache,dc=org -w  guest-password 
-        //       -b dc=hadoop,dc=apache,dc=org -s sub '(objectclass=*)'
-        final NamingEnumeration<SearchResult> searchResultEnum = ldapCtx.search(searchBase, "objectClass="+groupObjectClass, SUBTREE_SCOPE);
-        
-        while (searchResultEnum.hasMore()) { // searchResults contains all the groups in search scope
-            final SearchResult group = searchResultEnum.next();
-            addRoleIfMember(userName, group, roleNames, groupNames, ldapContextFactory);
+    private Set<String> rolesFor(final Set<String> groupNames) {
+        final Set<String> roleNames = new HashSet<String>();
+
+        for (String groupName : groupNames) {
+            String roleName = roleNameFor(groupName);
+            if (roleName != null) {
+                roleNames.add(roleName);
+            } else {
+                roleNames.add(groupName);
+            }
         }
-        
+
         // save role names and group names in session so that they can be easily looked up outside of this object
         SecurityUtils.getSubject().getSession().setAttribute(SUBJECT_USER_ROLES, roleNames);
         SecurityUtils.getSubject().getSession().setAttribute(SUBJECT_USER_GROUPS, groupNames);
@@ -200,11 +318,54 @@ public class KnoxLdapRealm extends JndiLdapRealm {
         return roleNames;
     }
 
-  private void addRoleIfMember(final String userName, final SearchResult group,
-      final Set<String> roleNames, final Set<String> groupNames,
+    private Set<String> groupsFor(final String userDn, final LdapContext ldapCtx,
+        final LdapContextFactory ldapContextFactory) throws NamingException {
+        final Set<String> groupNames = new HashSet<String>();
+        long start = System.currentTimeMillis();
+
+        if (groupSearchByMember && !MEMBER_URL.equalsIgnoreCase(memberAttribute)) {
+            // Let the directory find the user's groups instead of downloading every group.
+            // Dynamic groups can't be matched by a filter so they always use the full search below.
+            SearchControls controls = new SearchControls();
+            controls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+            controls.setReturningAttributes(new String[] { getGroupIdAttribute() });
+            String filter = "(&(objectClass=" + groupObjectClass + ")(" + memberAttribute + "={0}))";
+            final NamingEnumeration<SearchResult> searchResultEnum = ldapCtx.search(searchBase, filter, new Object[] { userDn }, controls);
+            while (searchResultEnum.hasMore()) {
+                Attribute attribute = searchResultEnum.next().getAttributes().get(getGroupIdAttribute());
+                if (attribute != null) {
+                    groupNames.add(attribute.get().toString());
+                }
+            }
+        } else {
+            // ldapsearch -h localhost -p 33389 -D uid=guest,ou=people,dc=hadoop,dc=apache,dc=org -w  guest-password 
+            //       -b dc=hadoop,dc=apache,dc=org -s sub '(objectclass=*)'
+            final NamingEnumeration<SearchResult> searchResultEnum = ldapCtx.search(searchBase, "objectClass="+groupObjectClass, SUBTREE_SCOPE);
+            while (searchResultEnum.hasMore()) { // searchResults contains all the groups in search scope
+                final SearchResult group = searchResultEnum.next();
+                addGroupIfMember(userDn, group, groupNames, ldapContextFactory);
+            }
+        }
+
+        long elapsed = System.currentTimeMillis() - start;
+        GROUP_SEARCH_COUNT.incrementAndGet();
+        GROUP_SEARCH_TIME.addAndGet(elapsed);
+        LOG.foundLdapGroupsForUser(userDn, groupNames.size(), elapsed,
+            GROUP_CACHE.hits.get(), GROUP_CACHE.misses.get());
+        return groupNames;
+    }
+
+    private String groupCacheKey(String userDn, LdapContextFactory ldapContextFactory) {
+        String url = ldapContextFactory instanceof JndiLdapContextFactory
+            ? ((JndiLdapContextFactory)ldapContextFactory).getUrl() : null;
+        return url + "|" + searchBase + "|" + groupObjectClass + "|" + memberAttribute + "|"
+            + groupIdAttribute + "|" + groupSearchByMember + "|" + userDn;
+    }
+
+  private void addGroupIfMember(final String userDn, final SearchResult group,
+      final Set<String> groupNames,
       final LdapContextFactory ldapContextFactory) throws NamingException {
    
-    String userDn = memberAttributeValuePrefix + userName + memberAttributeValueSuffix;
     Attribute attribute = group.getAttributes().get(getGroupIdAttribute()); 
     String groupName = attribute.get().toString();
     
@@ -224,23 +385,10 @@ public class KnoxLdapRealm extends JndiLdapRealm {
               ldapContextFactory);
           if (dynamicGroupMember) {
             groupNames.add(groupName);
-            String roleName = roleNameFor(groupName);
-            if (roleName != null) {
-              roleNames.add(roleName);
-            } else {
-              roleNames.add(groupName);
-            }
           }
         } else {
           if (userDn.equals(attrValue)) {
-         
             groupNames.add(groupName);
-            String roleName = roleNameFor(groupName);
-            if (roleName != null) {
-              roleNames.add(roleName);
-            } else {
-              roleNames.add(groupName);
-            }
             break;
           }
         }
@@ -330,6 +478,48 @@ public class KnoxLdapRealm extends JndiLdapRealm {
     public void setAuthorizationEnabled(boolean authorizationEnabled) {
       this.authorizationEnabled = authorizationEnabled;
     }
+
+    public boolean isGroupSearchByMember() {
+      return groupSearchByMember;
+    }
+
+    /**
+     * When enabled the groups are found with a search filtered by the member attribute
+     * instead of by examining every group under the search base.
+     */
+    public void setGroupSearchByMember(boolean groupSearchByMember) {
+      this.groupSearchByMember = groupSearchByMember;
+    }
+
+    public long getGroupCacheTimeToLive() {
+      return groupCacheTimeToLive;
+    }
+
+    /**
+     * The number of milliseconds a user's groups are remembered.  Zero or less disables caching.
+     */
+    public void setGroupCacheTimeToLive(long groupCacheTimeToLive) {
+      this.groupCacheTimeToLive = groupCacheTimeToLive;
+    }
+
+    public static long getGroupCacheHitCount() {
+      return GROUP_CACHE.hits.get();
+    }
+
+    public static long getGroupCacheMissCount() {
+      return GROUP_CACHE.misses.get();
+    }
+
+    public static long getGroupSearchCount() {
+      return GROUP_SEARCH_COUNT.get();
+    }
+
+    /**
+     * The total number of milliseconds spent searching LDAP for groups.
+     */
+    public static long getGroupSearchTime() {
+      return GROUP_SEARCH_TIME.get();
+    }
     
     private Map<String, List<String>> parsePermissionByRoleString(String permissionsByRoleStr) {
       Map<String,List<String>> perms = new HashMap<String, List<String>>();
@@ -390,16 +580,69 @@ public class KnoxLdapRealm extends JndiLdapRealm {
     // search for the filter, substituting base with userDn
     // search for base_dn=userDn, scope=base, filter=filter
     LdapContext systemLdapCtx = null;
-    systemLdapCtx = ldapContextFactory.getSystemLdapContext();
-    final NamingEnumeration<SearchResult> searchResultEnum = systemLdapCtx
-        .search(userDn, searchFilter,
-            searchScope.equalsIgnoreCase("sub") ? SUBTREE_SCOPE
-                : ONELEVEL_SCOPE);
-    if (searchResultEnum.hasMore()) {
-      return true;
+    try {
+      systemLdapCtx = ldapContextFactory.getSystemLdapContext();
+      final NamingEnumeration<SearchResult> searchResultEnum = systemLdapCtx
+          .search(userDn, searchFilter,
+              searchScope.equalsIgnoreCase("sub") ? SUBTREE_SCOPE
+                  : ONELEVEL_SCOPE);
+      if (searchResultEnum.hasMore()) {
+        return true;
+      }
+    } finally {
+      LdapUtils.closeContext(systemLdapCtx);
     }
 
     return member;
   }
+
+  static class GroupCache {
+
+    private final int maxSize;
+    private final Map<String,CachedGroups> entries;
+    final AtomicLong hits = new AtomicLong();
+    final AtomicLong misses = new AtomicLong();
+
+    GroupCache(final int maxSize) {
+      this.maxSize = maxSize;
+      this.entries = Collections.synchronizedMap(new LinkedHashMap<String,CachedGroups>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String,CachedGroups> eldest) {
+          return size() > GroupCache.this.maxSize;
+        }
+      });
+    }
+
+    Set<String> get(String key) {
+      CachedGroups cached = entries.get(key);
+      if (cached != null) {
+        if (cached.expires > System.currentTimeMillis()) {
+          hits.incrementAndGet();
+          return cached.groups;
+        }
+        entries.remove(key);
+      }
+      misses.incrementAndGet();
+      return null;
+    }
+
+    void put(String key, Set<String> groups, long timeToLive) {
+      entries.put(key, new CachedGroups(Collections.unmodifiableSet(new HashSet<String>(groups)),
+          System.currentTimeMillis() + timeToLive));
+    }
+
+  }
+
+  private static class CachedGroups {
+
+    private final Set<String> groups;
+    private final long expires;
+
+    private CachedGroups(Set<String> groups, long expires) {
+      this.groups = groups;
+      this.expires = expires;
+    }
+
+  }
    
 }
@@ -0,0 +1,66 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.hadoop.gateway.shirorealm;
+
+import org.apache.shiro.cache.Cache;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class KnoxCacheManagerTest {
+
+  @Test
+  public void cachesAreSharedByName() {
+    KnoxCacheManager manager = new KnoxCacheManager();
+    Cache<String,String> cache = manager.getCache("test");
+    assertSame(cache, manager.getCache("test"));
+    assertNotSame(cache, manager.getCache("other"));
+  }
+
+  @Test
+  public void entriesExpire() throws Exception {
+    KnoxCacheManager manager = new KnoxCacheManager();
+    manager.setTimeToLive(-1);
+    Cache<String,String> cache = manager.getCache("expired");
+    cache.put("key", "value");
+    assertNull(cache.get("key"));
+    assertEquals(0, cache.size());
+
+    manager.setTimeToLive(60000);
+    cache = manager.getCache("current");
+    cache.put("key", "value");
+    assertEquals("value", cache.get("key"));
+    assertEquals("value", cache.remove("key"));
+    assertNull(cache.get("key"));
+  }
+
+  @Test
+  public void cachesAreBounded() {
+    KnoxCacheManager manager = new KnoxCacheManager();
+    manager.setMaxSize(2);
+    Cache<String,String> cache = manager.getCache("bounded");
+    cache.put("one", "1");
+    cache.put("two", "2");
+    cache.put("three", "3");
+    assertEquals(2, cache.size());
+    assertNull(cache.get("one"));
+    assertEquals("3", cache.get("three"));
+  }
+
+}
@@ -19,6 +19,38 @@
 
 package org.apache.hadoop.gateway.shirorealm;
 
+import java.io.IOException;
+import java.security.AccessController;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import javax.naming.NamingEnumeration;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
+import javax.naming.ldap.LdapContext;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.hadoop.gateway.filter.ShiroSubjectIdentityAdapter;
+import org.apache.hadoop.gateway.security.GroupPrincipal;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.SimpleAuthenticationInfo;
+import org.apache.shiro.authc.UsernamePasswordToken;
+import org.apache.shiro.cache.Cache;
+import org.apache.shiro.mgt.DefaultSecurityManager;
+import org.apache.shiro.realm.ldap.LdapContextFactory;
+import org.apache.shiro.subject.Subject;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -46,4 +78,157 @@ public class KnoxLdapRealmTest {
   }
   
   
+  @Test
+  public void setGetGroupSearchSettings() {
+    KnoxLdapRealm realm = new KnoxLdapRealm();
+    assertFalse(realm.isGroupSearchByMember());
+    assertEquals(0, realm.getGroupCacheTimeToLive());
+    realm.setGroupSearchByMember(true);
+    realm.setGroupCacheTimeToLive(1000);
+    assertTrue(realm.isGroupSearchByMember());
+    assertEquals(1000, realm.getGroupCacheTimeToLive());
+  }
+
+  @Test
+  public void groupCacheExpiresEntries() throws Exception {
+    KnoxLdapRealm.GroupCache cache = new KnoxLdapRealm.GroupCache(10);
+    assertNull(cache.get("user"));
+    cache.put("user", new HashSet<String>(Arrays.asList("admin", "users")), 60000);
+    assertEquals(new HashSet<String>(Arrays.asList("admin", "users")), cache.get("user"));
+    cache.put("expired", new HashSet<String>(Arrays.asList("admin")), -1);
+    assertNull(cache.get("expired"));
+    assertEquals(1, cache.hits.get());
+    assertEquals(2, cache.misses.get());
+  }
+
+  @Test
+  public void groupCacheIsBounded() {
+    KnoxLdapRealm.GroupCache cache = new KnoxLdapRealm.GroupCache(2);
+    cache.put("one", new HashSet<String>(), 60000);
+    cache.put("two", new HashSet<String>(), 60000);
+    cache.put("three", new HashSet<String>(), 60000);
+    assertNull(cache.get("one"));
+    assertNotNull(cache.get("three"));
+  }
+
+  @Test
+  public void authenticationCacheKeyDependsOnPassword() {
+    KnoxLdapRealm realm = new KnoxLdapRealm();
+    Object key = realm.getAuthenticationCacheKey(new UsernamePasswordToken("guest", "guest-password"));
+    assertEquals(key, realm.getAuthenticationCacheKey(new UsernamePasswordToken("guest", "guest-password")));
+    assertNotEquals(key, realm.getAuthenticationCacheKey(new UsernamePasswordToken("guest", "other-password")));
+    assertTrue(key.toString().startsWith("guest:"));
+    assertFalse(key.toString().contains("guest-password"));
+  }
+
+  @Test
+  public void clearCachedAuthenticationInfoForUser() {
+    KnoxLdapRealm realm = new KnoxLdapRealm();
+    realm.setAuthenticationCachingEnabled(true);
+    realm.setCacheManager(new KnoxCacheManager());
+    Cache<Object, AuthenticationInfo> cache = realm.getAuthenticationCache();
+    Object guestKey = realm.getAuthenticationCacheKey(new UsernamePasswordToken("guest", "guest-password"));
+    Object otherKey = realm.getAuthenticationCacheKey(new UsernamePasswordToken("guest:x", "guest-password"));
+    cache.put(guestKey, new SimpleAuthenticationInfo("guest", null, "test"));
+    cache.put(otherKey, new SimpleAuthenticationInfo("guest:x", null, "test"));
+    realm.clearCachedAuthenticationInfo("guest");
+    assertNull(cache.get(guestKey));
+    assertNotNull(cache.get(otherKey));
+  }
+
+  @Test
+  public void groupsReachIdentityAdapterWhenLoginIsCached() throws Exception {
+    LdapContext userContext = EasyMock.createNiceMock(LdapContext.class);
+    LdapContext systemContext = EasyMock.createNiceMock(LdapContext.class);
+    EasyMock.expect(systemContext.search(EasyMock.eq("ou=groups,dc=hadoop,dc=apache,dc=org"),
+        EasyMock.anyObject(String.class), EasyMock.anyObject(Object[].class), EasyMock.anyObject(SearchControls.class)))
+        .andAnswer(new IAnswer<NamingEnumeration<SearchResult>>() {
+          @Override
+          public NamingEnumeration<SearchResult> answer() throws Throwable {
+            return groupSearchResults("analyst");
+          }
+        }).anyTimes();
+    LdapContextFactory contextFactory = EasyMock.createMock(LdapContextFactory.class);
+    // The second login is answered from the authentication cache.
+    EasyMock.expect(contextFactory.getLdapContext(EasyMock.eq((Object)"uid=guest,ou=people,dc=hadoop,dc=apache,dc=org"),
+        EasyMock.anyObject())).andReturn(userContext).once();
+    EasyMock.expect(contextFactory.getSystemLdapContext()).andReturn(systemContext).times(2);
+    EasyMock.replay(userContext, systemContext, contextFactory);
+
+    KnoxLdapRealm realm = new KnoxLdapRealm();
+    realm.setContextFactory(contextFactory);
+    realm.setUserDnTemplate("uid={0},ou=people,dc=hadoop,dc=apache,dc=org");
+    realm.setSearchBase("ou=groups,dc=hadoop,dc=apache,dc=org");
+    realm.setMemberAttributeValueTemplate("uid={0},ou=people,dc=hadoop,dc=apache,dc=org");
+    realm.setGroupSearchByMember(true);
+    realm.setAuthorizationEnabled(true);
+    realm.setAuthenticationCachingEnabled(true);
+    realm.setAuthorizationCachingEnabled(true);
+    DefaultSecurityManager securityManager = new DefaultSecurityManager(realm);
+    securityManager.setCacheManager(new KnoxCacheManager());
+
+    // Each request of a client without cookies gets a new session.
+    for (int i = 0; i < 2; i++) {
+      Subject subject = new Subject.Builder(securityManager).buildSubject();
+      subject.login(new UsernamePasswordToken("guest", "guest-password"));
+      assertEquals(Collections.singleton("analyst"), groupsSeenByIdentityAdapter(subject));
+    }
+
+    EasyMock.verify(contextFactory);
+  }
+
+  private static Set<String> groupsSeenByIdentityAdapter(Subject subject) throws Exception {
+    final Set<String> groups = new HashSet<String>();
+    final FilterChain chain = new FilterChain() {
+      @Override
+      public void doFilter(ServletRequest request, ServletResponse response) throws IOException, ServletException {
+        javax.security.auth.Subject javaSubject = javax.security.auth.Subject.getSubject(AccessController.getContext());
+        for (GroupPrincipal group : javaSubject.getPrincipals(GroupPrincipal.class)) {
+          groups.add(group.getName());
+        }
+      }
+    };
+    final HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+    final HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+    EasyMock.replay(request, response);
+    subject.execute(new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        new ShiroSubjectIdentityAdapter().doFilter(request, response, chain);
+        return null;
+      }
+    });
+    return groups;
+  }
+
+  private static NamingEnumeration<SearchResult> groupSearchResults(String... groupNames) {
+    final Iterator<String> names = Arrays.asList(groupNames).iterator();
+    return new NamingEnumeration<SearchResult>() {
+      @Override
+      public SearchResult next() {
+        String name = names.next();
+        return new SearchResult("cn=" + name, null, new BasicAttributes("cn", name, true));
+      }
+
+      @Override
+      public boolean hasMore() {
+        return names.hasNext();
+      }
+
+      @Override
+      public void close() {
+      }
+
+      @Override
+      public boolean hasMoreElements() {
+        return hasMore();
+      }
+
+      @Override
+      public SearchResult nextElement() {
+        return next();
+      }
+    };
+  }
+
 }
@@ -30,6 +30,7 @@ import org.apache.hadoop.gateway.audit.log4j.audit.AuditConstants;
 import org.apache.hadoop.gateway.filter.AbstractGatewayFilter;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.hadoop.gateway.i18n.resources.ResourcesFactory;
+import org.apache.hadoop.gateway.util.RequestIdGenerator;
 import org.apache.hadoop.gateway.util.urltemplate.Matcher;
 import org.apache.hadoop.gateway.util.urltemplate.Parser;
 import org.apache.hadoop.gateway.util.urltemplate.Template;
@@ -53,7 +54,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.UUID;
 
 /**
  *
@@ -171,7 +171,7 @@ public class GatewayFilter implements Filter {
       chain.setResourceRole( holder.getResourceRole() );
       chains.add( holder.template, chain );
     }
-    chain.chain.add( holder );
+    chain.add( holder );
   }
 
   public void addFilter( String path, String name, Filter filter, Map<String,String> params, String resourceRole ) throws URISyntaxException {
@@ -191,33 +191,36 @@ public class GatewayFilter implements Filter {
   
   private void assignCorrelationRequestId() {
     CorrelationContext correlationContext = CorrelationServiceFactory.getCorrelationService().createContext();
-    correlationContext.setRequestId( UUID.randomUUID().toString() );
+    correlationContext.setRequestId( RequestIdGenerator.nextRequestId() );
   }
 
   private class Chain implements FilterChain {
 
     private List<Holder> chain;
-    private String resourceRole; 
+    private String resourceRole;
+    // Prebuilt links so that invoking the chain doesn't allocate.  Rebuilt as holders are added.
+    private volatile FilterChain[] links;
 
     private Chain() {
       this.chain = new ArrayList<Holder>();
+      this.links = new FilterChain[ 0 ];
     }
 
-    private Chain( List<Holder> chain ) {
-      this.chain = chain;
-    }
-
-    public void doFilter( ServletRequest servletRequest, ServletResponse servletResponse ) throws IOException, ServletException {
-      if( chain != null && !chain.isEmpty() ) {
-        chain.get( 0 ).doFilter( servletRequest, servletResponse, subChain() );
+    private void add( Holder holder ) {
+      chain.add( holder );
+      FilterChain[] links = new FilterChain[ chain.size() ];
+      FilterChain next = EMPTY_CHAIN;
+      for( int i = links.length - 1; i >= 0; i-- ) {
+        links[ i ] = new Link( chain.get( i ), next );
+        next = links[ i ];
       }
+      this.links = links;
     }
 
-    private FilterChain subChain() {
-      if( chain != null && chain.size() > 1 ) {
-        return new Chain( chain.subList( 1, chain.size() ) );
-      } else {
-        return EMPTY_CHAIN;
+    public void doFilter( ServletRequest servletRequest, ServletResponse servletResponse ) throws IOException, ServletException {
+      FilterChain[] links = this.links;
+      if( links.length > 0 ) {
+        links[ 0 ].doFilter( servletRequest, servletResponse );
       }
     }
 
@@ -231,6 +234,22 @@ public class GatewayFilter implements Filter {
 
   }
 
+  private static class Link implements FilterChain {
+
+    private Filter filter;
+    private FilterChain next;
+
+    private Link( Filter filter, FilterChain next ) {
+      this.filter = filter;
+      this.next = next;
+    }
+
+    public void doFilter( ServletRequest servletRequest, ServletResponse servletResponse ) throws IOException, ServletException {
+      filter.doFilter( servletRequest, servletResponse, next );
+    }
+
+  }
+
   private class Holder implements Filter, FilterConfig {
 //    private String path;
     private Template template;
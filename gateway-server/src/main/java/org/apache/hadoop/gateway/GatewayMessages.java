@@ -48,6 +48,15 @@ public interface GatewayMessages {
   @Message( level = MessageLevel.INFO, text = "Started gateway on port {0}." )
   void startedGateway( int port );
 
+  @Message( level = MessageLevel.INFO, text = "Starting connector for topology {0} on port {1}." )
+  void startingTopologyConnector( String topologyName, int port );
+
+  @Message( level = MessageLevel.WARN, text = "Ignoring port mapping for topology {0}, port {1} is already in use by the gateway." )
+  void ignoringTopologyPortMapping( String topologyName, int port );
+
+  @Message( level = MessageLevel.WARN, text = "Ignoring port mapping for topology {0}, {1} is not a valid port." )
+  void invalidTopologyPortMapping( String topologyName, String port );
+
   @Message( level = MessageLevel.INFO, text = "Stopping gateway..." )
   void stoppingGateway();
 
@@ -316,4 +325,43 @@ public interface GatewayMessages {
   @Message( level = MessageLevel.WARN, text = "Value not found for cluster:{0}, alias: {1}" )
   void aliasValueNotFound( String cluster, String alias );
 
+  @Message( level = MessageLevel.INFO, text = "Creating connection pool for cluster {0} with max total connections {1} and max connections per route {2}." )
+  void creatingConnectionPoolForCluster( String clusterName, int maxTotal, int maxPerRoute );
+
+  @Message( level = MessageLevel.INFO, text = "Removing connection pool for cluster {0}." )
+  void removingConnectionPoolForCluster( String clusterName );
+
+  @Message( level = MessageLevel.WARN, text = "Invalid value {1} for connection pool param {0}, using default {2}." )
+  void invalidConnectionPoolParam( String name, String value, long defaultValue );
+
+  @Message( level = MessageLevel.WARN, text = "Failed to evict stale pooled connections: {0}" )
+  void failedToEvictPooledConnections( @StackTrace( level = MessageLevel.DEBUG ) Exception e );
+
+  @Message( level = MessageLevel.WARN, text = "Dispatch request timed out: {0}" )
+  void dispatchTimedOut( URI uri );
+
+  @Message( level = MessageLevel.ERROR, text = "Failed to start asynchronous dispatch client: {0}" )
+  void failedToStartAsyncDispatchClient( @StackTrace( level = MessageLevel.DEBUG ) Exception e );
+
+  @Message( level = MessageLevel.WARN, text = "Failed to stop asynchronous dispatch client: {0}" )
+  void failedToStopAsyncDispatchClient( @StackTrace( level = MessageLevel.DEBUG ) Exception e );
+
+  @Message( level = MessageLevel.WARN, text = "Invalid value {1} for asynchronous dispatch param {0}, using default {2}." )
+  void invalidAsyncDispatchParam( String name, String value, long defaultValue );
+
+  @Message( level = MessageLevel.WARN, text = "Asynchronous dispatch does not support Kerberos secured clusters, using synchronous dispatch for service {0}." )
+  void asyncDispatchNotSupportedForKerberos( String role );
+
+  @Message( level = MessageLevel.WARN, text = "Failed to write the dispatch response for {0} to the client: {1}" )
+  void failedToWriteDispatchResponse( URI uri, @StackTrace( level = MessageLevel.DEBUG ) Exception e );
+
+  @Message( level = MessageLevel.WARN, text = "Failed to resolve the token signing keys, signing and verification will use the keystore directly: {0}" )
+  void failedToResolveTokenSigningKeys( @StackTrace( level = MessageLevel.DEBUG ) Exception e );
+
+  @Message( level = MessageLevel.DEBUG, text = "Found {1} LDAP groups for user {0} in {2}ms, group cache hits {3} misses {4}" )
+  void foundLdapGroupsForUser( String userName, int groupCount, long elapsed, long cacheHits, long cacheMisses );
+
+  @Message( level = MessageLevel.DEBUG, text = "Using {1} cached LDAP groups for user {0}, group cache hits {2} misses {3}" )
+  void usingCachedLdapGroupsForUser( String userName, int groupCount, long cacheHits, long cacheMisses );
+
 }
@@ -34,6 +34,7 @@ import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.hadoop.gateway.i18n.resources.ResourcesFactory;
 import org.apache.hadoop.gateway.services.GatewayServices;
 import org.apache.hadoop.gateway.services.ServiceLifecycleException;
+import org.apache.hadoop.gateway.services.http.HttpClientService;
 import org.apache.hadoop.gateway.services.registry.ServiceRegistry;
 import org.apache.hadoop.gateway.services.security.SSLService;
 import org.apache.hadoop.gateway.topology.Topology;
@@ -41,10 +42,13 @@ import org.apache.hadoop.gateway.topology.TopologyEvent;
 import org.apache.hadoop.gateway.topology.TopologyListener;
 import org.apache.hadoop.gateway.topology.file.FileTopologyProvider;
 import org.apache.log4j.PropertyConfigurator;
+import org.eclipse.jetty.server.AbstractConnector;
 import org.eclipse.jetty.server.Connector;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.handler.ContextHandlerCollection;
 import org.eclipse.jetty.server.handler.ErrorHandler;
+import org.eclipse.jetty.server.nio.SelectChannelConnector;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.eclipse.jetty.webapp.WebAppContext;
 import org.jboss.shrinkwrap.api.exporter.ExplodedExporter;
 import org.jboss.shrinkwrap.api.spec.WebArchive;
@@ -68,6 +72,9 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 public class GatewayServer {
+  private static final String GATEWAY_CONNECTOR_NAME = "gateway";
+  private static final String TOPOLOGY_CONNECTOR_PREFIX = "topology:";
+
   private static GatewayResources res = ResourcesFactory.get( GatewayResources.class );
   private static GatewayMessages log = MessagesFactory.get( GatewayMessages.class );
   private static Auditor auditor = AuditServiceFactory.getAuditService().getAuditor( AuditConstants.DEFAULT_AUDITOR_NAME,
@@ -84,6 +91,7 @@ public class GatewayServer {
   private FileTopologyProvider monitor;
   private TopologyListener listener;
   private Map<String, WebAppContext> deployments;
+  private Map<String, Integer> topologyPorts;
 
   public static void main( String[] args ) {
     try {
@@ -304,19 +312,24 @@ public class GatewayServer {
     checkAddressAvailability( address );
 
     // Start Jetty.
-    if (config.isSSLEnabled()) {
-      jetty = new Server();
-    }
-    else {
-      jetty = new Server(address);
-    }
-    if (config.isSSLEnabled()) {
-      SSLService ssl = services.getService("SSLService");
-      String keystoreFileName = config.getGatewaySecurityDir() + File.separatorChar + "keystores" + File.separatorChar + "gateway.jks";
-      Connector connector = (Connector) ssl.buildSSlConnector( keystoreFileName );
-      connector.setHost(address.getHostName());
-      connector.setPort(address.getPort());
-      jetty.addConnector(connector);
+    jetty = new Server();
+    jetty.setThreadPool( createThreadPool() );
+    jetty.addConnector( createConnector( GATEWAY_CONNECTOR_NAME, address ) );
+
+    // Add a connector for each topology that is mapped to a port of its own.
+    topologyPorts = new HashMap<String, Integer>();
+    for( Map.Entry<String, Integer> mapping : config.getGatewayPortMappings().entrySet() ) {
+      String topologyName = mapping.getKey();
+      int port = mapping.getValue();
+      if( port == address.getPort() || topologyPorts.containsValue( port ) ) {
+        log.ignoringTopologyPortMapping( topologyName, port );
+        continue;
+      }
+      InetSocketAddress topologyAddress = new InetSocketAddress( address.getAddress(), port );
+      checkAddressAvailability( topologyAddress );
+      log.startingTopologyConnector( topologyName, port );
+      jetty.addConnector( createConnector( TOPOLOGY_CONNECTOR_PREFIX + topologyName, topologyAddress ) );
+      topologyPorts.put( topologyName, port );
     }
     jetty.setHandler( contexts );
     try {
@@ -341,6 +354,39 @@ public class GatewayServer {
     monitor.startMonitor();
   }
 
+  private QueuedThreadPool createThreadPool() {
+    QueuedThreadPool pool = new QueuedThreadPool();
+    pool.setName( "gateway" );
+    pool.setMaxThreads( Math.max( config.getHttpServerMinThreads(), config.getHttpServerMaxThreads() ) );
+    pool.setMinThreads( config.getHttpServerMinThreads() );
+    pool.setMaxIdleTimeMs( config.getHttpServerThreadIdleTimeout() );
+    return pool;
+  }
+
+  private Connector createConnector( String name, InetSocketAddress address ) {
+    AbstractConnector connector;
+    if( config.isSSLEnabled() ) {
+      SSLService ssl = services.getService( "SSLService" );
+      String keystoreFileName = config.getGatewaySecurityDir() + File.separatorChar + "keystores" + File.separatorChar + "gateway.jks";
+      connector = (AbstractConnector)ssl.buildSSlConnector( keystoreFileName );
+    } else {
+      connector = new SelectChannelConnector();
+    }
+    connector.setName( name );
+    connector.setHost( address.getHostName() );
+    connector.setPort( address.getPort() );
+    if( config.getHttpServerAcceptors() > 0 ) {
+      connector.setAcceptors( config.getHttpServerAcceptors() );
+    }
+    connector.setAcceptQueueSize( config.getHttpServerAcceptQueueSize() );
+    connector.setMaxIdleTime( config.getHttpServerIdleTimeout() );
+    connector.setRequestHeaderSize( config.getHttpServerRequestHeaderBuffer() );
+    connector.setResponseHeaderSize( config.getHttpServerResponseHeaderBuffer() );
+    connector.setRequestBufferSize( config.getHttpServerRequestBuffer() );
+    connector.setResponseBufferSize( config.getHttpServerResponseBuffer() );
+    return connector;
+  }
+
   public synchronized void stop() throws Exception {
     log.stoppingGateway();
     services.stop();
@@ -374,6 +420,15 @@ public class GatewayServer {
     context.setContextPath( "/" + config.getGatewayPath() + "/" + name );
     context.setWar( warPath );
     context.setErrorHandler(errorHandler);
+    // With topology connectors a context is served by the gateway connector
+    // and its own topology connector but not by those of other topologies.
+    if( !topologyPorts.isEmpty() ) {
+      if( topologyPorts.containsKey( name ) ) {
+        context.setConnectorNames( new String[]{ GATEWAY_CONNECTOR_NAME, TOPOLOGY_CONNECTOR_PREFIX + name } );
+      } else {
+        context.setConnectorNames( new String[]{ GATEWAY_CONNECTOR_NAME } );
+      }
+    }
     // internalUndeploy( topology ); KNOX-152
     context.setAttribute( GatewayServices.GATEWAY_CLUSTER_ATTRIBUTE, name );
     deployments.put( name, context );
@@ -398,6 +453,10 @@ public class GatewayServer {
       } catch( Exception e ) {
         log.failedToUndeployTopology( topology.getName(), e );
       }
+      HttpClientService hc = getGatewayServices().getService(GatewayServices.HTTP_CLIENT_SERVICE);
+      if (hc != null) {
+        hc.removeConnectionManager(topology.getName());
+      }
     }
   }
 
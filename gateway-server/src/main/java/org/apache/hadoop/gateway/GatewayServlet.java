@@ -19,8 +19,13 @@ package org.apache.hadoop.gateway;
 
 import org.apache.hadoop.gateway.audit.api.Action;
 import org.apache.hadoop.gateway.audit.api.ActionOutcome;
+import org.apache.hadoop.gateway.audit.api.AuditContext;
+import org.apache.hadoop.gateway.audit.api.AuditService;
 import org.apache.hadoop.gateway.audit.api.AuditServiceFactory;
 import org.apache.hadoop.gateway.audit.api.Auditor;
+import org.apache.hadoop.gateway.audit.api.CorrelationContext;
+import org.apache.hadoop.gateway.audit.api.CorrelationService;
+import org.apache.hadoop.gateway.audit.api.CorrelationServiceFactory;
 import org.apache.hadoop.gateway.audit.api.ResourceType;
 import org.apache.hadoop.gateway.audit.log4j.audit.AuditConstants;
 import org.apache.hadoop.gateway.descriptor.GatewayDescriptor;
@@ -30,6 +35,8 @@ import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.hadoop.gateway.i18n.resources.ResourcesFactory;
 import org.apache.hadoop.gateway.services.GatewayServices;
 
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.Filter;
 import javax.servlet.FilterConfig;
 import javax.servlet.Servlet;
@@ -54,9 +61,10 @@ public class GatewayServlet implements Servlet {
   private static final GatewayResources res = ResourcesFactory.get( GatewayResources.class );
   private static final GatewayMessages LOG = MessagesFactory.get( GatewayMessages.class );
   
-  private static Auditor auditor = AuditServiceFactory.getAuditService()
-      .getAuditor( AuditConstants.DEFAULT_AUDITOR_NAME,
-          AuditConstants.KNOX_SERVICE_NAME, AuditConstants.KNOX_COMPONENT_NAME );
+  private static AuditService auditService = AuditServiceFactory.getAuditService();
+  private static CorrelationService correlationService = CorrelationServiceFactory.getCorrelationService();
+  private static Auditor auditor = auditService.getAuditor( AuditConstants.DEFAULT_AUDITOR_NAME,
+      AuditConstants.KNOX_SERVICE_NAME, AuditConstants.KNOX_COMPONENT_NAME );
 
   private FilterConfigAdapter filterConfig;
   private volatile GatewayFilter filter;
@@ -126,7 +134,16 @@ public class GatewayServlet implements Servlet {
       ((HttpServletResponse)servletResponse).setStatus( HttpServletResponse.SC_SERVICE_UNAVAILABLE );
     }
     String requestUri = (String)servletRequest.getAttribute( AbstractGatewayFilter.SOURCE_REQUEST_CONTEXT_URL_ATTRIBUTE_NAME );
-    int status = ((HttpServletResponse)servletResponse).getStatus();
+    HttpServletResponse httpResponse = (HttpServletResponse)servletResponse;
+    if( servletRequest.isAsyncStarted() ) {
+      // The final status of an asynchronous dispatch is only known once the exchange completes.
+      servletRequest.getAsyncContext().addListener( new AccessAuditListener( requestUri, httpResponse ) );
+    } else {
+      auditAccess( requestUri, httpResponse.getStatus() );
+    }
+  }
+
+  private static void auditAccess( String requestUri, int status ) {
     auditor.audit( Action.ACCESS, requestUri, ResourceType.URI, ActionOutcome.SUCCESS, res.responseStatus( status ) );
   }
 
@@ -172,6 +189,47 @@ public class GatewayServlet implements Servlet {
     return filter;
   }
 
+  private static class AccessAuditListener implements AsyncListener {
+
+    private String requestUri;
+    private HttpServletResponse response;
+    private AuditContext auditContext;
+    private CorrelationContext correlationContext;
+
+    private AccessAuditListener( String requestUri, HttpServletResponse response ) {
+      this.requestUri = requestUri;
+      this.response = response;
+      // Completion is reported on whichever thread finishes the exchange so carry the request's contexts.
+      this.auditContext = auditService.getContext();
+      this.correlationContext = correlationService.getContext();
+    }
+
+    @Override
+    public void onComplete( AsyncEvent event ) throws IOException {
+      auditService.attachContext( auditContext );
+      correlationService.attachContext( correlationContext );
+      try {
+        auditAccess( requestUri, response.getStatus() );
+      } finally {
+        auditService.detachContext();
+        correlationService.detachContext();
+      }
+    }
+
+    @Override
+    public void onTimeout( AsyncEvent event ) throws IOException {
+    }
+
+    @Override
+    public void onError( AsyncEvent event ) throws IOException {
+    }
+
+    @Override
+    public void onStartAsync( AsyncEvent event ) throws IOException {
+    }
+
+  }
+
   private class FilterConfigAdapter implements FilterConfig {
 
     private ServletConfig config;
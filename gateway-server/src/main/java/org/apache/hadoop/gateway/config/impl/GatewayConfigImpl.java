@@ -28,6 +28,7 @@ import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.UnknownHostException;
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -95,10 +96,33 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
   public static final String DEPLOYMENT_DIR = GATEWAY_CONFIG_FILE_PREFIX + ".deployment.dir";
   public static final String HADOOP_CONF_DIR = GATEWAY_CONFIG_FILE_PREFIX + ".hadoop.conf.dir";
 //  public static final String SHIRO_CONFIG_FILE = GATEWAY_CONFIG_FILE_PREFIX + ".shiro.config.file";
+  public static final String HTTP_SERVER_MIN_THREADS = GATEWAY_CONFIG_FILE_PREFIX + ".httpserver.threads.min";
+  public static final String HTTP_SERVER_MAX_THREADS = GATEWAY_CONFIG_FILE_PREFIX + ".httpserver.threads.max";
+  public static final String HTTP_SERVER_THREAD_IDLE_TIMEOUT = GATEWAY_CONFIG_FILE_PREFIX + ".httpserver.threads.idle.timeout";
+  public static final String HTTP_SERVER_ACCEPTORS = GATEWAY_CONFIG_FILE_PREFIX + ".httpserver.acceptors";
+  public static final String HTTP_SERVER_ACCEPT_QUEUE_SIZE = GATEWAY_CONFIG_FILE_PREFIX + ".httpserver.accept.queue.size";
+  public static final String HTTP_SERVER_IDLE_TIMEOUT = GATEWAY_CONFIG_FILE_PREFIX + ".httpserver.idle.timeout";
+  public static final String HTTP_SERVER_REQUEST_HEADER_BUFFER = GATEWAY_CONFIG_FILE_PREFIX + ".httpserver.request.header.buffer";
+  public static final String HTTP_SERVER_RESPONSE_HEADER_BUFFER = GATEWAY_CONFIG_FILE_PREFIX + ".httpserver.response.header.buffer";
+  public static final String HTTP_SERVER_REQUEST_BUFFER = GATEWAY_CONFIG_FILE_PREFIX + ".httpserver.request.buffer";
+  public static final String HTTP_SERVER_RESPONSE_BUFFER = GATEWAY_CONFIG_FILE_PREFIX + ".httpserver.response.buffer";
+  public static final String GATEWAY_PORT_MAPPING_PREFIX = GATEWAY_CONFIG_FILE_PREFIX + ".port.mapping.";
 
   public static final String DEFAULT_HTTP_PORT = "8888";
   public static final String DEFAULT_HTTP_PATH = "gateway";
   public static final String DEFAULT_DEPLOYMENT_DIR = "deployments";
+  // Sized for thousands of mostly idle connections, the NIO connectors only
+  // need a thread while a request is being handled.
+  public static final int DEFAULT_HTTP_SERVER_MIN_THREADS = 16;
+  public static final int DEFAULT_HTTP_SERVER_MAX_THREADS = 512;
+  public static final int DEFAULT_HTTP_SERVER_THREAD_IDLE_TIMEOUT = 60 * 1000;
+  public static final int DEFAULT_HTTP_SERVER_ACCEPTORS = -1;
+  public static final int DEFAULT_HTTP_SERVER_ACCEPT_QUEUE_SIZE = 1024;
+  public static final int DEFAULT_HTTP_SERVER_IDLE_TIMEOUT = 200 * 1000;
+  public static final int DEFAULT_HTTP_SERVER_REQUEST_HEADER_BUFFER = 8 * 1024;
+  public static final int DEFAULT_HTTP_SERVER_RESPONSE_HEADER_BUFFER = 8 * 1024;
+  public static final int DEFAULT_HTTP_SERVER_REQUEST_BUFFER = 16 * 1024;
+  public static final int DEFAULT_HTTP_SERVER_RESPONSE_BUFFER = 32 * 1024;
   private static final String SSL_ENABLED = "ssl.enabled";
 //  public static final String DEFAULT_SHIRO_CONFIG_FILE = "shiro.ini";
   
@@ -312,5 +336,81 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
   public String getKerberosLoginConfig() {
     return get( KRB5_LOGIN_CONFIG );
   }
+
+  @Override
+  public int getHttpServerMinThreads() {
+    return getInt( HTTP_SERVER_MIN_THREADS, DEFAULT_HTTP_SERVER_MIN_THREADS );
+  }
+
+  @Override
+  public int getHttpServerMaxThreads() {
+    return getInt( HTTP_SERVER_MAX_THREADS, DEFAULT_HTTP_SERVER_MAX_THREADS );
+  }
+
+  @Override
+  public int getHttpServerThreadIdleTimeout() {
+    return getInt( HTTP_SERVER_THREAD_IDLE_TIMEOUT, DEFAULT_HTTP_SERVER_THREAD_IDLE_TIMEOUT );
+  }
+
+  @Override
+  public int getHttpServerAcceptors() {
+    return getInt( HTTP_SERVER_ACCEPTORS, DEFAULT_HTTP_SERVER_ACCEPTORS );
+  }
+
+  @Override
+  public int getHttpServerAcceptQueueSize() {
+    return getInt( HTTP_SERVER_ACCEPT_QUEUE_SIZE, DEFAULT_HTTP_SERVER_ACCEPT_QUEUE_SIZE );
+  }
+
+  @Override
+  public int getHttpServerIdleTimeout() {
+    return getInt( HTTP_SERVER_IDLE_TIMEOUT, DEFAULT_HTTP_SERVER_IDLE_TIMEOUT );
+  }
+
+  @Override
+  public int getHttpServerRequestHeaderBuffer() {
+    return getInt( HTTP_SERVER_REQUEST_HEADER_BUFFER, DEFAULT_HTTP_SERVER_REQUEST_HEADER_BUFFER );
+  }
+
+  @Override
+  public int getHttpServerResponseHeaderBuffer() {
+    return getInt( HTTP_SERVER_RESPONSE_HEADER_BUFFER, DEFAULT_HTTP_SERVER_RESPONSE_HEADER_BUFFER );
+  }
+
+  @Override
+  public int getHttpServerRequestBuffer() {
+    return getInt( HTTP_SERVER_REQUEST_BUFFER, DEFAULT_HTTP_SERVER_REQUEST_BUFFER );
+  }
+
+  @Override
+  public int getHttpServerResponseBuffer() {
+    return getInt( HTTP_SERVER_RESPONSE_BUFFER, DEFAULT_HTTP_SERVER_RESPONSE_BUFFER );
+  }
+
+  @Override
+  public Map<String, Integer> getGatewayPortMappings() {
+    Map<String, Integer> mappings = new HashMap<String, Integer>();
+    for( Map.Entry<String, String> e : this ) {
+      String name = e.getKey();
+      if( name.startsWith( GATEWAY_PORT_MAPPING_PREFIX ) && name.length() > GATEWAY_PORT_MAPPING_PREFIX.length() ) {
+        String topologyName = name.substring( GATEWAY_PORT_MAPPING_PREFIX.length() );
+        String value = get( name );
+        int port = 0;
+        if( value != null ) {
+          try {
+            port = Integer.parseInt( value.trim() );
+          } catch( NumberFormatException nfe ) {
+            // Rejected with the ports that are out of range below.
+          }
+        }
+        if( port >= 1 && port <= 65535 ) {
+          mappings.put( topologyName, port );
+        } else {
+          log.invalidTopologyPortMapping( topologyName, value );
+        }
+      }
+    }
+    return mappings;
+  }
   
 }
@@ -33,6 +33,9 @@ import java.util.Map;
 
 public class DeploymentContextImpl implements DeploymentContext {
 
+  private static final String DISPATCH_ROLE = "dispatch";
+  private static final String DISPATCH_PARAM = "dispatch";
+
   private GatewayConfig gatewayConfig;
   private Topology topology;
   private GatewayDescriptor gatewayDescriptor;
@@ -116,6 +119,13 @@ public class DeploymentContextImpl implements DeploymentContext {
       String role,
       String name,
       List<FilterParamDescriptor> params ) {
+    // Allow the dispatch implementation to be selected per service in the topology.
+    if( DISPATCH_ROLE.equals( role ) && service != null && service.getParams() != null ) {
+      String dispatch = service.getParams().get( DISPATCH_PARAM );
+      if( dispatch != null ) {
+        name = dispatch;
+      }
+    }
     ProviderDeploymentContributor contributor = DeploymentFactory.getProviderContributor( providers, role, name );
     Provider provider = getTopology().getProvider( role, name );
 //    if( provider != null ) {
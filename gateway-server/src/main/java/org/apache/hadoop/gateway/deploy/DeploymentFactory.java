@@ -316,6 +316,9 @@ public abstract class DeploymentFactory {
       servlet.createInitParam()
           .paramName( GatewayServlet.GATEWAY_DESCRIPTOR_LOCATION_PARAM )
           .paramValue( GatewayServlet.GATEWAY_DESCRIPTOR_LOCATION_DEFAULT );
+      // Async support is required by the asynchronous dispatch.
+      // This must follow the init params to keep the web.xml elements in schema order.
+      servlet.asyncSupported( true );
 
       if (gatewayServices != null) {
         gatewayServices.finalizeContribution(context);
@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.deploy.impl;
+
+import org.apache.hadoop.gateway.GatewayMessages;
+import org.apache.hadoop.gateway.deploy.DeploymentContext;
+import org.apache.hadoop.gateway.deploy.ProviderDeploymentContributorBase;
+import org.apache.hadoop.gateway.descriptor.FilterDescriptor;
+import org.apache.hadoop.gateway.descriptor.FilterParamDescriptor;
+import org.apache.hadoop.gateway.descriptor.ResourceDescriptor;
+import org.apache.hadoop.gateway.dispatch.AbstractGatewayDispatch;
+import org.apache.hadoop.gateway.dispatch.AsyncHttpClientDispatch;
+import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
+import org.apache.hadoop.gateway.services.http.HttpClientService;
+import org.apache.hadoop.gateway.topology.Provider;
+import org.apache.hadoop.gateway.topology.Service;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Contributes the asynchronous dispatch.  A service selects it in the topology with
+ * a service param named dispatch with the value async.
+ */
+public class AsyncDispatchDeploymentContributor extends ProviderDeploymentContributorBase {
+
+  private static GatewayMessages log = MessagesFactory.get( GatewayMessages.class );
+
+  private static final List<String> CLIENT_PARAMS = Arrays.asList(
+      AsyncHttpClientDispatch.MAX_CONNECTIONS_PER_ADDRESS_PARAM,
+      AsyncHttpClientDispatch.IDLE_TIMEOUT_PARAM,
+      AsyncHttpClientDispatch.EXCHANGE_TIMEOUT_PARAM,
+      AsyncHttpClientDispatch.REQUEST_BUFFER_SIZE_PARAM,
+      AsyncHttpClientDispatch.WRITER_THREADS_PARAM );
+
+  @Override
+  public String getRole() {
+    return "dispatch";
+  }
+
+  @Override
+  public String getName() {
+    return "async";
+  }
+
+  @Override
+  public void contributeFilter( DeploymentContext context, Provider provider, Service service, ResourceDescriptor resource, List<FilterParamDescriptor> params ) {
+    // The async client can't do SPNego so fall back to the synchronous dispatch for secure clusters.
+    if( context.getGatewayConfig().isHadoopKerberosSecured() ) {
+      log.asyncDispatchNotSupportedForKerberos( service.getRole() );
+      new DispatchDeploymentContributor().contributeFilter( context, provider, service, resource, params );
+      return;
+    }
+    FilterDescriptor filter = resource.addFilter().name( getName() ).role( getRole() ).impl( AsyncHttpClientDispatch.class );
+    String responseBufferSize = service.getParams().get( AbstractGatewayDispatch.RESPONSE_BUFFER_SIZE_PARAM );
+    if( responseBufferSize != null ) {
+      filter.param().name( AbstractGatewayDispatch.RESPONSE_BUFFER_SIZE_PARAM ).value( responseBufferSize );
+    }
+    for( String name : CLIENT_PARAMS ) {
+      String value = provider.getParams().get( name );
+      if( value != null ) {
+        filter.param().name( name ).value( value );
+      }
+    }
+    // Large request bodies are streamed by the pooled synchronous dispatch.
+    for( String name : HttpClientService.CONNECTION_POOL_PARAMS ) {
+      String value = provider.getParams().get( name );
+      if( value != null ) {
+        filter.param().name( name ).value( value );
+      }
+    }
+  }
+
+}
@@ -19,9 +19,12 @@ package org.apache.hadoop.gateway.deploy.impl;
 
 import org.apache.hadoop.gateway.deploy.DeploymentContext;
 import org.apache.hadoop.gateway.deploy.ProviderDeploymentContributorBase;
+import org.apache.hadoop.gateway.descriptor.FilterDescriptor;
 import org.apache.hadoop.gateway.descriptor.FilterParamDescriptor;
 import org.apache.hadoop.gateway.descriptor.ResourceDescriptor;
+import org.apache.hadoop.gateway.dispatch.AbstractGatewayDispatch;
 import org.apache.hadoop.gateway.dispatch.HdfsDispatch;
+import org.apache.hadoop.gateway.services.http.HttpClientService;
 import org.apache.hadoop.gateway.topology.Provider;
 import org.apache.hadoop.gateway.topology.Service;
 
@@ -41,7 +44,17 @@ public class WebHdfsDispatchDeploymentContributor extends ProviderDeploymentCont
 
   @Override
   public void contributeFilter( DeploymentContext context, Provider provider, Service service, ResourceDescriptor resource, List<FilterParamDescriptor> params ) {
-    resource.addFilter().role( getRole() ).name( getName() ).impl( HdfsDispatch.class );
+    FilterDescriptor filter = resource.addFilter().role( getRole() ).name( getName() ).impl( HdfsDispatch.class );
+    String responseBufferSize = service.getParams().get( AbstractGatewayDispatch.RESPONSE_BUFFER_SIZE_PARAM );
+    if( responseBufferSize != null ) {
+      filter.param().name( AbstractGatewayDispatch.RESPONSE_BUFFER_SIZE_PARAM ).value( responseBufferSize );
+    }
+    for (String name : HttpClientService.CONNECTION_POOL_PARAMS) {
+      String value = provider.getParams().get(name);
+      if (value != null) {
+        filter.param().name(name).value(value);
+      }
+    }
   }
 
 }
@@ -0,0 +1,564 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.dispatch;
+
+import org.apache.hadoop.gateway.GatewayMessages;
+import org.apache.hadoop.gateway.GatewayResources;
+import org.apache.hadoop.gateway.audit.api.Action;
+import org.apache.hadoop.gateway.audit.api.ActionOutcome;
+import org.apache.hadoop.gateway.audit.api.AuditContext;
+import org.apache.hadoop.gateway.audit.api.AuditService;
+import org.apache.hadoop.gateway.audit.api.AuditServiceFactory;
+import org.apache.hadoop.gateway.audit.api.Auditor;
+import org.apache.hadoop.gateway.audit.api.CorrelationContext;
+import org.apache.hadoop.gateway.audit.api.CorrelationService;
+import org.apache.hadoop.gateway.audit.api.CorrelationServiceFactory;
+import org.apache.hadoop.gateway.audit.api.ResourceType;
+import org.apache.hadoop.gateway.audit.log4j.audit.AuditConstants;
+import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
+import org.apache.hadoop.gateway.i18n.resources.ResourcesFactory;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.HttpExchange;
+import org.eclipse.jetty.io.Buffer;
+import org.eclipse.jetty.io.ByteArrayBuffer;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A dispatch that releases the container thread while waiting on the backend.
+ * The request is suspended using Servlet 3 async support and the backend call is made with
+ * the non-blocking Jetty client.  Request bodies up to the request buffer size are read on
+ * the container thread before the request is suspended, larger or unsized bodies are handed
+ * to the synchronous dispatch.  Response content is handed from the client's threads to a
+ * small writer pool through a bounded per exchange buffer so a slow client never blocks the
+ * client's selector.  Dispatches configured with the same client settings share a client.
+ */
+public class AsyncHttpClientDispatch extends AbstractGatewayDispatch {
+
+  public static final String MAX_CONNECTIONS_PER_ADDRESS_PARAM = "maxConnectionsPerAddress";
+  public static final String IDLE_TIMEOUT_PARAM = "idleTimeout";
+  public static final String EXCHANGE_TIMEOUT_PARAM = "exchangeTimeout";
+  public static final String REQUEST_BUFFER_SIZE_PARAM = "requestBufferSize";
+  public static final String WRITER_THREADS_PARAM = "writerThreads";
+
+  static final int DEFAULT_MAX_CONNECTIONS_PER_ADDRESS = 256;
+  static final long DEFAULT_IDLE_TIMEOUT = 60 * 1000L; // One minute.
+  static final long DEFAULT_EXCHANGE_TIMEOUT = 60 * 60 * 1000L; // One hour.
+  static final int DEFAULT_REQUEST_BUFFER_SIZE = 64 * 1024; // 64K
+  static final int DEFAULT_WRITER_THREADS = 32;
+
+  // The most response content an exchange may buffer before the client thread waits for the writer.
+  static final int MAX_PENDING_RESPONSE_BYTES = 256 * 1024; // 256K
+
+  private static final String SET_COOKIE = "Set-Cookie";
+  private static final String WWW_AUTHENTICATE = "WWW-Authenticate";
+  private static final String CONTENT_TYPE = "Content-Type";
+  private static final String CONTENT_LENGTH = "Content-Length";
+
+  private static GatewayMessages LOG = MessagesFactory.get( GatewayMessages.class );
+  private static GatewayResources RES = ResourcesFactory.get( GatewayResources.class );
+  private static AuditService auditService = AuditServiceFactory.getAuditService();
+  private static CorrelationService correlationService = CorrelationServiceFactory.getCorrelationService();
+  private static Auditor auditor = auditService.getAuditor( AuditConstants.DEFAULT_AUDITOR_NAME,
+      AuditConstants.KNOX_SERVICE_NAME, AuditConstants.KNOX_COMPONENT_NAME );
+
+  // Shared clients keyed by their settings so no dispatch silently runs with another's configuration.
+  private static final Map<String,SharedClient> sharedClients = new HashMap<String,SharedClient>();
+
+  private SharedClient client;
+  private HttpClientDispatch streamingDispatch;
+  private long exchangeTimeout = DEFAULT_EXCHANGE_TIMEOUT;
+  private int requestBufferSize = DEFAULT_REQUEST_BUFFER_SIZE;
+
+  @Override
+  public void init( FilterConfig filterConfig ) throws ServletException {
+    super.init( filterConfig );
+    int maxConnections = (int)getLongParam( filterConfig, MAX_CONNECTIONS_PER_ADDRESS_PARAM, DEFAULT_MAX_CONNECTIONS_PER_ADDRESS );
+    long idleTimeout = getLongParam( filterConfig, IDLE_TIMEOUT_PARAM, DEFAULT_IDLE_TIMEOUT );
+    int writerThreads = (int)getLongParam( filterConfig, WRITER_THREADS_PARAM, DEFAULT_WRITER_THREADS );
+    exchangeTimeout = getLongParam( filterConfig, EXCHANGE_TIMEOUT_PARAM, DEFAULT_EXCHANGE_TIMEOUT );
+    requestBufferSize = (int)getLongParam( filterConfig, REQUEST_BUFFER_SIZE_PARAM, DEFAULT_REQUEST_BUFFER_SIZE );
+    streamingDispatch = new HttpClientDispatch();
+    streamingDispatch.init( filterConfig );
+    client = acquireClient( maxConnections, idleTimeout, writerThreads );
+  }
+
+  @Override
+  public void destroy() {
+    if( client != null ) {
+      releaseClient( client );
+      client = null;
+    }
+    if( streamingDispatch != null ) {
+      streamingDispatch.destroy();
+      streamingDispatch = null;
+    }
+    super.destroy();
+  }
+
+  private static long getLongParam( FilterConfig filterConfig, String name, long defaultValue ) {
+    long value = defaultValue;
+    String string = filterConfig.getInitParameter( name );
+    if( string != null ) {
+      try {
+        value = Long.parseLong( string.trim() );
+      } catch( NumberFormatException e ) {
+        LOG.invalidAsyncDispatchParam( name, string, defaultValue );
+      }
+    }
+    return value;
+  }
+
+  private static SharedClient acquireClient( int maxConnections, long idleTimeout, int writerThreads ) throws ServletException {
+    String key = maxConnections + ":" + idleTimeout + ":" + writerThreads;
+    synchronized( sharedClients ) {
+      SharedClient shared = sharedClients.get( key );
+      if( shared == null ) {
+        HttpClient created = new HttpClient();
+        created.setConnectorType( HttpClient.CONNECTOR_SELECT_CHANNEL );
+        created.setMaxConnectionsPerAddress( maxConnections );
+        created.setIdleTimeout( idleTimeout );
+        try {
+          created.start();
+        } catch( Exception e ) {
+          LOG.failedToStartAsyncDispatchClient( e );
+          throw new ServletException( e );
+        }
+        shared = new SharedClient( key, created, Executors.newFixedThreadPool( writerThreads, new WriterThreadFactory() ) );
+        sharedClients.put( key, shared );
+      }
+      shared.references++;
+      return shared;
+    }
+  }
+
+  private static void releaseClient( SharedClient shared ) {
+    synchronized( sharedClients ) {
+      shared.references--;
+      if( shared.references <= 0 ) {
+        sharedClients.remove( shared.key );
+        try {
+          shared.client.stop();
+        } catch( Exception e ) {
+          LOG.failedToStopAsyncDispatchClient( e );
+        }
+        shared.writers.shutdown();
+      }
+    }
+  }
+
+  static int getSharedClientCount() {
+    synchronized( sharedClients ) {
+      return sharedClients.size();
+    }
+  }
+
+  @Override
+  public void doGet( URI url, HttpServletRequest request, HttpServletResponse response )
+      throws IOException, URISyntaxException {
+    executeRequest( "GET", url, request, response, null );
+  }
+
+  @Override
+  public void doOptions( URI url, HttpServletRequest request, HttpServletResponse response )
+      throws IOException, URISyntaxException {
+    executeRequest( "OPTIONS", url, request, response, null );
+  }
+
+  @Override
+  public void doPut( URI url, HttpServletRequest request, HttpServletResponse response )
+      throws IOException, URISyntaxException {
+    byte[] entity = readBufferedEntity( request );
+    if( entity == null ) {
+      streamingDispatch.doPut( url, request, response );
+    } else {
+      executeRequest( "PUT", url, request, response, entity );
+    }
+  }
+
+  @Override
+  public void doPost( URI url, HttpServletRequest request, HttpServletResponse response )
+      throws IOException, URISyntaxException {
+    byte[] entity = readBufferedEntity( request );
+    if( entity == null ) {
+      streamingDispatch.doPost( url, request, response );
+    } else {
+      executeRequest( "POST", url, request, response, entity );
+    }
+  }
+
+  @Override
+  public void doDelete( URI url, HttpServletRequest request, HttpServletResponse response )
+      throws IOException, URISyntaxException {
+    executeRequest( "DELETE", url, request, response, null );
+  }
+
+  // Reads a small request body on the container thread so the client threads never block on the
+  // inbound stream.  Returns null when the body is too large or of unknown length to buffer.
+  private byte[] readBufferedEntity( HttpServletRequest request ) throws IOException {
+    int contentLength = request.getContentLength();
+    if( contentLength < 0 || contentLength > requestBufferSize ) {
+      return null;
+    }
+    byte[] entity = new byte[ contentLength ];
+    InputStream input = request.getInputStream();
+    int offset = 0;
+    while( offset < contentLength ) {
+      int count = input.read( entity, offset, contentLength - offset );
+      if( count < 0 ) {
+        throw new IOException( RES.dispatchConnectionError() );
+      }
+      offset += count;
+    }
+    return entity;
+  }
+
+  protected void executeRequest(
+      String method, URI url, HttpServletRequest request, HttpServletResponse response, byte[] entity )
+      throws IOException {
+    LOG.dispatchRequest( method, url );
+
+    // Suspend the request if the container allows it, otherwise block until the exchange is done.
+    AsyncContext async = null;
+    if( request.isAsyncSupported() ) {
+      async = request.startAsync( request, response );
+      // The exchange timeout bounds the request so the container must not time it out first.
+      async.setTimeout( 0 );
+    }
+
+    applyResponseBufferSize( response );
+    DispatchExchange exchange = new DispatchExchange( url, response, async, client.writers );
+    exchange.setMethod( method );
+    exchange.setURL( url.toString() );
+    exchange.setTimeout( exchangeTimeout );
+    copyRequestHeaderFields( exchange, request );
+    if( entity != null ) {
+      exchange.setRequestHeader( CONTENT_LENGTH, Integer.toString( entity.length ) );
+      exchange.setRequestContent( new ByteArrayBuffer( entity ) );
+    }
+
+    try {
+      client.client.send( exchange );
+    } catch( IOException e ) {
+      exchange.fail( e );
+    }
+
+    if( async == null ) {
+      try {
+        exchange.waitForFinish();
+      } catch( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        throw new IOException( RES.dispatchConnectionError() );
+      }
+    }
+  }
+
+  private static void copyRequestHeaderFields( HttpExchange exchange, HttpServletRequest request ) {
+    Enumeration<String> headerNames = request.getHeaderNames();
+    while( headerNames.hasMoreElements() ) {
+      String name = headerNames.nextElement();
+      if( !EXCLUDE_HEADERS.contains( name ) ) {
+        Enumeration<String> values = request.getHeaders( name );
+        while( values.hasMoreElements() ) {
+          exchange.addRequestHeader( name, values.nextElement() );
+        }
+      }
+    }
+  }
+
+  private static class SharedClient {
+
+    private String key;
+    private HttpClient client;
+    private ExecutorService writers;
+    private int references;
+
+    private SharedClient( String key, HttpClient client, ExecutorService writers ) {
+      this.key = key;
+      this.client = client;
+      this.writers = writers;
+    }
+
+  }
+
+  private static class WriterThreadFactory implements ThreadFactory {
+
+    private static final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread( Runnable runnable ) {
+      Thread thread = new Thread( runnable, "gateway-dispatch-writer-" + count.incrementAndGet() );
+      thread.setDaemon( true );
+      return thread;
+    }
+
+  }
+
+  /**
+   * Receives the backend response on the client's threads and queues it for a writer thread.
+   * The exchange itself is the writer task and at most one instance of it is scheduled at a time
+   * so the response content, error and completion are always written in order.
+   */
+  private static class DispatchExchange extends HttpExchange implements Runnable {
+
+    private static final byte[] END = new byte[ 0 ];
+
+    private URI url;
+    private HttpServletResponse response;
+    private AsyncContext async;
+    private ExecutorService writers;
+    private AuditContext auditContext;
+    private CorrelationContext correlationContext;
+    private OutputStream output;
+    private int status;
+
+    // Guarded by this.
+    private LinkedList<byte[]> pending = new LinkedList<byte[]>();
+    private int pendingBytes;
+    private boolean scheduled;
+    private boolean completing;
+    private int errorCode;
+    private boolean failed;
+    private boolean audited;
+    private boolean finished;
+
+    private DispatchExchange( URI url, HttpServletResponse response, AsyncContext async, ExecutorService writers ) {
+      this.url = url;
+      this.response = response;
+      this.async = async;
+      this.writers = writers;
+      // Capture the request's contexts so that the callbacks on the client threads can audit.
+      this.auditContext = auditService.getContext();
+      this.correlationContext = correlationService.getContext();
+    }
+
+    @Override
+    protected void onResponseStatus( Buffer version, int status, Buffer reason ) throws IOException {
+      this.status = status;
+      response.setStatus( status );
+    }
+
+    @Override
+    protected void onResponseHeader( Buffer name, Buffer value ) throws IOException {
+      String headerName = name.toString();
+      if( SET_COOKIE.equalsIgnoreCase( headerName ) || WWW_AUTHENTICATE.equalsIgnoreCase( headerName ) ) {
+        return;
+      }
+      String headerValue = value.toString();
+      if( CONTENT_TYPE.equalsIgnoreCase( headerName ) ) {
+        response.setContentType( headerValue );
+      } else {
+        response.addHeader( headerName, headerValue );
+      }
+    }
+
+    @Override
+    protected void onResponseContent( Buffer content ) throws IOException {
+      byte[] chunk = content.asArray();
+      if( chunk.length == 0 ) {
+        return;
+      }
+      synchronized( this ) {
+        // Bounded handoff, the client thread only waits once the writer falls far enough behind.
+        while( pendingBytes >= MAX_PENDING_RESPONSE_BYTES && !failed ) {
+          try {
+            wait();
+          } catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new IOException( RES.dispatchConnectionError() );
+          }
+        }
+        if( !failed ) {
+          pending.add( chunk );
+          pendingBytes += chunk.length;
+          schedule();
+        }
+      }
+    }
+
+    @Override
+    protected void onResponseComplete() throws IOException {
+      LOG.dispatchResponseStatusCode( status );
+      audit( ActionOutcome.SUCCESS, status );
+      complete( 0 );
+    }
+
+    @Override
+    protected void onConnectionFailed( Throwable x ) {
+      fail( x );
+    }
+
+    @Override
+    protected void onException( Throwable x ) {
+      fail( x );
+    }
+
+    @Override
+    protected void onExpire() {
+      LOG.dispatchTimedOut( url );
+      audit( ActionOutcome.FAILURE, -1 );
+      complete( HttpServletResponse.SC_GATEWAY_TIMEOUT );
+    }
+
+    private void fail( Throwable x ) {
+      // we do not want to expose back end host. port end points to clients, see JIRA KNOX-58
+      LOG.dispatchServiceConnectionException( url, x instanceof Exception ? (Exception)x : new Exception( x ) );
+      audit( ActionOutcome.FAILURE, -1 );
+      complete( HttpServletResponse.SC_BAD_GATEWAY );
+    }
+
+    private synchronized void complete( int errorCode ) {
+      if( !completing ) {
+        completing = true;
+        this.errorCode = errorCode;
+        schedule();
+      }
+    }
+
+    // Called with the lock held.
+    private void schedule() {
+      if( !scheduled ) {
+        scheduled = true;
+        writers.execute( this );
+      }
+    }
+
+    private synchronized byte[] nextChunk( int written ) {
+      pendingBytes -= written;
+      notifyAll();
+      byte[] chunk = pending.poll();
+      if( chunk == null ) {
+        if( completing ) {
+          chunk = END;
+        } else {
+          scheduled = false;
+        }
+      }
+      return chunk;
+    }
+
+    @Override
+    public void run() {
+      byte[] chunk = nextChunk( 0 );
+      while( chunk != null ) {
+        if( chunk == END ) {
+          finish();
+          return;
+        }
+        write( chunk );
+        chunk = nextChunk( chunk.length );
+      }
+    }
+
+    private void write( byte[] chunk ) {
+      try {
+        if( output == null ) {
+          output = response.getOutputStream();
+        }
+        output.write( chunk );
+      } catch( IOException e ) {
+        LOG.failedToWriteDispatchResponse( url, e );
+        abort();
+      }
+    }
+
+    // The client is gone so drop everything buffered and stop reading from the backend.
+    private void abort() {
+      synchronized( this ) {
+        failed = true;
+        pending.clear();
+        pendingBytes = 0;
+        completing = true;
+        notifyAll();
+      }
+      audit( ActionOutcome.FAILURE, -1 );
+      cancel();
+    }
+
+    private void finish() {
+      try {
+        if( errorCode > 0 && !response.isCommitted() ) {
+          response.sendError( errorCode, RES.dispatchConnectionError() );
+        }
+        if( output != null ) {
+          // Closing the stream is what triggers any response body rewriting.
+          output.close();
+        }
+      } catch( IOException e ) {
+        // The client is gone so there is no one to tell.
+      } finally {
+        try {
+          if( async != null ) {
+            async.complete();
+          }
+        } finally {
+          synchronized( this ) {
+            finished = true;
+            notifyAll();
+          }
+        }
+      }
+    }
+
+    private synchronized void waitForFinish() throws InterruptedException {
+      while( !finished ) {
+        wait();
+      }
+    }
+
+    private void audit( String outcome, int statusCode ) {
+      synchronized( this ) {
+        if( audited ) {
+          return;
+        }
+        audited = true;
+      }
+      auditService.attachContext( auditContext );
+      correlationService.attachContext( correlationContext );
+      try {
+        if( statusCode < 0 ) {
+          auditor.audit( Action.DISPATCH, url.toString(), ResourceType.URI, outcome );
+        } else {
+          auditor.audit( Action.DISPATCH, url.toString(), ResourceType.URI, outcome, RES.responseStatus( statusCode ) );
+        }
+      } finally {
+        auditService.detachContext();
+        correlationService.detachContext();
+      }
+    }
+
+  }
+
+}
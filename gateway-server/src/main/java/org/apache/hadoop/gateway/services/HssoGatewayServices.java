@@ -24,6 +24,8 @@ import org.apache.hadoop.gateway.descriptor.FilterParamDescriptor;
 import org.apache.hadoop.gateway.descriptor.ResourceDescriptor;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.hadoop.gateway.services.hostmap.impl.DefaultHostMapperService;
+import org.apache.hadoop.gateway.services.http.HttpClientService;
+import org.apache.hadoop.gateway.services.http.impl.DefaultHttpClientService;
 import org.apache.hadoop.gateway.services.registry.impl.DefaultServiceRegistryService;
 import org.apache.hadoop.gateway.services.security.KeystoreServiceException;
 import org.apache.hadoop.gateway.services.security.SSLService;
@@ -73,6 +75,8 @@ public class HssoGatewayServices implements GatewayServices {
     
     DefaultTokenAuthorityService ts = new DefaultTokenAuthorityService();
     ts.setCryptoService(crypto);
+    ts.setKeystoreService(ks);
+    ts.setAliasService(alias);
     ts.init(config, options);
     // prolly should not allow the token service to be looked up?
     services.put(TOKEN_SERVICE, ts);
@@ -92,6 +96,10 @@ public class HssoGatewayServices implements GatewayServices {
     DefaultHostMapperService hm = new DefaultHostMapperService();
     hm.init( config, options );
     services.put( HOST_MAPPING_SERVICE, hm );
+
+    DefaultHttpClientService hc = new DefaultHttpClientService();
+    hc.init( config, options );
+    services.put( HTTP_CLIENT_SERVICE, hc );
   }
   
   public void start() throws ServiceLifecycleException {
@@ -104,6 +112,12 @@ public class HssoGatewayServices implements GatewayServices {
 
     SSLService ssl = (SSLService) services.get(SSL_SERVICE);
     ssl.start();
+
+    HttpClientService hc = (HttpClientService) services.get(HTTP_CLIENT_SERVICE);
+    hc.start();
+
+    DefaultTokenAuthorityService ts = (DefaultTokenAuthorityService) services.get(TOKEN_SERVICE);
+    ts.start();
   }
 
   public void stop() throws ServiceLifecycleException {
@@ -116,6 +130,12 @@ public class HssoGatewayServices implements GatewayServices {
 
     SSLService ssl = (SSLService) services.get(SSL_SERVICE);
     ssl.stop();
+
+    HttpClientService hc = (HttpClientService) services.get(HTTP_CLIENT_SERVICE);
+    hc.stop();
+
+    DefaultTokenAuthorityService ts = (DefaultTokenAuthorityService) services.get(TOKEN_SERVICE);
+    ts.stop();
   }
   
   /* (non-Javadoc)
@@ -0,0 +1,212 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.services.http.impl;
+
+import org.apache.hadoop.gateway.GatewayMessages;
+import org.apache.hadoop.gateway.config.GatewayConfig;
+import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
+import org.apache.hadoop.gateway.services.ServiceLifecycleException;
+import org.apache.hadoop.gateway.services.http.HttpClientService;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maintains one pooled connection manager per cluster and pool configuration
+ * and periodically evicts expired and idle connections from all of them.
+ * Dispatch filters of a cluster that are configured with different pool params
+ * get separate connection managers rather than the first configuration winning.
+ */
+public class DefaultHttpClientService implements HttpClientService {
+
+  private static GatewayMessages log = MessagesFactory.get( GatewayMessages.class );
+
+  static final int DEFAULT_MAX_CONNECTIONS_TOTAL = 256;
+  static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 64;
+  static final long DEFAULT_CONNECTION_IDLE_TIMEOUT = 60 * 1000L; // One minute.
+  static final long DEFAULT_CONNECTION_TIME_TO_LIVE = -1L; // Never expire.
+  static final long EVICTION_PERIOD = 5 * 1000L; // Five seconds.
+
+  // Keyed by the cluster name and the pool configuration.
+  private ConcurrentMap<String,PooledConnectionManager> managers = new ConcurrentHashMap<String,PooledConnectionManager>();
+  private ScheduledExecutorService evictor;
+
+  /* (non-Javadoc)
+   * @see org.apache.hadoop.gateway.services.Service#init(org.apache.hadoop.gateway.config.GatewayConfig, java.util.Map)
+   */
+  @Override
+  public void init( GatewayConfig config, Map<String,String> options ) throws ServiceLifecycleException {
+  }
+
+  /* (non-Javadoc)
+   * @see org.apache.hadoop.gateway.services.Service#start()
+   */
+  @Override
+  public synchronized void start() throws ServiceLifecycleException {
+    if( evictor == null ) {
+      evictor = Executors.newSingleThreadScheduledExecutor( new EvictorThreadFactory() );
+      evictor.scheduleWithFixedDelay( new Evictor(), EVICTION_PERIOD, EVICTION_PERIOD, TimeUnit.MILLISECONDS );
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see org.apache.hadoop.gateway.services.Service#stop()
+   */
+  @Override
+  public synchronized void stop() throws ServiceLifecycleException {
+    if( evictor != null ) {
+      evictor.shutdownNow();
+      evictor = null;
+    }
+    for( PooledConnectionManager manager : managers.values() ) {
+      removeConnectionManager( manager.clusterName );
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see org.apache.hadoop.gateway.services.http.HttpClientService#getConnectionManager(java.lang.String, java.util.Map)
+   */
+  @Override
+  public ClientConnectionManager getConnectionManager( String clusterName, Map<String,String> params ) {
+    PoolSettings settings = new PoolSettings( params );
+    String key = clusterName + ":" + settings;
+    PooledConnectionManager manager = managers.get( key );
+    if( manager == null ) {
+      PooledConnectionManager created = createConnectionManager( clusterName, settings );
+      manager = managers.putIfAbsent( key, created );
+      if( manager == null ) {
+        manager = created;
+      } else {
+        // Lost the race to another dispatch filter with the same configuration.
+        created.manager.shutdown();
+      }
+    }
+    return manager.manager;
+  }
+
+  /* (non-Javadoc)
+   * @see org.apache.hadoop.gateway.services.http.HttpClientService#removeConnectionManager(java.lang.String)
+   */
+  @Override
+  public void removeConnectionManager( String clusterName ) {
+    for( Map.Entry<String,PooledConnectionManager> entry : managers.entrySet() ) {
+      PooledConnectionManager manager = entry.getValue();
+      if( manager.clusterName.equals( clusterName ) && managers.remove( entry.getKey(), manager ) ) {
+        log.removingConnectionPoolForCluster( clusterName );
+        manager.manager.shutdown();
+      }
+    }
+  }
+
+  private PooledConnectionManager createConnectionManager( String clusterName, PoolSettings settings ) {
+    log.creatingConnectionPoolForCluster( clusterName, settings.maxTotal, settings.maxPerRoute );
+    PoolingClientConnectionManager manager = new PoolingClientConnectionManager(
+        SchemeRegistryFactory.createDefault(), settings.timeToLive, TimeUnit.MILLISECONDS );
+    manager.setMaxTotal( settings.maxTotal );
+    manager.setDefaultMaxPerRoute( Math.min( settings.maxPerRoute, settings.maxTotal ) );
+    return new PooledConnectionManager( clusterName, manager, settings.idleTimeout );
+  }
+
+  private static long getParam( Map<String,String> params, String name, long defaultValue ) {
+    long value = defaultValue;
+    if( params != null ) {
+      String string = params.get( name );
+      if( string != null ) {
+        try {
+          value = Long.parseLong( string.trim() );
+        } catch( NumberFormatException e ) {
+          log.invalidConnectionPoolParam( name, string, defaultValue );
+        }
+      }
+    }
+    return value;
+  }
+
+  private static class PoolSettings {
+
+    private int maxTotal;
+    private int maxPerRoute;
+    private long idleTimeout;
+    private long timeToLive;
+
+    private PoolSettings( Map<String,String> params ) {
+      maxTotal = (int)getParam( params, MAX_CONNECTIONS_TOTAL_PARAM, DEFAULT_MAX_CONNECTIONS_TOTAL );
+      maxPerRoute = (int)getParam( params, MAX_CONNECTIONS_PER_ROUTE_PARAM, DEFAULT_MAX_CONNECTIONS_PER_ROUTE );
+      idleTimeout = getParam( params, CONNECTION_IDLE_TIMEOUT_PARAM, DEFAULT_CONNECTION_IDLE_TIMEOUT );
+      timeToLive = getParam( params, CONNECTION_TIME_TO_LIVE_PARAM, DEFAULT_CONNECTION_TIME_TO_LIVE );
+    }
+
+    @Override
+    public String toString() {
+      return maxTotal + ":" + maxPerRoute + ":" + idleTimeout + ":" + timeToLive;
+    }
+
+  }
+
+  private static class PooledConnectionManager {
+
+    private String clusterName;
+    private PoolingClientConnectionManager manager;
+    private long idleTimeout;
+
+    private PooledConnectionManager( String clusterName, PoolingClientConnectionManager manager, long idleTimeout ) {
+      this.clusterName = clusterName;
+      this.manager = manager;
+      this.idleTimeout = idleTimeout;
+    }
+
+  }
+
+  private class Evictor implements Runnable {
+
+    @Override
+    public void run() {
+      for( PooledConnectionManager manager : managers.values() ) {
+        try {
+          manager.manager.closeExpiredConnections();
+          if( manager.idleTimeout > 0 ) {
+            manager.manager.closeIdleConnections( manager.idleTimeout, TimeUnit.MILLISECONDS );
+          }
+        } catch( Exception e ) {
+          log.failedToEvictPooledConnections( e );
+        }
+      }
+    }
+
+  }
+
+  private static class EvictorThreadFactory implements ThreadFactory {
+
+    @Override
+    public Thread newThread( Runnable runnable ) {
+      Thread thread = new Thread( runnable, "gateway-connection-evictor" );
+      thread.setDaemon( true );
+      return thread;
+    }
+
+  }
+
+}
@@ -18,13 +18,20 @@
 package org.apache.hadoop.gateway.services.security.impl;
 
 import java.io.UnsupportedEncodingException;
+import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.Signature;
 import java.security.SignatureException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.SecretKey;
 
 import org.apache.hadoop.gateway.GatewayMessages;
 import org.apache.hadoop.gateway.config.GatewayConfig;
@@ -39,10 +46,23 @@ import org.apache.hadoop.gateway.services.ServiceLifecycleException;
 public class DefaultCryptoService implements CryptoService {
   private static final String GATEWAY_IDENTITY_PASSPHRASE = "gateway-identity-passphrase";
   private static final GatewayMessages LOG = MessagesFactory.get( GatewayMessages.class ); 
+  private static final int MAX_DECRYPTION_KEYS = 256;
 
   private AliasService as = null;
   private KeystoreService ks = null;
 
+  // Deriving a key from an alias' password is deliberately expensive so derived keys are kept.
+  // Encryption uses a single salt per cluster and alias so that a single derived key is required.
+  // Decryption keys are keyed by salt as well since the salt comes from the cipher text.
+  // Entries remember the password they were derived from and are replaced if the alias changes.
+  private Map<KeyId,DerivedKey> encryptionKeys = new ConcurrentHashMap<KeyId,DerivedKey>();
+  private Map<KeyId,DerivedKey> decryptionKeys = Collections.synchronizedMap( new LinkedHashMap<KeyId,DerivedKey>( 16, 0.75f, true ) {
+    @Override
+    protected boolean removeEldestEntry( Map.Entry<KeyId,DerivedKey> eldest ) {
+      return size() > MAX_DECRYPTION_KEYS;
+    }
+  } );
+
   public void setKeystoreService(KeystoreService ks) {
     this.ks = ks;
   }
@@ -68,8 +88,8 @@ public class DefaultCryptoService implements CryptoService {
 
   @Override
   public void stop() throws ServiceLifecycleException {
-    // TODO Auto-generated method stub
-
+    encryptionKeys.clear();
+    decryptionKeys.clear();
   }
 
   @Override
@@ -81,14 +101,14 @@ public class DefaultCryptoService implements CryptoService {
   public EncryptionResult encryptForCluster(String clusterName, String alias, byte[] clear) {
     char[] password = as.getPasswordFromAliasForCluster(clusterName, alias);
     if (password != null) {
-      AESEncryptor aes = null;
       try {
-        aes = new AESEncryptor(new String(password));
-        return aes.encrypt(clear);
-      } catch (NoSuchAlgorithmException e1) {
-        LOG.failedToEncryptPasswordForCluster( clusterName, e1 );
-      } catch (InvalidKeyException e) {
-        LOG.failedToEncryptPasswordForCluster( clusterName, e );
+        KeyId id = new KeyId(clusterName, alias, null);
+        DerivedKey key = encryptionKeys.get(id);
+        if (key == null || !key.isFor(password)) {
+          key = new DerivedKey(password, AESEncryptor.generateSalt());
+          encryptionKeys.put(id, key);
+        }
+        return AESEncryptor.encrypt(key.secret, key.salt, AESEncryptor.generateIv(), clear);
       } catch (Exception e) {
         LOG.failedToEncryptPasswordForCluster( clusterName, e );
       }
@@ -108,11 +128,10 @@ public class DefaultCryptoService implements CryptoService {
 
   @Override
   public byte[] decryptForCluster(String clusterName, String alias, byte[] cipherText, byte[] iv, byte[] salt) {
-  char[] password = as.getPasswordFromAliasForCluster(clusterName, alias);
+    char[] password = as.getPasswordFromAliasForCluster(clusterName, alias);
     if (password != null) {
-      AESEncryptor aes = new AESEncryptor(new String(password));
       try {
-        return aes.decrypt(salt, iv, cipherText);
+        return AESEncryptor.decrypt(getDecryptionKey(clusterName, alias, password, salt), iv, cipherText);
       } catch (Exception e) {
         LOG.failedToDecryptPasswordForCluster( clusterName, e );
       }
@@ -123,6 +142,21 @@ public class DefaultCryptoService implements CryptoService {
     return null;
   }
 
+  private SecretKey getDecryptionKey(String clusterName, String alias, char[] password, byte[] salt) throws GeneralSecurityException {
+    // The common case is cipher text produced by this gateway with the current encryption key.
+    DerivedKey key = encryptionKeys.get(new KeyId(clusterName, alias, null));
+    if (key != null && key.isFor(password) && Arrays.equals(key.salt, salt)) {
+      return key.secret;
+    }
+    KeyId id = new KeyId(clusterName, alias, salt);
+    key = decryptionKeys.get(id);
+    if (key == null || !key.isFor(password)) {
+      key = new DerivedKey(password, salt);
+      decryptionKeys.put(id, key);
+    }
+    return key.secret;
+  }
+
   @Override
   public boolean verify(String algorithm, String alias, String signed, byte[] signature) {
     boolean verified = false;
@@ -170,4 +204,49 @@ public class DefaultCryptoService implements CryptoService {
     }
     return null;
   }
+
+  private static class KeyId {
+    private final String clusterName;
+    private final String alias;
+    private final byte[] salt;
+
+    private KeyId(String clusterName, String alias, byte[] salt) {
+      this.clusterName = clusterName;
+      this.alias = alias;
+      this.salt = salt;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      if (this == object) {
+        return true;
+      }
+      if (!(object instanceof KeyId)) {
+        return false;
+      }
+      KeyId that = (KeyId)object;
+      return clusterName.equals(that.clusterName) && alias.equals(that.alias) && Arrays.equals(salt, that.salt);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * clusterName.hashCode() + alias.hashCode()) + Arrays.hashCode(salt);
+    }
+  }
+
+  private static class DerivedKey {
+    private final char[] password;
+    private final byte[] salt;
+    private final SecretKey secret;
+
+    private DerivedKey(char[] password, byte[] salt) throws GeneralSecurityException {
+      this.password = password.clone();
+      this.salt = salt;
+      this.secret = AESEncryptor.deriveKey(password, salt);
+    }
+
+    private boolean isFor(char[] password) {
+      return Arrays.equals(this.password, password);
+    }
+  }
 }
@@ -17,21 +17,53 @@
  */
 package org.apache.hadoop.gateway.services.token.impl;
 
+import java.security.Key;
 import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.cert.Certificate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import javax.security.auth.Subject;
 
+import org.apache.hadoop.gateway.GatewayMessages;
 import org.apache.hadoop.gateway.config.GatewayConfig;
+import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.hadoop.gateway.services.Service;
 import org.apache.hadoop.gateway.services.ServiceLifecycleException;
+import org.apache.hadoop.gateway.services.security.AliasService;
 import org.apache.hadoop.gateway.services.security.CryptoService;
+import org.apache.hadoop.gateway.services.security.KeystoreService;
 import org.apache.hadoop.gateway.services.security.token.JWTokenAuthority;
 import org.apache.hadoop.gateway.services.security.token.impl.JWTToken;
 
 public class DefaultTokenAuthorityService implements JWTokenAuthority, Service {
-  
+  private static final GatewayMessages LOG = MessagesFactory.get( GatewayMessages.class );
+  private static final String SIGNATURE_ALGORITHM = "SHA256withRSA";
+  private static final String SIGNING_KEY_ALIAS = "gateway-identity";
+  private static final String SIGNING_KEY_PASSPHRASE_ALIAS = "gateway-identity-passphrase";
+  private static final int MAX_VERIFIED_TOKENS = 10000;
+
   private CryptoService crypto = null;
+  private KeystoreService ks = null;
+  private AliasService as = null;
+
+  // Resolved once at start (see reloadKeys) instead of from the keystore for every token.
+  private volatile PublicKey publicKey = null;
+  private volatile PrivateKey privateKey = null;
+
+  // Clients reuse the same token for many requests so successful verifications are remembered
+  // until the token expires.  Keyed by the signed payload and checked against the signature.
+  private Map<String,VerifiedToken> verifiedTokens = Collections.synchronizedMap( new LinkedHashMap<String,VerifiedToken>( 16, 0.75f, true ) {
+    @Override
+    protected boolean removeEldestEntry( Map.Entry<String,VerifiedToken> eldest ) {
+      return size() > MAX_VERIFIED_TOKENS;
+    }
+  } );
 
   /* (non-Javadoc)
    * @see org.apache.hadoop.gateway.provider.federation.jwt.JWTokenAuthority#issueToken(javax.security.auth.Subject, java.lang.String)
@@ -88,23 +120,107 @@ public class DefaultTokenAuthorityService implements JWTokenAuthority, Service {
 
   private void signToken(JWTToken token) {
     byte[] signature = null;
-    signature = crypto.sign("SHA256withRSA","gateway-identity",token.getPayloadToSign());
+    PrivateKey key = privateKey;
+    if (key != null) {
+      try {
+        Signature signer = Signature.getInstance(SIGNATURE_ALGORITHM);
+        signer.initSign(key);
+        signer.update(token.getPayloadToSign().getBytes("UTF-8"));
+        signature = signer.sign();
+      } catch (Exception e) {
+        LOG.failedToSignData( e );
+      }
+    } else {
+      signature = crypto.sign(SIGNATURE_ALGORITHM, SIGNING_KEY_ALIAS, token.getPayloadToSign());
+    }
     token.setSignaturePayload(signature);
   }
 
   @Override
   public boolean verifyToken(JWTToken token) {
     boolean rc = false;
-    
+    String payload = token.getPayloadToSign();
+    byte[] signature = token.getSignaturePayload();
+
+    VerifiedToken verified = verifiedTokens.get(payload);
+    if (verified != null) {
+      if (verified.isValidFor(signature, System.currentTimeMillis())) {
+        return true;
+      }
+      verifiedTokens.remove(payload);
+    }
+
     // TODO: interrogate the token for issuer claim in order to determine the public key to use for verification
     // consider jwk for specifying the key too
-    rc = crypto.verify("SHA256withRSA", "gateway-identity", token.getPayloadToSign(), token.getSignaturePayload());
+    PublicKey key = publicKey;
+    if (key != null) {
+      try {
+        Signature verifier = Signature.getInstance(SIGNATURE_ALGORITHM);
+        verifier.initVerify(key);
+        verifier.update(payload.getBytes("UTF-8"));
+        rc = verifier.verify(signature);
+      } catch (Exception e) {
+        LOG.failedToVerifySignature( e );
+      }
+      LOG.signatureVerified( rc );
+    } else {
+      rc = crypto.verify(SIGNATURE_ALGORITHM, SIGNING_KEY_ALIAS, payload, signature);
+    }
+
+    if (rc) {
+      long expires = getExpires(token);
+      if (expires > System.currentTimeMillis()) {
+        verifiedTokens.put(payload, new VerifiedToken(signature, expires));
+      }
+    }
     return rc;
   }
 
+  private static long getExpires(JWTToken token) {
+    try {
+      String expires = token.getExpires();
+      return expires == null ? -1 : Long.parseLong(expires);
+    } catch (Exception e) {
+      // Tokens without a usable expiry are simply verified every time.
+      return -1;
+    }
+  }
+
+  /**
+   * Resolves the gateway's signing keys from the keystore again and forgets previously
+   * verified tokens.  Called at start and should be called if the gateway identity changes.
+   */
+  public void reloadKeys() {
+    verifiedTokens.clear();
+    publicKey = null;
+    privateKey = null;
+    if (ks == null || as == null) {
+      return;
+    }
+    try {
+      Certificate cert = ks.getKeystoreForGateway().getCertificate(SIGNING_KEY_ALIAS);
+      char[] passphrase = as.getPasswordFromAliasForGateway(SIGNING_KEY_PASSPHRASE_ALIAS);
+      Key key = ks.getKeyForGateway(SIGNING_KEY_ALIAS, passphrase);
+      if (cert != null && key instanceof PrivateKey) {
+        publicKey = cert.getPublicKey();
+        privateKey = (PrivateKey) key;
+      }
+    } catch (Exception e) {
+      LOG.failedToResolveTokenSigningKeys( e );
+    }
+  }
+
   public void setCryptoService(CryptoService crypto) {
     this.crypto = crypto;
   }
+
+  public void setKeystoreService(KeystoreService ks) {
+    this.ks = ks;
+  }
+
+  public void setAliasService(AliasService as) {
+    this.as = as;
+  }
   
   @Override
   public void init(GatewayConfig config, Map<String, String> options)
@@ -116,10 +232,26 @@ public class DefaultTokenAuthorityService implements JWTokenAuthority, Service {
 
   @Override
   public void start() throws ServiceLifecycleException {
+    reloadKeys();
   }
 
   @Override
   public void stop() throws ServiceLifecycleException {
+    verifiedTokens.clear();
+  }
+
+  private static class VerifiedToken {
+    private final byte[] signature;
+    private final long expires;
+
+    private VerifiedToken(byte[] signature, long expires) {
+      this.signature = signature;
+      this.expires = expires;
+    }
+
+    private boolean isValidFor(byte[] signature, long now) {
+      return now < expires && Arrays.equals(this.signature, signature);
+    }
   }
 
 }
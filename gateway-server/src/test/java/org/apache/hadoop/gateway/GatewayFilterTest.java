@@ -28,6 +28,11 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
 
 /**
  *
@@ -84,4 +89,59 @@ public class GatewayFilterTest {
 
   }
 
+  @Test
+  public void testFiltersInvokedInOrderOnEachRequest() throws ServletException, IOException, URISyntaxException {
+
+    FilterConfig config = EasyMock.createNiceMock( FilterConfig.class );
+    EasyMock.replay( config );
+
+    HttpServletRequest request = EasyMock.createNiceMock( HttpServletRequest.class );
+    EasyMock.expect( request.getPathInfo() ).andReturn( "source" ).anyTimes();
+    EasyMock.replay( request );
+
+    HttpServletResponse response = EasyMock.createNiceMock( HttpServletResponse.class );
+    EasyMock.replay( response );
+
+    FilterChain chain = EasyMock.createNiceMock( FilterChain.class );
+    EasyMock.replay( chain );
+
+    List<String> calls = new ArrayList<String>();
+    GatewayFilter gateway = new GatewayFilter();
+    gateway.addFilter( "source", "first", new RecordingFilter( "first", calls ), null, null );
+    gateway.addFilter( "source", "second", new RecordingFilter( "second", calls ), null, null );
+    gateway.addFilter( "source", "third", new RecordingFilter( "third", calls ), null, null );
+    gateway.init( config );
+    gateway.doFilter( request, response, chain );
+    gateway.doFilter( request, response, chain );
+    gateway.destroy();
+
+    assertThat( calls.toString(), is( "[first, second, third, first, second, third]" ) );
+  }
+
+  private static class RecordingFilter implements Filter {
+
+    private String name;
+    private List<String> calls;
+
+    private RecordingFilter( String name, List<String> calls ) {
+      this.name = name;
+      this.calls = calls;
+    }
+
+    @Override
+    public void init( FilterConfig filterConfig ) throws ServletException {
+    }
+
+    @Override
+    public void doFilter( ServletRequest request, ServletResponse response, FilterChain chain ) throws IOException, ServletException {
+      calls.add( name );
+      chain.doFilter( request, response );
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+  }
+
 }
@@ -42,6 +42,10 @@ public class GatewayGlobalConfigTest {
     System.setProperty( GatewayConfigImpl.GATEWAY_HOME_VAR, getHomeDirName( "conf-full/conf/gateway-default.xml" ) );
     GatewayConfig config = new GatewayConfigImpl();
     assertThat( config.getGatewayPort(), is( 7777 ) );
+    assertThat( config.getHttpServerMaxThreads(), is( 1024 ) );
+    assertThat( config.getHttpServerMinThreads(), is( GatewayConfigImpl.DEFAULT_HTTP_SERVER_MIN_THREADS ) );
+    assertThat( config.getGatewayPortMappings().size(), is( 1 ) );
+    assertThat( config.getGatewayPortMappings().get( "sandbox" ), is( 7778 ) );
     //assertThat( config.getShiroConfigFile(), is( "full-shiro.ini") );
   }
 
@@ -58,7 +62,22 @@ public class GatewayGlobalConfigTest {
     System.setProperty( GatewayConfigImpl.GATEWAY_HOME_VAR, getHomeDirName( "conf-empty/conf/empty" ) );
     GatewayConfig config = new GatewayConfigImpl();
     assertThat( config.getGatewayPort(), is( 8888 ) );
+    assertThat( config.getHttpServerMaxThreads(), is( GatewayConfigImpl.DEFAULT_HTTP_SERVER_MAX_THREADS ) );
+    assertThat( config.getHttpServerAcceptQueueSize(), is( GatewayConfigImpl.DEFAULT_HTTP_SERVER_ACCEPT_QUEUE_SIZE ) );
+    assertThat( config.getGatewayPortMappings().isEmpty(), is( true ) );
     //assertThat( config.getShiroConfigFile(), is( "shiro.ini") );
   }
 
+  @Test
+  public void testInvalidPortMappingsAreIgnored() {
+    System.setProperty( GatewayConfigImpl.GATEWAY_HOME_VAR, getHomeDirName( "conf-empty/conf/empty" ) );
+    GatewayConfigImpl config = new GatewayConfigImpl();
+    config.set( GatewayConfigImpl.GATEWAY_PORT_MAPPING_PREFIX + "valid", " 8443 " );
+    config.set( GatewayConfigImpl.GATEWAY_PORT_MAPPING_PREFIX + "text", "not-a-port" );
+    config.set( GatewayConfigImpl.GATEWAY_PORT_MAPPING_PREFIX + "zero", "0" );
+    config.set( GatewayConfigImpl.GATEWAY_PORT_MAPPING_PREFIX + "large", "65536" );
+    assertThat( config.getGatewayPortMappings().size(), is( 1 ) );
+    assertThat( config.getGatewayPortMappings().get( "valid" ), is( 8443 ) );
+  }
+
 }
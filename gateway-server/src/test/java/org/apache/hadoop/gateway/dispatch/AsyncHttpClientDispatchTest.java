@@ -0,0 +1,208 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.dispatch;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.gateway.GatewayFilter;
+import org.apache.hadoop.gateway.GatewayServlet;
+import org.apache.hadoop.gateway.audit.api.Action;
+import org.apache.hadoop.gateway.audit.api.ActionOutcome;
+import org.apache.hadoop.gateway.audit.api.CorrelationContext;
+import org.apache.hadoop.gateway.audit.log4j.audit.AuditConstants;
+import org.apache.hadoop.gateway.audit.log4j.correlation.Log4jCorrelationService;
+import org.apache.hadoop.test.log.CollectAppender;
+import org.apache.hadoop.test.mock.MockServer;
+import org.apache.log4j.spi.LoggingEvent;
+import org.easymock.EasyMock;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class AsyncHttpClientDispatchTest {
+
+  private static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+  private MockServer backend;
+  private Server gateway;
+
+  @Before
+  public void setupTest() throws Exception {
+    CollectAppender.queue.clear();
+    backend = new MockServer( "BACKEND", true );
+
+    GatewayFilter filter = new GatewayFilter();
+    filter.addFilter( "/test", "rewrite", new BackendFilter( "http://localhost:" + backend.getPort() + "/backend" ), null, "TEST" );
+    filter.addFilter( "/test", "dispatch", new AsyncHttpClientDispatch(), null, "TEST" );
+
+    ServletHolder holder = new ServletHolder( new GatewayServlet( filter ) );
+    holder.setAsyncSupported( true );
+    ServletContextHandler context = new ServletContextHandler( ServletContextHandler.SESSIONS );
+    context.setContextPath( "/gateway" );
+    context.addServlet( holder, "/*" );
+
+    gateway = new Server( 0 );
+    gateway.setHandler( context );
+    gateway.start();
+  }
+
+  @After
+  public void cleanupTest() throws Exception {
+    gateway.stop();
+    gateway.join();
+    backend.stop();
+  }
+
+  @Test
+  public void testDispatchedResponseAndAudit() throws Exception {
+    backend.expect()
+        .method( "GET" )
+        .pathInfo( "/backend" )
+        .respond()
+        .status( 200 )
+        .contentType( "text/plain" )
+        .content( "backend-response", UTF8 );
+
+    int port = gateway.getConnectors()[ 0 ].getLocalPort();
+    HttpURLConnection connection = (HttpURLConnection)new URL( "http://localhost:" + port + "/gateway/test" ).openConnection();
+    assertThat( connection.getResponseCode(), is( 200 ) );
+    assertThat( IOUtils.toString( connection.getInputStream(), "UTF-8" ), is( "backend-response" ) );
+    assertThat( backend.isEmpty(), is( true ) );
+
+    // The access record is written when the async request completes which may be after the body was read.
+    List<LoggingEvent> events = waitForAuditEvents( 3 );
+    String requestId = getRequestId( events.get( 0 ) );
+    verifyAuditEvent( events.get( 0 ), requestId, "/gateway/test", Action.ACCESS, ActionOutcome.UNAVAILABLE );
+    verifyAuditEvent( events.get( 1 ), requestId, "http://localhost:" + backend.getPort() + "/backend", Action.DISPATCH, ActionOutcome.SUCCESS );
+    verifyAuditEvent( events.get( 2 ), requestId, "/gateway/test", Action.ACCESS, ActionOutcome.SUCCESS );
+  }
+
+  @Test
+  public void testClientsAreSharedOnlyBetweenIdenticalSettings() throws Exception {
+    int before = AsyncHttpClientDispatch.getSharedClientCount();
+
+    AsyncHttpClientDispatch first = new AsyncHttpClientDispatch();
+    first.init( createFilterConfig( "10" ) );
+    AsyncHttpClientDispatch second = new AsyncHttpClientDispatch();
+    second.init( createFilterConfig( "10" ) );
+    AsyncHttpClientDispatch third = new AsyncHttpClientDispatch();
+    third.init( createFilterConfig( "20" ) );
+    assertThat( AsyncHttpClientDispatch.getSharedClientCount(), is( before + 2 ) );
+
+    first.destroy();
+    assertThat( AsyncHttpClientDispatch.getSharedClientCount(), is( before + 2 ) );
+    second.destroy();
+    third.destroy();
+    assertThat( AsyncHttpClientDispatch.getSharedClientCount(), is( before ) );
+  }
+
+  @Test
+  public void testInvalidParamFallsBackToDefault() throws Exception {
+    int before = AsyncHttpClientDispatch.getSharedClientCount();
+
+    AsyncHttpClientDispatch invalid = new AsyncHttpClientDispatch();
+    invalid.init( createFilterConfig( "not-a-number" ) );
+    AsyncHttpClientDispatch defaulted = new AsyncHttpClientDispatch();
+    defaulted.init( createFilterConfig( Integer.toString( AsyncHttpClientDispatch.DEFAULT_MAX_CONNECTIONS_PER_ADDRESS ) ) );
+    // Both use the default so they share a client.
+    assertThat( AsyncHttpClientDispatch.getSharedClientCount(), is( before + 1 ) );
+
+    invalid.destroy();
+    defaulted.destroy();
+    assertThat( AsyncHttpClientDispatch.getSharedClientCount(), is( before ) );
+  }
+
+  private static FilterConfig createFilterConfig( String maxConnections ) {
+    FilterConfig config = EasyMock.createNiceMock( FilterConfig.class );
+    EasyMock.expect( config.getInitParameter( AsyncHttpClientDispatch.MAX_CONNECTIONS_PER_ADDRESS_PARAM ) ).andReturn( maxConnections ).anyTimes();
+    EasyMock.replay( config );
+    return config;
+  }
+
+  private static List<LoggingEvent> waitForAuditEvents( int count ) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000;
+    while( CollectAppender.queue.size() < count && System.currentTimeMillis() < deadline ) {
+      Thread.sleep( 10 );
+    }
+    List<LoggingEvent> events = new ArrayList<LoggingEvent>( CollectAppender.queue );
+    assertThat( events.size(), is( count ) );
+    return events;
+  }
+
+  private static String getRequestId( LoggingEvent event ) {
+    CorrelationContext cc = (CorrelationContext)event.getMDC( Log4jCorrelationService.MDC_CORRELATION_CONTEXT_KEY );
+    return cc == null ? null : cc.getRequestId();
+  }
+
+  private static void verifyAuditEvent( LoggingEvent event, String requestId, String resourceName, String action, String outcome ) {
+    assertThat( getRequestId( event ), is( requestId ) );
+    assertThat( (String)event.getMDC( AuditConstants.MDC_RESOURCE_NAME_KEY ), is( resourceName ) );
+    assertThat( (String)event.getMDC( AuditConstants.MDC_ACTION_KEY ), is( action ) );
+    assertThat( (String)event.getMDC( AuditConstants.MDC_OUTCOME_KEY ), is( outcome ) );
+  }
+
+  // Stands in for the rewrite filter by pointing the request at the backend.
+  private static class BackendFilter implements Filter {
+
+    private String url;
+
+    private BackendFilter( String url ) {
+      this.url = url;
+    }
+
+    @Override
+    public void init( FilterConfig filterConfig ) throws ServletException {
+    }
+
+    @Override
+    public void doFilter( ServletRequest request, ServletResponse response, FilterChain chain ) throws IOException, ServletException {
+      chain.doFilter( new HttpServletRequestWrapper( (HttpServletRequest)request ) {
+        @Override
+        public StringBuffer getRequestURL() {
+          return new StringBuffer( url );
+        }
+      }, response );
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+  }
+
+}
@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.services.http.impl;
+
+import org.apache.hadoop.gateway.services.http.HttpClientService;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class DefaultHttpClientServiceTest {
+
+  @Test
+  public void testConnectionManagerSharedPerCluster() throws Exception {
+    DefaultHttpClientService service = new DefaultHttpClientService();
+    service.init( null, null );
+    service.start();
+    try {
+      ClientConnectionManager a1 = service.getConnectionManager( "cluster-a", null );
+      ClientConnectionManager a2 = service.getConnectionManager( "cluster-a", null );
+      ClientConnectionManager b1 = service.getConnectionManager( "cluster-b", null );
+      assertThat( a2, sameInstance( a1 ) );
+      assertThat( b1, not( sameInstance( a1 ) ) );
+
+      service.removeConnectionManager( "cluster-a" );
+      ClientConnectionManager a3 = service.getConnectionManager( "cluster-a", null );
+      assertThat( a3, not( sameInstance( a1 ) ) );
+    } finally {
+      service.stop();
+    }
+  }
+
+  @Test
+  public void testConnectionManagerSharedPerConfiguration() throws Exception {
+    DefaultHttpClientService service = new DefaultHttpClientService();
+    service.init( null, null );
+    service.start();
+    try {
+      Map<String,String> small = new HashMap<String,String>();
+      small.put( HttpClientService.MAX_CONNECTIONS_TOTAL_PARAM, "8" );
+      Map<String,String> large = new HashMap<String,String>();
+      large.put( HttpClientService.MAX_CONNECTIONS_TOTAL_PARAM, "512" );
+      PoolingClientConnectionManager s1 =
+          (PoolingClientConnectionManager)service.getConnectionManager( "cluster", small );
+      PoolingClientConnectionManager s2 =
+          (PoolingClientConnectionManager)service.getConnectionManager( "cluster", new HashMap<String,String>( small ) );
+      PoolingClientConnectionManager l1 =
+          (PoolingClientConnectionManager)service.getConnectionManager( "cluster", large );
+      assertThat( s2, sameInstance( s1 ) );
+      assertThat( l1, not( sameInstance( s1 ) ) );
+      assertThat( s1.getMaxTotal(), is( 8 ) );
+      assertThat( l1.getMaxTotal(), is( 512 ) );
+
+      service.removeConnectionManager( "cluster" );
+      assertThat( service.getConnectionManager( "cluster", small ), not( sameInstance( (ClientConnectionManager)s1 ) ) );
+      assertThat( service.getConnectionManager( "cluster", large ), not( sameInstance( (ClientConnectionManager)l1 ) ) );
+    } finally {
+      service.stop();
+    }
+  }
+
+  @Test
+  public void testConnectionPoolParams() throws Exception {
+    DefaultHttpClientService service = new DefaultHttpClientService();
+    service.init( null, null );
+    Map<String,String> params = new HashMap<String,String>();
+    params.put( HttpClientService.MAX_CONNECTIONS_TOTAL_PARAM, "17" );
+    params.put( HttpClientService.MAX_CONNECTIONS_PER_ROUTE_PARAM, "5" );
+    params.put( HttpClientService.CONNECTION_IDLE_TIMEOUT_PARAM, "not-a-number" );
+    PoolingClientConnectionManager manager =
+        (PoolingClientConnectionManager)service.getConnectionManager( "cluster", params );
+    assertThat( manager.getMaxTotal(), is( 17 ) );
+    assertThat( manager.getDefaultMaxPerRoute(), is( 5 ) );
+
+    manager = (PoolingClientConnectionManager)service.getConnectionManager( "default", null );
+    assertThat( manager.getMaxTotal(), is( DefaultHttpClientService.DEFAULT_MAX_CONNECTIONS_TOTAL ) );
+    assertThat( manager.getDefaultMaxPerRoute(), is( DefaultHttpClientService.DEFAULT_MAX_CONNECTIONS_PER_ROUTE ) );
+    service.stop();
+  }
+
+}
@@ -28,10 +28,12 @@ import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
 import java.security.cert.Certificate;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 @Category( { ManualTests.class, MediumTests.class } )
@@ -153,4 +155,19 @@ public class CryptoServiceTest {
     byte[] decryptedQueryString = cs.decryptForCluster("Test", alias, result.cipher, result.iv, result.salt);
     assertEquals(queryString.getBytes("UTF8").length, decryptedQueryString.length);
   }
+
+  @Test
+  public void testEncryptionKeyIsReusedWithFreshIv() throws Exception {
+    String alias = "encrypt-url-reuse";
+    byte[] clear = "url=http://localhost:50070/api/v1/blahblah".getBytes("UTF8");
+
+    EncryptionResult first = cs.encryptForCluster("Test", alias, clear);
+    EncryptionResult second = cs.encryptForCluster("Test", alias, clear);
+    assertTrue("The derived key and salt should be reused", Arrays.equals(first.salt, second.salt));
+    assertFalse("Each encryption should use a new IV", Arrays.equals(first.iv, second.iv));
+    assertFalse(Arrays.equals(first.cipher, second.cipher));
+
+    assertTrue(Arrays.equals(clear, cs.decryptForCluster("Test", alias, first.cipher, first.iv, first.salt)));
+    assertTrue(Arrays.equals(clear, cs.decryptForCluster("Test", alias, second.cipher, second.iv, second.salt)));
+  }
 }
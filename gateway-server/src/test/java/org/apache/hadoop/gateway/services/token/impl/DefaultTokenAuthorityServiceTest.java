@@ -0,0 +1,95 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.services.token.impl;
+
+import org.apache.hadoop.gateway.services.security.CryptoService;
+import org.apache.hadoop.gateway.services.security.token.impl.JWTToken;
+import org.apache.hadoop.test.category.FastTests;
+import org.apache.hadoop.test.category.UnitTests;
+import org.easymock.EasyMock;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@Category( { UnitTests.class, FastTests.class } )
+public class DefaultTokenAuthorityServiceTest {
+
+  @Test
+  public void testVerifiedTokenIsCachedUntilExpiry() throws Exception {
+    CryptoService crypto = EasyMock.createMock( CryptoService.class );
+    EasyMock.expect( crypto.verify( EasyMock.eq( "SHA256withRSA" ), EasyMock.eq( "gateway-identity" ),
+        EasyMock.<String>anyObject(), EasyMock.<byte[]>anyObject() ) ).andReturn( true ).once();
+    EasyMock.replay( crypto );
+
+    DefaultTokenAuthorityService service = new DefaultTokenAuthorityService();
+    service.setCryptoService( crypto );
+
+    String[] claims = new String[]{ "HSSO", "guest", "HSSO", Long.toString( System.currentTimeMillis() + 60000 ) };
+    JWTToken token = new JWTToken( "RS256", claims );
+    token.setSignaturePayload( new byte[]{ 1, 2, 3 } );
+
+    assertTrue( service.verifyToken( token ) );
+    assertTrue( service.verifyToken( JWTToken.parseToken( token.toString() ) ) );
+    EasyMock.verify( crypto );
+  }
+
+  @Test
+  public void testCachedTokenWithDifferentSignatureIsVerified() throws Exception {
+    CryptoService crypto = EasyMock.createMock( CryptoService.class );
+    EasyMock.expect( crypto.verify( EasyMock.eq( "SHA256withRSA" ), EasyMock.eq( "gateway-identity" ),
+        EasyMock.<String>anyObject(), EasyMock.<byte[]>anyObject() ) ).andReturn( true ).once();
+    EasyMock.expect( crypto.verify( EasyMock.eq( "SHA256withRSA" ), EasyMock.eq( "gateway-identity" ),
+        EasyMock.<String>anyObject(), EasyMock.<byte[]>anyObject() ) ).andReturn( false ).once();
+    EasyMock.replay( crypto );
+
+    DefaultTokenAuthorityService service = new DefaultTokenAuthorityService();
+    service.setCryptoService( crypto );
+
+    String[] claims = new String[]{ "HSSO", "guest", "HSSO", Long.toString( System.currentTimeMillis() + 60000 ) };
+    JWTToken token = new JWTToken( "RS256", claims );
+    token.setSignaturePayload( new byte[]{ 1, 2, 3 } );
+    assertTrue( service.verifyToken( token ) );
+
+    JWTToken forged = new JWTToken( "RS256", claims );
+    forged.setSignaturePayload( new byte[]{ 4, 5, 6 } );
+    assertFalse( service.verifyToken( forged ) );
+    EasyMock.verify( crypto );
+  }
+
+  @Test
+  public void testExpiredTokenIsNotCached() throws Exception {
+    CryptoService crypto = EasyMock.createMock( CryptoService.class );
+    EasyMock.expect( crypto.verify( EasyMock.eq( "SHA256withRSA" ), EasyMock.eq( "gateway-identity" ),
+        EasyMock.<String>anyObject(), EasyMock.<byte[]>anyObject() ) ).andReturn( true ).times( 2 );
+    EasyMock.replay( crypto );
+
+    DefaultTokenAuthorityService service = new DefaultTokenAuthorityService();
+    service.setCryptoService( crypto );
+
+    String[] claims = new String[]{ "HSSO", "guest", "HSSO", Long.toString( System.currentTimeMillis() - 1000 ) };
+    JWTToken token = new JWTToken( "RS256", claims );
+    token.setSignaturePayload( new byte[]{ 1, 2, 3 } );
+
+    assertTrue( service.verifyToken( token ) );
+    assertTrue( service.verifyToken( token ) );
+    EasyMock.verify( crypto );
+  }
+
+}
@@ -24,6 +24,8 @@ import org.apache.hadoop.gateway.deploy.ProviderDeploymentContributorBase;
 import org.apache.hadoop.gateway.descriptor.FilterDescriptor;
 import org.apache.hadoop.gateway.descriptor.FilterParamDescriptor;
 import org.apache.hadoop.gateway.descriptor.ResourceDescriptor;
+import org.apache.hadoop.gateway.dispatch.AbstractGatewayDispatch;
+import org.apache.hadoop.gateway.services.http.HttpClientService;
 import org.apache.hadoop.gateway.topology.Provider;
 import org.apache.hadoop.gateway.topology.Service;
 
@@ -59,7 +61,17 @@ public class HiveDispatchDeploymentContributor extends ProviderDeploymentContrib
       }
     }
     FilterDescriptor filter = resource.addFilter().name( getName() ).role( getRole() ).impl( HiveHttpClientDispatch.class );
+    String responseBufferSize = service.getParams().get( AbstractGatewayDispatch.RESPONSE_BUFFER_SIZE_PARAM );
+    if( responseBufferSize != null ) {
+      filter.param().name( AbstractGatewayDispatch.RESPONSE_BUFFER_SIZE_PARAM ).value( responseBufferSize );
+    }
     filter.param().name("replayBufferSize").value(replayBufferSize);
+    for (String name : HttpClientService.CONNECTION_POOL_PARAMS) {
+      String value = provider.getParams().get(name);
+      if (value != null) {
+        filter.param().name(name).value(value);
+      }
+    }
     if( context.getGatewayConfig().isHadoopKerberosSecured() ) {
       filter.param().name("kerberos").value("true");
     }
@@ -19,6 +19,7 @@ package org.apache.hadoop.gateway.config;
 
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.util.Map;
 
 public interface GatewayConfig {
 
@@ -77,4 +78,34 @@ public interface GatewayConfig {
   
   String getKerberosLoginConfig();
 
+  int getHttpServerMinThreads();
+
+  int getHttpServerMaxThreads();
+
+  int getHttpServerThreadIdleTimeout();
+
+  /**
+   * The number of acceptor threads per connector.
+   * @return The number of acceptors or a value less than 1 to let Jetty choose.
+   */
+  int getHttpServerAcceptors();
+
+  int getHttpServerAcceptQueueSize();
+
+  int getHttpServerIdleTimeout();
+
+  int getHttpServerRequestHeaderBuffer();
+
+  int getHttpServerResponseHeaderBuffer();
+
+  int getHttpServerRequestBuffer();
+
+  int getHttpServerResponseBuffer();
+
+  /**
+   * The topologies that are also served by a connector of their own.
+   * @return A map of topology name to the port of its connector.
+   */
+  Map<String, Integer> getGatewayPortMappings();
+
 }
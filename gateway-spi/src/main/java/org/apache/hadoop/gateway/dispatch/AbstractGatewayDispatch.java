@@ -23,6 +23,7 @@ import org.apache.hadoop.io.IOUtils;
 import org.apache.http.client.methods.HttpUriRequest;
 
 import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -42,7 +43,21 @@ public abstract class AbstractGatewayDispatch extends AbstractGatewayFilter impl
 
   private static Map<String,Adapter> METHOD_ADAPTERS = createMethodAdapters();
   private static int STREAM_COPY_BUFFER_SIZE = 4096;
-  private static final List<String> EXCLUDE_HEADERS = Arrays.asList( "Host", "Authorization", "Content-Length" );
+  protected static final List<String> EXCLUDE_HEADERS = Arrays.asList( "Host", "Authorization", "Content-Length" );
+
+  /**
+   * The size in KB of the container's response buffer for a service.  Large bodies that
+   * are not rewritten are also copied in chunks of this size.  If not set the container's
+   * default is used.
+   */
+  public static final String RESPONSE_BUFFER_SIZE_PARAM = "responseBufferSize";
+
+  /**
+   * The request attribute holding the URI the request is dispatched to once it has been built.
+   */
+  public static final String DISPATCH_URL_ATTRIBUTE_NAME = "dispatchUrl";
+
+  private int responseBufferSize = 0;
 
   private static Map<String,Adapter> createMethodAdapters() {
     Map<String,Adapter> map = new HashMap<String,Adapter>();
@@ -54,6 +69,37 @@ public abstract class AbstractGatewayDispatch extends AbstractGatewayFilter impl
     return Collections.unmodifiableMap( map );
   }
 
+  @Override
+  public void init( FilterConfig filterConfig ) throws ServletException {
+    super.init( filterConfig );
+    String responseBufferSizeString = filterConfig.getInitParameter( RESPONSE_BUFFER_SIZE_PARAM );
+    if( responseBufferSizeString != null ) {
+      setResponseBufferSize( Integer.parseInt( responseBufferSizeString.trim() ) * 1024 );
+    }
+  }
+
+  protected int getResponseBufferSize() {
+    return responseBufferSize;
+  }
+
+  protected void setResponseBufferSize( int size ) {
+    responseBufferSize = size;
+  }
+
+  /**
+   * Applies the configured response buffer size to the response.  Must be called before any
+   * of the response body is written.
+   */
+  protected void applyResponseBufferSize( HttpServletResponse response ) {
+    if( responseBufferSize > 0 && !response.isCommitted() ) {
+      try {
+        response.setBufferSize( responseBufferSize );
+      } catch( IllegalStateException e ) {
+        // Some of the body has already been written so keep the container's buffer.
+      }
+    }
+  }
+
   @Override
   protected void doFilter( HttpServletRequest request, HttpServletResponse response, FilterChain chain )
       throws IOException, ServletException {
@@ -70,14 +116,19 @@ public abstract class AbstractGatewayDispatch extends AbstractGatewayFilter impl
     }
   }
 
+  // The dispatch is the last filter so the request URL doesn't change once the URI has been built.
   protected static URI getDispatchUrl( HttpServletRequest request ) {
-    StringBuffer str = request.getRequestURL();
-    String query = request.getQueryString();
-    if( query != null ) {
-      str.append( '?' );
-      str.append( query );
+    URI url = (URI)request.getAttribute( DISPATCH_URL_ATTRIBUTE_NAME );
+    if( url == null ) {
+      StringBuffer str = request.getRequestURL();
+      String query = request.getQueryString();
+      if( query != null ) {
+        str.append( '?' );
+        str.append( query );
+      }
+      url = URI.create( str.toString() );
+      request.setAttribute( DISPATCH_URL_ATTRIBUTE_NAME, url );
     }
-    URI url = URI.create( str.toString() );
     return url;
   }
 
@@ -88,11 +139,12 @@ public abstract class AbstractGatewayDispatch extends AbstractGatewayFilter impl
 //    if( streamer != null ) {
 //      streamer.streamResponse( stream, response.getOutputStream() );
 //    } else {
+      applyResponseBufferSize( response );
       if( response instanceof GatewayResponse ) {
         ((GatewayResponse)response).streamResponse( stream );
       } else {
         OutputStream output = response.getOutputStream();
-        IOUtils.copyBytes( stream, output, STREAM_COPY_BUFFER_SIZE );
+        IOUtils.copyBytes( stream, output, Math.max( response.getBufferSize(), STREAM_COPY_BUFFER_SIZE ) );
         output.close();
       }
 //    }
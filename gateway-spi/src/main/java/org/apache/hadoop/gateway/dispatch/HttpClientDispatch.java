@@ -21,8 +21,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -38,6 +41,8 @@ import org.apache.hadoop.gateway.audit.log4j.audit.AuditConstants;
 import org.apache.hadoop.gateway.config.GatewayConfig;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.hadoop.gateway.i18n.resources.ResourcesFactory;
+import org.apache.hadoop.gateway.services.GatewayServices;
+import org.apache.hadoop.gateway.services.http.HttpClientService;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
@@ -49,10 +54,12 @@ import org.apache.http.client.methods.HttpOptions;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ClientConnectionManager;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.message.BasicHeader;
+import org.apache.http.util.EntityUtils;
 
 /**
  *
@@ -82,6 +89,9 @@ public class HttpClientDispatch extends AbstractGatewayDispatch {
   
   private int replayBufferSize = 0;
 
+  // Shared per cluster connection pool.  Null when not deployed within the gateway.
+  private ClientConnectionManager connectionManager;
+
   @Override
   public void init( FilterConfig filterConfig ) throws ServletException {
     this.init(filterConfig, new AppCookieManager() );
@@ -94,6 +104,45 @@ public class HttpClientDispatch extends AbstractGatewayDispatch {
     if ( replayBufferSizeString != null ) {
       setReplayBufferSize(Integer.valueOf(replayBufferSizeString));
     }
+    connectionManager = lookupConnectionManager( filterConfig );
+  }
+
+  private static ClientConnectionManager lookupConnectionManager( FilterConfig filterConfig ) {
+    ClientConnectionManager manager = null;
+    ServletContext context = filterConfig.getServletContext();
+    if( context != null ) {
+      GatewayServices services = (GatewayServices)context.getAttribute( GatewayServices.GATEWAY_SERVICES_ATTRIBUTE );
+      String clusterName = (String)context.getAttribute( GatewayServices.GATEWAY_CLUSTER_ATTRIBUTE );
+      if( services != null && clusterName != null ) {
+        HttpClientService service = services.getService( GatewayServices.HTTP_CLIENT_SERVICE );
+        if( service != null ) {
+          Map<String,String> params = new HashMap<String,String>();
+          for( String name : HttpClientService.CONNECTION_POOL_PARAMS ) {
+            String value = filterConfig.getInitParameter( name );
+            if( value != null ) {
+              params.put( name, value );
+            }
+          }
+          manager = service.getConnectionManager( clusterName, params );
+        }
+      }
+    }
+    return manager;
+  }
+
+  /**
+   * Creates the client used to dispatch a single request.  The clients are cheap
+   * because they share the pooled connections of the cluster so subclasses may
+   * customize them (e.g. auth schemes) without affecting other requests.
+   *
+   * @return A new client backed by the cluster's connection pool when available.
+   */
+  protected DefaultHttpClient createHttpClient() {
+    if( connectionManager != null ) {
+      return new DefaultHttpClient( connectionManager );
+    } else {
+      return new DefaultHttpClient();
+    }
   }
 
   protected void executeRequest(
@@ -102,7 +151,7 @@ public class HttpClientDispatch extends AbstractGatewayDispatch {
       HttpServletResponse outboundResponse )
           throws IOException {
     LOG.dispatchRequest( outboundRequest.getMethod(), outboundRequest.getURI() );
-    DefaultHttpClient client = new DefaultHttpClient();
+    DefaultHttpClient client = createHttpClient();
 
     HttpResponse inboundResponse = null;
     try {
@@ -169,7 +218,19 @@ public class HttpClientDispatch extends AbstractGatewayDispatch {
 //        outboundResponse.setContentLength( (int)contentLength );
 //      }
 //]
-      writeResponse( inboundRequest, outboundResponse, entity.getContent() );
+      boolean completed = false;
+      try {
+        writeResponse( inboundRequest, outboundResponse, entity.getContent() );
+        completed = true;
+      } finally {
+        if( completed ) {
+          // Make sure the connection is released back to the pool.
+          EntityUtils.consume( entity );
+        } else {
+          // Don't drain a possibly large response just to reuse the connection.
+          outboundRequest.abort();
+        }
+      }
     }
   }
 
@@ -198,10 +259,12 @@ public class HttpClientDispatch extends AbstractGatewayDispatch {
       Header[] wwwAuthHeaders = inboundResponse.getHeaders(WWW_AUTHENTICATE) ;
       if (wwwAuthHeaders != null && wwwAuthHeaders.length != 0 && 
           wwwAuthHeaders[0].getValue().trim().startsWith(NEGOTIATE)) {
+        // Release the pooled connection held by the rejected response before retrying.
+        EntityUtils.consume(inboundResponse.getEntity());
         appCookie = appCookieManager.getAppCookie(outboundRequest, true);
         outboundRequest.removeHeaders(COOKIE);
         outboundRequest.addHeader(new BasicHeader(COOKIE, appCookie));
-        client = new DefaultHttpClient();
+        client = createHttpClient();
         inboundResponse = client.execute(outboundRequest);
       } else {
         // no supported authentication type found
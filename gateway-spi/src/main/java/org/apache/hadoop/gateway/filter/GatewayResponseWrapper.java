@@ -60,7 +60,8 @@ public abstract class GatewayResponseWrapper extends HttpServletResponseWrapper
 
   @Override
   public void streamResponse( InputStream input, OutputStream output ) throws IOException {
-    IOUtils.copyBytes( input, output, STREAM_COPY_BUFFER_SIZE );
+    // Copy in chunks as large as the container's response buffer, see ServletResponse.setBufferSize().
+    IOUtils.copyBytes( input, output, Math.max( getBufferSize(), STREAM_COPY_BUFFER_SIZE ) );
     output.close();
   }
 
@@ -34,6 +34,7 @@ public interface GatewayServices extends Service, ProviderDeploymentContributor
   public static final String TOKEN_SERVICE = "TokenService";
   public static final String SERVICE_REGISTRY_SERVICE = "ServiceRegistryService";
   public static final String HOST_MAPPING_SERVICE = "HostMappingService";
+  public static final String HTTP_CLIENT_SERVICE = "HttpClientService";
 
   public abstract Collection<String> getServiceNames();
 
@@ -0,0 +1,80 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.services.http;
+
+import org.apache.hadoop.gateway.services.Service;
+import org.apache.http.conn.ClientConnectionManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Owns the pooled backend connections used by the dispatch filters.
+ * There is one connection pool per cluster (i.e. topology) and pool configuration
+ * which is shared by all of the dispatch filters deployed for that cluster with that configuration.
+ */
+public interface HttpClientService extends Service {
+
+  /**
+   * The maximum number of pooled connections for a cluster across all routes.
+   */
+  static final String MAX_CONNECTIONS_TOTAL_PARAM = "maxConnectionsTotal";
+
+  /**
+   * The maximum number of pooled connections for a cluster to a single backend host.
+   */
+  static final String MAX_CONNECTIONS_PER_ROUTE_PARAM = "maxConnectionsPerRoute";
+
+  /**
+   * The number of milliseconds a pooled connection may sit idle before it is evicted.
+   */
+  static final String CONNECTION_IDLE_TIMEOUT_PARAM = "connectionIdleTimeout";
+
+  /**
+   * The number of milliseconds a pooled connection may live regardless of activity.
+   * A value less than or equal to zero means connections never expire.
+   */
+  static final String CONNECTION_TIME_TO_LIVE_PARAM = "connectionTimeToLive";
+
+  static final List<String> CONNECTION_POOL_PARAMS = Collections.unmodifiableList( Arrays.asList(
+      MAX_CONNECTIONS_TOTAL_PARAM,
+      MAX_CONNECTIONS_PER_ROUTE_PARAM,
+      CONNECTION_IDLE_TIMEOUT_PARAM,
+      CONNECTION_TIME_TO_LIVE_PARAM ) );
+
+  /**
+   * Returns the pooled connection manager for a cluster and pool configuration creating it if required.
+   * Callers for the same cluster with different params get different connection managers.
+   *
+   * @param clusterName The name of the cluster (i.e. topology).
+   * @param params The connection pool params, see CONNECTION_POOL_PARAMS.  May be null.
+   * @return The shared connection manager for the cluster and params.
+   */
+  ClientConnectionManager getConnectionManager( String clusterName, Map<String,String> params );
+
+  /**
+   * Shuts down and discards the connection managers for a cluster.
+   * Called when a cluster's topology is undeployed.
+   *
+   * @param clusterName The name of the cluster (i.e. topology).
+   */
+  void removeConnectionManager( String clusterName );
+
+}
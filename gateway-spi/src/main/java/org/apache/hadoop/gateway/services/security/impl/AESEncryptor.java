@@ -17,6 +17,7 @@
  */
 package org.apache.hadoop.gateway.services.security.impl;
 
+import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
@@ -42,6 +43,23 @@ public class AESEncryptor {
   
   private static final int ITERATION_COUNT = 65536;
   private static final int KEY_LENGTH = 128;
+  private static final int SALT_LENGTH = 8;
+  private static final int IV_LENGTH = 16;
+  private static final String TRANSFORMATION = "AES/CBC/PKCS5Padding";
+
+  private static final SecureRandom RANDOM = new SecureRandom();
+
+  // Cipher instances are not thread safe but are expensive to look up so keep one per thread.
+  private static final ThreadLocal<Cipher> CIPHERS = new ThreadLocal<Cipher>() {
+    @Override
+    protected Cipher initialValue() {
+      try {
+        return Cipher.getInstance( TRANSFORMATION );
+      } catch( GeneralSecurityException e ) {
+        throw new IllegalStateException( e );
+      }
+    }
+  };
   
   private Cipher ecipher;
   private Cipher dcipher;
@@ -149,4 +167,51 @@ public class AESEncryptor {
     dcipher.init(Cipher.DECRYPT_MODE, secret);
     return dcipher.doFinal(encrypt);
   }
+
+  /**
+   * Generates a new random salt suitable for {@link #deriveKey(char[], byte[])}.
+   */
+  public static byte[] generateSalt() {
+    byte[] salt = new byte[SALT_LENGTH];
+    RANDOM.nextBytes(salt);
+    return salt;
+  }
+
+  /**
+   * Generates a new random initialization vector suitable for {@link #encrypt(SecretKey, byte[], byte[], byte[])}.
+   */
+  public static byte[] generateIv() {
+    byte[] iv = new byte[IV_LENGTH];
+    RANDOM.nextBytes(iv);
+    return iv;
+  }
+
+  /**
+   * Derives the AES key for a pass phrase and salt.  This is deliberately expensive so callers
+   * that encrypt or decrypt repeatedly with the same pass phrase and salt should keep the result.
+   */
+  public static SecretKey deriveKey(char[] passPhrase, byte[] salt) throws GeneralSecurityException {
+    SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
+    KeySpec spec = new PBEKeySpec(passPhrase, salt, ITERATION_COUNT, KEY_LENGTH);
+    return new SecretKeySpec(factory.generateSecret(spec).getEncoded(), "AES");
+  }
+
+  /**
+   * Encrypts using a previously derived key and an explicit salt and IV.
+   * The salt is only carried through to the result so that the key can be derived again for decryption.
+   */
+  public static EncryptionResult encrypt(SecretKey key, byte[] salt, byte[] iv, byte[] plain) throws GeneralSecurityException {
+    Cipher cipher = CIPHERS.get();
+    cipher.init(Cipher.ENCRYPT_MODE, key, new IvParameterSpec(iv));
+    return new EncryptionResult(salt, iv, cipher.doFinal(plain));
+  }
+
+  /**
+   * Decrypts using a previously derived key and the IV used for encryption.
+   */
+  public static byte[] decrypt(SecretKey key, byte[] iv, byte[] encrypt) throws GeneralSecurityException {
+    Cipher cipher = CIPHERS.get();
+    cipher.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(iv));
+    return cipher.doFinal(encrypt);
+  }
 }
@@ -45,6 +45,8 @@ import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class BaseKeystoreService {
   private static GatewaySpiMessages LOG = MessagesFactory.get( GatewaySpiMessages.class );
@@ -52,6 +54,11 @@ public class BaseKeystoreService {
   protected MasterService masterService;
   protected String keyStoreDir;
 
+  // Loading a keystore means reading the file and decrypting it with the master secret.
+  // Loaded keystores are kept until the file on disk changes and writes through this class
+  // update the cached copy so that they do not cause a reload.
+  private final ConcurrentMap<String,CachedKeyStore> keyStores = new ConcurrentHashMap<String,CachedKeyStore>();
+
   private static KeyStore loadKeyStore(final File keyStoreFile, final char[] masterPassword, String storeType)
       throws CertificateException, IOException, KeyStoreException,
       NoSuchAlgorithmException {     
@@ -135,6 +142,7 @@ public class BaseKeystoreService {
 
   protected void createKeystore(String filename, String keystoreType) throws KeystoreServiceException {
     try {
+      keyStores.remove( getCacheKey( new File( filename ), keystoreType ) );
       FileOutputStream out = createKeyStoreFile( filename );
       KeyStore ks = KeyStore.getInstance(keystoreType);  
       ks.load( null, null );  
@@ -189,9 +197,20 @@ public class BaseKeystoreService {
   }
 
   protected KeyStore getKeystore(final File keyStoreFile, String storeType) {
+    String cacheKey = getCacheKey( keyStoreFile, storeType );
+    CachedKeyStore cached = keyStores.get( cacheKey );
+    if( cached != null && cached.isCurrent( keyStoreFile ) ) {
+      return cached.keyStore;
+    }
     KeyStore credStore = null;
     try {
+      long lastModified = keyStoreFile.lastModified();
+      long length = keyStoreFile.length();
       credStore = loadKeyStore( keyStoreFile, masterService.getMasterSecret(), storeType);
+      // Don't cache a keystore for a missing file since the caller has nothing to share it with.
+      if( lastModified != 0L ) {
+        keyStores.put( cacheKey, new CachedKeyStore( credStore, lastModified, length ) );
+      }
     } catch (CertificateException e) {
       LOG.failedToLoadKeystore( keyStoreFile.getName(), storeType, e );
     } catch (KeyStoreException e) {
@@ -204,6 +223,10 @@ public class BaseKeystoreService {
     return credStore;
   }
 
+  private static String getCacheKey( File keyStoreFile, String storeType ) {
+    return keyStoreFile.getAbsolutePath() + "#" + storeType;
+  }
+
   public BaseKeystoreService() {
     super();
   }
@@ -264,18 +287,44 @@ public class BaseKeystoreService {
   protected void writeKeystoreToFile(final KeyStore keyStore, final File file)
       throws KeyStoreException, IOException, NoSuchAlgorithmException, CertificateException {
      // TODO: backup the keystore on disk before attempting a write and restore on failure
+     String cacheKey = getCacheKey( file, keyStore.getType() );
+     boolean written = false;
      final FileOutputStream  out = new FileOutputStream(file);
      try
      {
          keyStore.store( out, masterService.getMasterSecret());
+         written = true;
      }
      finally
      {
          out.close();
+         if( written ) {
+           keyStores.put( cacheKey, new CachedKeyStore( keyStore, file.lastModified(), file.length() ) );
+         } else {
+           // The keystore may have been modified in memory so force a reload from disk.
+           keyStores.remove( cacheKey );
+         }
      }
   }
 
   public void setMasterService(MasterService ms) {
     this.masterService = ms;
   }
-}
\ No newline at end of file
+
+  private static class CachedKeyStore {
+    private final KeyStore keyStore;
+    private final long lastModified;
+    private final long length;
+
+    private CachedKeyStore( KeyStore keyStore, long lastModified, long length ) {
+      this.keyStore = keyStore;
+      this.lastModified = lastModified;
+      this.length = length;
+    }
+
+    // The length is checked too since file modification times may only have a resolution of seconds.
+    private boolean isCurrent( File file ) {
+      return file.lastModified() == lastModified && file.length() == length;
+    }
+  }
+}
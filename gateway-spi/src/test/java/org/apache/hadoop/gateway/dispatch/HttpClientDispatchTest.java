@@ -20,7 +20,9 @@ package org.apache.hadoop.gateway.dispatch;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -116,6 +118,26 @@ public class HttpClientDispatchTest {
     assertTrue("not buffering in the absence of delegation token", 
         (httpEntity instanceof CappedBufferHttpEntity));
   }
-  
-  
+
+  @Test
+  public void testDispatchUrlIsBuiltOncePerRequest() {
+    HttpServletRequest request = EasyMock.createMock( HttpServletRequest.class );
+    EasyMock.expect( request.getAttribute( AbstractGatewayDispatch.DISPATCH_URL_ATTRIBUTE_NAME ) ).andReturn( null ).once();
+    EasyMock.expect( request.getRequestURL() ).andReturn( new StringBuffer( "http://host:8080/path" ) ).once();
+    EasyMock.expect( request.getQueryString() ).andReturn( "op=LISTSTATUS" ).once();
+    request.setAttribute( EasyMock.eq( AbstractGatewayDispatch.DISPATCH_URL_ATTRIBUTE_NAME ), EasyMock.anyObject() );
+    EasyMock.expectLastCall().once();
+    EasyMock.replay( request );
+
+    URI url = AbstractGatewayDispatch.getDispatchUrl( request );
+    assertThat( url.toString(), is( "http://host:8080/path?op=LISTSTATUS" ) );
+    EasyMock.verify( request );
+
+    EasyMock.reset( request );
+    EasyMock.expect( request.getAttribute( AbstractGatewayDispatch.DISPATCH_URL_ATTRIBUTE_NAME ) ).andReturn( url ).once();
+    EasyMock.replay( request );
+    assertThat( AbstractGatewayDispatch.getDispatchUrl( request ), sameInstance( url ) );
+    EasyMock.verify( request );
+  }
+
 }
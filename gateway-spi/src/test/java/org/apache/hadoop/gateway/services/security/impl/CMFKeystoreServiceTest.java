@@ -18,8 +18,12 @@
 package org.apache.hadoop.gateway.services.security.impl;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.security.KeyStore;
 import java.util.Map;
 
+import javax.crypto.spec.SecretKeySpec;
+
 import org.apache.hadoop.gateway.config.GatewayConfig;
 import org.apache.hadoop.gateway.services.ServiceLifecycleException;
 import org.apache.hadoop.gateway.services.security.KeystoreServiceException;
@@ -30,6 +34,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -97,4 +103,30 @@ public class CMFKeystoreServiceTest {
       fail();
     }
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testCredentialStoreIsCachedUntilChanged() throws Exception {
+    File file = new File("ambari-credentials.jceks");
+    try {
+      ks.createCredentialStore();
+      ks.addCredential("aliasName", "secretValue");
+      assertSame(ks.getCredentialStore(), ks.getCredentialStore());
+      assertEquals("secretValue", new String(ks.getCredential("aliasName")));
+
+      // A change made to the file by someone else must be picked up.
+      KeyStore other = KeyStore.getInstance("JCEKS");
+      other.load(null, null);
+      other.setKeyEntry("aliasName", new SecretKeySpec("changedValue".getBytes("UTF8"), "AES"), "testmaster".toCharArray(), null);
+      FileOutputStream out = new FileOutputStream(file);
+      try {
+        other.store(out, "testmaster".toCharArray());
+      } finally {
+        out.close();
+      }
+      assertTrue(file.setLastModified(file.lastModified() + 2000L));
+      assertEquals("changedValue", new String(ks.getCredential("aliasName")));
+    } finally {
+      file.delete();
+    }
+  }
+}
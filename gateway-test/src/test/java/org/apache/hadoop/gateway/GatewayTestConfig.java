@@ -21,6 +21,8 @@ import org.apache.hadoop.gateway.config.GatewayConfig;
 
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Map;
 
 public class GatewayTestConfig implements GatewayConfig {
 
@@ -33,6 +35,7 @@ public class GatewayTestConfig implements GatewayConfig {
   private String kerberosConfig = "/etc/knox/conf/krb5.conf";
   private boolean kerberosDebugEnabled = false;
   private String kerberosLoginConfig = "/etc/knox/conf/krb5JAASLogin.conf";
+  private Map<String, Integer> gatewayPortMappings = new HashMap<String, Integer>();
 
   public void setGatewayHomeDir( String gatewayHomeDir ) {
     this.gatewayHomeDir = gatewayHomeDir;
@@ -150,4 +153,63 @@ public class GatewayTestConfig implements GatewayConfig {
 //   this.kerberosLoginConfig = kerberosLoginConfig;
 //  }
   
+  @Override
+  public int getHttpServerMinThreads() {
+    return 8;
+  }
+
+  @Override
+  public int getHttpServerMaxThreads() {
+    return 64;
+  }
+
+  @Override
+  public int getHttpServerThreadIdleTimeout() {
+    return 60000;
+  }
+
+  @Override
+  public int getHttpServerAcceptors() {
+    return -1;
+  }
+
+  @Override
+  public int getHttpServerAcceptQueueSize() {
+    return 0;
+  }
+
+  @Override
+  public int getHttpServerIdleTimeout() {
+    return 200000;
+  }
+
+  @Override
+  public int getHttpServerRequestHeaderBuffer() {
+    return 8 * 1024;
+  }
+
+  @Override
+  public int getHttpServerResponseHeaderBuffer() {
+    return 8 * 1024;
+  }
+
+  @Override
+  public int getHttpServerRequestBuffer() {
+    return 16 * 1024;
+  }
+
+  @Override
+  public int getHttpServerResponseBuffer() {
+    return 32 * 1024;
+  }
+
+  @Override
+  public Map<String, Integer> getGatewayPortMappings() {
+    return gatewayPortMappings;
+  }
+
+  public void setGatewayPortMappings( Map<String, Integer> gatewayPortMappings ) {
+    this.gatewayPortMappings = gatewayPortMappings;
+  }
+
 }
@@ -0,0 +1,198 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.audit.log4j.appender;
+
+import org.apache.hadoop.gateway.audit.api.AuditContext;
+import org.apache.hadoop.gateway.audit.api.CorrelationContext;
+import org.apache.hadoop.gateway.audit.log4j.audit.AuditConstants;
+import org.apache.hadoop.gateway.audit.log4j.audit.Log4jAuditService;
+import org.apache.hadoop.gateway.audit.log4j.correlation.Log4jCorrelationService;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.spi.ErrorCode;
+import org.apache.log4j.spi.LoggingEvent;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Writes audit events to a file in a compact binary format instead of text.
+ * The file can be decoded offline with BinaryAuditReader.
+ * The file starts with a header of MAGIC and VERSION.
+ * Each record is the timestamp as a long followed by the same fields, in the same order, as AuditLayout.
+ * Each field is written as an int byte length, -1 for null, followed by the UTF-8 bytes.
+ */
+public class BinaryAuditAppender extends AppenderSkeleton {
+
+  static final int MAGIC = 0x4B415544; // KAUD
+  static final byte VERSION = 1;
+  static final int FIELD_COUNT = 13;
+
+  private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  private String file;
+  private boolean append = true;
+  private boolean immediateFlush = true;
+  private int bufferSize = DEFAULT_BUFFER_SIZE;
+  private DataOutputStream output;
+  private byte[] buffer = new byte[ 256 ];
+
+  @Override
+  public boolean requiresLayout() {
+    return false;
+  }
+
+  public void setFile( String file ) {
+    this.file = file;
+  }
+
+  public String getFile() {
+    return file;
+  }
+
+  public void setAppend( boolean append ) {
+    this.append = append;
+  }
+
+  public boolean getAppend() {
+    return append;
+  }
+
+  public void setImmediateFlush( boolean immediateFlush ) {
+    this.immediateFlush = immediateFlush;
+  }
+
+  public boolean getImmediateFlush() {
+    return immediateFlush;
+  }
+
+  public void setBufferSize( int bufferSize ) {
+    this.bufferSize = bufferSize;
+  }
+
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  @Override
+  public void activateOptions() {
+    if( file == null ) {
+      errorHandler.error( "File option not set for appender [" + name + "]." );
+      return;
+    }
+    try {
+      File f = new File( file );
+      boolean header = !append || !f.exists() || f.length() == 0;
+      output = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( f, append ), bufferSize ) );
+      if( header ) {
+        output.writeInt( MAGIC );
+        output.writeByte( VERSION );
+        output.flush();
+      }
+    } catch( IOException e ) {
+      errorHandler.error( "Failed to open [" + file + "].", e, ErrorCode.FILE_OPEN_FAILURE );
+    }
+  }
+
+  @Override
+  protected void append( LoggingEvent event ) {
+    if( output == null ) {
+      return;
+    }
+    CorrelationContext cc = (CorrelationContext)event.getMDC( Log4jCorrelationService.MDC_CORRELATION_CONTEXT_KEY );
+    AuditContext ac = (AuditContext)event.getMDC( Log4jAuditService.MDC_AUDIT_CONTEXT_KEY );
+    try {
+      output.writeLong( event.getTimeStamp() );
+      writeString( cc == null ? null : cc.getRootRequestId() );
+      writeString( cc == null ? null : cc.getParentRequestId() );
+      writeString( cc == null ? null : cc.getRequestId() );
+      writeString( event.getLoggerName() );
+      writeString( ac == null ? null : ac.getTargetServiceName() );
+      writeString( ac == null ? null : ac.getUsername() );
+      writeString( ac == null ? null : ac.getProxyUsername() );
+      writeString( ac == null ? null : ac.getSystemUsername() );
+      writeString( (String)event.getMDC( AuditConstants.MDC_ACTION_KEY ) );
+      writeString( (String)event.getMDC( AuditConstants.MDC_RESOURCE_TYPE_KEY ) );
+      writeString( (String)event.getMDC( AuditConstants.MDC_RESOURCE_NAME_KEY ) );
+      writeString( (String)event.getMDC( AuditConstants.MDC_OUTCOME_KEY ) );
+      writeString( event.getRenderedMessage() );
+      if( immediateFlush ) {
+        output.flush();
+      }
+    } catch( IOException e ) {
+      errorHandler.error( "Failed to write audit record to [" + file + "].", e, ErrorCode.WRITE_FAILURE );
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    if( closed ) {
+      return;
+    }
+    closed = true;
+    if( output != null ) {
+      try {
+        output.close();
+      } catch( IOException e ) {
+        errorHandler.error( "Failed to close [" + file + "].", e, ErrorCode.CLOSE_FAILURE );
+      }
+      output = null;
+    }
+  }
+
+  // Encodes the UTF-8 into a reused buffer to avoid allocating a byte array per field.
+  // Appending is synchronized by AppenderSkeleton so the buffer isn't shared between threads.
+  private void writeString( String s ) throws IOException {
+    if( s == null ) {
+      output.writeInt( -1 );
+      return;
+    }
+    int length = s.length();
+    if( buffer.length < length * 3 ) {
+      buffer = new byte[ length * 3 ];
+    }
+    int n = 0;
+    for( int i = 0; i < length; i++ ) {
+      char c = s.charAt( i );
+      if( c < 0x80 ) {
+        buffer[ n++ ] = (byte)c;
+      } else if( c < 0x800 ) {
+        buffer[ n++ ] = (byte)( 0xC0 | ( c >> 6 ) );
+        buffer[ n++ ] = (byte)( 0x80 | ( c & 0x3F ) );
+      } else if( Character.isHighSurrogate( c ) && i + 1 < length && Character.isLowSurrogate( s.charAt( i + 1 ) ) ) {
+        int cp = Character.toCodePoint( c, s.charAt( ++i ) );
+        buffer[ n++ ] = (byte)( 0xF0 | ( cp >> 18 ) );
+        buffer[ n++ ] = (byte)( 0x80 | ( ( cp >> 12 ) & 0x3F ) );
+        buffer[ n++ ] = (byte)( 0x80 | ( ( cp >> 6 ) & 0x3F ) );
+        buffer[ n++ ] = (byte)( 0x80 | ( cp & 0x3F ) );
+      } else if( c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE ) {
+        // Unpaired surrogates can't be encoded.
+        buffer[ n++ ] = '?';
+      } else {
+        buffer[ n++ ] = (byte)( 0xE0 | ( c >> 12 ) );
+        buffer[ n++ ] = (byte)( 0x80 | ( ( c >> 6 ) & 0x3F ) );
+        buffer[ n++ ] = (byte)( 0x80 | ( c & 0x3F ) );
+      }
+    }
+    output.writeInt( n );
+    output.write( buffer, 0, n );
+  }
+
+}
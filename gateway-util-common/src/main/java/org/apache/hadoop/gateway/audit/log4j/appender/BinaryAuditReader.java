@@ -0,0 +1,186 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.audit.log4j.appender;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Decodes audit files written by BinaryAuditAppender.
+ * Running the main method prints the records of the given files in the same format as AuditLayout.
+ */
+public class BinaryAuditReader {
+
+  private static final String DATE_FORMAT = "yy/MM/dd HH:mm:ss";
+
+  private DataInputStream input;
+  private byte[] buffer = new byte[ 256 ];
+
+  public BinaryAuditReader( InputStream input ) throws IOException {
+    this.input = new DataInputStream( input );
+    int magic = this.input.readInt();
+    byte version = this.input.readByte();
+    if( magic != BinaryAuditAppender.MAGIC || version != BinaryAuditAppender.VERSION ) {
+      throw new IOException( "Not a binary audit file or unsupported version " + version + "." );
+    }
+  }
+
+  /**
+   * @return The next record or null at the end of the input.
+   */
+  public Record read() throws IOException {
+    long timestamp;
+    try {
+      timestamp = input.readLong();
+    } catch( EOFException e ) {
+      return null;
+    }
+    String[] fields = new String[ BinaryAuditAppender.FIELD_COUNT ];
+    for( int i = 0; i < fields.length; i++ ) {
+      fields[ i ] = readString();
+    }
+    return new Record( timestamp, fields );
+  }
+
+  public void close() throws IOException {
+    input.close();
+  }
+
+  private String readString() throws IOException {
+    int length = input.readInt();
+    if( length < 0 ) {
+      return null;
+    }
+    if( buffer.length < length ) {
+      buffer = new byte[ length ];
+    }
+    input.readFully( buffer, 0, length );
+    return new String( buffer, 0, length, "UTF-8" );
+  }
+
+  public static void main( String[] args ) throws IOException {
+    PrintStream out = System.out;
+    SimpleDateFormat dateFormat = new SimpleDateFormat( DATE_FORMAT );
+    for( String file : args ) {
+      BinaryAuditReader reader = new BinaryAuditReader( new BufferedInputStream( new FileInputStream( file ) ) );
+      try {
+        Record record;
+        while( ( record = reader.read() ) != null ) {
+          out.println( record.format( dateFormat ) );
+        }
+      } finally {
+        reader.close();
+      }
+    }
+  }
+
+  public static class Record {
+
+    private long timestamp;
+    private String[] fields;
+
+    private Record( long timestamp, String[] fields ) {
+      this.timestamp = timestamp;
+      this.fields = fields;
+    }
+
+    public long getTimestamp() {
+      return timestamp;
+    }
+
+    public String getRootRequestId() {
+      return fields[ 0 ];
+    }
+
+    public String getParentRequestId() {
+      return fields[ 1 ];
+    }
+
+    public String getRequestId() {
+      return fields[ 2 ];
+    }
+
+    public String getChannel() {
+      return fields[ 3 ];
+    }
+
+    public String getTargetServiceName() {
+      return fields[ 4 ];
+    }
+
+    public String getUsername() {
+      return fields[ 5 ];
+    }
+
+    public String getProxyUsername() {
+      return fields[ 6 ];
+    }
+
+    public String getSystemUsername() {
+      return fields[ 7 ];
+    }
+
+    public String getAction() {
+      return fields[ 8 ];
+    }
+
+    public String getResourceType() {
+      return fields[ 9 ];
+    }
+
+    public String getResourceName() {
+      return fields[ 10 ];
+    }
+
+    public String getOutcome() {
+      return fields[ 11 ];
+    }
+
+    public String getMessage() {
+      return fields[ 12 ];
+    }
+
+    String format( SimpleDateFormat dateFormat ) {
+      StringBuilder sb = new StringBuilder();
+      sb.append( dateFormat.format( new Date( timestamp ) ) ).append( ' ' );
+      for( int i = 0; i < fields.length; i++ ) {
+        if( i > 0 ) {
+          sb.append( '|' );
+        }
+        if( fields[ i ] != null ) {
+          sb.append( fields[ i ] );
+        }
+      }
+      return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+      return format( new SimpleDateFormat( DATE_FORMAT ) );
+    }
+
+  }
+
+}
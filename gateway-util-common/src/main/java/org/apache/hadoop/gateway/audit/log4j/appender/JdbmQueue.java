@@ -24,6 +24,9 @@ import jdbm.htree.HTree;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Properties;
 
 public class JdbmQueue<E> {
@@ -62,6 +65,32 @@ public class JdbmQueue<E> {
     }
   }
 
+  /**
+   * Enqueues all of the elements within a single transaction.
+   * This amortizes the cost of the commit across the elements.
+   */
+  public synchronized void enqueue( Collection<? extends E> elements ) throws IOException {
+    if( elements.isEmpty() ) {
+      return;
+    }
+    boolean committed = false;
+    try {
+      Stat stat = getStat();
+      for( E e : elements ) {
+        stat.lastEnqueue++;
+        data.put( stat.lastEnqueue, e );
+      }
+      setStat( stat );
+      db.commit();
+      committed = true;
+      notifyAll();
+    } finally {
+      if( !committed ) {
+        db.rollback();
+      }
+    }
+  }
+
   public synchronized E dequeue() throws InterruptedException, IOException {
     boolean committed = false;
     try {
@@ -112,6 +141,52 @@ public class JdbmQueue<E> {
     return committed;
   }
 
+  /**
+   * Removes up to max elements from the queue and passes them to the consumer as a single batch.
+   * The removal is committed in a single transaction if the consumer returns true and rolled back otherwise.
+   * Blocks while the queue is empty and open.  Once the queue is stopped and empty the consumer is passed null.
+   */
+  public synchronized boolean process( BatchConsumer<E> consumer, int max ) throws IOException {
+    boolean committed = false;
+    try {
+      Stat s = getStat();
+      while( open && s.size() == 0 ) {
+        wait();
+        s = getStat();
+      }
+      List<E> batch = null;
+      if( s.size() > 0 ) {
+        int count = (int)Math.min( s.size(), Math.max( max, 1 ) );
+        batch = new ArrayList<E>( count );
+        for( int i = 0; i < count; i++ ) {
+          s.nextDequeue++;
+          Long key = Long.valueOf( s.nextDequeue );
+          @SuppressWarnings("unchecked")
+          E e = (E)data.get( key );
+          data.remove( key );
+          batch.add( e );
+        }
+        db.update( stat, s );
+      }
+      boolean consumed = consumer.consume( batch );
+      if( consumed && batch != null ) {
+        db.commit();
+        committed = true;
+      }
+    } catch( RuntimeException e ) {
+      throw e;
+    } catch( IOException e ) {
+      throw e;
+    } catch( Throwable t ) {
+      throw new RuntimeException( t );
+    } finally {
+      if( !committed ) {
+        db.rollback();
+      }
+    }
+    return committed;
+  }
+
   public synchronized void stop() {
     open = false;
     notifyAll();
@@ -173,4 +248,8 @@ public class JdbmQueue<E> {
     boolean consume( E e );
   }
 
+  public interface BatchConsumer<E> {
+    boolean consume( List<E> batch );
+  }
+
 }
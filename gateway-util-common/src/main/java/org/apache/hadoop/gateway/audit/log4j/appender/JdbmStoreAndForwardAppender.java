@@ -19,19 +19,60 @@ package org.apache.hadoop.gateway.audit.log4j.appender;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.log4j.AppenderSkeleton;
 import org.apache.log4j.Logger;
+import org.apache.log4j.helpers.LogLog;
+import org.apache.log4j.spi.Filter;
 import org.apache.log4j.spi.LoggingEvent;
 
+/**
+ * Stores audit events in a JDBM queue and forwards them to the audit.forward logger.
+ * Appending threads only add the event to a non-blocking buffer.
+ * A single writer thread moves the buffered events into the store committing up to batchSize events at a time.
+ * A partial batch is committed at most batchLatency milliseconds after its first event was buffered.
+ * Setting batchSize to 1 commits each event individually.
+ * An event is therefore not yet durable when append returns, events still buffered are lost if the process dies.
+ * Appending threads wait up to bufferTimeout milliseconds for the writer when bufferSize events are already buffered.
+ * Events that still don't fit, or that are appended after the appender was closed, are dropped and counted.
+ * A batch the store keeps failing to commit is retried until the appender is closed, then it is only
+ * attempted CLOSE_STORE_ATTEMPTS times before it and the rest of the buffer are dropped and counted.
+ * The appender is not synchronized so a waiting thread doesn't hold up the others.
+ */
 public class JdbmStoreAndForwardAppender extends AppenderSkeleton {
 
+  static final int DEFAULT_BATCH_SIZE = 256;
+  static final long DEFAULT_BATCH_LATENCY = 10; // Milliseconds.
+  static final int DEFAULT_BUFFER_SIZE = 8192;
+  static final long DEFAULT_BUFFER_TIMEOUT = 1000; // Milliseconds.
+  static final int CLOSE_STORE_ATTEMPTS = 3;
+  static final long CLOSE_TIMEOUT = 10000; // Milliseconds.
+
   private File file;
+  private Thread writer;
   private Thread forwarder;
   private JdbmQueue<LoggingEvent> queue;
   private Logger forward;
   private boolean fetchLocationInfo = true;
+  private int batchSize = DEFAULT_BATCH_SIZE;
+  private long batchLatency = DEFAULT_BATCH_LATENCY;
+  private int bufferSize = DEFAULT_BUFFER_SIZE;
+  private long bufferTimeout = DEFAULT_BUFFER_TIMEOUT;
+  private BlockingQueue<LoggingEvent> buffer;
+  private AtomicLong dropped = new AtomicLong( 0 );
+  // Appending threads hold the read lock so that close can't overtake an event on its way into the buffer.
+  private ReadWriteLock closeLock = new ReentrantReadWriteLock();
+  private volatile boolean writing;
 
   @Override
   public boolean requiresLayout() {
@@ -50,6 +91,45 @@ public class JdbmStoreAndForwardAppender extends AppenderSkeleton {
     return fetchLocationInfo;
   }
 
+  public void setBatchSize( int batchSize ) {
+    this.batchSize = Math.max( batchSize, 1 );
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchLatency( long batchLatency ) {
+    this.batchLatency = Math.max( batchLatency, 0 );
+  }
+
+  public long getBatchLatency() {
+    return batchLatency;
+  }
+
+  public void setBufferSize( int bufferSize ) {
+    this.bufferSize = Math.max( bufferSize, 1 );
+  }
+
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  public void setBufferTimeout( long bufferTimeout ) {
+    this.bufferTimeout = Math.max( bufferTimeout, 0 );
+  }
+
+  public long getBufferTimeout() {
+    return bufferTimeout;
+  }
+
+  /**
+   * The number of events dropped because the buffer stayed full or the appender was closed.
+   */
+  public long getDroppedCount() {
+    return dropped.get();
+  }
+
   @Override
   public void activateOptions() {
     try {
@@ -57,30 +137,103 @@ public class JdbmStoreAndForwardAppender extends AppenderSkeleton {
     } catch ( IOException e ) {
       throw new IllegalStateException( e );
     }
+    buffer = new LinkedBlockingQueue<LoggingEvent>( bufferSize );
     forward = Logger.getLogger( "audit.forward" );
     forward.setAdditivity( false );
+    writing = true;
+    writer = new Writer();
+    writer.setDaemon( true );
+    writer.start();
     forwarder = new Forwarder();
     forwarder.setDaemon( true );
     forwarder.start();
   }
 
+  // Same as AppenderSkeleton.doAppend but without holding the appender's monitor.
+  @Override
+  public void doAppend( LoggingEvent event ) {
+    if( !isAsSevereAsThreshold( event.getLevel() ) ) {
+      return;
+    }
+    Filter filter = getFirstFilter();
+    while( filter != null ) {
+      int decision = filter.decide( event );
+      if( decision == Filter.DENY ) {
+        return;
+      } else if( decision == Filter.ACCEPT ) {
+        break;
+      }
+      filter = filter.getNext();
+    }
+    append( event );
+  }
+
   @Override
   protected void append( LoggingEvent event ) {
+    if( fetchLocationInfo ) {
+      event.getLocationInformation();
+    }
+    boolean buffered = false;
+    closeLock.readLock().lock();
     try {
-      if( fetchLocationInfo ) {
-        event.getLocationInformation();
+      if( closed ) {
+        drop( "Attempted to append to closed appender named [" + name + "]." );
+        return;
       }
-      queue.enqueue( event );
-    } catch ( IOException e ) {
-      throw new RuntimeException( e );
+      buffered = buffer.offer( event );
+      if( !buffered ) {
+        LockSupport.unpark( writer );
+        buffered = buffer.offer( event, bufferTimeout, TimeUnit.MILLISECONDS );
+      }
+    } catch( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    } finally {
+      closeLock.readLock().unlock();
+    }
+    if( !buffered ) {
+      drop( "Audit buffer of appender named [" + name + "] is full." );
+    } else if( buffer.size() >= batchSize ) {
+      LockSupport.unpark( writer );
     }
   }
 
+  private void drop( String reason ) {
+    long count = dropped.incrementAndGet();
+    if( count == 1 || count % 1000 == 0 ) {
+      LogLog.error( reason + " " + count + " audit events have been dropped." );
+    }
+  }
+
+  private void dropBatch( List<LoggingEvent> batch, Throwable cause ) {
+    long count = dropped.addAndGet( batch.size() );
+    LogLog.error( "Failed to store " + batch.size() + " audit events of closed appender named [" + name + "]. "
+        + count + " audit events have been dropped.", cause );
+    batch.clear();
+  }
+
   @Override
   public void close() {
+    closeLock.writeLock().lock();
+    try {
+      if( closed ) {
+        return;
+      }
+      closed = true;
+    } finally {
+      closeLock.writeLock().unlock();
+    }
     try {
+      writing = false;
+      LockSupport.unpark( writer );
+      writer.join( CLOSE_TIMEOUT );
+      if( writer.isAlive() ) {
+        LogLog.error( "Audit writer of appender named [" + name + "] did not stop within " + CLOSE_TIMEOUT + "ms." );
+      }
       queue.stop();
-      forwarder.join();
+      forwarder.join( CLOSE_TIMEOUT );
+      if( forwarder.isAlive() ) {
+        LogLog.error( "Audit forwarder of appender named [" + name + "] did not stop within " + CLOSE_TIMEOUT + "ms." );
+      }
       queue.close();
     } catch( InterruptedException e ) {
       throw new RuntimeException( e );
@@ -89,20 +242,71 @@ public class JdbmStoreAndForwardAppender extends AppenderSkeleton {
     }
   }
 
+  private class Writer extends Thread {
+
+    public void run() {
+      List<LoggingEvent> batch = new ArrayList<LoggingEvent>( batchSize );
+      long deadline = 0;
+      int failures = 0;
+      boolean failed = false;
+      while( writing || !buffer.isEmpty() || !batch.isEmpty() ) {
+        LoggingEvent event;
+        while( batch.size() < batchSize && ( event = buffer.poll() ) != null ) {
+          if( batch.isEmpty() ) {
+            deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( batchLatency );
+          }
+          batch.add( event );
+        }
+        long remaining = deadline - System.nanoTime();
+        if( batch.isEmpty() ) {
+          if( writing ) {
+            LockSupport.parkNanos( TimeUnit.MILLISECONDS.toNanos( Math.max( batchLatency, 1 ) ) );
+          }
+        } else if( batch.size() < batchSize && remaining > 0 && writing ) {
+          LockSupport.parkNanos( remaining );
+        } else if( failed ) {
+          // The store already failed while closing so don't hold up the close any longer.
+          dropBatch( batch, null );
+        } else {
+          try {
+            queue.enqueue( batch );
+            batch.clear();
+            failures = 0;
+          } catch ( ThreadDeath e ) {
+            throw e;
+          } catch ( Throwable t ) {
+            failures++;
+            if( !writing && failures >= CLOSE_STORE_ATTEMPTS ) {
+              failed = true;
+              dropBatch( batch, t );
+            } else {
+              t.printStackTrace();
+              // Retry the same batch rather than lose it.
+              LockSupport.parkNanos( TimeUnit.MILLISECONDS.toNanos( Math.max( batchLatency, 1 ) ) );
+            }
+          }
+        }
+      }
+    }
+  }
+
   private class Forwarder extends Thread {
 
     public void run() {
       final AtomicBoolean done = new AtomicBoolean( false );
       while( !done.get() ) {
         try {
-          queue.process( new JdbmQueue.Consumer<LoggingEvent>() {
+          queue.process( new JdbmQueue.BatchConsumer<LoggingEvent>() {
             @Override
-            public boolean consume( LoggingEvent event ) {
+            public boolean consume( List<LoggingEvent> events ) {
               try {
-                if( event == null ) {
+                if( events == null ) {
                   done.set( true );
                 } else {
-                  forward.callAppenders( event );
+                  // If forwarding fails part way the whole batch is rolled back and forwarded again.
+                  for( LoggingEvent event : events ) {
+                    forward.callAppenders( event );
+                  }
                 }
                 return true;
               } catch ( Exception e ) {
@@ -110,7 +314,7 @@ public class JdbmStoreAndForwardAppender extends AppenderSkeleton {
                 return false;
               }
             }
-          } );
+          }, batchSize );
         } catch ( ThreadDeath e ) {
           throw e;
         } catch ( Throwable t ) {
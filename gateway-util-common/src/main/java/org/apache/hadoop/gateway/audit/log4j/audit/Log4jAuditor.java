@@ -25,11 +25,28 @@ import org.apache.hadoop.gateway.audit.api.Auditor;
 import org.apache.hadoop.gateway.audit.api.CorrelationContext;
 import org.apache.hadoop.gateway.audit.api.CorrelationService;
 import org.apache.hadoop.gateway.audit.log4j.correlation.Log4jCorrelationService;
+import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.apache.log4j.MDC;
+import org.apache.log4j.NDC;
+import org.apache.log4j.spi.LoggingEvent;
+
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
 
 public class Log4jAuditor implements Auditor {
 
+  private static final String FQCN = Log4jAuditor.class.getName();
+
+  // Reused per thread to collect the event properties.  The event takes its own copy.
+  private static final ThreadLocal<Map<Object,Object>> PROPERTIES = new ThreadLocal<Map<Object,Object>>() {
+    @Override
+    protected Map<Object,Object> initialValue() {
+      return new HashMap<Object,Object>();
+    }
+  };
+
   private Logger logger;
   private String componentName;
   private String serviceName;
@@ -73,23 +90,37 @@ public class Log4jAuditor implements Auditor {
     auditLog( action, resourceName, resourceType, outcome, null );
   }
 
+  // The audit values are added to the event properties directly instead of being put into and removed from the MDC.
+  // Layouts and appenders still see them via LoggingEvent.getMDC().
   private void auditLog( String action, String resourceName, String resourceType, String outcome, String message ) {
     if ( logger.isInfoEnabled() ) {
-      MDC.put( AuditConstants.MDC_ACTION_KEY, action );
-      MDC.put( AuditConstants.MDC_RESOURCE_NAME_KEY, resourceName );
-      MDC.put( AuditConstants.MDC_RESOURCE_TYPE_KEY, resourceType );
-      MDC.put( AuditConstants.MDC_OUTCOME_KEY, outcome );
-      MDC.put( AuditConstants.MDC_SERVICE_KEY, serviceName );
-      MDC.put( AuditConstants.MDC_COMPONENT_KEY, componentName );
-      
-      logger.info( message );
-      
-      MDC.remove( AuditConstants.MDC_ACTION_KEY );
-      MDC.remove( AuditConstants.MDC_RESOURCE_NAME_KEY );
-      MDC.remove( AuditConstants.MDC_RESOURCE_TYPE_KEY );
-      MDC.remove( AuditConstants.MDC_OUTCOME_KEY );
-      MDC.remove( AuditConstants.MDC_SERVICE_KEY );
-      MDC.remove( AuditConstants.MDC_COMPONENT_KEY );
+      Map<Object,Object> properties = PROPERTIES.get();
+      try {
+        Hashtable<?,?> context = MDC.getContext();
+        if( context != null ) {
+          properties.putAll( context );
+        }
+        putProperty( properties, AuditConstants.MDC_ACTION_KEY, action );
+        putProperty( properties, AuditConstants.MDC_RESOURCE_NAME_KEY, resourceName );
+        putProperty( properties, AuditConstants.MDC_RESOURCE_TYPE_KEY, resourceType );
+        putProperty( properties, AuditConstants.MDC_OUTCOME_KEY, outcome );
+        putProperty( properties, AuditConstants.MDC_SERVICE_KEY, serviceName );
+        putProperty( properties, AuditConstants.MDC_COMPONENT_KEY, componentName );
+        logger.callAppenders( new LoggingEvent(
+            FQCN, logger, System.currentTimeMillis(), Level.INFO, message,
+            Thread.currentThread().getName(), null, NDC.get(), null, properties ) );
+      } finally {
+        properties.clear();
+      }
+    }
+  }
+
+  private static void putProperty( Map<Object,Object> properties, String key, String value ) {
+    // Hashtable, which the event copies the properties into, does not allow null values.
+    if( value == null ) {
+      properties.remove( key );
+    } else {
+      properties.put( key, value );
     }
   }
 
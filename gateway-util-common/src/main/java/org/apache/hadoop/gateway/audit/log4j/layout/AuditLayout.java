@@ -25,6 +25,9 @@ import org.apache.hadoop.gateway.audit.log4j.correlation.Log4jCorrelationService
 import org.apache.log4j.helpers.DateLayout;
 import org.apache.log4j.spi.LoggingEvent;
 
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
 /**
  * Formats audit record to following output:
  * date time root_request_id|parent_request_id|request_id|channel|target_service|username|proxy_username|system_username|action|resource_type|resource_name|outcome|message
@@ -32,9 +35,16 @@ import org.apache.log4j.spi.LoggingEvent;
 public class AuditLayout extends DateLayout {
   
   private static final String DATE_FORMAT = "yy/MM/dd HH:mm:ss";
-  private static final String SEPARATOR = "|";
-  private StringBuffer sb = new StringBuffer();
-  
+  private static final char SEPARATOR = '|';
+
+  // The builder and date format are reused per thread so that formatting doesn't need to be synchronized.
+  private static final ThreadLocal<Encoder> ENCODER = new ThreadLocal<Encoder>() {
+    @Override
+    protected Encoder initialValue() {
+      return new Encoder();
+    }
+  };
+
   @Override
   public void activateOptions() {
     setDateFormat( DATE_FORMAT );
@@ -42,24 +52,29 @@ public class AuditLayout extends DateLayout {
 
   @Override
   public String format( LoggingEvent event ) {
+    Encoder encoder = ENCODER.get();
+    StringBuilder sb = encoder.builder;
     sb.setLength( 0 );
-    dateFormat( sb, event );
+    encoder.appendDate( event.getTimeStamp() );
     CorrelationContext cc = (CorrelationContext)event.getMDC( Log4jCorrelationService.MDC_CORRELATION_CONTEXT_KEY );
     AuditContext ac = (AuditContext)event.getMDC( Log4jAuditService.MDC_AUDIT_CONTEXT_KEY );
-    appendParameter( cc == null ? null : cc.getRootRequestId() );
-    appendParameter( cc == null ? null : cc.getParentRequestId() );
-    appendParameter( cc == null ? null : cc.getRequestId() );
-    appendParameter( event.getLoggerName() );
-    appendParameter( ac == null ? null : ac.getTargetServiceName() );
-    appendParameter( ac == null ? null : ac.getUsername() );
-    appendParameter( ac == null ? null : ac.getProxyUsername() );
-    appendParameter( ac == null ? null : ac.getSystemUsername() );
-    appendParameter( (String)event.getMDC( AuditConstants.MDC_ACTION_KEY ) );
-    appendParameter( (String)event.getMDC( AuditConstants.MDC_RESOURCE_TYPE_KEY ) );
-    appendParameter( (String)event.getMDC( AuditConstants.MDC_RESOURCE_NAME_KEY ) );
-    appendParameter( (String)event.getMDC( AuditConstants.MDC_OUTCOME_KEY ) );
+    appendParameter( sb, cc == null ? null : cc.getRootRequestId() );
+    appendParameter( sb, cc == null ? null : cc.getParentRequestId() );
+    appendParameter( sb, cc == null ? null : cc.getRequestId() );
+    appendParameter( sb, event.getLoggerName() );
+    appendParameter( sb, ac == null ? null : ac.getTargetServiceName() );
+    appendParameter( sb, ac == null ? null : ac.getUsername() );
+    appendParameter( sb, ac == null ? null : ac.getProxyUsername() );
+    appendParameter( sb, ac == null ? null : ac.getSystemUsername() );
+    appendParameter( sb, (String)event.getMDC( AuditConstants.MDC_ACTION_KEY ) );
+    appendParameter( sb, (String)event.getMDC( AuditConstants.MDC_RESOURCE_TYPE_KEY ) );
+    appendParameter( sb, (String)event.getMDC( AuditConstants.MDC_RESOURCE_NAME_KEY ) );
+    appendParameter( sb, (String)event.getMDC( AuditConstants.MDC_OUTCOME_KEY ) );
     String message = event.getRenderedMessage();
-    sb.append( message == null ? "" : message ).append( LINE_SEP );
+    if( message != null ) {
+      sb.append( message );
+    }
+    sb.append( LINE_SEP );
     return sb.toString();
   }
 
@@ -68,11 +83,32 @@ public class AuditLayout extends DateLayout {
     return true;
   }
   
-  private void appendParameter( String parameter ) {
+  private static void appendParameter( StringBuilder sb, String parameter ) {
     if ( parameter != null ) {
       sb.append( parameter );
     }
     sb.append( SEPARATOR );
   }
 
+  private static class Encoder {
+
+    private StringBuilder builder = new StringBuilder( 256 );
+    private SimpleDateFormat dateFormat = new SimpleDateFormat( DATE_FORMAT );
+    private Date date = new Date();
+    private long second = Long.MIN_VALUE;
+    private String formattedDate;
+
+    // The date format has a resolution of one second so the formatted date is reused within a second.
+    private void appendDate( long timestamp ) {
+      long eventSecond = timestamp / 1000;
+      if( eventSecond != second ) {
+        date.setTime( timestamp );
+        formattedDate = dateFormat.format( date );
+        second = eventSecond;
+      }
+      builder.append( formattedDate ).append( ' ' );
+    }
+
+  }
+
 }
@@ -0,0 +1,69 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.util;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates request ids formatted like UUIDs without the cost of UUID.randomUUID() for each id.
+ * The most significant half is random and generated once per JVM.
+ * The least significant half is a counter so ids are monotonic within a JVM.
+ */
+public final class RequestIdGenerator {
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private static final String PREFIX = createPrefix( UUID.randomUUID().getMostSignificantBits() );
+  private static final AtomicLong COUNTER = new AtomicLong( 0 );
+
+  private RequestIdGenerator() {
+  }
+
+  public static String nextRequestId() {
+    return format( PREFIX, COUNTER.incrementAndGet() );
+  }
+
+  static String format( String prefix, long counter ) {
+    char[] chars = new char[ 36 ];
+    prefix.getChars( 0, 19, chars, 0 );
+    appendHex( chars, 19, counter >>> 48, 4 );
+    chars[ 23 ] = '-';
+    appendHex( chars, 24, counter, 12 );
+    return new String( chars );
+  }
+
+  static String createPrefix( long bits ) {
+    char[] chars = new char[ 19 ];
+    appendHex( chars, 0, bits >>> 32, 8 );
+    chars[ 8 ] = '-';
+    appendHex( chars, 9, bits >>> 16, 4 );
+    chars[ 13 ] = '-';
+    appendHex( chars, 14, bits, 4 );
+    chars[ 18 ] = '-';
+    return new String( chars );
+  }
+
+  private static void appendHex( char[] chars, int offset, long value, int digits ) {
+    for( int i = offset + digits - 1; i >= offset; i-- ) {
+      chars[ i ] = HEX[ (int)( value & 0xF ) ];
+      value >>>= 4;
+    }
+  }
+
+}
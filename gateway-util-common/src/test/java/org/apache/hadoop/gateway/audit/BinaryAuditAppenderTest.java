@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.audit;
+
+import org.apache.hadoop.gateway.audit.api.AuditContext;
+import org.apache.hadoop.gateway.audit.api.AuditService;
+import org.apache.hadoop.gateway.audit.api.AuditServiceFactory;
+import org.apache.hadoop.gateway.audit.api.Auditor;
+import org.apache.hadoop.gateway.audit.api.CorrelationContext;
+import org.apache.hadoop.gateway.audit.api.CorrelationService;
+import org.apache.hadoop.gateway.audit.api.CorrelationServiceFactory;
+import org.apache.hadoop.gateway.audit.log4j.appender.BinaryAuditAppender;
+import org.apache.hadoop.gateway.audit.log4j.appender.BinaryAuditReader;
+import org.apache.hadoop.gateway.audit.log4j.audit.AuditConstants;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class BinaryAuditAppenderTest {
+
+  private static final String LOGGER_NAME = "audit.binary";
+
+  private static AuditService auditService = AuditServiceFactory.getAuditService();
+  private static CorrelationService correlationService = CorrelationServiceFactory.getCorrelationService();
+
+  private File file;
+  private BinaryAuditAppender appender;
+
+  @Before
+  public void setup() {
+    file = new File( "target/BinaryAuditAppenderTest.bin" );
+    appender = new BinaryAuditAppender();
+    appender.setName( "binary" );
+    appender.setFile( file.getPath() );
+    appender.setAppend( false );
+    appender.activateOptions();
+    Logger logger = Logger.getLogger( LOGGER_NAME );
+    logger.removeAllAppenders();
+    logger.addAppender( appender );
+  }
+
+  @After
+  public void cleanup() {
+    auditService.detachContext();
+    correlationService.detachContext();
+    Logger.getLogger( LOGGER_NAME ).removeAllAppenders();
+    appender.close();
+    if( file.exists() ) {
+      assertThat( "Failed to delete binary audit file.", file.delete(), is( true ) );
+    }
+  }
+
+  @Test
+  public void testWriteAndRead() throws Exception {
+    Auditor auditor = auditService.getAuditor( LOGGER_NAME, AuditConstants.KNOX_COMPONENT_NAME, AuditConstants.KNOX_SERVICE_NAME );
+
+    auditor.audit( "action-1", "resource-1", "type-1", "outcome-1" );
+
+    AuditContext ac = auditService.createContext();
+    ac.setUsername( "user" );
+    ac.setTargetServiceName( "WEBHDFS" );
+    CorrelationContext cc = correlationService.createContext();
+    cc.setRequestId( "request" );
+    cc.setRootRequestId( "root" );
+    auditor.audit( "action-2", "/r\u00e9sum\u00e9/\u4e2d\u6587/\ud83d\ude00", "type-2", "outcome-2", "message-2" );
+    appender.close();
+
+    BinaryAuditReader reader = new BinaryAuditReader( new FileInputStream( file ) );
+    try {
+      BinaryAuditReader.Record record = reader.read();
+      assertThat( record.getChannel(), is( LOGGER_NAME ) );
+      assertThat( record.getRequestId(), nullValue() );
+      assertThat( record.getUsername(), nullValue() );
+      assertThat( record.getAction(), is( "action-1" ) );
+      assertThat( record.getResourceName(), is( "resource-1" ) );
+      assertThat( record.getResourceType(), is( "type-1" ) );
+      assertThat( record.getOutcome(), is( "outcome-1" ) );
+      assertThat( record.getMessage(), nullValue() );
+
+      record = reader.read();
+      assertThat( record.getRootRequestId(), is( "root" ) );
+      assertThat( record.getParentRequestId(), nullValue() );
+      assertThat( record.getRequestId(), is( "request" ) );
+      assertThat( record.getTargetServiceName(), is( "WEBHDFS" ) );
+      assertThat( record.getUsername(), is( "user" ) );
+      assertThat( record.getResourceName(), is( "/r\u00e9sum\u00e9/\u4e2d\u6587/\ud83d\ude00" ) );
+      assertThat( record.getMessage(), is( "message-2" ) );
+
+      assertThat( reader.read(), nullValue() );
+    } finally {
+      reader.close();
+    }
+  }
+
+}
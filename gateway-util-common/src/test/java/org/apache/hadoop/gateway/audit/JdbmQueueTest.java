@@ -28,7 +28,10 @@ import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -37,6 +40,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
 
 public class JdbmQueueTest {
 
@@ -95,6 +99,46 @@ public class JdbmQueueTest {
     assertThat( counter.get(), is( 1 ) );
   }
 
+  @Test
+  public void testBatch() throws IOException, InterruptedException {
+    System.out.println( "Running " + Thread.currentThread().getStackTrace()[1].getClassName() + "#" + Thread.currentThread().getStackTrace()[1].getMethodName() );
+    queue.enqueue( Arrays.asList( "one", "two", "three" ) );
+    queue.enqueue( new ArrayList<String>() );
+    queue.enqueue( "four" );
+
+    final List<String> consumed = new ArrayList<String>();
+    JdbmQueue.BatchConsumer<String> rejecter = new JdbmQueue.BatchConsumer<String>() {
+      @Override
+      public boolean consume( List<String> batch ) {
+        return false;
+      }
+    };
+    JdbmQueue.BatchConsumer<String> collector = new JdbmQueue.BatchConsumer<String>() {
+      @Override
+      public boolean consume( List<String> batch ) {
+        consumed.addAll( batch );
+        return true;
+      }
+    };
+
+    assertThat( queue.process( rejecter, 2 ), is( false ) );
+    assertThat( queue.process( collector, 2 ), is( true ) );
+    assertThat( consumed, contains( "one", "two" ) );
+    assertThat( queue.process( collector, 10 ), is( true ) );
+    assertThat( consumed, contains( "one", "two", "three", "four" ) );
+
+    queue.stop();
+    final AtomicBoolean done = new AtomicBoolean( false );
+    queue.process( new JdbmQueue.BatchConsumer<String>() {
+      @Override
+      public boolean consume( List<String> batch ) {
+        done.set( batch == null );
+        return true;
+      }
+    }, 10 );
+    assertThat( done.get(), is( true ) );
+  }
+
   @Ignore
   @Test
   public void testPerformanceAndStorageFootprint() throws IOException, InterruptedException {
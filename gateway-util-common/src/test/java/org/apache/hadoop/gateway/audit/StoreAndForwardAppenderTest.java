@@ -17,12 +17,16 @@
  */
 package org.apache.hadoop.gateway.audit;
 
+import org.apache.hadoop.gateway.audit.log4j.appender.JdbmStoreAndForwardAppender;
 import org.apache.hadoop.test.log.CollectAppender;
+import org.apache.log4j.Level;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 import org.apache.log4j.PropertyConfigurator;
+import org.apache.log4j.spi.LoggingEvent;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Ignore;
 import org.junit.Test;
 
 import java.io.File;
@@ -68,4 +72,40 @@ public class StoreAndForwardAppenderTest {
     assertThat( CollectAppender.queue.size(), is( iterations ) );
   }
 
-}
\ No newline at end of file
+  @Test
+  public void testAppendAfterCloseIsDropped() throws Exception {
+    File file = new File( "target/audit-closed" );
+    JdbmStoreAndForwardAppender appender = new JdbmStoreAndForwardAppender();
+    appender.setFile( file.getPath() );
+    appender.activateOptions();
+    appender.close();
+    try {
+      Logger logger = Logger.getLogger( "audit.store" );
+      appender.doAppend( new LoggingEvent( Logger.class.getName(), logger, Level.INFO, "late", null ) );
+      assertThat( appender.getDroppedCount(), is( 1L ) );
+    } finally {
+      new File( file.getPath() + ".db" ).delete();
+      new File( file.getPath() + ".lg" ).delete();
+    }
+  }
+
+  @Ignore
+  @Test
+  public void testPerformance() throws Exception {
+    System.out.println( "Running " + Thread.currentThread().getStackTrace()[1].getClassName() + "#" + Thread.currentThread().getStackTrace()[1].getMethodName() );
+
+    int iterations = 100000;
+    Logger logger = Logger.getLogger( "audit.store" );
+    long before = System.nanoTime();
+    for( int i = 1; i <= iterations; i++ ) {
+      logger.info( Integer.toString( i ) );
+    }
+    long append = System.nanoTime() - before;
+    while( CollectAppender.queue.size() < iterations ) {
+      Thread.sleep( 20 );
+    }
+    long total = System.nanoTime() - before;
+    System.out.println( String.format( "Perf: avg=%.2fus, tot=%.2fs, cnt=%d", append / 1000.0 / iterations, total / 1000000000.0, iterations ) );
+  }
+
+}
@@ -0,0 +1,57 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.util;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class RequestIdGeneratorTest {
+
+  @Test
+  public void testFormatMatchesUuid() {
+    long[][] values = {
+        { 0L, 0L },
+        { 0x0123456789abcdefL, 1L },
+        { -1L, -1L },
+        { 0xfedcba9876543210L, 0x0001000000000000L } };
+    for( long[] value : values ) {
+      String id = RequestIdGenerator.format( RequestIdGenerator.createPrefix( value[ 0 ] ), value[ 1 ] );
+      assertThat( id, is( new UUID( value[ 0 ], value[ 1 ] ).toString() ) );
+    }
+  }
+
+  @Test
+  public void testIdsAreUniqueAndOrdered() {
+    Set<String> ids = new HashSet<String>();
+    String previous = RequestIdGenerator.nextRequestId();
+    for( int i = 0; i < 1000; i++ ) {
+      String id = RequestIdGenerator.nextRequestId();
+      assertThat( ids.add( id ), is( true ) );
+      assertThat( id.length(), is( 36 ) );
+      assertThat( id.compareTo( previous ) > 0, is( true ) );
+      previous = id;
+    }
+  }
+
+}
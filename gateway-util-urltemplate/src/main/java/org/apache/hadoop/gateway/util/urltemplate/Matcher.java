@@ -18,6 +18,7 @@
 package org.apache.hadoop.gateway.util.urltemplate;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -167,15 +168,17 @@ public class Matcher<V> {
 
   private void pickMatchingChildren( Segment segment, Status status ) {
     if( segment != null ) {
+      boolean singleValue = segment.getValues().size() == 1;
       for( MatchSegment parent : status.candidates ) {
-        if( parent.pathNode.hasGlob() ) {
-          status.matches.add( new MatchSegment( parent, parent.pathNode, parent.pathNode.segment, segment ) );
+        PathNode parentNode = parent.pathNode;
+        if( parentNode.glob ) {
+          status.matches.add( new MatchSegment( parent, parentNode, parentNode.segment, segment ) );
         }
-        if( parent.pathNode.children != null ) {
-          for( PathNode node : parent.pathNode.children.values() ) {
-            if( node.matches( segment ) ) {
-              status.matches.add( new MatchSegment( parent, node, node.segment, segment ) );
-            }
+        if( parentNode.children != null ) {
+          if( singleValue ) {
+            pickMatchingChildren( parent, segment, status );
+          } else {
+            pickMatchingChildren( parent, parentNode.children.values(), segment, status );
           }
         }
       }
@@ -183,6 +186,44 @@ public class Matcher<V> {
     }
   }
 
+  // Static children can only match an input value equal to their own so they are looked up directly.
+  // The static and dynamic children are merged by insertion order to preserve the match precedence.
+  private void pickMatchingChildren( MatchSegment parent, Segment segment, Status status ) {
+    PathNode parentNode = parent.pathNode;
+    List<PathNode> statics = null;
+    if( parentNode.staticChildren != null ) {
+      statics = parentNode.staticChildren.get( segment.getFirstValue().getPattern() );
+    }
+    int s = 0;
+    int sCount = ( statics == null ) ? 0 : statics.size();
+    List<PathNode> dynamics = parentNode.dynamicChildren;
+    int dCount = ( dynamics == null ) ? 0 : dynamics.size();
+    for( int d = 0; d < dCount; d++ ) {
+      PathNode dynamic = dynamics.get( d );
+      while( s < sCount && statics.get( s ).index < dynamic.index ) {
+        pickMatchingChild( parent, statics.get( s++ ), segment, status );
+      }
+      pickMatchingChild( parent, dynamic, segment, status );
+    }
+    while( s < sCount ) {
+      pickMatchingChild( parent, statics.get( s++ ), segment, status );
+    }
+  }
+
+  private void pickMatchingChild( MatchSegment parent, PathNode node, Segment segment, Status status ) {
+    if( node.matches( segment ) ) {
+      status.matches.add( new MatchSegment( parent, node, node.segment, segment ) );
+    }
+  }
+
+  private void pickMatchingChildren( MatchSegment parent, Collection<PathNode> nodes, Segment segment, Status status ) {
+    if( nodes != null ) {
+      for( PathNode node : nodes ) {
+        pickMatchingChild( parent, node, segment, status );
+      }
+    }
+  }
+
   private Match pickBestMatch( Template input, Status status ) {
     Match bestMatch = new Match( null, null );
     PathNode bestPath = null;
@@ -410,14 +451,21 @@ public class Matcher<V> {
   private class PathNode extends Node {
 
     int depth; // Zero based depth of the pathNode for "best pathNode" calculation.
+    int index; // Zero based insertion order of the pathNode among its siblings.
+    int type; // The most specific value type of the segment, see Segment.STATIC.
+    boolean glob; // True if any of the segment's values is a glob.
     Segment segment;
     Map<Segment,PathNode> children;
+    Map<String,List<PathNode>> staticChildren; // Children with only static values indexed by those values.
+    List<PathNode> dynamicChildren; // Children that must be tested against each input segment.
     Set<QueryNode> queries;
 
     private PathNode( PathNode parent, Segment segment ) {
       super( null, null );
       this.depth = ( parent == null ) ? 0 : parent.depth+1;
       this.segment = segment;
+      this.type = calcType( segment );
+      this.glob = calcGlob( segment );
       this.children = null;
       this.queries = null;
     }
@@ -427,7 +475,26 @@ public class Matcher<V> {
         children = new LinkedHashMap<Segment,PathNode>();
       }
       PathNode child = new PathNode( this, path );
+      child.index = children.size();
       children.put( path, child );
+      if( isStatic( path ) ) {
+        if( staticChildren == null ) {
+          staticChildren = new HashMap<String,List<PathNode>>();
+        }
+        for( Segment.Value value: path.getValues() ) {
+          List<PathNode> nodes = staticChildren.get( value.getPattern() );
+          if( nodes == null ) {
+            nodes = new ArrayList<PathNode>( 1 );
+            staticChildren.put( value.getPattern(), nodes );
+          }
+          nodes.add( child );
+        }
+      } else {
+        if( dynamicChildren == null ) {
+          dynamicChildren = new ArrayList<PathNode>();
+        }
+        dynamicChildren.add( child );
+      }
       return child;
     }
 
@@ -441,31 +508,9 @@ public class Matcher<V> {
     }
 
     private int getType() {
-      int type = Segment.UNKNOWN;
-      if( segment != null ) {
-        for( Segment.Value value: segment.getValues() ) {
-          int vType = value.getType();
-          type = type < vType ? type : vType;
-          if( type == Segment.STATIC ) {
-            break;
-          }
-        }
-      }
       return type;
     }
 
-    private boolean hasGlob() {
-      boolean is = false;
-      if( segment != null ) {
-        for( Segment.Value value: segment.getValues() ) {
-          if( Segment.GLOB == value.getType() ) {
-            is = true;
-          }
-        }
-      }
-      return is;
-    }
-
     private boolean hasQueries() {
       return( queries != null && queries.size() > 0 );
     }
@@ -476,6 +521,41 @@ public class Matcher<V> {
 
   }
 
+  private static int calcType( Segment segment ) {
+    int type = Segment.UNKNOWN;
+    if( segment != null ) {
+      for( Segment.Value value: segment.getValues() ) {
+        int vType = value.getType();
+        type = type < vType ? type : vType;
+        if( type == Segment.STATIC ) {
+          break;
+        }
+      }
+    }
+    return type;
+  }
+
+  private static boolean calcGlob( Segment segment ) {
+    boolean is = false;
+    if( segment != null ) {
+      for( Segment.Value value: segment.getValues() ) {
+        if( Segment.GLOB == value.getType() ) {
+          is = true;
+        }
+      }
+    }
+    return is;
+  }
+
+  private static boolean isStatic( Segment segment ) {
+    for( Segment.Value value: segment.getValues() ) {
+      if( Segment.STATIC != value.getType() ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private class QueryNode extends Node {
 
     private QueryNode( Template template, V value ) {
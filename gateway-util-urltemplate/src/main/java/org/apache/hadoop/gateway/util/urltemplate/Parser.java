@@ -21,8 +21,6 @@ import org.apache.hadoop.gateway.i18n.resources.ResourcesFactory;
 
 import java.net.URISyntaxException;
 import java.util.StringTokenizer;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 //NOTE: Instances Not thread safe but reusable.  Static parse method is thread safe.
 //NOTE: Ignores matrix parameters at this point.
@@ -68,18 +66,6 @@ public class Parser {
   public static final char TEMPLATE_CLOSE_MARKUP = '}';
   public static final char NAME_PATTERN_SEPARATOR = '=';
 
-  private static final int MATCH_GROUP_SCHEME = 1;
-  private static final int MATCH_GROUP_SCHEME_NAKED = 2;
-  private static final int MATCH_GROUP_AUTHORITY = 3;
-  private static final int MATCH_GROUP_AUTHORITY_NAKED = 4;
-  private static final int MATCH_GROUP_PATH = 5;
-  private static final int MATCH_GROUP_QUERY = 6;
-  private static final int MATCH_GROUP_QUERY_NAKED = 7;
-  private static final int MATCH_GROUP_FRAGMENT = 8;
-  private static final int MATCH_GROUP_FRAGMENT_NAKED = 9;
-
-  private static Pattern PATTERN = Pattern.compile( "^(([^:/?#]+):)?(//([^/?#]*))?([^?#]*)(\\?([^#]*))?(#(.*))?" );
-
   private String template; // Kept this for debugging.
   private Builder builder;
 
@@ -97,20 +83,65 @@ public class Parser {
     builder.setIsDirectory( false ); // Assume a file path until found otherwise.  If true, will cause trailing / in output URL.
     builder.setHasQuery( false ); // Assume no ? until found otherwise.  If true, will cause ? in output URL.
     builder.setHasFragment( false ); // Assume no # until found otherwise.  If true, will cause # in output URL.
-    Matcher match = PATTERN.matcher( template );
-    if( match.matches() ) {
-      consumeSchemeMatch( match );
-      consumeAuthorityMatch( match );
-      consumePathMatch( match );
-      consumeQueryMatch( match );
-      consumeFragmentMatch( match );
-      fixNakedAuthority();
-    } else {
+    // Scan the template into the components described by the regular expression above.
+    // This is done by hand because the regular expression was costly for every request.
+    int length = template.length();
+    // The fragment pattern (.*) of the regular expression doesn't match line terminators.
+    int fragment = template.indexOf( '#' );
+    if( fragment >= 0 && containsLineTerminator( template, fragment + 1 ) ) {
       throw new URISyntaxException( template, RES.parseTemplateFailureReason( template ) );
     }
+    int index = 0;
+    int end = scanUntil( template, 0, ":/?#" );
+    if( end > 0 && end < length && template.charAt( end ) == ':' ) {
+      builder.setHasScheme( true );
+      consumeSchemeToken( template.substring( 0, end ) );
+      index = end + 1;
+    }
+    if( template.startsWith( "//", index ) ) {
+      end = scanUntil( template, index + 2, "/?#" );
+      builder.setHasAuthority( true );
+      consumeAuthorityToken( template.substring( index + 2, end ) );
+      index = end;
+    }
+    end = scanUntil( template, index, "?#" );
+    consumePath( template.substring( index, end ) );
+    index = end;
+    if( index < length && template.charAt( index ) == '?' ) {
+      end = scanUntil( template, index + 1, "#" );
+      builder.setHasQuery( true );
+      consumeQueryToken( template.substring( index + 1, end ) );
+      index = end;
+    }
+    if( index < length ) {
+      builder.setHasFragment( true );
+      consumeFragmentToken( template.substring( index + 1 ) );
+    }
+    fixNakedAuthority();
     return builder.build();
   }
 
+  // Returns the index of the first of the delimiters at or after the start or the length if none found.
+  private static int scanUntil( String s, int start, String delimiters ) {
+    int length = s.length();
+    for( int i = start; i < length; i++ ) {
+      if( delimiters.indexOf( s.charAt( i ) ) >= 0 ) {
+        return i;
+      }
+    }
+    return length;
+  }
+
+  private static boolean containsLineTerminator( String s, int start ) {
+    for( int i = start, n = s.length(); i < n; i++ ) {
+      char c = s.charAt( i );
+      if( c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029' ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private void fixNakedAuthority() {
     if( builder.getHashScheme() &&
         !builder.getHasAuthority() &&
@@ -135,13 +166,6 @@ public class Parser {
     return pattern;
   }
 
-  private void consumeSchemeMatch( Matcher match ) {
-    if( match.group( MATCH_GROUP_SCHEME ) != null ) {
-      builder.setHasScheme( true );
-      consumeSchemeToken( match.group( MATCH_GROUP_SCHEME_NAKED ) );
-    }
-  }
-
   private void consumeSchemeToken( String token ) {
     if( token != null ) {
       String[] pair = parseTemplateToken( token, Segment.STAR_PATTERN );
@@ -149,13 +173,6 @@ public class Parser {
     }
   }
 
-  private void consumeAuthorityMatch( Matcher match ) {
-    if( match.group( MATCH_GROUP_AUTHORITY ) != null ) {
-      builder.setHasAuthority( true );
-      consumeAuthorityToken( match.group( MATCH_GROUP_AUTHORITY_NAKED ) );
-    }
-  }
-
   private void consumeAuthorityToken( String token ) {
     if( token != null ) {
       String[] usernamePassword=null, hostPort=null, paramPattern=null;
@@ -187,13 +204,10 @@ public class Parser {
     }
   }
 
-  private void consumePathMatch( Matcher match ) {
-    String path = match.group( MATCH_GROUP_PATH );
-    if( path != null ) {
-      builder.setIsAbsolute( path.startsWith( "/" ) );
-      builder.setIsDirectory( path.endsWith( "/" ) );
-      consumePathToken( path );
-    }
+  private void consumePath( String path ) {
+    builder.setIsAbsolute( path.startsWith( "/" ) );
+    builder.setIsDirectory( path.endsWith( "/" ) );
+    consumePathToken( path );
   }
 
   private void consumePathToken( String token ) {
@@ -212,13 +226,6 @@ public class Parser {
     }
   }
 
-  private void consumeQueryMatch( Matcher match ) {
-    if( match.group( MATCH_GROUP_QUERY ) != null ) {
-      builder.setHasQuery( true );
-      consumeQueryToken( match.group( MATCH_GROUP_QUERY_NAKED ) );
-    }
-  }
-
   private void consumeQueryToken( String token ) {
     if( token != null ) {
       StringTokenizer tokenizer = new StringTokenizer( token, "?&" );
@@ -254,13 +261,6 @@ public class Parser {
     }
   }
 
-  private void consumeFragmentMatch( Matcher match ) {
-    if( match.group( MATCH_GROUP_FRAGMENT ) != null ) {
-      builder.setHasFragment( true );
-      consumeFragmentToken( match.group( MATCH_GROUP_FRAGMENT_NAKED ) );
-    }
-  }
-
   private void consumeFragmentToken( String token ) {
     if( token != null && token.length() > 0 ) {
       String[] pair = parseTemplateToken( token, Segment.STAR_PATTERN );
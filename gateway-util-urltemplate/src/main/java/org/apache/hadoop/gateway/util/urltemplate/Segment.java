@@ -37,6 +37,10 @@ abstract class Segment {
   public static final int GLOB = 5;
   public static final int UNKNOWN = 6;
 
+  // Bounds the patterns shared between templates.
+  private static final int MAX_REGEX_CACHE_SIZE = 1000;
+  private static final Map<String,Pattern> REGEX_CACHE = new RegexCache();
+
   private String paramName; // ?queryName={paramName=value}
   private Map<String,Value> values;
 
@@ -116,7 +120,9 @@ abstract class Segment {
   public class Value {
     private int type;
     private String pattern;
-    private Pattern regex;
+    // Only compiled when the value is used as a pattern (i.e. it is part of a template being
+    // matched against) so values parsed from untrusted input never compile a regex.
+    private volatile Pattern regex;
 
     private Value( String pattern ) {
       this.pattern = pattern;
@@ -129,7 +135,6 @@ abstract class Segment {
         type = GLOB;
       } else if ( pattern != null && pattern.contains( STAR_PATTERN ) ) {
         this.type = REGEX;
-        this.regex = compileRegex( pattern );
       } else {
         this.type = STATIC;
       }
@@ -150,6 +155,11 @@ abstract class Segment {
     }
 
     public Pattern getRegex() {
+      Pattern regex = this.regex;
+      if( regex == null && type == REGEX ) {
+        regex = compileRegex( pattern );
+        this.regex = regex;
+      }
       return regex;
     }
 
@@ -168,7 +178,7 @@ abstract class Segment {
             //matches = matchThisWildcard( that ); // See: MatcherTest.testWildcardCharacterInInputTemplate
             break;
           case( REGEX ):
-            matches = this.regex.matcher( that.pattern ).matches();
+            matches = this.getRegex().matcher( that.pattern ).matches();
             //matches = matchThisRegex( that ); // See: MatcherTest.testWildcardCharacterInInputTemplate
             break;
           default:
@@ -238,15 +248,51 @@ abstract class Segment {
   }
 
   // Creates a pattern for a simplified filesystem style wildcard '*' syntax.
+  // The compiled patterns are shared since many templates use the same patterns.
   private static Pattern compileRegex( String segment ) {
-    // Turn '*' into '/' to keep it safe.
-    // Chose '/' because that can't exist in a segment.
-    segment = segment.replaceAll( "\\*", "/" );
-    // Turn '.' into '\.'.
-    segment = segment.replaceAll( "\\.", "\\\\." );
-    // Turn '/' back into '.*'.
-    segment = segment.replaceAll( "/", "\\.\\*" );
-    return Pattern.compile( segment );
+    Pattern regex;
+    synchronized( REGEX_CACHE ) {
+      regex = REGEX_CACHE.get( segment );
+    }
+    if( regex == null ) {
+      regex = Pattern.compile( translateRegex( segment ) );
+      synchronized( REGEX_CACHE ) {
+        REGEX_CACHE.put( segment, regex );
+      }
+    }
+    return regex;
+  }
+
+  // Turns '*' into '.*' and '.' into '\.' leaving everything else as is.
+  static String translateRegex( String segment ) {
+    StringBuilder regex = new StringBuilder( segment.length() + 8 );
+    for( int i = 0, n = segment.length(); i < n; i++ ) {
+      char c = segment.charAt( i );
+      switch( c ) {
+        case '*':
+          regex.append( ".*" );
+          break;
+        case '.':
+          regex.append( "\\." );
+          break;
+        default:
+          regex.append( c );
+      }
+    }
+    return regex.toString();
+  }
+
+  private static class RegexCache extends LinkedHashMap<String,Pattern> {
+
+    private RegexCache() {
+      super( 16, 0.75f, true );
+    }
+
+    @Override
+    protected boolean removeEldestEntry( Map.Entry<String,Pattern> eldest ) {
+      return size() > MAX_REGEX_CACHE_SIZE;
+    }
+
   }
 
 }
@@ -20,6 +20,7 @@ package org.apache.hadoop.gateway.util.urltemplate;
 
 import org.apache.hadoop.test.category.FastTests;
 import org.apache.hadoop.test.category.UnitTests;
+import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
@@ -822,4 +823,54 @@ public class MatcherTest {
     assertThat( params.getNames().size(), equalTo( 0 ) );
   }
 
+  @Test
+  public void testStaticAndWildcardSiblings() throws URISyntaxException {
+    Matcher<String> matcher = new Matcher<String>();
+    addTemplate( matcher, "/webhdfs/v1/{path=**}" );
+    addTemplate( matcher, "/webhdfs/{version}/static" );
+    addTemplate( matcher, "/webhdfs/*.txt" );
+    addTemplate( matcher, "/{service}/v1" );
+
+    assertValidMatch( matcher, "/webhdfs/v1/tmp/file", "/webhdfs/v1/{path=**}" );
+    assertValidMatch( matcher, "/webhdfs/v2/static", "/webhdfs/{version}/static" );
+    assertValidMatch( matcher, "/webhdfs/file.txt", "/webhdfs/*.txt" );
+    assertValidMatch( matcher, "/oozie/v1", "/{service}/v1" );
+    assertValidMatch( matcher, "/oozie/v2", null );
+
+    Matcher<String>.Match match = matcher.match( Parser.parse( "/webhdfs/v2/static" ) );
+    assertThat( match.getParams().resolve( "version" ), hasItem( "v2" ) );
+  }
+
+  @Ignore
+  @Test
+  public void testPerformance() throws URISyntaxException {
+    System.out.println( "Running " + Thread.currentThread().getStackTrace()[1].getClassName() + "#" + Thread.currentThread().getStackTrace()[1].getMethodName() );
+    // Roughly the shape of a gateway with dozens of clusters each deploying the standard services.
+    String[] services = { "namenode/api/v1", "templeton/v1", "oozie/v1", "hbase", "hive", "yarn/v1", "storm/v1", "falcon/v1" };
+    Matcher<String> matcher = new Matcher<String>();
+    for( int cluster = 0; cluster < 40; cluster++ ) {
+      for( String service : services ) {
+        String prefix = "/cluster" + cluster + "/" + service;
+        addTemplate( matcher, prefix );
+        addTemplate( matcher, prefix + "/?{**}" );
+        addTemplate( matcher, prefix + "/{path=**}?{**}" );
+        addTemplate( matcher, prefix + "/*/static?{**}" );
+      }
+    }
+    Template[] inputs = new Template[ 1000 ];
+    for( int i = 0; i < inputs.length; i++ ) {
+      inputs[ i ] = Parser.parse( "/cluster" + ( i % 40 ) + "/" + services[ i % services.length ] + "/tmp/dir" + i + "/file?op=OPEN&user.name=hdfs" );
+    }
+    for( Template input : inputs ) {
+      assertThat( matcher.match( input ), notNullValue() );
+    }
+    int count = 1000000;
+    long before = System.nanoTime();
+    for( int i = 0; i < count; i++ ) {
+      matcher.match( inputs[ i % inputs.length ] );
+    }
+    long time = System.nanoTime() - before;
+    System.out.println( String.format( "Perf: avg=%.2fus, tot=%.2fs, cnt=%d", (double)time / (double)count / 1000.0, (double)time / 1000000000.0, count ) );
+  }
+
 }
@@ -30,6 +30,7 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 @Category( { UnitTests.class, FastTests.class } )
 public class ParserTest {
@@ -1018,4 +1019,32 @@ public class ParserTest {
     assertThat( template.getPort().getFirstValue().getPattern(), is( "*" ) );
   }
 
+  @Test
+  public void testDelimitersWithinComponents() throws Exception {
+    Template template;
+
+    template = Parser.parse( "http://host:80/a:b/c" );
+    assertThat( template.hasScheme(), is( true ) );
+    assertThat( template.getHost().getFirstValue().getPattern(), is( "host" ) );
+    assertThat( template.getPath().size(), is( 2 ) );
+    assertThat( template.getPath().get( 0 ).getFirstValue().getPattern(), is( "a:b" ) );
+
+    template = Parser.parse( "/a/b?x=1#f?g" );
+    assertThat( template.hasScheme(), is( false ) );
+    assertThat( template.getQuery().size(), is( 1 ) );
+    assertThat( template.getFragment().getFirstValue().getPattern(), is( "f?g" ) );
+
+    template = Parser.parse( "//host/a" );
+    assertThat( template.hasScheme(), is( false ) );
+    assertThat( template.hasAuthority(), is( true ) );
+    assertThat( template.getHost().getFirstValue().getPattern(), is( "host" ) );
+
+    try {
+      Parser.parse( "/a#b\nc" );
+      fail( "Expected URISyntaxException for a line terminator in the fragment." );
+    } catch( URISyntaxException e ) {
+      // Expected.
+    }
+  }
+
 }
@@ -23,6 +23,7 @@ import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
 @Category( { UnitTests.class, FastTests.class } )
@@ -103,6 +104,22 @@ public class SegmentTest {
 //    assertThat( s1.matches( s7 ), equalTo( false ) );
   }
 
+  @Test
+  public void testRegexTranslation() throws Exception {
+    assertThat( Segment.translateRegex( "*.ext" ), equalTo( ".*\\.ext" ) );
+    assertThat( Segment.translateRegex( "a*b*" ), equalTo( "a.*b.*" ) );
+    assertThat( Segment.translateRegex( "file" ), equalTo( "file" ) );
+  }
+
+  @Test
+  public void testRegexSharedBetweenSegments() throws Exception {
+    TestSegment s1 = new TestSegment( "p", "*.shared" );
+    TestSegment s2 = new TestSegment( "q", "*.shared" );
+    assertThat( s1.getFirstValue().getRegex(), sameInstance( s2.getFirstValue().getRegex() ) );
+    assertThat( s1.matches( new TestSegment( "p", "file.shared" ) ), equalTo( true ) );
+    assertThat( s1.matches( new TestSegment( "p", "file.other" ) ), equalTo( false ) );
+  }
+
   private class TestSegment extends Segment {
 
     public TestSegment( String paramName, String valuePattern ) {